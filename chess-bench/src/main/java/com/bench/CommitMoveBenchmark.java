@@ -0,0 +1,56 @@
+package com.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.redis.RedisManager;
+
+/**
+ * RedisManager.commitMove against RedisStandIn: pool checkout, MULTI/EXEC framing and the
+ * loopback round trip, without a real Redis. Run with several threads to see pool contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommitMoveBenchmark {
+
+    private static final String FEN = "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2";
+
+    private RedisManager redis;
+
+    @Setup
+    public void setup() throws Exception {
+        RedisStandIn.ensureStarted();
+        redis = RedisManager.getInstance();
+    }
+
+    @Benchmark
+    public boolean deltaPly() {
+        return redis.commitMove(42L, "bench", null, 7, "g1f3", "w", "b", "b", "IN_PROGRESS", 281_400L, 290_050L);
+    }
+
+    @Benchmark
+    public boolean fullFenPly() {
+        return redis.commitMove(42L, "bench", FEN, 20, "g1f3", "w", "b", "b", "IN_PROGRESS", 281_400L, 290_050L);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean deltaPlyContended() {
+        return redis.commitMove(42L, "bench", null, 7, "g1f3", "w", "b", "b", "IN_PROGRESS", 281_400L, 290_050L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.dto.ClockDTO;
+import com.shared.dto.Envelope;
+import com.shared.dto.MatchedMessageDTO;
+import com.shared.dto.MoveBroadcastDTO;
+import com.shared.dto.MoveMessageDTO;
+import com.shared.dto.OpponentDTO;
+import com.shared.util.Colour;
+import com.shared.util.TimeControl;
+
+/** Jackson cost of the messages on the move and match paths, done the way the server and client do it. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoSerdeBenchmark {
+
+    private static final TypeReference<Envelope<MoveBroadcastDTO>> BROADCAST_TYPE = new TypeReference<>() {};
+
+    private ObjectMapper mapper;
+    private Envelope<MoveBroadcastDTO> deltaBroadcast;
+    private Envelope<MoveBroadcastDTO> fullBroadcast;
+    private Envelope<MatchedMessageDTO> matched;
+    private String deltaBroadcastJson;
+    private String moveJson;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper();
+        deltaBroadcast = new Envelope<>("move",
+            new MoveBroadcastDTO(123_456L, "e2e4", null, Colour.BLACK, 1, "9f3a61c2",
+                new ClockDTO(302_140L, 300_000L)));
+        fullBroadcast = new Envelope<>("move",
+            new MoveBroadcastDTO(123_456L, "g1f3", "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2",
+                Colour.BLACK, 20, "0c1d2e3f", new ClockDTO(261_870L, 248_310L)));
+        matched = new Envelope<>("matchFound", new MatchedMessageDTO(123_456L, "player-1", Colour.WHITE,
+            new OpponentDTO("player-2", "opponent", 1530),
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", TimeControl.parse("5+3")));
+        deltaBroadcastJson = mapper.writeValueAsString(deltaBroadcast);
+        moveJson = mapper.writeValueAsString(new Envelope<>("move", new MoveMessageDTO(123_456L, "player-1", "e2e4")));
+    }
+
+    @Benchmark
+    public String writeDeltaBroadcast() throws Exception {
+        return mapper.writeValueAsString(deltaBroadcast);
+    }
+
+    @Benchmark
+    public String writeFullFenBroadcast() throws Exception {
+        return mapper.writeValueAsString(fullBroadcast);
+    }
+
+    @Benchmark
+    public String writeMatched() throws Exception {
+        return mapper.writeValueAsString(matched);
+    }
+
+    /** What handleMessage does: tree first to find the type, then bind the payload. */
+    @Benchmark
+    public MoveMessageDTO readMoveViaTree() throws Exception {
+        JsonNode root = mapper.readTree(moveJson);
+        root.get("type").asText();
+        return mapper.treeToValue(root.get("payload"), MoveMessageDTO.class);
+    }
+
+    @Benchmark
+    public Envelope<MoveBroadcastDTO> readBroadcastTyped() throws Exception {
+        return mapper.readValue(deltaBroadcastJson, BROADCAST_TYPE);
+    }
+}
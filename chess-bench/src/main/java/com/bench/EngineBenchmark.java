@@ -0,0 +1,87 @@
+package com.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.engine.SearchEngine;
+import com.server.engine.SearchResult;
+
+/**
+ * The bot engine from an empty hash table each invocation. timeToDepth is how long a fixed-depth
+ * search takes with `threads` Lazy-SMP workers; nodes reports the same searches as nodes/s
+ * (the "nodes" secondary result), which is what the per-move time budget buys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final int DEPTH = 5;
+    private static final Map<String, String> POSITIONS = Map.of(
+        "start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        "middlegame", "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2QKB1R w KQ - 0 8",
+        "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+
+    @Param({ "start", "middlegame", "endgame" })
+    public String position;
+
+    @Param({ "1", "2", "4" })
+    public int threads;
+
+    private SearchEngine engine;
+    private String fen;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() {
+        engine = new SearchEngine(threads, 16);
+        fen = POSITIONS.get(position);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyHash() {
+        engine.clearHash();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return engine.search(fen, new SearchEngine.Limits(DEPTH, 0, threads)).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public SearchResult nodes(Nodes counters) {
+        SearchResult r = engine.search(fen, new SearchEngine.Limits(DEPTH, 0, threads)).join();
+        counters.nodes += r.nodes();
+        return r;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.server.model.ChessGame;
+import com.server.model.Player;
+
+/**
+ * Positions taken from well-known games, each paired with the move actually played from it.
+ * Games are replayed through ChessGame itself, so a game stops contributing positions at the
+ * first move the server can't apply (ChessGame.parseMove has no castling encoding).
+ */
+final class GameCorpus {
+
+    record Ply(String fen, int ply, String uci) {}
+
+    private static final String[][] GAMES = {
+        // Anderssen - Kieseritzky, London 1851 ("Immortal Game")
+        { "e2e4", "e7e5", "f2f4", "e5f4", "f1c4", "d8h4", "e1f1", "b7b5", "c4b5", "g8f6",
+          "g1f3", "h4h6", "d2d3", "f6h5", "f3h4", "h6g5", "h4f5", "c7c6", "g2g4", "h5f6",
+          "h1g1", "c6b5", "h2h4", "g5g6", "h4h5", "g6g5", "d1f3", "f6g8", "c1f4", "g5f6",
+          "b1c3", "f8c5", "c3d5", "f6b2", "f4d6", "c5g1", "e4e5", "b2a1", "f1e2", "b8a6",
+          "f5g7", "e8d8", "f3f6", "g8f6", "d6e7" },
+        // Morphy - Duke of Brunswick & Count Isouard, Paris 1858 ("Opera Game")
+        { "e2e4", "e7e5", "g1f3", "d7d6", "d2d4", "c8g4", "d4e5", "g4f3", "d1f3", "d6e5",
+          "f1c4", "g8f6", "f3b3", "d8e7", "b1c3", "c7c6", "c1g5", "b7b5", "c3b5", "c6b5",
+          "c4b5", "b8d7", "e1c1", "a8d8", "d1d7", "d8d7", "h1d1", "e7e6", "b5d7", "f6d7",
+          "b3b8", "d7b8", "d1d8" },
+        // Legall de Kermeur - Saint Brie, Paris 1750 ("Legal's Mate")
+        { "e2e4", "e7e5", "g1f3", "d7d6", "f1c4", "c8g4", "b1c3", "g7g6", "f3e5", "g4d1",
+          "c4f7", "e8e7", "c3d5" },
+        // Scholar's mate
+        { "e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6", "h5f7" },
+    };
+
+    private GameCorpus() {}
+
+    static List<Ply> plies() {
+        List<Ply> out = new ArrayList<>();
+        for (String[] moves : GAMES) {
+            ChessGame game = newGame(0);
+            for (String uci : moves) {
+                String fen = game.getPosition().getFEN();
+                short move = game.parseMove(uci);
+                if (move == 0 || !game.makeMove(move)) break;
+                out.add(new Ply(fen, game.getPly() - 1, uci));
+            }
+        }
+        return out;
+    }
+
+    static ChessGame newGame(long gameId) {
+        return new ChessGame(players(), gameId);
+    }
+
+    static ChessGame gameAt(Ply p) {
+        return new ChessGame(players(), 1L, p.fen(), p.ply());
+    }
+
+    private static Player[] players() {
+        return new Player[] { new Player("bench-w", "white", 1500), new Player("bench-b", "black", 1500) };
+    }
+}
@@ -0,0 +1,130 @@
+package com.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.redis.RedisManager;
+import com.server.store.GameStore;
+import com.server.store.InMemoryGameStore;
+import com.shared.util.TimeControl;
+
+/**
+ * Throughput of the GameStore operations the server calls per move and per game, for the
+ * in-memory store and for RedisManager against RedisStandIn. Each thread plays its own
+ * games, so the threaded variants measure stripe/pool contention rather than one hot game.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameStoreBenchmark {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String NODE = "bench";
+    private static final TimeControl FIVE_PLUS_THREE = TimeControl.parse("5+3");
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({ "memory", "redis" })
+        public String kind;
+
+        GameStore store;
+
+        @Setup
+        public void setup() throws Exception {
+            if (kind.equals("redis")) {
+                RedisStandIn.ensureStarted();
+                store = RedisManager.getInstance();
+            } else {
+                store = new InMemoryGameStore();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Game {
+        // Games are swapped out at this length so the in-memory move lists stay realistically short
+        static final int MAX_PLIES = 200;
+
+        long gid;
+        int ply;
+        String white;
+        String black;
+
+        @Setup
+        public void setup(Store s) {
+            start(s.store);
+        }
+
+        void start(GameStore store) {
+            gid = store.nextGameId();
+            ply = 0;
+            white = "w" + gid;
+            black = "b" + gid;
+            store.initGameState(gid, NODE, START_FEN, white, black, FIVE_PLUS_THREE);
+            store.bindPlayerToGame(white, gid);
+            store.bindPlayerToGame(black, gid);
+        }
+
+        boolean commit(GameStore store) {
+            if (ply == MAX_PLIES) {
+                store.endGameCleanup(gid, NODE);
+                start(store);
+            }
+            return store.commitMove(gid, NODE, null, ++ply, "g1f3", white, black, "b", "IN_PROGRESS", 281_400L, 290_050L);
+        }
+    }
+
+    @Benchmark
+    public boolean commitMove(Store s, Game g) {
+        return g.commit(s.store);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean commitMoveParallel(Store s, Game g) {
+        return g.commit(s.store);
+    }
+
+    /** The uncached lookups a reconnect does before trusting a route. */
+    @Benchmark
+    @Threads(8)
+    public String routeLookupParallel(Store s, Game g) {
+        Long gid = s.store.getPlayerGameFresh(g.white);
+        return s.store.getGameNodeFresh(gid == null ? g.gid : gid);
+    }
+
+    /** Create, bind, ten plies, end, clean up and archive-purge: one short game's worth of store traffic. */
+    @Benchmark
+    public boolean gameLifecycle(Store s) {
+        GameStore store = s.store;
+        long gid = store.nextGameId();
+        String white = "lw" + gid;
+        String black = "lb" + gid;
+        store.initGameState(gid, NODE, START_FEN, white, black, FIVE_PLUS_THREE);
+        store.bindPlayerToGame(white, gid);
+        store.bindPlayerToGame(black, gid);
+        for (int ply = 1; ply <= 10; ply++) {
+            store.commitMove(gid, NODE, null, ply, "g1f3", white, black, (ply & 1) == 1 ? "b" : "w", "IN_PROGRESS",
+                281_400L, 290_050L);
+        }
+        boolean ok = store.endGamePersist(gid, NODE, "WHITE_WON", "RESIGNATION", white);
+        store.endGameCleanup(gid, NODE);
+        store.purgeArchived(List.of(gid));
+        return ok;
+    }
+}
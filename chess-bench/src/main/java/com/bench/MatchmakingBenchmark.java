@@ -0,0 +1,61 @@
+package com.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.model.Player;
+import com.server.service.MatchmakingService;
+import com.server.util.Match;
+
+/**
+ * One tryMatchWithWaiting round over freshly filled queues. Game creation goes through
+ * RedisManager against RedisStandIn, so the numbers include the per-game Redis round trips.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchmakingBenchmark {
+
+    @Param({ "2", "16", "128", "1024" })
+    public int queuedPlayers;
+
+    private MatchmakingService matchmaking;
+    private long nextPlayer;
+
+    @Setup(Level.Trial)
+    public void startRedis() throws Exception {
+        RedisStandIn.ensureStarted();
+    }
+
+    @Setup(Level.Invocation)
+    public void fillQueues() {
+        matchmaking = new MatchmakingService("bench");
+        // Ratings spread over all three buckets, as a live queue would be
+        for (int i = 0; i < queuedPlayers; i++) {
+            long id = nextPlayer++;
+            int rating = (int) ((id * 7919) % 2600);
+            matchmaking.addPlayer(new Player("p" + id, "player" + id, rating));
+        }
+    }
+
+    @Benchmark
+    public List<Match> tryMatchWithWaiting() {
+        return matchmaking.tryMatchWithWaiting();
+    }
+}
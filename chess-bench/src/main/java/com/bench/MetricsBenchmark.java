@@ -0,0 +1,84 @@
+package com.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.metrics.LatencyHistogram;
+
+/**
+ * What the metrics cost the paths that record them: a latency histogram record, a LongAdder
+ * counter (what Metrics.counter hands out) and an AtomicLong counter (the counterFn sources),
+ * alone and with four threads hitting the same series.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private LatencyHistogram histogram;
+    private LongAdder adder;
+    private AtomicLong atomic;
+
+    @Setup
+    public void setup() {
+        histogram = new LatencyHistogram();
+        adder = new LongAdder();
+        atomic = new AtomicLong();
+    }
+
+    // Move latencies are mostly tens to hundreds of microseconds, with a tail into seconds
+    private static long latencyMicros() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return rnd.nextInt(100) == 0 ? rnd.nextLong(1_000, 2_000_000) : rnd.nextLong(20, 800);
+    }
+
+    @Benchmark
+    public void recordHistogram() {
+        histogram.record(latencyMicros());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordHistogramParallel() {
+        histogram.record(latencyMicros());
+    }
+
+    @Benchmark
+    public void incrementAdder() {
+        adder.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void incrementAdderParallel() {
+        adder.increment();
+    }
+
+    @Benchmark
+    public long incrementAtomic() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long incrementAtomicParallel() {
+        return atomic.incrementAndGet();
+    }
+}
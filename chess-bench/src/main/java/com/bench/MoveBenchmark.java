@@ -0,0 +1,89 @@
+package com.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.model.ChessGame;
+
+/**
+ * parseMove + makeMove + end-of-game checks over every position in GameCorpus, the same
+ * sequence the move handler runs. Each call undoes its move so the games never run out.
+ * Note makeMove logs to stdout; that cost is part of the current hot path and is measured too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    private ChessGame[] games;
+    private String[] moves;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<GameCorpus.Ply> plies = GameCorpus.plies();
+        games = new ChessGame[plies.size()];
+        moves = new String[plies.size()];
+        for (int i = 0; i < plies.size(); i++) {
+            games[i] = GameCorpus.gameAt(plies.get(i));
+            moves[i] = plies.get(i).uci();
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1 == games.length) ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public short parseMove() {
+        int i = nextIndex();
+        return games[i].parseMove(moves[i]);
+    }
+
+    @Benchmark
+    public boolean parseMakeAndCheckMate() {
+        int i = nextIndex();
+        ChessGame game = games[i];
+        short move = game.parseMove(moves[i]);
+        boolean over = game.makeMove(move) && (game.getPosition().isMate() || game.getPosition().isStaleMate());
+        game.undoLastMove();
+        return over;
+    }
+
+    @Benchmark
+    public String makeMoveAndFen() {
+        int i = nextIndex();
+        ChessGame game = games[i];
+        game.makeMove(game.parseMove(moves[i]));
+        String fen = game.getPosition().getFEN();
+        game.undoLastMove();
+        return fen;
+    }
+
+    @Benchmark
+    public String makeMoveAndChecksum() {
+        int i = nextIndex();
+        ChessGame game = games[i];
+        game.makeMove(game.parseMove(moves[i]));
+        String checksum = game.positionChecksum();
+        game.undoLastMove();
+        return checksum;
+    }
+}
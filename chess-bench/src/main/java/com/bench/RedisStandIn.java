@@ -0,0 +1,167 @@
+package com.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Just enough of a RESP2 server for RedisManager's write paths: every command gets a reply
+ * of the type Jedis expects (status, integer, bulk or array) and MULTI/EXEC queue properly,
+ * but nothing is stored except INCR counters. It keeps the real client, pool, socket and
+ * protocol work in the benchmark while taking Redis itself (and its variance) out.
+ */
+public final class RedisStandIn {
+
+    private static RedisStandIn shared;
+
+    private final ServerSocket server;
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private RedisStandIn() throws IOException {
+        this.server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "redis-standin-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Starts the stand-in once per JVM and points RedisManager at it; must run before RedisManager is touched. */
+    public static synchronized RedisStandIn ensureStarted() throws IOException {
+        if (shared == null) {
+            shared = new RedisStandIn();
+            System.setProperty("chess.redisHost", "127.0.0.1");
+            System.setProperty("chess.redisPort", Integer.toString(shared.server.getLocalPort()));
+        }
+        return shared;
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                Thread t = new Thread(() -> serve(s), "redis-standin-conn");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket s) {
+        try (s;
+             InputStream in = new BufferedInputStream(s.getInputStream());
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            List<List<String>> queued = null;
+            while (true) {
+                List<String> cmd = readCommand(in);
+                if (cmd == null) return;
+                String name = cmd.get(0).toUpperCase();
+                switch (name) {
+                    case "MULTI" -> {
+                        queued = new ArrayList<>();
+                        status(out, "OK");
+                    }
+                    case "EXEC" -> {
+                        List<List<String>> tx = queued == null ? List.of() : queued;
+                        queued = null;
+                        out.write(('*' + Integer.toString(tx.size()) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                        for (List<String> c : tx) reply(out, c);
+                    }
+                    case "DISCARD" -> {
+                        queued = null;
+                        status(out, "OK");
+                    }
+                    case "SUBSCRIBE" -> {
+                        // Acknowledge and then just hold the connection open
+                        for (int i = 1; i < cmd.size(); i++) {
+                            out.write(("*3\r\n$9\r\nsubscribe\r\n").getBytes(StandardCharsets.US_ASCII));
+                            bulk(out, cmd.get(i));
+                            integer(out, i);
+                        }
+                    }
+                    default -> {
+                        if (queued != null) {
+                            queued.add(cmd);
+                            status(out, "QUEUED");
+                        } else {
+                            reply(out, cmd);
+                        }
+                    }
+                }
+                // Pipelines send many commands before reading; only flush once we've drained them
+                if (in.available() == 0) out.flush();
+            }
+        } catch (IOException ignore) {
+            // client went away
+        }
+    }
+
+    private void reply(OutputStream out, List<String> cmd) throws IOException {
+        switch (cmd.get(0).toUpperCase()) {
+            case "PING" -> status(out, "PONG");
+            case "INCR" -> integer(out, counters.computeIfAbsent(cmd.get(1), k -> new AtomicLong()).incrementAndGet());
+            case "SETNX", "SADD", "SREM", "DEL", "RPUSH", "LREM", "HINCRBY", "HSET", "EXPIRE", "PUBLISH", "MEMORY" -> integer(out, 1);
+            case "EXISTS", "SCARD" -> integer(out, 0);
+            case "GET" -> out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            case "SMEMBERS", "HGETALL", "LRANGE" -> out.write("*0\r\n".getBytes(StandardCharsets.US_ASCII));
+            default -> status(out, "OK"); // SET, SETEX, HMSET, CLIENT, SELECT, ...
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) return null;
+        if (b != '*') throw new IOException("expected array, got " + (char) b);
+        int n = (int) readLong(in);
+        List<String> parts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (in.read() != '$') throw new IOException("expected bulk string");
+            int len = (int) readLong(in);
+            byte[] buf = in.readNBytes(len);
+            in.read(); // \r
+            in.read(); // \n
+            parts.add(new String(buf, StandardCharsets.UTF_8));
+        }
+        return parts;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long v = 0;
+        boolean neg = false;
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) throw new IOException("eof");
+            if (c == '-') neg = true;
+            else v = v * 10 + (c - '0');
+        }
+        in.read(); // \n
+        return neg ? -v : v;
+    }
+
+    private static void status(OutputStream out, String s) throws IOException {
+        out.write(('+' + s + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void integer(OutputStream out, long v) throws IOException {
+        out.write((':' + Long.toString(v) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void bulk(OutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.write(('$' + Integer.toString(b.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(b);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,103 @@
+package com.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.service.ReplayService;
+import com.server.store.InMemoryGameStore;
+import com.shared.dto.ReplayDTO;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import chesspresso.position.Position;
+
+/**
+ * "Position at ply N" for a random ply of a `plies`-long game, sampled so the percentiles show.
+ * checkpointed stores a full FEN every CHECKPOINT_EVERY plies as the server does; fromStart has
+ * only the starting position, which is what every replay cost before checkpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private static final int CHECKPOINT_EVERY = 20;
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Param({ "40", "400", "2000" })
+    public int plies;
+
+    private ReplayService checkpointed;
+    private ReplayService fromStart;
+
+    @Setup
+    public void setup() throws Exception {
+        List<String> uci = new ArrayList<>();
+        List<String> fens = new ArrayList<>();
+        for (long seed = 1; uci.size() < plies; seed++) randomGame(seed, uci, fens);
+
+        InMemoryGameStore withCheckpoints = new InMemoryGameStore();
+        InMemoryGameStore without = new InMemoryGameStore();
+        for (InMemoryGameStore store : List.of(withCheckpoints, without)) {
+            store.initGameState(1L, "bench", START_FEN, "w", "b", null);
+            for (int ply = 1; ply <= plies; ply++) {
+                String fen = store == withCheckpoints && ply % CHECKPOINT_EVERY == 0 ? fens.get(ply - 1) : null;
+                store.commitMove(1L, "bench", fen, ply, uci.get(ply - 1), "w", "b", (ply & 1) == 1 ? "b" : "w",
+                    "IN_PROGRESS", -1, -1);
+            }
+        }
+        checkpointed = new ReplayService(withCheckpoints);
+        fromStart = new ReplayService(without);
+    }
+
+    // A seeded random game the server could have accepted (no castling or en passant), `plies` long or bust
+    private void randomGame(long seed, List<String> uci, List<String> fens) throws IllegalMoveException {
+        uci.clear();
+        fens.clear();
+        Random rnd = new Random(seed);
+        Position position = new Position(START_FEN);
+        while (uci.size() < plies) {
+            List<Short> candidates = new ArrayList<>();
+            for (short m : position.getAllMoves()) {
+                if (!Move.isCastle(m) && !Move.isEPMove(m)) candidates.add(m);
+            }
+            if (candidates.isEmpty()) return;
+            short m = candidates.get(rnd.nextInt(candidates.size()));
+            String s = Chess.sqiToStr(Move.getFromSqi(m)) + Chess.sqiToStr(Move.getToSqi(m));
+            if (Move.isPromotion(m)) s += Character.toLowerCase(Chess.pieceToChar(Move.getPromotionPiece(m)));
+            position.doMove(m);
+            if (position.isMate() || position.isStaleMate()) return;
+            uci.add(s);
+            fens.add(position.getFEN());
+        }
+    }
+
+    @Benchmark
+    public ReplayDTO checkpointed() {
+        return checkpointed.replay(1L, ThreadLocalRandom.current().nextInt(plies + 1), 10, "w");
+    }
+
+    @Benchmark
+    public ReplayDTO fromStart() {
+        return fromStart.replay(1L, ThreadLocalRandom.current().nextInt(plies + 1), 10, "w");
+    }
+}
@@ -0,0 +1,73 @@
+package com.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.server.clock.TimerWheel;
+
+/**
+ * What every move costs the clock wheel: cancel the mover's flag timer and arm the opponent's,
+ * with `clocks` other games' timers already armed (minutes out, like real clocks).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimerWheelBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int clocks;
+
+    private TimerWheel wheel;
+    private TimerWheel.Timeout[] timers;
+
+    @Setup
+    public void setup() {
+        wheel = new TimerWheel("bench-wheel", 10, TimeUnit.MILLISECONDS, Runnable::run, null);
+        timers = new TimerWheel.Timeout[clocks];
+        for (int i = 0; i < clocks; i++) timers[i] = wheel.schedule(() -> { }, randomClockMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    private static long randomClockMillis() {
+        return ThreadLocalRandom.current().nextLong(30_000, 600_000);
+    }
+
+    private boolean rearm() {
+        int i = ThreadLocalRandom.current().nextInt(timers.length);
+        boolean cancelled = timers[i].cancel();
+        timers[i] = wheel.schedule(() -> { }, randomClockMillis(), TimeUnit.MILLISECONDS);
+        return cancelled;
+    }
+
+    @Benchmark
+    public boolean rearmOnMove() {
+        return rearm();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean rearmOnMoveParallel() {
+        return rearm();
+    }
+}
@@ -1,9 +1,298 @@
 package com.client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.shared.util.Colour;
+import com.shared.util.PositionChecksum;
+
 public class Board {
+
+    // ---------- mutable position model (a1 = 0 .. h8 = 63, FEN letters, '.' empty) ----------
+    private final char[] squares = new char[64];
+    private Colour toPlay = Colour.WHITE;
+    private String castling = "KQkq";
+    private int epSquare = -1;
+    private int halfMoveClock = 0;
+    private int fullMoveNumber = 1;
+
+    private Board() {
+        Arrays.fill(squares, '.');
+    }
+
+    public static Board fromFen(String fen) {
+        Board b = new Board();
+        String[] parts = fen.trim().split("\\s+");
+        String[] rows = parts[0].split("/");
+        for (int r = 0; r < 8; r++) {
+            int col = 0;
+            for (char c : rows[r].toCharArray()) {
+                if (Character.isDigit(c)) col += c - '0';
+                else b.squares[(7 - r) * 8 + col++] = c;
+            }
+        }
+        b.toPlay = (parts.length > 1 && "b".equals(parts[1])) ? Colour.BLACK : Colour.WHITE;
+        b.castling = (parts.length > 2 && !"-".equals(parts[2])) ? parts[2] : "";
+        b.epSquare = (parts.length > 3 && !"-".equals(parts[3])) ? sq(parts[3]) : -1;
+        b.halfMoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+        b.fullMoveNumber = parts.length > 5 ? Integer.parseInt(parts[5]) : 1;
+        return b;
+    }
+
+    /** Applies a UCI move the server already validated (castling, en passant, promotion included). */
+    public void applyUci(String uci) {
+        int from = sq(uci.substring(0, 2));
+        int to = sq(uci.substring(2, 4));
+        char piece = squares[from];
+        char kind = Character.toLowerCase(piece);
+        boolean white = Character.isUpperCase(piece);
+        boolean capture = squares[to] != '.';
+
+        if (kind == 'p' && to == epSquare && !capture) {
+            squares[white ? to - 8 : to + 8] = '.';
+            capture = true;
+        }
+        if (kind == 'k' && Math.abs(to - from) == 2) {
+            boolean kingSide = to > from;
+            int rookFrom = kingSide ? from + 3 : from - 4;
+            int rookTo = kingSide ? from + 1 : from - 1;
+            squares[rookTo] = squares[rookFrom];
+            squares[rookFrom] = '.';
+        }
+
+        squares[to] = piece;
+        squares[from] = '.';
+        if (uci.length() == 5) {
+            char promo = uci.charAt(4);
+            squares[to] = white ? Character.toUpperCase(promo) : Character.toLowerCase(promo);
+        }
+
+        epSquare = (kind == 'p' && Math.abs(to - from) == 16) ? (from + to) / 2 : -1;
+        if (kind == 'k') castling = castling.replace(white ? "K" : "k", "").replace(white ? "Q" : "q", "");
+        castling = dropRookRight(dropRookRight(castling, from), to);
+        halfMoveClock = (kind == 'p' || capture) ? 0 : halfMoveClock + 1;
+        if (!white) fullMoveNumber++;
+        toPlay = white ? Colour.BLACK : Colour.WHITE;
+    }
+
+    public String checksum() {
+        return PositionChecksum.of(squares, toPlay);
+    }
+
+    public Colour getToPlay() {
+        return toPlay;
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                char c = squares[row * 8 + col];
+                if (c == '.') { empty++; continue; }
+                if (empty > 0) { sb.append(empty); empty = 0; }
+                sb.append(c);
+            }
+            if (empty > 0) sb.append(empty);
+            if (row > 0) sb.append('/');
+        }
+        sb.append(' ').append(toPlay == Colour.WHITE ? 'w' : 'b')
+          .append(' ').append(castling.isEmpty() ? "-" : castling)
+          .append(' ').append(epSquare < 0 ? "-" : sqToStr(epSquare))
+          .append(' ').append(halfMoveClock)
+          .append(' ').append(fullMoveNumber);
+        return sb.toString();
+    }
+
+    // ---------- move generation ----------
+    private static final int[][] KNIGHT_STEPS = { {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+    private static final int[][] KING_STEPS = { {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1} };
+    private static final int[][] ROOK_DIRS = { {1, 0}, {-1, 0}, {0, 1}, {0, -1} };
+    private static final int[][] BISHOP_DIRS = { {1, 1}, {1, -1}, {-1, 1}, {-1, -1} };
+
+    /** Every legal move for the side to play, in UCI; castling and en passant included. */
+    public List<String> legalMoves() {
+        boolean white = toPlay == Colour.WHITE;
+        List<String> pseudo = new ArrayList<>(48);
+        for (int from = 0; from < 64; from++) {
+            char p = squares[from];
+            if (p == '.' || Character.isUpperCase(p) != white) continue;
+            switch (Character.toLowerCase(p)) {
+                case 'p' -> pawnMoves(from, white, pseudo);
+                case 'n' -> stepMoves(from, white, KNIGHT_STEPS, pseudo);
+                case 'b' -> slideMoves(from, white, BISHOP_DIRS, pseudo);
+                case 'r' -> slideMoves(from, white, ROOK_DIRS, pseudo);
+                case 'q' -> { slideMoves(from, white, ROOK_DIRS, pseudo); slideMoves(from, white, BISHOP_DIRS, pseudo); }
+                case 'k' -> { stepMoves(from, white, KING_STEPS, pseudo); castleMoves(from, white, pseudo); }
+                default -> { }
+            }
+        }
+        List<String> legal = new ArrayList<>(pseudo.size());
+        for (String uci : pseudo) {
+            Board next = copy();
+            next.applyUci(uci);
+            int king = next.kingSquare(white);
+            if (king >= 0 && !next.isAttacked(king, !white)) legal.add(uci);
+        }
+        return legal;
+    }
+
+    /** FEN letter on a square like "e1", '.' if empty. */
+    public char pieceAt(String square) {
+        return squares[sq(square)];
+    }
+
+    private void pawnMoves(int from, boolean white, List<String> out) {
+        int dir = white ? 1 : -1;
+        int rank = from / 8, file = from % 8;
+        int toRank = rank + dir;
+        if (toRank < 0 || toRank > 7) return;
+        int one = toRank * 8 + file;
+        if (squares[one] == '.') {
+            addPawnMove(from, one, out);
+            int startRank = white ? 1 : 6;
+            int two = (rank + 2 * dir) * 8 + file;
+            if (rank == startRank && squares[two] == '.') out.add(sqToStr(from) + sqToStr(two));
+        }
+        for (int df = -1; df <= 1; df += 2) {
+            int f = file + df;
+            if (f < 0 || f > 7) continue;
+            int to = toRank * 8 + f;
+            char target = squares[to];
+            if ((target != '.' && Character.isUpperCase(target) != white) || to == epSquare) addPawnMove(from, to, out);
+        }
+    }
+
+    private static void addPawnMove(int from, int to, List<String> out) {
+        String base = sqToStr(from) + sqToStr(to);
+        int toRank = to / 8;
+        if (toRank == 0 || toRank == 7) {
+            for (char promo : new char[] { 'q', 'r', 'b', 'n' }) out.add(base + promo);
+        } else {
+            out.add(base);
+        }
+    }
+
+    private void stepMoves(int from, boolean white, int[][] steps, List<String> out) {
+        int rank = from / 8, file = from % 8;
+        for (int[] s : steps) {
+            int r = rank + s[0], f = file + s[1];
+            if (r < 0 || r > 7 || f < 0 || f > 7) continue;
+            char target = squares[r * 8 + f];
+            if (target == '.' || Character.isUpperCase(target) != white) out.add(sqToStr(from) + sqToStr(r * 8 + f));
+        }
+    }
+
+    private void slideMoves(int from, boolean white, int[][] dirs, List<String> out) {
+        int rank = from / 8, file = from % 8;
+        for (int[] d : dirs) {
+            int r = rank + d[0], f = file + d[1];
+            while (r >= 0 && r <= 7 && f >= 0 && f <= 7) {
+                char target = squares[r * 8 + f];
+                if (target == '.') {
+                    out.add(sqToStr(from) + sqToStr(r * 8 + f));
+                } else {
+                    if (Character.isUpperCase(target) != white) out.add(sqToStr(from) + sqToStr(r * 8 + f));
+                    break;
+                }
+                r += d[0];
+                f += d[1];
+            }
+        }
+    }
+
+    private void castleMoves(int from, boolean white, List<String> out) {
+        int home = white ? 4 : 60;
+        if (from != home || isAttacked(home, !white)) return;
+        char kingSide = white ? 'K' : 'k';
+        char queenSide = white ? 'Q' : 'q';
+        if (castling.indexOf(kingSide) >= 0 && squares[home + 1] == '.' && squares[home + 2] == '.'
+                && !isAttacked(home + 1, !white) && !isAttacked(home + 2, !white)) {
+            out.add(sqToStr(home) + sqToStr(home + 2));
+        }
+        if (castling.indexOf(queenSide) >= 0 && squares[home - 1] == '.' && squares[home - 2] == '.'
+                && squares[home - 3] == '.' && !isAttacked(home - 1, !white) && !isAttacked(home - 2, !white)) {
+            out.add(sqToStr(home) + sqToStr(home - 2));
+        }
+    }
+
+    private int kingSquare(boolean white) {
+        char king = white ? 'K' : 'k';
+        for (int i = 0; i < 64; i++) if (squares[i] == king) return i;
+        return -1;
+    }
+
+    private boolean isAttacked(int sqi, boolean byWhite) {
+        int rank = sqi / 8, file = sqi % 8;
+        // Pawns attack diagonally forward, so look one rank back from their point of view
+        int pawnRank = rank + (byWhite ? -1 : 1);
+        char pawn = byWhite ? 'P' : 'p';
+        for (int df = -1; df <= 1; df += 2) {
+            int f = file + df;
+            if (pawnRank >= 0 && pawnRank <= 7 && f >= 0 && f <= 7 && squares[pawnRank * 8 + f] == pawn) return true;
+        }
+        if (attackedByStep(rank, file, KNIGHT_STEPS, byWhite ? 'N' : 'n')) return true;
+        if (attackedByStep(rank, file, KING_STEPS, byWhite ? 'K' : 'k')) return true;
+        char queen = byWhite ? 'Q' : 'q';
+        return attackedBySlide(rank, file, ROOK_DIRS, byWhite ? 'R' : 'r', queen)
+            || attackedBySlide(rank, file, BISHOP_DIRS, byWhite ? 'B' : 'b', queen);
+    }
+
+    private boolean attackedByStep(int rank, int file, int[][] steps, char attacker) {
+        for (int[] s : steps) {
+            int r = rank + s[0], f = file + s[1];
+            if (r >= 0 && r <= 7 && f >= 0 && f <= 7 && squares[r * 8 + f] == attacker) return true;
+        }
+        return false;
+    }
+
+    private boolean attackedBySlide(int rank, int file, int[][] dirs, char slider, char queen) {
+        for (int[] d : dirs) {
+            int r = rank + d[0], f = file + d[1];
+            while (r >= 0 && r <= 7 && f >= 0 && f <= 7) {
+                char c = squares[r * 8 + f];
+                if (c != '.') {
+                    if (c == slider || c == queen) return true;
+                    break;
+                }
+                r += d[0];
+                f += d[1];
+            }
+        }
+        return false;
+    }
+
+    private Board copy() {
+        Board b = new Board();
+        System.arraycopy(squares, 0, b.squares, 0, 64);
+        b.toPlay = toPlay;
+        b.castling = castling;
+        b.epSquare = epSquare;
+        b.halfMoveClock = halfMoveClock;
+        b.fullMoveNumber = fullMoveNumber;
+        return b;
+    }
+
+    private static String dropRookRight(String castling, int sqi) {
+        return switch (sqi) {
+            case 0 -> castling.replace("Q", "");
+            case 7 -> castling.replace("K", "");
+            case 56 -> castling.replace("q", "");
+            case 63 -> castling.replace("k", "");
+            default -> castling;
+        };
+    }
+
+    private static int sq(String s) {
+        return (s.charAt(1) - '1') * 8 + (s.charAt(0) - 'a');
+    }
+
+    private static String sqToStr(int sqi) {
+        return "" + (char) ('a' + sqi % 8) + (char) ('1' + sqi / 8);
+    }
+
+    // ---------- static helpers ----------
     
     public static List<List<String>> fenToBoard(String fen) {
         List<List<String>> board = new ArrayList<>();
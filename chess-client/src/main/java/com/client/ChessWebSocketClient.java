@@ -5,6 +5,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import org.java_websocket.client.WebSocketClient;
@@ -13,6 +14,10 @@ import org.java_websocket.handshake.ServerHandshake;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import com.shared.dto.ArenaJoinDTO;
+import com.shared.dto.ArenaJoinedDTO;
+import com.shared.dto.BotOfferDTO;
+import com.shared.dto.ClockDTO;
 import com.shared.dto.Envelope;
 import com.shared.dto.HeartbeatAckDTO;
 import com.shared.dto.JoinMessageDTO;
@@ -22,8 +27,13 @@ import com.shared.dto.MoveMessageDTO;
 import com.shared.dto.OpponentDTO;
 import com.shared.dto.OpponentReconnectedDTO;
 import com.shared.dto.PauseDTO;
+import com.shared.dto.PlayBotRequestDTO;
+import com.shared.dto.PositionSyncDTO;
 import com.shared.dto.RedirectDTO;
+import com.shared.dto.ReplayDTO;
+import com.shared.dto.ReplayRequestDTO;
 import com.shared.dto.ResumeOkDTO;
+import com.shared.dto.ResyncRequestDTO;
 import com.shared.dto.GameOverDTO;
 import com.shared.util.Colour;
 
@@ -31,7 +41,11 @@ public class ChessWebSocketClient extends WebSocketClient {
 
     // ---------- config ----------
     private static final boolean PRINT_DEBUG_JSON = false;
+    private static final String ROUTE_HEADER = "X-Chess-Route";
     private static final Pattern UCI_RE = Pattern.compile("^[a-h][1-8][a-h][1-8][qrbnQRBN]?$");
+    // after a dropped connection mid-game: tries, and the wait before each (times the attempt number)
+    private static final int MAX_RECONNECT_ATTEMPTS = 10;
+    private static final long RECONNECT_DELAY_MS = 1000;
 
     // glyph mode (auto-detect, overridable via --ascii / --unicode)
     private static boolean USE_UNICODE_PIECES = detectUnicodePieces();
@@ -43,6 +57,14 @@ public class ChessWebSocketClient extends WebSocketClient {
     private final String playerId;
     private final String playerName;
     private final int playerRating;
+    // when the first connect of a (re)connect chain started; used to time reconnect -> resumeOk
+    private final long connectStartedNanos;
+    private volatile boolean redirecting = false;
+    private volatile boolean exiting = false;
+    private int reconnectAttempt;
+    // The client the input loop talks to; a reconnect hands over to a new one
+    private final AtomicReference<ChessWebSocketClient> active;
+    private final boolean firstInChain;
 
     // ---------- client state (for render) ----------
     private volatile long gameId = -1L;
@@ -50,10 +72,18 @@ public class ChessWebSocketClient extends WebSocketClient {
     private volatile OpponentDTO opponent = null;
     private volatile String fen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
     private volatile Colour toPlay = Colour.WHITE;
+    private volatile Board board = Board.fromFen(fen);
+    private volatile int ply = 0;
     private volatile boolean paused = false;
-    private final Deque<String> lastMoves = new ArrayDeque<>(8);
+    private Deque<String> lastMoves = new ArrayDeque<>(8);
     private volatile boolean gameIsOver = false;
     private volatile String gameOverSummary = null;
+    private volatile long arenaId = -1L;
+    // Our last move until the server's broadcast acknowledges it; resent after a reconnect if it was lost
+    private volatile String pendingUci = null;
+    private volatile int pendingPly = 0;
+    // remaining time as of the last server message; null when the game is untimed
+    private volatile ClockDTO clock = null;
 
     // ---------- ansi helpers ----------
     private static final String CSI = "\u001b[";
@@ -78,24 +108,87 @@ public class ChessWebSocketClient extends WebSocketClient {
         this.playerId = playerId;
         this.playerName = name;
         this.playerRating = rating;
+        this.connectStartedNanos = System.nanoTime();
+        this.reconnectAttempt = 0;
+        this.active = new AtomicReference<>(this);
+        this.firstInChain = true;
+    }
+
+    // Takes over from previous after a redirect or a dropped connection, keeping the game as it stood
+    private ChessWebSocketClient(URI serverURI, ChessWebSocketClient previous, int reconnectAttempt) {
+        super(serverURI);
+        this.playerId = previous.playerId;
+        this.playerName = previous.playerName;
+        this.playerRating = previous.playerRating;
+        this.connectStartedNanos = previous.connectStartedNanos;
+        this.reconnectAttempt = reconnectAttempt;
+        this.active = previous.active;
+        this.firstInChain = false;
+        this.gameId = previous.gameId;
+        this.yourColour = previous.yourColour;
+        this.opponent = previous.opponent;
+        this.fen = previous.fen;
+        this.toPlay = previous.toPlay;
+        this.board = previous.board;
+        this.ply = previous.ply;
+        this.paused = previous.paused;
+        this.lastMoves = previous.lastMoves;
+        this.gameIsOver = previous.gameIsOver;
+        this.gameOverSummary = previous.gameOverSummary;
+        this.clock = previous.clock;
+        this.arenaId = previous.arenaId;
+        this.pendingUci = previous.pendingUci;
+        this.pendingPly = previous.pendingPly;
+        active.set(this);
+    }
+
+    private boolean inGame() {
+        return gameId > 0 && !gameIsOver;
     }
 
     // ---------- websocket callbacks ----------
     @Override
     public void onOpen(ServerHandshake handshakeData) {
+        if (firstInChain) new Thread(this::inputLoop, "input-loop").start();
+        reconnectAttempt = 0;
+        // Server resolved our game during the upgrade and it lives elsewhere: skip the join
+        String route = handshakeData.getFieldValue(ROUTE_HEADER);
+        if (route != null && !route.isEmpty()) {
+            reconnectVia(route);
+            return;
+        }
         try {
+            // Mid-game, say how far we got so a resume only carries the moves we missed
             send(objectMapper.writeValueAsString(new Envelope<>("join",
-                new JoinMessageDTO(playerId, playerName, playerRating))));
+                new JoinMessageDTO(playerId, playerName, playerRating, inGame() ? gameId : -1, inGame() ? ply : -1))));
         } catch (Exception e) {
             System.err.println("[CLIENT] Failed to send join: " + e.getMessage());
         }
-        new Thread(this::inputLoop, "input-loop").start();
     }
 
     @Override
     public void onClose(int code, String reason, boolean remote) {
         showCursor();
         System.out.printf("[CLIENT] Closed (%d): %s%n", code, reason);
+        // Dropped mid-game (network blip, node restart): come back before the pause deadline runs out.
+        // 4001 means this seat was taken over by another connection of ours.
+        if (redirecting || exiting || code == 4001 || !inGame()) return;
+        if (reconnectAttempt >= MAX_RECONNECT_ATTEMPTS) {
+            System.out.printf("[CLIENT] giving up after %d reconnect attempts%n", reconnectAttempt);
+            return;
+        }
+        redirecting = true;
+        Thread t = new Thread(() -> {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS * (reconnectAttempt + 1));
+                System.out.printf("[CLIENT] reconnecting (attempt %d)%n", reconnectAttempt + 1);
+                new ChessWebSocketClient(withQuery(null), this, reconnectAttempt + 1).connect();
+            } catch (Exception e) {
+                System.err.println("[CLIENT] reconnect failed: " + e.getMessage());
+            }
+        }, "reconnect");
+        t.setDaemon(true);
+        t.start();
     }
 
     @Override
@@ -127,17 +220,41 @@ public class ChessWebSocketClient extends WebSocketClient {
                     this.yourColour = m.colour();
                     this.opponent = m.opponent();
                     this.fen = m.initialFen();
+                    this.board = Board.fromFen(m.initialFen());
+                    this.ply = 0;
                     this.toPlay = Colour.WHITE;
                     this.paused = false;
+                    this.gameIsOver = false; // arenas start the next game on the same connection
+                    this.pendingUci = null;
+                    this.lastMoves.clear();
+                    this.clock = m.timeControl() == null ? null
+                        : new ClockDTO(m.timeControl().baseMillis(), m.timeControl().baseMillis());
                     render();
                 }
                 case "move" -> {
                     MoveBroadcastDTO b = objectMapper.treeToValue(payload, MoveBroadcastDTO.class);
-                    this.fen = b.fen();
-                    this.toPlay = b.toPlay();
+                    // Ours has been committed, or the game moved past it
+                    if (pendingUci != null && b.ply() >= pendingPly) pendingUci = null;
                     pushMove(b.uci());
+                    if (!applyBroadcast(b)) {
+                        send(objectMapper.writeValueAsString(
+                            new Envelope<>("resync", new ResyncRequestDTO(b.gameId(), this.ply))));
+                        return;
+                    }
                     render();
                 }
+                case "sync" -> {
+                    PositionSyncDTO sync = objectMapper.treeToValue(payload, PositionSyncDTO.class);
+                    if (this.gameId == sync.gameId()) {
+                        this.board = Board.fromFen(sync.fen());
+                        this.fen = sync.fen();
+                        this.ply = sync.ply();
+                        if (pendingUci != null && sync.ply() >= pendingPly) pendingUci = null;
+                        this.toPlay = sync.toPlay();
+                        this.clock = sync.clock();
+                        render();
+                    }
+                }
                 case "pause" -> {
                     PauseDTO p = objectMapper.treeToValue(payload, PauseDTO.class);
                     if (this.gameId == p.gameId()) {
@@ -147,19 +264,26 @@ public class ChessWebSocketClient extends WebSocketClient {
                 }
                 case "resumeOk" -> {
                     ResumeOkDTO ok = objectMapper.treeToValue(payload, ResumeOkDTO.class);
-                    this.gameId     = ok.gameId();
                     this.yourColour = ok.yourColour();   
                     this.opponent   = ok.opponent();     
-                    this.fen        = ok.fen();
                     this.toPlay     = ok.toPlay();
+                    this.clock      = ok.clock();
                     this.paused     = false;
+                    if (!applyResume(ok)) {
+                        send(objectMapper.writeValueAsString(
+                            new Envelope<>("resync", new ResyncRequestDTO(this.gameId, this.ply))));
+                    }
+                    System.out.printf("[CLIENT] resumed in %d ms (%s)%n", (System.nanoTime() - connectStartedNanos) / 1_000_000,
+                        ok.moves() == null ? "full position" : ok.moves().size() + " missed moves");
                     render();
+                    flushPending();
                 }
                 case "opponentReconnected" -> {
                     OpponentReconnectedDTO or = objectMapper.treeToValue(payload, OpponentReconnectedDTO.class);
                     if (this.gameId == or.gameId()) {
                         this.paused = false;
                         render();
+                        flushPending();
                     }
                 }
                 case "heartbeat" -> {
@@ -170,6 +294,8 @@ public class ChessWebSocketClient extends WebSocketClient {
                 case "error" -> {
                     String code = payload.get("code").asText();
                     String msg = payload.get("message").asText();
+                    // Paused or migrating games take the move once we're back; anything else refused it
+                    if (!"gamePaused".equals(code) && !"gameMigrating".equals(code)) pendingUci = null;
                     System.out.printf("%n[ERROR] %s: %s%n", code, msg);
                     render();
                 }
@@ -177,6 +303,7 @@ public class ChessWebSocketClient extends WebSocketClient {
                     GameOverDTO over = objectMapper.treeToValue(payload, GameOverDTO.class);
                     this.gameIsOver = true;
                     this.paused = false;
+                    this.pendingUci = null;
                     this.gameOverSummary = String.format(
                         "result=%s reason=%s winner=%s",
                         over.result(), over.reason(),
@@ -184,23 +311,26 @@ public class ChessWebSocketClient extends WebSocketClient {
                     );
                     render(); 
                 }
+                case "replay" -> {
+                    ReplayDTO r = objectMapper.treeToValue(payload, ReplayDTO.class);
+                    System.out.printf("%n[REPLAY] game=%d ply=%d/%d%n  fen:  %s%n  next: %s%n",
+                        r.gameId(), r.ply(), r.totalPlies(), r.fen(), String.join(" ", r.moves()));
+                }
+                case "botOffer" -> {
+                    BotOfferDTO offer = objectMapper.treeToValue(payload, BotOfferDTO.class);
+                    if (this.gameId <= 0) {
+                        System.out.printf("%n[MATCH] No opponent after %d s. Type 'bot' to play the engine (rated %d).%n",
+                            offer.waitedMillis() / 1000, offer.botRating());
+                    }
+                }
+                case "arenaJoined" -> {
+                    ArenaJoinedDTO a = objectMapper.treeToValue(payload, ArenaJoinedDTO.class);
+                    System.out.printf("%n[ARENA] In '%s' (#%d) until %tR; games start automatically. 'leave' to stop.%n",
+                        a.name(), a.arenaId(), a.endsAt());
+                }
                 case "redirect" -> {
                     RedirectDTO rd = objectMapper.treeToValue(payload, RedirectDTO.class);
-                    String nodeId = rd.nodeId();
-                    try { close(); } catch (Exception ignore) {}
-
-                    URI base = getURI(); 
-                    String path = base.getPath() == null ? "/" : base.getPath();
-                    String qs = "pid=" + playerId + "&route=" + nodeId;
-
-                    URI next = new URI(
-                        base.getScheme(), null,
-                        base.getHost(), base.getPort(),
-                        path, qs, null
-                    );
-
-                    WebSocketClient ws = new ChessWebSocketClient(next, playerId, playerName, playerRating);
-                    ws.connect();
+                    reconnectVia(rd.nodeId());
                 }
                 default -> {
                     // ignore unknown
@@ -211,7 +341,36 @@ public class ChessWebSocketClient extends WebSocketClient {
         }
     }
 
+    // Reconnect pinned to nodeId via ?route=, which the LB hashes on
+    private void reconnectVia(String nodeId) {
+        if (redirecting) return;
+        redirecting = true;
+        try { close(); } catch (Exception ignore) {}
+
+        try {
+            WebSocketClient ws = new ChessWebSocketClient(withQuery(nodeId), this, reconnectAttempt);
+            ws.connect();
+        } catch (URISyntaxException e) {
+            System.err.println("[CLIENT] bad redirect target " + nodeId + ": " + e.getMessage());
+        }
+    }
+
+    // Our URI with pid, the node to pin to (if any) and, mid-game, the game and ply we already have
+    private URI withQuery(String nodeId) throws URISyntaxException {
+        URI base = getURI(); 
+        String path = base.getPath() == null ? "/" : base.getPath();
+        String qs = "pid=" + playerId
+            + (nodeId == null ? "" : "&route=" + nodeId)
+            + (inGame() ? "&g=" + gameId + "&v=" + ply : "");
+        return new URI(
+            base.getScheme(), null,
+            base.getHost(), base.getPort(),
+            path, qs, null
+        );
+    }
+
     // ---------- input & send ----------
+    // One loop for the whole session; each line goes to whichever client is connected now
     private void inputLoop() {
         Scanner sc = new Scanner(System.in);
         try {
@@ -219,28 +378,66 @@ public class ChessWebSocketClient extends WebSocketClient {
                 System.out.print("uci> ");
                 String line = sc.nextLine();
                 if (line == null) continue;
-                line = line.trim();
-                if (gameIsOver && !"exit".equalsIgnoreCase(line)) {
-                    System.out.println("Game is over. Type 'exit' to quit.");
-                    continue;
+                try {
+                    if (!active.get().onInput(line.trim())) break;
+                } catch (Exception e) {
+                    System.err.println("[CLIENT] input error: " + e.getMessage());
                 }
+            }
+        } finally {
+            showCursor();
+        }
+    }
+
+    // False once the user has asked to quit
+    private boolean onInput(String line) throws Exception {
+        if (gameIsOver && !"exit".equalsIgnoreCase(line) && !line.startsWith("replay ")) {
+            System.out.println("Game is over. Type 'exit' to quit.");
+            return true;
+        }
 
-                if (line.isEmpty()) continue;
+        if (line.isEmpty()) return true;
 
-                if ("exit".equalsIgnoreCase(line)) { close(); break; }
-                if ("help".equalsIgnoreCase(line)) { printHelp(); continue; }
-                if ("fen".equalsIgnoreCase(line))  { System.out.println(this.fen); continue; }
+        if ("exit".equalsIgnoreCase(line)) { exiting = true; close(); return false; }
+        if ("help".equalsIgnoreCase(line)) { printHelp(); return true; }
+        if ("fen".equalsIgnoreCase(line))  { System.out.println(this.fen); return true; }
+        if (line.startsWith("replay ")) { sendReplay(line.substring(7).trim()); return true; }
+        if ("bot".equalsIgnoreCase(line)) {
+            send(objectMapper.writeValueAsString(new Envelope<>("playBot", new PlayBotRequestDTO(playerId))));
+            return true;
+        }
 
-                // also accept "move e2e4"
-                String uci = line.startsWith("move ") ? line.substring(5).trim() : line;
-                if (UCI_RE.matcher(uci).matches()) sendMove(uci);
-                else System.out.println("Unrecognized input. Try: e2e4  (or 'help')");
+        if (line.startsWith("arena ")) {
+            try {
+                arenaId = Long.parseLong(line.substring(6).trim());
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: arena <id>");
+                return true;
             }
-        } catch (Exception e) {
-            System.err.println("[CLIENT] input error: " + e.getMessage());
-        } finally {
-            showCursor();
+            send(objectMapper.writeValueAsString(new Envelope<>("arenaJoin", new ArenaJoinDTO(arenaId))));
+            return true;
+        }
+        if ("leave".equalsIgnoreCase(line)) {
+            send(objectMapper.writeValueAsString(new Envelope<>("arenaLeave", new ArenaJoinDTO(arenaId))));
+            return true;
         }
+
+        // also accept "move e2e4"
+        String uci = line.startsWith("move ") ? line.substring(5).trim() : line;
+        if (UCI_RE.matcher(uci).matches()) sendMove(uci);
+        else System.out.println("Unrecognized input. Try: e2e4  (or 'help')");
+        return true;
+    }
+
+    private void sendReplay(String plyArg) throws Exception {
+        int ply;
+        try {
+            ply = Integer.parseInt(plyArg);
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: replay <ply>");
+            return;
+        }
+        send(objectMapper.writeValueAsString(new Envelope<>("replay", new ReplayRequestDTO(gameId, ply, 10))));
     }
 
     private void sendMove(String uci) {
@@ -257,6 +454,12 @@ public class ChessWebSocketClient extends WebSocketClient {
             return;
         }
 
+        pendingUci = uci;
+        pendingPly = ply + 1;
+        if (!isOpen()) {
+            System.out.println("Reconnecting; " + uci + " will be sent once we're back.");
+            return;
+        }
         try {
             send(objectMapper.writeValueAsString(
                 new Envelope<>("move", new MoveMessageDTO(gameId, playerId, uci))));
@@ -265,12 +468,33 @@ public class ChessWebSocketClient extends WebSocketClient {
         }
     }
 
+    // Resends our unacknowledged move if the game is still waiting for it; drops it if it's been played
+    private void flushPending() {
+        String uci = pendingUci;
+        if (uci == null || !isOpen()) return;
+        if (ply + 1 != pendingPly || toPlay != yourColour) {
+            pendingUci = null;
+            return;
+        }
+        if (paused) return;
+        try {
+            send(objectMapper.writeValueAsString(
+                new Envelope<>("move", new MoveMessageDTO(gameId, playerId, uci))));
+        } catch (Exception e) {
+            System.err.println("[CLIENT] failed to resend move: " + e.getMessage());
+        }
+    }
+
     private void printHelp() {
         System.out.println("""
             Commands:
               e2e4           Make a move in UCI (supports promotions like e7e8q)
               move e2e4      Same as above
               fen            Print current FEN
+              replay 12      Print this game's position after ply 12 and the moves that follow
+              bot            Accept the server's offer of an engine opponent while waiting
+              arena 3        Enter arena 3; you are paired again after every game until it ends
+              leave          Leave the arena after the current game
               help           This help
               exit           Quit the client
             """);
@@ -301,7 +525,11 @@ public class ChessWebSocketClient extends WebSocketClient {
             sb.append("[GAME OVER] ").append(gameOverSummary).append('\n');
         }
 
-        sb.append(header).append("   a  b  c  d  e  f  g  h\n");
+        sb.append(header);
+        if (clock != null) {
+            sb.append(String.format("Clock  White %s  Black %s%n", formatClock(clock.whiteMillis()), formatClock(clock.blackMillis())));
+        }
+        sb.append("   a  b  c  d  e  f  g  h\n");
 
         // board from FEN
         String[] rows = fen.split(" ")[0].split("/");
@@ -337,6 +565,61 @@ public class ChessWebSocketClient extends WebSocketClient {
     System.out.flush();
     }
 
+    // Delta broadcasts carry no FEN; apply locally and verify. False means we need a resync.
+    private boolean applyBroadcast(MoveBroadcastDTO b) {
+        if (b.fen() != null) {
+            this.board = Board.fromFen(b.fen());
+        } else {
+            if (b.ply() != this.ply + 1) {
+                System.out.printf("%n[SYNC] ply gap local=%d server=%d%n", this.ply, b.ply());
+                return false;
+            }
+            this.board.applyUci(b.uci());
+            if (!this.board.checksum().equals(b.checksum())) {
+                System.out.printf("%n[SYNC] checksum mismatch at ply %d%n", b.ply());
+                return false;
+            }
+        }
+        this.ply = b.ply();
+        this.fen = this.board.toFen();
+        this.toPlay = b.toPlay();
+        this.clock = b.clock();
+        return true;
+    }
+
+    // A full position replaces the board; missed moves are applied to ours and checked. False means resync.
+    private boolean applyResume(ResumeOkDTO ok) {
+        if (ok.moves() == null) {
+            this.gameId = ok.gameId();
+            this.board = Board.fromFen(ok.fen());
+            this.fen = ok.fen();
+            this.ply = ok.ply();
+            return true;
+        }
+        if (ok.gameId() != this.gameId || ok.fromPly() != this.ply) {
+            System.out.printf("%n[SYNC] resume from ply %d but we have game %d ply %d%n", ok.fromPly(), this.gameId, this.ply);
+            this.gameId = ok.gameId();
+            return false;
+        }
+        for (String uci : ok.moves()) {
+            this.board.applyUci(uci);
+            pushMove(uci);
+        }
+        this.ply = ok.ply();
+        this.fen = this.board.toFen();
+        if (!this.board.checksum().equals(ok.checksum())) {
+            System.out.printf("%n[SYNC] checksum mismatch after resume at ply %d%n", ok.ply());
+            return false;
+        }
+        return true;
+    }
+
+    private static String formatClock(long millis) {
+        long secs = millis / 1000;
+        if (secs < 20) return String.format("%d:%02d.%d", secs / 60, secs % 60, (millis % 1000) / 100);
+        return String.format("%d:%02d", secs / 60, secs % 60);
+    }
+
     private void pushMove(String uci) {
         if (lastMoves.size() == 8) lastMoves.removeFirst();
         lastMoves.addLast(uci);
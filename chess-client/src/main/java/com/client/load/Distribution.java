@@ -0,0 +1,43 @@
+package com.client.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Small parametric distributions used for ratings and think times, parsed from specs like
+ * "fixed:1500", "uniform:800:2400", "normal:1500:350" or "exp:800" (mean).
+ */
+record Distribution(String kind, double a, double b) {
+
+    static Distribution parse(String spec) {
+        String[] p = spec.split(":");
+        double a = p.length > 1 ? Double.parseDouble(p[1]) : 0;
+        double b = p.length > 2 ? Double.parseDouble(p[2]) : 0;
+        return switch (p[0]) {
+            case "fixed", "uniform", "normal", "exp" -> new Distribution(p[0], a, b);
+            default -> throw new IllegalArgumentException("unknown distribution: " + spec);
+        };
+    }
+
+    double sample() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return switch (kind) {
+            case "fixed" -> a;
+            case "uniform" -> a + rnd.nextDouble() * (b - a);
+            case "normal" -> a + rnd.nextGaussian() * b;
+            case "exp" -> -a * Math.log(1 - rnd.nextDouble());
+            default -> a;
+        };
+    }
+
+    long sampleLong(long min, long max) {
+        return Math.max(min, Math.min(max, Math.round(sample())));
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case "fixed", "exp" -> kind + ":" + a;
+            default -> kind + ":" + a + ":" + b;
+        };
+    }
+}
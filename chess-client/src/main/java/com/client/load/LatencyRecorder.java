@@ -0,0 +1,42 @@
+package com.client.load;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every sample (microseconds) so percentiles are exact. A load run produces at most a
+ * few million samples per metric, which is cheap to hold and sort once at report time.
+ */
+class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int size = 0;
+
+    synchronized void record(long micros) {
+        if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+        samples[size++] = micros;
+    }
+
+    void recordSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1_000);
+    }
+
+    /** Sorted copy of the samples so far. */
+    synchronized long[] snapshot() {
+        long[] copy = Arrays.copyOf(samples, size);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    String summary() {
+        long[] s = snapshot();
+        if (s.length == 0) return "n=0";
+        return String.format("n=%d p50=%.1fms p99=%.1fms p999=%.1fms max=%.1fms",
+            s.length, percentile(s, 0.50) / 1000.0, percentile(s, 0.99) / 1000.0,
+            percentile(s, 0.999) / 1000.0, s[s.length - 1] / 1000.0);
+    }
+}
@@ -0,0 +1,169 @@
+package com.client.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Headless load generator: ramps up N simulated players against a server (or the LB in front
+ * of a cluster), has them queue, play, think, drop and resume, and reports connect,
+ * time-to-match, move round-trip and resume latencies plus error counts by code.
+ *
+ *   mvn -pl chess-client exec:java@load-gen -Dexec.args="--players=2000 --rampPerSec=200 --durationSec=120"
+ */
+public class LoadGenerator {
+
+    record Config(
+        String url,
+        int players,
+        int rampPerSec,
+        int durationSec,
+        Distribution rating,
+        Distribution think,
+        double disconnectRate,
+        long resumeDelayMs,
+        int gamesPerPlayer,
+        List<String[]> scripts,
+        int reportEverySec,
+        String out,
+        String idPrefix
+    ) {
+        /** Scripted opening for a game, or null to play random moves throughout. */
+        String[] pickScript(long gameId) {
+            if (scripts.isEmpty()) return null;
+            return scripts.get((int) Math.floorMod(gameId, (long) scripts.size()));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            if (a.equals("--help")) {
+                usage();
+                return;
+            }
+            if (!a.startsWith("--") || !a.contains("=")) {
+                System.err.println("[LOAD] ignoring argument " + a);
+                continue;
+            }
+            int eq = a.indexOf('=');
+            opts.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+
+        Config cfg = new Config(
+            opts.getOrDefault("url", "ws://localhost:8080"),
+            Integer.parseInt(opts.getOrDefault("players", "100")),
+            Integer.parseInt(opts.getOrDefault("rampPerSec", "50")),
+            Integer.parseInt(opts.getOrDefault("durationSec", "60")),
+            Distribution.parse(opts.getOrDefault("rating", "normal:1500:350")),
+            Distribution.parse(opts.getOrDefault("think", "exp:1500")),
+            Double.parseDouble(opts.getOrDefault("disconnectRate", "0")),
+            Long.parseLong(opts.getOrDefault("resumeDelayMs", "2000")),
+            Integer.parseInt(opts.getOrDefault("gamesPerPlayer", "1000000")),
+            loadScripts(opts.get("script")),
+            Integer.parseInt(opts.getOrDefault("reportEverySec", "5")),
+            opts.get("out"),
+            opts.getOrDefault("idPrefix", "load-")
+        );
+        run(cfg);
+    }
+
+    private static void usage() {
+        System.out.println("""
+            Usage: LoadGenerator [--key=value ...]
+              --url=ws://localhost:8080   server or load balancer
+              --players=100               simulated players
+              --rampPerSec=50             new connections per second
+              --durationSec=60            run length after the ramp starts
+              --rating=normal:1500:350    rating distribution (fixed:x, uniform:a:b, normal:mean:sd, exp:mean)
+              --think=exp:1500            think time per move in ms, same syntax
+              --disconnectRate=0          chance per received move of dropping the socket and resuming
+              --resumeDelayMs=2000        how long a dropped player stays away
+              --gamesPerPlayer=N          leave after N games (default: keep playing)
+              --script=openings.txt       one game per line as space-separated UCI moves
+              --reportEverySec=5          progress line interval
+              --out=report.json           write the final numbers as JSON
+              --idPrefix=load-            player id prefix""");
+    }
+
+    private static List<String[]> loadScripts(String file) throws IOException {
+        List<String[]> scripts = new ArrayList<>();
+        if (file == null) return scripts;
+        for (String line : Files.readAllLines(Path.of(file))) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            scripts.add(line.split("\\s+"));
+        }
+        System.out.printf("[LOAD] %d scripted games from %s%n", scripts.size(), file);
+        return scripts;
+    }
+
+    static void run(Config cfg) throws Exception {
+        LoadStats stats = new LoadStats();
+        ObjectMapper mapper = new ObjectMapper();
+        // One NIO selector for every socket; callbacks hop onto virtual threads
+        HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "load-timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        List<SimPlayer> players = new ArrayList<>(cfg.players());
+        long startMs = System.currentTimeMillis();
+        long endMs = startMs + cfg.durationSec() * 1000L;
+        long nextReportMs = startMs + cfg.reportEverySec() * 1000L;
+        long rampIntervalNanos = 1_000_000_000L / Math.max(1, cfg.rampPerSec());
+        long nextSpawnNanos = System.nanoTime();
+
+        System.out.printf("[LOAD] %d players against %s, ramp %d/s, %ds%n",
+            cfg.players(), cfg.url(), cfg.rampPerSec(), cfg.durationSec());
+
+        while (System.currentTimeMillis() < endMs) {
+            long now = System.nanoTime();
+            while (players.size() < cfg.players() && now >= nextSpawnNanos) {
+                int rating = (int) Math.round(Math.max(100, Math.min(3000, cfg.rating().sample())));
+                SimPlayer p = new SimPlayer(cfg, stats, http, timer, mapper,
+                    cfg.idPrefix() + players.size(), rating);
+                players.add(p);
+                p.start();
+                nextSpawnNanos += rampIntervalNanos;
+            }
+            if (System.currentTimeMillis() >= nextReportMs) {
+                System.out.println(stats.progressLine(System.currentTimeMillis() - startMs));
+                nextReportMs += cfg.reportEverySec() * 1000L;
+            }
+            Thread.sleep(10);
+        }
+
+        for (SimPlayer p : players) p.stop();
+        timer.shutdownNow();
+
+        System.out.println(stats.progressLine(System.currentTimeMillis() - startMs));
+        System.out.println("[LOAD] latencies in ms (p50 / p99 / p99.9 / max)");
+        System.out.print(stats.summary());
+
+        if (cfg.out() != null) {
+            Map<String, Object> report = stats.toMap();
+            report.put("players", cfg.players());
+            report.put("durationSec", cfg.durationSec());
+            report.put("url", cfg.url());
+            mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(cfg.out()), report);
+            System.out.println("[LOAD] wrote " + cfg.out());
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,101 @@
+package com.client.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Shared by every SimPlayer in a run. */
+class LoadStats {
+    final LatencyRecorder connect = new LatencyRecorder();
+    final LatencyRecorder timeToMatch = new LatencyRecorder();
+    final LatencyRecorder moveRtt = new LatencyRecorder();
+    final LatencyRecorder resume = new LatencyRecorder();
+
+    final AtomicInteger openSockets = new AtomicInteger();
+    final AtomicInteger inGame = new AtomicInteger();
+
+    final LongAdder connectFailures = new LongAdder();
+    final LongAdder matches = new LongAdder();
+    final LongAdder movesSent = new LongAdder();
+    final LongAdder movesAcked = new LongAdder();
+    final LongAdder gamesFinished = new LongAdder();
+    final LongAdder injectedDisconnects = new LongAdder();
+    final LongAdder unexpectedCloses = new LongAdder();
+    final LongAdder resumes = new LongAdder();
+    // Resumes answered with just the missed moves rather than the full position
+    final LongAdder resumeDeltas = new LongAdder();
+    final LongAdder redirects = new LongAdder();
+    final LongAdder resyncs = new LongAdder();
+    final LongAdder stuck = new LongAdder();
+    final Map<String, LongAdder> errorsByCode = new ConcurrentHashMap<>();
+
+    void error(String code) {
+        errorsByCode.computeIfAbsent(code, k -> new LongAdder()).increment();
+    }
+
+    long totalErrors() {
+        long total = 0;
+        for (LongAdder a : errorsByCode.values()) total += a.sum();
+        return total;
+    }
+
+    String progressLine(long elapsedMs) {
+        return String.format("[LOAD] t=%ds open=%d inGame=%d matches=%d moves=%d/%d games=%d errors=%d closes=%d resumes=%d",
+            elapsedMs / 1000, openSockets.get(), inGame.get(), matches.sum(), movesAcked.sum(), movesSent.sum(),
+            gamesFinished.sum(), totalErrors(), unexpectedCloses.sum(), resumes.sum());
+    }
+
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("connect       ").append(connect.summary()).append('\n');
+        sb.append("time-to-match ").append(timeToMatch.summary()).append('\n');
+        sb.append("move rtt      ").append(moveRtt.summary()).append('\n');
+        sb.append("resume        ").append(resume.summary()).append('\n');
+        sb.append(String.format("connectFailures=%d matches=%d movesSent=%d movesAcked=%d gamesFinished=%d%n",
+            connectFailures.sum(), matches.sum(), movesSent.sum(), movesAcked.sum(), gamesFinished.sum()));
+        sb.append(String.format("injectedDisconnects=%d unexpectedCloses=%d resumes=%d (delta %d) redirects=%d resyncs=%d stuck=%d%n",
+            injectedDisconnects.sum(), unexpectedCloses.sum(), resumes.sum(), resumeDeltas.sum(), redirects.sum(),
+            resyncs.sum(), stuck.sum()));
+        sb.append("errors ").append(new TreeMap<>(errorsByCode)).append('\n');
+        return sb.toString();
+    }
+
+    /** Flat map for the JSON report; latencies in microseconds. */
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("connect", latencies(connect));
+        m.put("timeToMatch", latencies(timeToMatch));
+        m.put("moveRtt", latencies(moveRtt));
+        m.put("resume", latencies(resume));
+        m.put("connectFailures", connectFailures.sum());
+        m.put("matches", matches.sum());
+        m.put("movesSent", movesSent.sum());
+        m.put("movesAcked", movesAcked.sum());
+        m.put("gamesFinished", gamesFinished.sum());
+        m.put("injectedDisconnects", injectedDisconnects.sum());
+        m.put("unexpectedCloses", unexpectedCloses.sum());
+        m.put("resumes", resumes.sum());
+        m.put("resumeDeltas", resumeDeltas.sum());
+        m.put("redirects", redirects.sum());
+        m.put("resyncs", resyncs.sum());
+        m.put("stuck", stuck.sum());
+        Map<String, Long> errors = new TreeMap<>();
+        errorsByCode.forEach((k, v) -> errors.put(k, v.sum()));
+        m.put("errors", errors);
+        return m;
+    }
+
+    private static Map<String, Long> latencies(LatencyRecorder r) {
+        long[] s = r.snapshot();
+        Map<String, Long> m = new LinkedHashMap<>();
+        m.put("count", (long) s.length);
+        m.put("p50Us", LatencyRecorder.percentile(s, 0.50));
+        m.put("p99Us", LatencyRecorder.percentile(s, 0.99));
+        m.put("p999Us", LatencyRecorder.percentile(s, 0.999));
+        m.put("maxUs", s.length == 0 ? 0 : s[s.length - 1]);
+        return m;
+    }
+}
@@ -0,0 +1,454 @@
+package com.client.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.client.Board;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shared.dto.Envelope;
+import com.shared.dto.HeartbeatAckDTO;
+import com.shared.dto.JoinMessageDTO;
+import com.shared.dto.MatchedMessageDTO;
+import com.shared.dto.MoveBroadcastDTO;
+import com.shared.dto.MoveMessageDTO;
+import com.shared.dto.PositionSyncDTO;
+import com.shared.dto.RedirectDTO;
+import com.shared.dto.ResumeOkDTO;
+import com.shared.dto.ResyncRequestDTO;
+import com.shared.util.Colour;
+
+/**
+ * One simulated player. Speaks the same protocol as ChessWebSocketClient (join, move, resync,
+ * heartbeat_ack, redirect, resume-by-reconnect) but over the JDK's shared NIO WebSocket client,
+ * so thousands of them cost a handful of threads. All state is guarded by this.
+ */
+final class SimPlayer implements WebSocket.Listener {
+
+    private static final int MAX_CONNECT_ATTEMPTS = 5;
+    private static final int MAX_REJECTED_PER_PLY = 5;
+
+    private final LoadGenerator.Config cfg;
+    private final LoadStats stats;
+    private final HttpClient http;
+    private final ScheduledExecutorService timer;
+    private final ObjectMapper mapper;
+    private final String id;
+    private final int rating;
+
+    private WebSocket ws;
+    private CompletableFuture<WebSocket> sendChain = CompletableFuture.completedFuture(null);
+    private final StringBuilder partial = new StringBuilder();
+    // Bumped on every new socket; timers from an older one see a different value and do nothing
+    private int generation = 0;
+    private boolean everConnected = false;
+    private boolean stopping = false;
+    private int connectAttempts = 0;
+
+    // ---------- game state ----------
+    private long gameId = -1;
+    private Colour colour;
+    private Board board;
+    private int ply;
+    private boolean paused;
+    private String[] script;
+    private boolean moveScheduled;
+    private String pendingUci;
+    private int pendingPly;
+    private long pendingSentNanos;
+    private int rejectedThisPly;
+    private final List<String> rejected = new ArrayList<>();
+    private int gamesPlayed;
+
+    // ---------- timing ----------
+    private long connectStartedNanos;
+    private long joinSentNanos;
+    private long resumeStartedNanos = -1;
+
+    SimPlayer(LoadGenerator.Config cfg, LoadStats stats, HttpClient http, ScheduledExecutorService timer,
+              ObjectMapper mapper, String id, int rating) {
+        this.cfg = cfg;
+        this.stats = stats;
+        this.http = http;
+        this.timer = timer;
+        this.mapper = mapper;
+        this.id = id;
+        this.rating = rating;
+    }
+
+    synchronized void start() {
+        connect(null);
+    }
+
+    synchronized void stop() {
+        stopping = true;
+        generation++;
+        release(false);
+    }
+
+    // ---------- connection ----------
+
+    private void connect(String routeNode) {
+        if (stopping) return;
+        int gen = ++generation;
+        connectStartedNanos = System.nanoTime();
+        String qs = "pid=" + id + (routeNode == null ? "" : "&route=" + routeNode)
+            // Mid-game: say how far we got, so the server only sends the moves we missed
+            + (gameId > 0 ? "&g=" + gameId + "&v=" + ply : "");
+        URI uri = URI.create(cfg.url() + (cfg.url().contains("?") ? "&" : "?") + qs);
+        http.newWebSocketBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .buildAsync(uri, this)
+            .whenComplete((socket, err) -> {
+                if (err != null) onConnectFailed(gen, routeNode);
+            });
+    }
+
+    private synchronized void onConnectFailed(int gen, String routeNode) {
+        stats.connectFailures.increment();
+        if (gen != generation || stopping) return;
+        if (++connectAttempts >= MAX_CONNECT_ATTEMPTS) {
+            System.err.printf("[LOAD] %s giving up after %d connect attempts%n", id, connectAttempts);
+            return;
+        }
+        long backoff = 250L << connectAttempts;
+        timer.schedule(() -> { synchronized (this) { if (gen == generation) connect(routeNode); } },
+            backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleReconnect(String routeNode, long delayMs) {
+        int gen = ++generation;
+        timer.schedule(() -> {
+            synchronized (this) {
+                if (gen != generation || stopping) return;
+                resumeStartedNanos = System.nanoTime();
+                connect(routeNode);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lets go of the current socket. Not graceful means no close handshake, like a phone losing
+     * signal. Callbacks that arrive later for the released socket are ignored.
+     */
+    private void release(boolean graceful) {
+        WebSocket socket = ws;
+        if (socket == null) return;
+        ws = null;
+        stats.openSockets.decrementAndGet();
+        if (graceful) {
+            sendChain.thenCompose(ignored -> socket.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+        } else {
+            socket.abort();
+        }
+    }
+
+    @Override
+    public synchronized void onOpen(WebSocket socket) {
+        this.ws = socket;
+        this.sendChain = CompletableFuture.completedFuture(socket);
+        this.connectAttempts = 0;
+        stats.openSockets.incrementAndGet();
+        if (!everConnected) {
+            everConnected = true;
+            stats.connect.recordSince(connectStartedNanos);
+        }
+        // Same as the interactive client: the server ignores the join if the handshake already seated us
+        if (gameId < 0) joinSentNanos = System.nanoTime();
+        send("join", new JoinMessageDTO(id, id, rating, gameId, gameId > 0 ? ply : -1));
+        socket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+        synchronized (this) {
+            if (socket == ws) {
+                partial.append(data);
+                if (last) {
+                    String message = partial.toString();
+                    partial.setLength(0);
+                    try {
+                        handle(message);
+                    } catch (Exception e) {
+                        stats.error("clientParse");
+                    }
+                }
+            }
+        }
+        socket.request(1);
+        return null;
+    }
+
+    @Override
+    public synchronized CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+        onSocketGone(socket);
+        return null;
+    }
+
+    @Override
+    public synchronized void onError(WebSocket socket, Throwable error) {
+        onSocketGone(socket);
+    }
+
+    private void onSocketGone(WebSocket socket) {
+        if (socket != ws) return;
+        ws = null;
+        stats.openSockets.decrementAndGet();
+        if (stopping) return;
+        stats.unexpectedCloses.increment();
+        // Server dropped us mid-game (slow consumer, heartbeat timeout, node restart): come back and resume
+        if (gameId > 0) scheduleReconnect(null, cfg.resumeDelayMs());
+    }
+
+    // ---------- protocol ----------
+
+    private void handle(String message) throws Exception {
+        JsonNode root = mapper.readTree(message);
+        String type = root.get("type").asText();
+        JsonNode payload = root.get("payload");
+        switch (type) {
+            case "matchFound" -> {
+                MatchedMessageDTO m = mapper.treeToValue(payload, MatchedMessageDTO.class);
+                stats.timeToMatch.recordSince(joinSentNanos);
+                stats.matches.increment();
+                stats.inGame.incrementAndGet();
+                gameId = m.gameId();
+                colour = m.colour();
+                board = Board.fromFen(m.initialFen());
+                ply = 0;
+                paused = false;
+                script = cfg.pickScript(gameId);
+                clearPending();
+                maybeMove();
+            }
+            case "move" -> {
+                MoveBroadcastDTO b = mapper.treeToValue(payload, MoveBroadcastDTO.class);
+                if (b.gameId() != gameId) return;
+                if (pendingUci != null && b.ply() == pendingPly && b.uci().equals(pendingUci)) {
+                    stats.moveRtt.recordSince(pendingSentNanos);
+                    stats.movesAcked.increment();
+                    clearPending();
+                }
+                if (!applyBroadcast(b)) {
+                    stats.resyncs.increment();
+                    send("resync", new ResyncRequestDTO(gameId, ply));
+                    return;
+                }
+                if (ThreadLocalRandom.current().nextDouble() < cfg.disconnectRate()) {
+                    stats.injectedDisconnects.increment();
+                    release(false);
+                    scheduleReconnect(null, cfg.resumeDelayMs());
+                    return;
+                }
+                maybeMove();
+            }
+            case "sync" -> {
+                PositionSyncDTO sync = mapper.treeToValue(payload, PositionSyncDTO.class);
+                if (sync.gameId() != gameId) return;
+                board = Board.fromFen(sync.fen());
+                ply = sync.ply();
+                clearPending();
+                maybeMove();
+            }
+            case "resumeOk" -> {
+                ResumeOkDTO ok = mapper.treeToValue(payload, ResumeOkDTO.class);
+                if (resumeStartedNanos > 0) {
+                    stats.resume.recordSince(resumeStartedNanos);
+                    resumeStartedNanos = -1;
+                }
+                stats.resumes.increment();
+                paused = false;
+                clearPending();
+                if (!applyResume(ok)) {
+                    stats.resyncs.increment();
+                    send("resync", new ResyncRequestDTO(gameId, ply));
+                    return;
+                }
+                maybeMove();
+            }
+            case "pause" -> paused = true;
+            case "opponentReconnected" -> {
+                paused = false;
+                maybeMove();
+            }
+            case "heartbeat" -> send("heartbeat_ack", new HeartbeatAckDTO(payload.get("ts").asLong()));
+            case "error" -> onServerError(payload.get("code").asText());
+            case "gameOver" -> {
+                stats.gamesFinished.increment();
+                stats.inGame.decrementAndGet();
+                gameId = -1;
+                clearPending();
+                if (++gamesPlayed >= cfg.gamesPerPlayer()) {
+                    release(true);
+                    return;
+                }
+                // Back into the queue after a short break
+                int gen = generation;
+                timer.schedule(() -> {
+                    synchronized (this) {
+                        if (gen != generation || stopping || ws == null) return;
+                        joinSentNanos = System.nanoTime();
+                        send("join", new JoinMessageDTO(id, id, rating, -1, -1));
+                    }
+                }, cfg.think().sampleLong(0, 60_000), TimeUnit.MILLISECONDS);
+            }
+            case "redirect" -> {
+                RedirectDTO rd = mapper.treeToValue(payload, RedirectDTO.class);
+                stats.redirects.increment();
+                release(false);
+                if (resumeStartedNanos < 0 && gameId > 0) resumeStartedNanos = System.nanoTime();
+                connect(rd.nodeId());
+            }
+            default -> { }
+        }
+    }
+
+    private void onServerError(String code) {
+        stats.error(code);
+        switch (code) {
+            case "illegalMove" -> {
+                // Our board and the server disagree about this move; try another, then fall back to a resync
+                if (pendingUci != null) rejected.add(pendingUci);
+                pendingUci = null;
+                if (++rejectedThisPly >= MAX_REJECTED_PER_PLY) {
+                    stats.resyncs.increment();
+                    send("resync", new ResyncRequestDTO(gameId, ply));
+                } else {
+                    maybeMove();
+                }
+            }
+            case "notYourTurn", "wrongGameId" -> {
+                pendingUci = null;
+                stats.resyncs.increment();
+                send("resync", new ResyncRequestDTO(gameId, ply));
+            }
+            case "gamePaused" -> {
+                pendingUci = null;
+                paused = true;
+            }
+            case "persistFailed", "serverBusy", "rateLimited" -> {
+                pendingUci = null;
+                int gen = generation;
+                timer.schedule(() -> { synchronized (this) { if (gen == generation) maybeMove(); } },
+                    200, TimeUnit.MILLISECONDS);
+            }
+            default -> {
+                // gameMigrating is followed by a redirect; the rest are just counted
+                pendingUci = null;
+            }
+        }
+    }
+
+    private boolean applyBroadcast(MoveBroadcastDTO b) {
+        if (b.fen() != null) {
+            board = Board.fromFen(b.fen());
+        } else {
+            if (b.ply() != ply + 1) return false;
+            board.applyUci(b.uci());
+            if (!board.checksum().equals(b.checksum())) return false;
+        }
+        ply = b.ply();
+        rejectedThisPly = 0;
+        rejected.clear();
+        return true;
+    }
+
+    // A snapshot replaces the board; a delta is applied on top of ours and checked. False means resync.
+    private boolean applyResume(ResumeOkDTO ok) {
+        colour = ok.yourColour();
+        if (ok.moves() == null) {
+            gameId = ok.gameId();
+            board = Board.fromFen(ok.fen());
+            ply = ok.ply();
+            return true;
+        }
+        stats.resumeDeltas.increment();
+        if (ok.gameId() != gameId || ok.fromPly() != ply) {
+            gameId = ok.gameId();
+            return false;
+        }
+        for (String uci : ok.moves()) board.applyUci(uci);
+        ply = ok.ply();
+        return board.checksum().equals(ok.checksum());
+    }
+
+    // ---------- moving ----------
+
+    private void maybeMove() {
+        if (gameId < 0 || paused || moveScheduled || pendingUci != null || ws == null) return;
+        if (board.getToPlay() != colour) return;
+        moveScheduled = true;
+        int gen = generation;
+        long thinkMs = cfg.think().sampleLong(0, 60_000);
+        timer.schedule(() -> sendMove(gen), thinkMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sendMove(int gen) {
+        moveScheduled = false;
+        if (gen != generation || gameId < 0 || paused || pendingUci != null || ws == null) return;
+        if (board.getToPlay() != colour) return;
+
+        String uci = chooseMove();
+        if (uci == null) {
+            // Nothing the server will take; walk away and let the abandon timer end the game
+            stats.stuck.increment();
+            stats.inGame.decrementAndGet();
+            gameId = -1;
+            release(false);
+            return;
+        }
+        pendingUci = uci;
+        pendingPly = ply + 1;
+        pendingSentNanos = System.nanoTime();
+        stats.movesSent.increment();
+        send("move", new MoveMessageDTO(gameId, id, uci));
+    }
+
+    private String chooseMove() {
+        List<String> candidates = new ArrayList<>();
+        for (String uci : board.legalMoves()) {
+            if (serverAccepts(uci) && !rejected.contains(uci)) candidates.add(uci);
+        }
+        if (candidates.isEmpty()) return null;
+        if (script != null && ply < script.length && candidates.contains(script[ply])) return script[ply];
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    /** ChessGame.parseMove only encodes regular and promotion moves, so castling and en passant are rejected. */
+    private boolean serverAccepts(String uci) {
+        char piece = Character.toLowerCase(board.pieceAt(uci.substring(0, 2)));
+        boolean fileChange = uci.charAt(0) != uci.charAt(2);
+        if (piece == 'k' && Math.abs(uci.charAt(0) - uci.charAt(2)) == 2) return false;
+        return !(piece == 'p' && fileChange && board.pieceAt(uci.substring(2, 4)) == '.');
+    }
+
+    private void clearPending() {
+        pendingUci = null;
+        rejectedThisPly = 0;
+        rejected.clear();
+    }
+
+    private void send(String type, Object payload) {
+        WebSocket socket = ws;
+        if (socket == null) return;
+        String json;
+        try {
+            json = mapper.writeValueAsString(new Envelope<>(type, payload));
+        } catch (Exception e) {
+            stats.error("clientSerialize");
+            return;
+        }
+        // The JDK client allows one outstanding send per socket; chain them
+        sendChain = sendChain.thenCompose(ignored -> socket.sendText(json, true))
+            .exceptionally(err -> socket);
+    }
+}
@@ -0,0 +1,71 @@
+package com.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Node counts of legalMoves against the published perft results for the standard test positions
+ * (chessprogramming.org "Perft Results"). Between them they cover castling through and out of
+ * check, en passant including the discovered-check case, promotions and pins. Depths are kept
+ * low enough for the suite to run in a few seconds.
+ */
+class BoardPerftTest {
+
+    private static long perft(Board board, int depth) {
+        if (depth == 0) return 1;
+        long nodes = 0;
+        String fen = board.toFen();
+        for (String uci : board.legalMoves()) {
+            if (depth == 1) {
+                nodes++;
+                continue;
+            }
+            Board next = Board.fromFen(fen);
+            next.applyUci(uci);
+            nodes += perft(next, depth - 1);
+        }
+        return nodes;
+    }
+
+    private static void check(String fen, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], perft(Board.fromFen(fen), depth), fen + " at depth " + depth);
+        }
+    }
+
+    @Test
+    void startPosition() {
+        check("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 20, 400, 8_902, 197_281);
+    }
+
+    @Test
+    void kiwipete() {
+        check("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2_039, 97_862);
+    }
+
+    @Test
+    void position3() {
+        check("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2_812, 43_238);
+    }
+
+    @Test
+    void position4() {
+        check("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9_467);
+    }
+
+    @Test
+    void position4Mirrored() {
+        check("r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1", 6, 264, 9_467);
+    }
+
+    @Test
+    void position5() {
+        check("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1_486, 62_379);
+    }
+
+    @Test
+    void position6() {
+        check("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2_079, 89_890);
+    }
+}
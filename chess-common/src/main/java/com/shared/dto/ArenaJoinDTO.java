@@ -0,0 +1,4 @@
+package com.shared.dto;
+
+/** Client asks to enter (arenaJoin) or leave (arenaLeave) an arena. */
+public record ArenaJoinDTO(long arenaId) {}
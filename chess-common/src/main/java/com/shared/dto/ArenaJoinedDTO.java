@@ -0,0 +1,4 @@
+package com.shared.dto;
+
+/** Server confirms an arena entry; games arrive as matchFound until endsAt (epoch millis). */
+public record ArenaJoinedDTO(long arenaId, String name, long endsAt) {}
@@ -0,0 +1,4 @@
+package com.shared.dto;
+
+/** No opponent yet: the server offers an engine game at botRating. Accept with a playBot message. */
+public record BotOfferDTO(long waitedMillis, int botRating) {}
@@ -0,0 +1,4 @@
+package com.shared.dto;
+
+/** Remaining time per side when the message was sent; the side to move is running. */
+public record ClockDTO(long whiteMillis, long blackMillis) {}
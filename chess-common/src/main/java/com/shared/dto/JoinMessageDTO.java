@@ -1,3 +1,4 @@
 package com.shared.dto;
 
-public record JoinMessageDTO(String playerId, String name, int rating) {}
+/** lastGameId/lastVersion: the game and ply the client already has when it rejoins mid-game, else -1. */
+public record JoinMessageDTO(String playerId, String name, int rating, long lastGameId, int lastVersion) {}
@@ -1,12 +1,14 @@
 package com.shared.dto;
 
 import com.shared.util.Colour;
+import com.shared.util.TimeControl;
 
 public record MatchedMessageDTO(
     long gameId,
     String yourId,
     Colour colour,
     OpponentDTO opponent,
-    String initialFen
+    String initialFen,
+    TimeControl timeControl
 ) {}
 
@@ -2,4 +2,8 @@ package com.shared.dto;
 
 import com.shared.util.Colour;
 
-public record MoveBroadcastDTO(long gameId, String uci, String fen, Colour toPlay) {}
+/**
+ * fen is only filled in every few plies; otherwise clients apply uci to their own
+ * board and compare against checksum.
+ */
+public record MoveBroadcastDTO(long gameId, String uci, String fen, Colour toPlay, int ply, String checksum, ClockDTO clock) {}
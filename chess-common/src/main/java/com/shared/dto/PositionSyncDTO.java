@@ -0,0 +1,5 @@
+package com.shared.dto;
+
+import com.shared.util.Colour;
+
+public record PositionSyncDTO(long gameId, int ply, String fen, Colour toPlay, ClockDTO clock) {}
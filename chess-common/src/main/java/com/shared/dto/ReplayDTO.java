@@ -0,0 +1,5 @@
+package com.shared.dto;
+
+import java.util.List;
+
+public record ReplayDTO(long gameId, int ply, String fen, List<String> moves, int totalPlies) {}
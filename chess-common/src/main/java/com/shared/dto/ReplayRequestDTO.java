@@ -0,0 +1,4 @@
+package com.shared.dto;
+
+/** Position after ply `ply` of a game, plus up to `count` of the moves that follow it. */
+public record ReplayRequestDTO(long gameId, int ply, int count) {}
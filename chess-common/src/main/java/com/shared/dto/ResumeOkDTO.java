@@ -1,5 +1,13 @@
 package com.shared.dto;
 
+import java.util.List;
+
 import com.shared.util.Colour;
 
-public record ResumeOkDTO(long gameId, String fen, Colour toPlay, Colour yourColour, OpponentDTO opponent) {}
\ No newline at end of file
+/**
+ * Either a full snapshot (fen set, moves null) or, when the client told us the version it had,
+ * just the moves played after fromPly (fen null) for it to apply to its own board and compare
+ * against checksum. A game's version is its ply: every committed move bumps both.
+ */
+public record ResumeOkDTO(long gameId, String fen, Colour toPlay, Colour yourColour, OpponentDTO opponent, int ply, ClockDTO clock,
+                          int fromPly, List<String> moves, String checksum) {}
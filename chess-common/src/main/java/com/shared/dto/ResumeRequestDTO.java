@@ -1,3 +1,12 @@
 package com.shared.dto;
 
-public record ResumeRequestDTO(long gameId, String playerId) {}
\ No newline at end of file
+/**
+ * version is the ply of the last move the client applied, or -1 if it has nothing. A request
+ * without it is read as -1, not as ply 0, so the client gets the full position.
+ */
+public record ResumeRequestDTO(long gameId, String playerId, Integer version) {
+
+    public ResumeRequestDTO {
+        if (version == null) version = -1;
+    }
+}
@@ -0,0 +1,3 @@
+package com.shared.dto;
+
+public record ResyncRequestDTO(long gameId, int lastPly) {}
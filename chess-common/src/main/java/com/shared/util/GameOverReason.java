@@ -8,5 +8,6 @@ public enum GameOverReason {
     AGREED_DRAW,
     FIFTY_MOVE, 
     REPETITION, 
-    INSUFFICIENT_MATERIAL
+    INSUFFICIENT_MATERIAL,
+    TIMEOUT
 }
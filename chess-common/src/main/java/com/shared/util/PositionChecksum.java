@@ -0,0 +1,26 @@
+package com.shared.util;
+
+public final class PositionChecksum {
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private PositionChecksum() {}
+
+    /**
+     * Short checksum of a position, shared by server and client so a delta move
+     * broadcast can be verified without shipping the FEN.
+     *
+     * @param squares 64 FEN piece letters indexed a1=0 .. h8=63, '.' for empty
+     * @param toPlay  side to move after the ply
+     */
+    public static String of(char[] squares, Colour toPlay) {
+        int h = FNV_OFFSET;
+        for (int i = 0; i < 64; i++) {
+            h ^= squares[i];
+            h *= FNV_PRIME;
+        }
+        h ^= (toPlay == Colour.WHITE ? 'w' : 'b');
+        h *= FNV_PRIME;
+        return String.format("%08x", h);
+    }
+}
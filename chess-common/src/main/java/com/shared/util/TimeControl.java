@@ -0,0 +1,26 @@
+package com.shared.util;
+
+/**
+ * Base time plus a per-move increment, written "minutes+seconds" (e.g. "5+3", "0.5+0", "1+0.5").
+ * The written form is for people; anything that has to restore a clock keeps the two millis values.
+ */
+public record TimeControl(long baseMillis, long incrementMillis) {
+
+    public static TimeControl parse(String spec) {
+        int plus = spec.indexOf('+');
+        if (plus < 0) throw new IllegalArgumentException("time control must look like 5+3: " + spec);
+        long base = Math.round(Double.parseDouble(spec.substring(0, plus).strip()) * 60_000);
+        long inc = Math.round(Double.parseDouble(spec.substring(plus + 1).strip()) * 1_000);
+        if (base <= 0 || inc < 0) throw new IllegalArgumentException("bad time control: " + spec);
+        return new TimeControl(base, inc);
+    }
+
+    @Override
+    public String toString() {
+        return units(baseMillis, 60_000) + "+" + units(incrementMillis, 1_000);
+    }
+
+    private static String units(long millis, long unit) {
+        return millis % unit == 0 ? Long.toString(millis / unit) : Double.toString((double) millis / unit);
+    }
+}
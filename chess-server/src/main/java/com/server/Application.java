@@ -1,16 +1,54 @@
 package com.server;
 
 // import com.server.model.Player;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.server.archive.ArchivedGame;
+import com.server.archive.Archiver;
+import com.server.archive.GameArchive;
+import com.server.history.GameHistoryIndex;
+import com.server.history.HistoryEntry;
+import com.server.history.HistoryPage;
+import com.server.history.HistoryQuery;
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.metrics.MoveTracer;
 import com.server.network.ChessWebSocketServer;
+import com.server.network.NodeLinkServer;
+import com.server.pgn.PgnExporter;
+import com.server.rating.Leaderboard;
+import com.server.tournament.Arena;
+import com.server.tournament.ArenaService;
+import com.server.tournament.ArenaSummary;
 import com.server.redis.RedisManager;
+import com.server.store.GameStores;
 import com.sun.net.httpserver.HttpExchange;
 // import com.server.service.MatchmakingService;
 import com.sun.net.httpserver.HttpHandler;
+import com.shared.util.TimeControl;
 import com.sun.net.httpserver.HttpServer;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 // import com.server.model.ChesspressoDemo;
 public class Application {
@@ -43,18 +81,56 @@ public class Application {
         if (args.length > 0) {
             try { port = Integer.parseInt(args[0]); } catch (Exception ignore) {}
         }
+        // --store=redis|memory; memory runs a single node with no Redis
+        for (String arg : args) {
+            if (arg.startsWith("--store=")) System.setProperty("chess.store", arg.substring("--store=".length()));
+        }
+        GameStores.get();
 
         int healthPort = port + 1000;
         String host = "0.0.0.0";
 
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        ChessWebSocketServer chessServer = new ChessWebSocketServer(address);
+        chessServer.start();
+
         HttpServer healthServer = HttpServer.create(new InetSocketAddress(healthPort), 0);
-        healthServer.createContext("/healthz", new HealthHandler());
+        healthServer.createContext("/healthz", new HealthHandler(chessServer));
+        healthServer.createContext("/drain", new DrainHandler(chessServer));
+        healthServer.createContext("/metrics", new MetricsHandler());
+        healthServer.createContext("/trace", new TraceHandler(chessServer.getMoveTracer()));
+        // Exports and history fan-out can take a while; they get their own threads so the
+        // dispatcher stays free for /healthz and /metrics
+        java.util.concurrent.ExecutorService slowPool = slowRequestPool(Integer.getInteger("chess.slowHttpThreads", 4));
+        healthServer.createContext("/history", offload(
+            new HistoryHandler(chessServer.getHistoryIndex(), Integer.toString(port)), slowPool));
+
+        // Finished games leave the store for on-disk segments; -Dchess.archive=false on nodes that shouldn't archive
+        GameArchive archive = null;
+        if (Boolean.parseBoolean(System.getProperty("chess.archive", "true"))) {
+            archive = new GameArchive(
+                Path.of(System.getProperty("chess.archiveDir", "archive/node-" + port)),
+                Long.getLong("chess.archiveSegmentMb", 64L) * 1024 * 1024);
+            Archiver archiver = new Archiver(GameStores.get(), archive, Integer.toString(port));
+            archiver.start();
+            healthServer.createContext("/archive", new ArchiveHandler(archive));
+        }
+        PgnExporter exporter = new PgnExporter(
+            Integer.getInteger("chess.exportThreads", Runtime.getRuntime().availableProcessors()));
+        healthServer.createContext("/export", offload(
+            new ExportHandler(archive, chessServer.getHistoryIndex(), exporter, Integer.toString(port)), slowPool));
+        Leaderboard leaderboard = new Leaderboard(GameStores.get());
+        leaderboard.start();
+        healthServer.createContext("/leaderboard", new LeaderboardHandler(leaderboard));
+        healthServer.createContext("/arena", new ArenaHandler(chessServer.getArenaService()));
         healthServer.setExecutor(null);
         healthServer.start();
 
-        InetSocketAddress address = new InetSocketAddress(host, port);
-        ChessWebSocketServer chessServer = new ChessWebSocketServer(address);
-        chessServer.start();
+        // Peers only: keep it on an internal interface
+        String linkBind = System.getProperty("chess.linkBindAddress", "127.0.0.1");
+        NodeLinkServer linkServer = new NodeLinkServer(
+            new InetSocketAddress(linkBind, port + ChessWebSocketServer.LINK_PORT_OFFSET), chessServer);
+        linkServer.start();
         // System.out.println("WebSocket server started on ws://localhost:8080");
         // RedisManager redis = RedisManager.getInstance();
         // redis.setGameNode("1", "8081");
@@ -64,10 +140,468 @@ public class Application {
         Thread.currentThread().join();
     }
 
+    // 400 with the reason as the plain-text body
+    static void badRequest(HttpExchange t, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        t.sendResponseHeaders(400, body.length);
+        OutputStream os = t.getResponseBody();
+        os.write(body);
+        os.close();
+    }
+
+    static java.util.concurrent.ExecutorService slowRequestPool(int threads) {
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        return new java.util.concurrent.ThreadPoolExecutor(threads, threads, 0, java.util.concurrent.TimeUnit.MILLISECONDS,
+            new java.util.concurrent.ArrayBlockingQueue<>(64), r -> {
+                Thread th = new Thread(r, "http-slow-" + n.incrementAndGet());
+                th.setDaemon(true);
+                return th;
+            });
+    }
+
+    // Hands the exchange to pool and returns at once; 503 if pool is saturated
+    static HttpHandler offload(HttpHandler handler, java.util.concurrent.ExecutorService pool) {
+        return t -> {
+            try {
+                pool.execute(() -> {
+                    try {
+                        handler.handle(t);
+                    } catch (Exception e) {
+                        System.out.println("[HTTP] " + t.getRequestURI().getPath() + " failed: " + e.getMessage());
+                    } finally {
+                        t.close();
+                    }
+                });
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                t.sendResponseHeaders(503, -1);
+                t.close();
+            }
+        };
+    }
+
     static class HealthHandler implements HttpHandler {
+        private final ChessWebSocketServer chessServer;
+
+        HealthHandler(ChessWebSocketServer chessServer) {
+            this.chessServer = chessServer;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            // 503 while draining so the load balancer stops sending new players here
+            boolean draining = chessServer.isDraining();
+            String response = draining ? "DRAINING\n" : "OK\n";
+            t.sendResponseHeaders(draining ? 503 : 200, response.length());
+            OutputStream os = t.getResponseBody();
+            os.write(response.getBytes());
+            os.close();
+        }
+    }
+
+    // GET /metrics: Prometheus text exposition
+    static class MetricsHandler implements HttpHandler {
+        public void handle(HttpExchange t) throws IOException {
+            byte[] body = Metrics.get().render().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            t.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    // GET /trace: tracer settings and recent slow moves
+    // POST /trace?enabled=true|false&slowMicros=N&sampleEvery=N: change them without a restart
+    static class TraceHandler implements HttpHandler {
+        private final MoveTracer tracer;
+
+        TraceHandler(MoveTracer tracer) {
+            this.tracer = tracer;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            if ("POST".equalsIgnoreCase(t.getRequestMethod())) {
+                String query = t.getRequestURI().getQuery();
+                try {
+                    for (String param : query == null ? new String[0] : query.split("&")) {
+                        int eq = param.indexOf('=');
+                        if (eq < 0) continue;
+                        String key = param.substring(0, eq);
+                        String value = param.substring(eq + 1);
+                        switch (key) {
+                            case "enabled" -> tracer.setEnabled(Boolean.parseBoolean(value));
+                            case "slowMicros" -> tracer.setSlowThresholdMicros(Long.parseLong(value));
+                            case "sampleEvery" -> tracer.setSampleEvery(Integer.parseInt(value));
+                            default -> { }
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    t.sendResponseHeaders(400, -1);
+                    t.close();
+                    return;
+                }
+                System.out.printf("[TRACE] enabled=%b slowMicros=%d sampleEvery=%d%n",
+                    tracer.isEnabled(), tracer.getSlowThresholdMicros(), tracer.getSampleEvery());
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("enabled=").append(tracer.isEnabled())
+              .append(" slowMicros=").append(tracer.getSlowThresholdMicros())
+              .append(" sampleEvery=").append(tracer.getSampleEvery())
+              .append(" slowMoves=").append(tracer.getSlowMoveCount()).append('\n');
+            for (String line : tracer.recentSlowMoves()) sb.append(line).append('\n');
+            byte[] body = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    // GET /archive?gameId=N: an archived game from this node's archive as JSON
+    static class ArchiveHandler implements HttpHandler {
+        private final GameArchive archive;
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        ArchiveHandler(GameArchive archive) {
+            this.archive = archive;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            String query = t.getRequestURI().getQuery();
+            long gameId;
+            try {
+                gameId = query != null && query.startsWith("gameId=") ? Long.parseLong(query.substring("gameId=".length())) : -1;
+            } catch (NumberFormatException e) {
+                gameId = -1;
+            }
+            if (gameId <= 0) {
+                t.sendResponseHeaders(400, -1);
+                t.close();
+                return;
+            }
+            ArchivedGame game = archive.get(gameId);
+            if (game == null) {
+                t.sendResponseHeaders(404, -1);
+                t.close();
+                return;
+            }
+            byte[] body = mapper.writeValueAsBytes(game);
+            t.getResponseHeaders().set("Content-Type", "application/json");
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    // GET /history?player=P[&result=..][&reason=..][&outcome=win|loss|draw][&from=ms][&to=ms][&opening=e2e4,e7e5]
+    //   [&limit=N][&cursor=C]: one page of P's finished games, newest first, across every live node.
+    //   Each node indexes the games that ended on it; this one asks its peers (local=true) and merges.
+    static class HistoryHandler implements HttpHandler {
+        static final String PEER_HOST = System.getProperty("chess.peerHost", "127.0.0.1");
+        static final int HEALTH_PORT_OFFSET = 1000;
+        private static final Comparator<HistoryEntry> NEWEST_FIRST =
+            Comparator.comparingLong(HistoryEntry::endedAt).thenComparingLong(HistoryEntry::gameId).reversed();
+
+        private final GameHistoryIndex index;
+        private final String nodeId;
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        private final LatencyHistogram localLatency = Metrics.get().histogram(
+            "chess_history_query_latency_us", "History index page lookups on this node");
+
+        HistoryHandler(GameHistoryIndex index, String nodeId) {
+            this.index = index;
+            this.nodeId = nodeId;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            String rawQuery = t.getRequestURI().getRawQuery();
+            Map<String, String> params = queryParams(rawQuery);
+            HistoryQuery q;
+            try {
+                q = HistoryQuery.parse(params);
+            } catch (IllegalArgumentException e) {
+                badRequest(t, e.getMessage());
+                return;
+            }
+            long start = System.nanoTime();
+            HistoryPage page = index.query(q);
+            localLatency.recordNanosAsMicros(start);
+            if (!"true".equals(params.get("local"))) page = mergeWithPeers(q, page, rawQuery);
+
+            byte[] body = mapper.writeValueAsBytes(page);
+            t.getResponseHeaders().set("Content-Type", "application/json");
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+
+        // Every node returns its newest `limit` games before the cursor, so the merged top `limit` is exact
+        private HistoryPage mergeWithPeers(HistoryQuery q, HistoryPage local, String rawQuery) {
+            List<CompletableFuture<HistoryPage>> remote = new ArrayList<>();
+            for (String peer : GameStores.get().getLiveNodeGameCounts().keySet()) {
+                if (peer.equals(nodeId)) continue;
+                URI uri = URI.create("http://" + PEER_HOST + ":" + (Integer.parseInt(peer) + HEALTH_PORT_OFFSET)
+                    + "/history?" + rawQuery + "&local=true");
+                HttpRequest req = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(2)).GET().build();
+                remote.add(http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray()).thenApply(resp -> {
+                    try {
+                        return resp.statusCode() == 200 ? mapper.readValue(resp.body(), HistoryPage.class) : null;
+                    } catch (IOException e) {
+                        return null;
+                    }
+                }).exceptionally(e -> {
+                    System.out.println("[HISTORY] peer " + peer + " didn't answer: " + e.getMessage());
+                    return null;
+                }));
+            }
+            if (remote.isEmpty()) return local;
+
+            List<HistoryEntry> all = new ArrayList<>(local.games());
+            boolean more = local.next() != null;
+            for (CompletableFuture<HistoryPage> f : remote) {
+                HistoryPage p = f.join();
+                if (p == null) continue;
+                all.addAll(p.games());
+                more |= p.next() != null;
+            }
+            all.sort(NEWEST_FIRST);
+            more |= all.size() > q.limit();
+            List<HistoryEntry> page = all.size() > q.limit() ? List.copyOf(all.subList(0, q.limit())) : all;
+            String next = more && !page.isEmpty() ? HistoryQuery.cursor(page.get(page.size() - 1)) : null;
+            return new HistoryPage(page, next);
+        }
+
+        static Map<String, String> queryParams(String rawQuery) {
+            Map<String, String> params = new HashMap<>();
+            if (rawQuery == null) return params;
+            for (String param : rawQuery.split("&")) {
+                int eq = param.indexOf('=');
+                if (eq < 0) continue;
+                params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+            return params;
+        }
+    }
+
+    // GET /leaderboard[?offset=N][&limit=N]: ranked players, best first (limit at most 200)
+    // GET /leaderboard?player=P: P's rating, deviation, games and rank
+    static class LeaderboardHandler implements HttpHandler {
+        private static final int MAX_LIMIT = 200;
+
+        private final Leaderboard leaderboard;
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        LeaderboardHandler(Leaderboard leaderboard) {
+            this.leaderboard = leaderboard;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            Map<String, String> params = HistoryHandler.queryParams(t.getRequestURI().getRawQuery());
+            Object result;
+            try {
+                if (params.containsKey("player")) {
+                    result = leaderboard.standing(params.get("player"));
+                } else {
+                    long offset = Long.parseLong(params.getOrDefault("offset", "0"));
+                    int limit = Integer.parseInt(params.getOrDefault("limit", "50"));
+                    if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+                        throw new IllegalArgumentException("offset must be >= 0 and limit 1.." + MAX_LIMIT);
+                    }
+                    result = leaderboard.page(offset, limit);
+                }
+            } catch (IllegalArgumentException e) {
+                badRequest(t, e.getMessage());
+                return;
+            }
+            byte[] body = mapper.writeValueAsBytes(result);
+            t.getResponseHeaders().set("Content-Type", "application/json");
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    // POST /arena?name=S&minutes=N[&tc=3+2|none][&startIn=seconds]: creates an arena on this node
+    // GET /arena: every arena here; GET /arena?id=N[&offset=N][&limit=N]: one arena and a page of its standings
+    static class ArenaHandler implements HttpHandler {
+        private static final int MAX_LIMIT = 500;
+
+        private final ArenaService arenas;
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        ArenaHandler(ArenaService arenas) {
+            this.arenas = arenas;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            Map<String, String> params = HistoryHandler.queryParams(t.getRequestURI().getRawQuery());
+            Object result;
+            try {
+                if ("POST".equalsIgnoreCase(t.getRequestMethod())) {
+                    String name = params.getOrDefault("name", "Arena");
+                    long minutes = Long.parseLong(params.getOrDefault("minutes", "60"));
+                    // A literal + in the query decodes to a space
+                    String tc = params.getOrDefault("tc", "3+2").replace(' ', '+');
+                    long startIn = Long.parseLong(params.getOrDefault("startIn", "0"));
+                    if (minutes < 1 || startIn < 0) throw new IllegalArgumentException("minutes must be >= 1 and startIn >= 0");
+                    Arena arena = arenas.create(name, "none".equalsIgnoreCase(tc) ? null : TimeControl.parse(tc),
+                        System.currentTimeMillis() + startIn * 1000, minutes * 60_000);
+                    result = arena.summary(0, 0);
+                } else if (params.containsKey("id")) {
+                    Arena arena = arenas.get(Long.parseLong(params.get("id")));
+                    if (arena == null) {
+                        t.sendResponseHeaders(404, -1);
+                        t.close();
+                        return;
+                    }
+                    long offset = Long.parseLong(params.getOrDefault("offset", "0"));
+                    int limit = Integer.parseInt(params.getOrDefault("limit", "50"));
+                    if (offset < 0 || limit < 0 || limit > MAX_LIMIT) {
+                        throw new IllegalArgumentException("offset must be >= 0 and limit 0.." + MAX_LIMIT);
+                    }
+                    result = arena.summary(offset, limit);
+                } else {
+                    List<ArenaSummary> all = new ArrayList<>();
+                    for (Arena arena : arenas.all()) all.add(arena.summary(0, 0));
+                    result = all;
+                }
+            } catch (IllegalArgumentException e) {
+                badRequest(t, e.getMessage());
+                return;
+            }
+            byte[] body = mapper.writeValueAsBytes(result);
+            t.getResponseHeaders().set("Content-Type", "application/json");
+            t.sendResponseHeaders(200, body.length);
+            OutputStream os = t.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+
+    // GET /export?player=P[&<history filters>] or /export[?from=ms][&to=ms]: PGN streamed as it's converted.
+    //   player exports everything this node indexed for P, newest first, from the archive or the store;
+    //   without it, every game in this node's archive that ended in the range, in archive order.
+    //   A player's game archived by another node is fetched from that node's /archive; ids found
+    //   nowhere are listed at the end in a PGN escape line ("% missing games: ...").
+    static class ExportHandler implements HttpHandler {
+        private final GameArchive archive;
+        private final GameHistoryIndex index;
+        private final PgnExporter exporter;
+        private final String nodeId;
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        ExportHandler(GameArchive archive, GameHistoryIndex index, PgnExporter exporter, String nodeId) {
+            this.archive = archive;
+            this.index = index;
+            this.exporter = exporter;
+            this.nodeId = nodeId;
+        }
+
+        public void handle(HttpExchange t) throws IOException {
+            Map<String, String> params = HistoryHandler.queryParams(t.getRequestURI().getRawQuery());
+            Iterator<HistoryEntry> byPlayer = null;
+            long from, to;
+            try {
+                if (params.containsKey("player")) {
+                    params.remove("cursor");
+                    byPlayer = index.iterate(HistoryQuery.parse(params));
+                }
+                from = params.containsKey("from") ? Long.parseLong(params.get("from")) : 0;
+                to = params.containsKey("to") ? Long.parseLong(params.get("to")) : Long.MAX_VALUE;
+            } catch (IllegalArgumentException e) {
+                badRequest(t, e.getMessage());
+                return;
+            }
+            if (byPlayer == null && archive == null) {
+                t.sendResponseHeaders(404, -1);
+                t.close();
+                return;
+            }
+
+            t.getResponseHeaders().set("Content-Type", "application/x-chess-pgn");
+            t.sendResponseHeaders(200, 0);
+            long start = System.nanoTime();
+            long games;
+            List<String> peers = new ArrayList<>();
+            java.util.Set<Long> missing = new java.util.concurrent.ConcurrentSkipListSet<>();
+            if (byPlayer != null) {
+                for (String peer : GameStores.get().getLiveNodeGameCounts().keySet()) {
+                    if (!peer.equals(nodeId)) peers.add(peer);
+                }
+            }
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(t.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+                games = byPlayer != null
+                    ? exporter.export(byPlayer, e -> load(e.gameId(), peers, missing), out)
+                    : exporter.export(archive.scan(from, to), g -> g, out);
+                if (!missing.isEmpty()) {
+                    StringBuilder line = new StringBuilder("% missing games:");
+                    for (long id : missing) line.append(' ').append(id);
+                    out.write(line.append('\n').toString());
+                    System.out.println("[EXPORT] " + missing.size() + " games not found on any node");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("[EXPORT] aborted: " + e.getMessage());
+                return;
+            }
+            long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("[EXPORT] " + games + " games in " + ms + " ms (" + games * 60_000 / ms + " games/min)");
+        }
+
+        // Archived games are on disk, here or on whichever node held the archive lease; ones that
+        // ended in the last archive interval are still in the store
+        private ArchivedGame load(long gameId, List<String> peers, java.util.Set<Long> missing) {
+            ArchivedGame g;
+            try {
+                g = archive == null ? null : archive.get(gameId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (g == null) g = GameStores.get().getEndedGame(gameId);
+            for (int i = 0; g == null && i < peers.size(); i++) g = fromPeer(peers.get(i), gameId);
+            if (g == null) missing.add(gameId);
+            return g;
+        }
+
+        private ArchivedGame fromPeer(String peer, long gameId) {
+            URI uri = URI.create("http://" + HistoryHandler.PEER_HOST + ":"
+                + (Integer.parseInt(peer) + HistoryHandler.HEALTH_PORT_OFFSET) + "/archive?gameId=" + gameId);
+            try {
+                HttpResponse<byte[]> resp = http.send(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(2)).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+                return resp.statusCode() == 200 ? mapper.readValue(resp.body(), ArchivedGame.class) : null;
+            } catch (IOException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    // POST /drain: stop matchmaking and migrate live games to other nodes
+    static class DrainHandler implements HttpHandler {
+        private final ChessWebSocketServer chessServer;
+
+        DrainHandler(ChessWebSocketServer chessServer) {
+            this.chessServer = chessServer;
+        }
+
         public void handle(HttpExchange t) throws IOException {
-            String response = "OK\n";
-            t.sendResponseHeaders(200, response.length());
+            if (!"POST".equalsIgnoreCase(t.getRequestMethod())) {
+                t.sendResponseHeaders(405, -1);
+                t.close();
+                return;
+            }
+            Thread drainThread = new Thread(chessServer::drain, "drain");
+            drainThread.setDaemon(true);
+            drainThread.start();
+            String response = "DRAINING\n";
+            t.sendResponseHeaders(202, response.length());
             OutputStream os = t.getResponseBody();
             os.write(response.getBytes());
             os.close();
@@ -30,7 +30,7 @@ public class ChessCLI {
             String colour = (toPlay == 0) ? "White" : "Black";
             System.out.println(colour + " (" + game.getPlayers()[toPlay].getId() + ") to move.");
             
-            if(game.getPosition().isCheck()) {
+            if(game.isCheck()) {
                 System.out.println("Check!");
             }
 
@@ -47,7 +47,7 @@ public class ChessCLI {
 
             game.makeMove(move);
 
-            if (game.getPosition().isMate()) {
+            if (game.isMate()) {
                 fenBoard = game.getPosition().toString();
                 board = fenToBoard(fenBoard);
                 printBoard(board);
@@ -56,7 +56,7 @@ public class ChessCLI {
                 game.setGameResult(toPlay == 0 ? GameResult.BLACK_WIN : GameResult.WHITE_WIN);
                 break;
             }
-            if (game.getPosition().isStaleMate()) {
+            if (game.isStaleMate()) {
                 fenBoard = game.getPosition().toString();
                 board = fenToBoard(fenBoard);
                 printBoard(board);                
@@ -0,0 +1,403 @@
+package com.server.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.server.archive.ArchivedGame;
+import com.server.archive.GameArchive;
+import com.server.engine.SearchEngine;
+import com.server.engine.SearchResult;
+import com.server.model.ChessGame;
+import com.server.model.Player;
+import com.server.store.GameStores;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+
+/**
+ * Offline fair-play screening. Every position of every finished game gets a fixed-depth
+ * search on a fork-join pool (all cores by default, one transposition table shared by all of
+ * them). From consecutive evaluations each move gets a centipawn loss and an accuracy score,
+ * and these are summed per player. Bots are skipped. Progress is checkpointed after every batch,
+ * with the last game id (store) or archive position it reached, so rerunning the same command
+ * resumes after that game even if games have since moved from the store to the archive. The result is a CSV report, sorted by
+ * accuracy, that marks players worth a human review.
+ *
+ * Usage: FairPlayAnalysis (--archiveDir DIR [--from ms] [--to ms] | --store --ids FIRST-LAST)
+ *        [--depth N] [--threads N] [--hashMb N] [--batch N] [--checkpoint FILE] [--report FILE]
+ *        [--flagAccuracy PCT] [--minMoves N]
+ */
+public class FairPlayAnalysis {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final int CHECKPOINT_MAGIC = 0x46504132; // "FPA2"
+    // Evaluations beyond this are clipped, so a missed mate costs the same as a lost queen or so
+    private static final int CP_CLIP = 1_000;
+    private static final int NEEDS_SEARCH = Integer.MIN_VALUE;
+    private static final int POSITIONS_PER_TASK = 4;
+
+    private final SearchEngine engine;
+    private final ForkJoinPool pool;
+    private final int depth;
+    private final Map<String, PlayerStats> players = new HashMap<>();
+    private long gamesDone;
+    private long positionsDone;
+
+    // A game replayed into the positions to evaluate; terminalScore is set when the last one is mate or stalemate
+    private record Prepared(ArchivedGame game, String[] fens, short[] played, int terminalScore) {}
+
+    // Games to analyse, able to record where they got to and to start again after that
+    private interface Source extends Iterator<ArchivedGame> {
+        /** After the last game next() returned. */
+        void writePosition(DataOutputStream out) throws IOException;
+
+        /** Called before the first hasNext() when resuming. */
+        void resumeAfter(DataInputStream in) throws IOException;
+    }
+
+    FairPlayAnalysis(int threads, int hashMegabytes, int depth) {
+        this.engine = new SearchEngine(1, hashMegabytes);
+        this.pool = new ForkJoinPool(threads);
+        this.depth = depth;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("unexpected argument " + args[i]);
+            boolean flag = i + 1 == args.length || args[i + 1].startsWith("--");
+            opts.put(args[i].substring(2), flag ? "true" : args[++i]);
+        }
+        if (!opts.containsKey("archiveDir") && !opts.containsKey("store")) {
+            System.err.println("usage: FairPlayAnalysis (--archiveDir DIR [--from ms] [--to ms] | --store --ids FIRST-LAST)"
+                + " [--depth N] [--threads N] [--hashMb N] [--batch N] [--checkpoint FILE] [--report FILE]"
+                + " [--flagAccuracy PCT] [--minMoves N]");
+            System.exit(2);
+        }
+        int depth = Integer.parseInt(opts.getOrDefault("depth", "6"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int hashMb = Integer.parseInt(opts.getOrDefault("hashMb", "256"));
+        int batch = Integer.parseInt(opts.getOrDefault("batch", "256"));
+        Path checkpoint = Path.of(opts.getOrDefault("checkpoint", "fairplay.ckpt"));
+        Path report = Path.of(opts.getOrDefault("report", "fairplay-report.csv"));
+        double flagAccuracy = Double.parseDouble(opts.getOrDefault("flagAccuracy", "95"));
+        long minMoves = Long.parseLong(opts.getOrDefault("minMoves", "200"));
+
+        FairPlayAnalysis analysis = new FairPlayAnalysis(threads, hashMb, depth);
+        GameArchive archive = null;
+        Source source;
+        String sourceKey;
+        if (opts.containsKey("archiveDir")) {
+            long from = Long.parseLong(opts.getOrDefault("from", "0"));
+            long to = Long.parseLong(opts.getOrDefault("to", Long.toString(Long.MAX_VALUE)));
+            archive = GameArchive.openReadOnly(Path.of(opts.get("archiveDir")));
+            source = archiveGames(archive, from, to);
+            sourceKey = "archive:" + Path.of(opts.get("archiveDir")).toAbsolutePath() + ":" + from + "-" + to;
+        } else {
+            String ids = opts.get("ids");
+            if (ids == null || ids.indexOf('-') < 1) throw new IllegalArgumentException("--store needs --ids FIRST-LAST");
+            long first = Long.parseLong(ids.substring(0, ids.indexOf('-')));
+            long last = Long.parseLong(ids.substring(ids.indexOf('-') + 1));
+            source = storeGames(first, last);
+            sourceKey = "store:" + first + "-" + last;
+        }
+        try {
+            analysis.run(source, sourceKey, batch, checkpoint);
+            analysis.writeReport(report, flagAccuracy, minMoves);
+        } finally {
+            if (archive != null) archive.close();
+            analysis.pool.shutdown();
+            analysis.engine.shutdown();
+        }
+    }
+
+    // Archive scan position: block location and index in the block
+    private static Source archiveGames(GameArchive archive, long from, long to) {
+        return new Source() {
+            private GameArchive.ScanPosition after = GameArchive.ScanPosition.START;
+            private GameArchive.Scan scan;
+
+            @Override
+            public boolean hasNext() {
+                if (scan == null) scan = archive.scan(from, to, after);
+                return scan.hasNext();
+            }
+
+            @Override
+            public ArchivedGame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return scan.next();
+            }
+
+            @Override
+            public void writePosition(DataOutputStream out) throws IOException {
+                GameArchive.ScanPosition p = scan == null ? after : scan.position();
+                out.writeLong(p.block());
+                out.writeInt(p.index());
+            }
+
+            @Override
+            public void resumeAfter(DataInputStream in) throws IOException {
+                after = new GameArchive.ScanPosition(in.readLong(), in.readInt());
+            }
+        };
+    }
+
+    // Ended games still in the store, read from game:{gid}:moves; ids that aren't there are skipped
+    private static Source storeGames(long first, long last) {
+        return new Source() {
+            private long next = first;
+            private long lastReturned = first - 1;
+            private ArchivedGame game;
+
+            @Override
+            public boolean hasNext() {
+                while (game == null && next <= last) game = GameStores.get().getEndedGame(next++);
+                return game != null;
+            }
+
+            @Override
+            public ArchivedGame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ArchivedGame g = game;
+                game = null;
+                lastReturned = g.gameId();
+                return g;
+            }
+
+            @Override
+            public void writePosition(DataOutputStream out) throws IOException {
+                out.writeLong(lastReturned);
+            }
+
+            @Override
+            public void resumeAfter(DataInputStream in) throws IOException {
+                lastReturned = in.readLong();
+                next = lastReturned + 1;
+            }
+        };
+    }
+
+    private void run(Source source, String sourceKey, int batchSize, Path checkpoint) throws IOException {
+        if (Files.exists(checkpoint)) {
+            loadCheckpoint(checkpoint, sourceKey, source);
+            System.out.printf("[FAIRPLAY] resuming after %d games (%d positions) from %s%n", gamesDone, positionsDone, checkpoint);
+        }
+        long start = System.nanoTime();
+        long positionsAtStart = positionsDone;
+        List<ArchivedGame> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean more = source.hasNext();
+            if (more) batch.add(source.next());
+            if (batch.size() < batchSize && more) continue;
+            if (!batch.isEmpty()) {
+                analyse(batch);
+                saveCheckpoint(checkpoint, sourceKey, source);
+                batch.clear();
+                double secs = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+                System.out.printf("[FAIRPLAY] %d games, %d positions, %.0f positions/s%n",
+                    gamesDone, positionsDone, (positionsDone - positionsAtStart) / secs);
+            }
+            if (!more) break;
+        }
+        double secs = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        System.out.printf("[FAIRPLAY] done: %d games, %d positions this run in %.1f s, %.0f positions/s on %d threads at depth %d%n",
+            gamesDone, positionsDone - positionsAtStart, secs, (positionsDone - positionsAtStart) / secs,
+            pool.getParallelism(), depth);
+    }
+
+    private void analyse(List<ArchivedGame> batch) {
+        List<Prepared> games = new ArrayList<>(batch.size());
+        int total = 0;
+        for (ArchivedGame g : batch) {
+            Prepared p = prepare(g);
+            games.add(p);
+            total += p.fens().length;
+        }
+        // One flat array so the pool balances positions, not games of very different lengths
+        String[] fens = new String[total];
+        int k = 0;
+        for (Prepared p : games) {
+            for (int i = 0; i < p.fens().length; i++) {
+                boolean terminal = i == p.fens().length - 1 && p.terminalScore() != NEEDS_SEARCH;
+                fens[k++] = terminal ? null : p.fens()[i];
+            }
+        }
+        SearchResult[] results = new SearchResult[total];
+        pool.invoke(new Evaluate(fens, results, 0, total));
+
+        k = 0;
+        for (Prepared p : games) {
+            int n = p.fens().length;
+            int[] scores = new int[n];
+            for (int i = 0; i < n; i++) {
+                scores[i] = results[k + i] == null ? p.terminalScore() : results[k + i].score();
+            }
+            score(p, scores, results, k);
+            k += n;
+            positionsDone += n;
+            gamesDone++;
+        }
+    }
+
+    // Replays the stored moves; a move that doesn't replay ends the game there
+    private static Prepared prepare(ArchivedGame g) {
+        Position position = new Position(START_FEN);
+        List<String> fens = new ArrayList<>(g.moves().size() + 1);
+        short[] played = new short[g.moves().size()];
+        fens.add(position.getFEN());
+        int n = 0;
+        for (String uci : g.moves()) {
+            try {
+                short m = ChessGame.parseMove(position, uci);
+                position.doMove(m);
+                played[n++] = m;
+                fens.add(position.getFEN());
+            } catch (IllegalMoveException | RuntimeException e) {
+                System.out.printf("[FAIRPLAY] game=%d stops replaying at ply %d (%s)%n", g.gameId(), n + 1, uci);
+                break;
+            }
+        }
+        int terminal = position.isMate() ? -SearchEngine.MATE : position.isStaleMate() ? 0 : NEEDS_SEARCH;
+        return new Prepared(g, fens.toArray(new String[0]), java.util.Arrays.copyOf(played, n), terminal);
+    }
+
+    // scores[i] is position i from its side to move; the move from i to i+1 loses scores[i] + scores[i+1]
+    private void score(Prepared p, int[] scores, SearchResult[] results, int offset) {
+        PlayerStats white = stats(p.game().whiteId());
+        PlayerStats black = stats(p.game().blackId());
+        if (white != null) white.games++;
+        if (black != null) black.games++;
+        for (int i = 0; i < p.played().length; i++) {
+            PlayerStats mover = (i & 1) == 0 ? white : black;
+            if (mover == null) continue;
+            int best = clip(scores[i]);
+            int after = clip(-scores[i + 1]);
+            int cpl = Math.max(0, best - after);
+            double accuracy = moveAccuracy(winPercent(best), winPercent(after));
+            SearchResult r = results[offset + i];
+            mover.addMove(cpl, accuracy, r != null && r.move() == p.played()[i]);
+        }
+    }
+
+    private PlayerStats stats(String playerId) {
+        if (playerId == null || playerId.isEmpty() || playerId.startsWith(Player.BOT_ID_PREFIX)) return null;
+        return players.computeIfAbsent(playerId, PlayerStats::new);
+    }
+
+    private static int clip(int cp) {
+        return Math.max(-CP_CLIP, Math.min(CP_CLIP, cp));
+    }
+
+    // Expected score in percent for an evaluation, and the accuracy of a move from the drop in it
+    static double winPercent(int cp) {
+        return 50 + 50 * (2 / (1 + Math.exp(-0.00368208 * cp)) - 1);
+    }
+
+    static double moveAccuracy(double winBefore, double winAfter) {
+        double a = 103.1668 * Math.exp(-0.04354 * Math.max(0, winBefore - winAfter)) - 3.1669;
+        return Math.max(0, Math.min(100, a));
+    }
+
+    private final class Evaluate extends RecursiveAction {
+        private final String[] fens;
+        private final SearchResult[] results;
+        private final int lo, hi;
+
+        Evaluate(String[] fens, SearchResult[] results, int lo, int hi) {
+            this.fens = fens;
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= POSITIONS_PER_TASK) {
+                for (int i = lo; i < hi; i++) {
+                    if (fens[i] != null) results[i] = engine.searchHere(fens[i], depth);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Evaluate(fens, results, lo, mid), new Evaluate(fens, results, mid, hi));
+        }
+    }
+
+    /* ---------- Checkpoint and report ---------- */
+
+    private void saveCheckpoint(Path file, String sourceKey, Source source) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeUTF(sourceKey);
+            out.writeInt(depth);
+            out.writeLong(gamesDone);
+            out.writeLong(positionsDone);
+            source.writePosition(out);
+            out.writeInt(players.size());
+            for (PlayerStats p : players.values()) p.write(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadCheckpoint(Path file, String sourceKey, Source source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException(file + " is not a fair-play checkpoint from this version; delete it to start over");
+            }
+            String key = in.readUTF();
+            int savedDepth = in.readInt();
+            if (!key.equals(sourceKey) || savedDepth != depth) {
+                throw new IllegalStateException(file + " belongs to another run (" + key + " at depth " + savedDepth
+                    + "); delete it or pass a different --checkpoint");
+            }
+            gamesDone = in.readLong();
+            positionsDone = in.readLong();
+            source.resumeAfter(in);
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                PlayerStats p = PlayerStats.read(in);
+                players.put(p.playerId, p);
+            }
+        }
+    }
+
+    void writeReport(Path file, double flagAccuracy, long minMoves) throws IOException {
+        List<PlayerStats> rows = new ArrayList<>(players.values());
+        rows.sort(Comparator.comparingDouble(PlayerStats::accuracy).reversed());
+        int flagged = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("player,games,moves,avg_cpl,accuracy,top_move_rate,blunders,flag\n");
+            for (PlayerStats p : rows) {
+                boolean flag = p.moves >= minMoves && p.accuracy() >= flagAccuracy;
+                if (flag) flagged++;
+                out.write(String.format(java.util.Locale.ROOT, "%s,%d,%d,%.1f,%.1f,%.3f,%d,%s%n",
+                    csv(p.playerId), p.games, p.moves, p.averageCpl(), p.accuracy(), p.topMoveRate(), p.blunders,
+                    flag ? "REVIEW" : ""));
+            }
+        }
+        System.out.printf("[FAIRPLAY] report for %d players (%d flagged) written to %s%n", rows.size(), flagged, file);
+    }
+
+    private static String csv(String s) {
+        return s.indexOf(',') < 0 && s.indexOf('"') < 0 ? s : '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,65 @@
+package com.server.analysis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/** Running totals for one player across every analysed game. Not thread-safe; the pipeline owns it. */
+final class PlayerStats {
+
+    // Centipawn loss above this on one move is a blunder
+    static final int BLUNDER_CP = 300;
+
+    final String playerId;
+    long games;
+    long moves;
+    long cplSum;
+    double accuracySum;
+    long topMoveMatches;
+    long blunders;
+
+    PlayerStats(String playerId) {
+        this.playerId = playerId;
+    }
+
+    void addMove(int cpl, double accuracy, boolean topMove) {
+        moves++;
+        cplSum += cpl;
+        accuracySum += accuracy;
+        if (topMove) topMoveMatches++;
+        if (cpl > BLUNDER_CP) blunders++;
+    }
+
+    double averageCpl() {
+        return moves == 0 ? 0 : (double) cplSum / moves;
+    }
+
+    double accuracy() {
+        return moves == 0 ? 0 : accuracySum / moves;
+    }
+
+    double topMoveRate() {
+        return moves == 0 ? 0 : (double) topMoveMatches / moves;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(playerId);
+        out.writeLong(games);
+        out.writeLong(moves);
+        out.writeLong(cplSum);
+        out.writeDouble(accuracySum);
+        out.writeLong(topMoveMatches);
+        out.writeLong(blunders);
+    }
+
+    static PlayerStats read(DataInputStream in) throws IOException {
+        PlayerStats p = new PlayerStats(in.readUTF());
+        p.games = in.readLong();
+        p.moves = in.readLong();
+        p.cplSum = in.readLong();
+        p.accuracySum = in.readDouble();
+        p.topMoveMatches = in.readLong();
+        p.blunders = in.readLong();
+        return p;
+    }
+}
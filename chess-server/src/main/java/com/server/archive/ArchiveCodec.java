@@ -0,0 +1,107 @@
+package com.server.archive;
+
+import com.shared.util.TimeControl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Record layout inside an archive block. Moves are packed into two bytes each:
+ * from square (6 bits), to square (6 bits) and promotion piece (3 bits). Anything that isn't
+ * plain UCI is written as an escape short followed by the string, so nothing is ever lost.
+ * Version 1 records kept the time control as its "5+3" string, which drops sub-second
+ * increments; version 2 writes base and increment millis, with a zero base for untimed games.
+ */
+public final class ArchiveCodec {
+
+    public static final short ESCAPE = (short) 0xFFFF;
+    private static final String PROMOTIONS = "nbrq";
+
+    private ArchiveCodec() {}
+
+    static void write(DataOutputStream out, ArchivedGame g) throws IOException {
+        out.writeLong(g.gameId());
+        out.writeUTF(nz(g.whiteId()));
+        out.writeUTF(nz(g.blackId()));
+        out.writeUTF(nz(g.result()));
+        out.writeUTF(nz(g.reason()));
+        out.writeUTF(nz(g.winnerId()));
+        out.writeLong(g.timeControl() == null ? 0 : g.timeControl().baseMillis());
+        out.writeLong(g.timeControl() == null ? 0 : g.timeControl().incrementMillis());
+        out.writeLong(g.startedAt());
+        out.writeLong(g.endedAt());
+        out.writeInt(g.moves().size());
+        for (String uci : g.moves()) {
+            short packed = pack(uci);
+            out.writeShort(packed);
+            if (packed == ESCAPE) out.writeUTF(uci);
+        }
+    }
+
+    static ArchivedGame read(DataInputStream in, int version) throws IOException {
+        long gameId = in.readLong();
+        String whiteId = in.readUTF();
+        String blackId = in.readUTF();
+        String result = in.readUTF();
+        String reason = in.readUTF();
+        String winnerId = in.readUTF();
+        TimeControl timeControl = version == 1 ? legacyTimeControl(in.readUTF()) : timeControl(in.readLong(), in.readLong());
+        long startedAt = in.readLong();
+        long endedAt = in.readLong();
+        int n = in.readInt();
+        List<String> moves = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            short packed = in.readShort();
+            moves.add(packed == ESCAPE ? in.readUTF() : unpack(packed));
+        }
+        return new ArchivedGame(gameId, whiteId, blackId, result, reason, winnerId,
+            timeControl, startedAt, endedAt, moves);
+    }
+
+    private static TimeControl timeControl(long baseMillis, long incrementMillis) {
+        return baseMillis == 0 ? null : new TimeControl(baseMillis, incrementMillis);
+    }
+
+    private static TimeControl legacyTimeControl(String spec) {
+        if (spec.isEmpty()) return null;
+        try {
+            return TimeControl.parse(spec);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Two-byte form of a UCI move, or ESCAPE if it isn't one. */
+    public static short pack(String uci) {
+        int len = uci.length();
+        if (len != 4 && len != 5) return ESCAPE;
+        int from = square(uci.charAt(0), uci.charAt(1));
+        int to = square(uci.charAt(2), uci.charAt(3));
+        int promo = len == 5 ? PROMOTIONS.indexOf(uci.charAt(4)) + 1 : 0;
+        if (from < 0 || to < 0 || (len == 5 && promo == 0)) return ESCAPE;
+        return (short) (from | to << 6 | promo << 12);
+    }
+
+    public static String unpack(short packed) {
+        int from = packed & 0x3F;
+        int to = (packed >>> 6) & 0x3F;
+        int promo = (packed >>> 12) & 0x7;
+        StringBuilder sb = new StringBuilder(5)
+            .append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)))
+            .append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+        if (promo != 0) sb.append(PROMOTIONS.charAt(promo - 1));
+        return sb.toString();
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
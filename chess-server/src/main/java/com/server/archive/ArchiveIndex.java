@@ -0,0 +1,65 @@
+package com.server.archive;
+
+/**
+ * Game id → archive location, open addressing over two primitive arrays so a few million
+ * archived games cost tens of megabytes rather than a boxed HashMap's hundreds. Ids are
+ * positive (Redis INCR starts at 1), so 0 marks an empty slot. A later put for the same id
+ * wins, which is what a game archived twice should resolve to.
+ */
+final class ArchiveIndex {
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    ArchiveIndex(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[cap];
+        values = new long[cap];
+    }
+
+    synchronized void put(long key, long value) {
+        if (key <= 0) throw new IllegalArgumentException("game id must be positive: " + key);
+        if ((size + 1) * 4L > keys.length * 3L) grow();
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        if (keys[i] == 0) size++;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /** The location, or -1 if the id isn't archived. */
+    synchronized long get(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = slot(oldKeys[j], mask);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
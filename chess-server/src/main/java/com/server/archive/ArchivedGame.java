@@ -0,0 +1,22 @@
+package com.server.archive;
+
+import com.shared.util.TimeControl;
+
+import java.util.List;
+
+/**
+ * A finished game as it leaves the live store: who played, how it ended and every move in UCI.
+ * winnerId is empty for draws and timeControl is null for untimed games.
+ */
+public record ArchivedGame(
+    long gameId,
+    String whiteId,
+    String blackId,
+    String result,
+    String reason,
+    String winnerId,
+    TimeControl timeControl,
+    long startedAt,
+    long endedAt,
+    List<String> moves
+) {}
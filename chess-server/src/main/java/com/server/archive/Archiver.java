@@ -0,0 +1,129 @@
+package com.server.archive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.store.GameStore;
+
+/**
+ * Moves finished games out of the live store. Every interval the node holding the archive
+ * lease takes the oldest ended games in batches, appends each batch to the GameArchive and,
+ * only once the archive has confirmed the write, deletes the games from the store. A crash
+ * in between leaves the games in the store to be archived again; the index keeps one copy.
+ */
+public final class Archiver {
+
+    private static final int BATCH = Integer.getInteger("chess.archiveBatch", 500);
+    private static final int MAX_BATCHES_PER_RUN = Integer.getInteger("chess.archiveMaxBatches", 20);
+    private static final long INTERVAL_MS = Long.getLong("chess.archiveIntervalMs", 5_000L);
+    private static final long LEASE_MS = Long.getLong("chess.archiveLeaseMs", 60_000L);
+
+    private final GameStore store;
+    private final GameArchive archive;
+    private final String nodeId;
+    private final ScheduledExecutorService exec;
+    private final LatencyHistogram batchLatency;
+    private final AtomicLong archivedGames = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong blockBytes = new AtomicLong();
+    // Only games whose store could say what deleting them freed
+    private final AtomicLong measuredGames = new AtomicLong();
+    private final AtomicLong storeBytesFreed = new AtomicLong();
+
+    public Archiver(GameStore store, GameArchive archive, String nodeId) {
+        this.store = store;
+        this.archive = archive;
+        this.nodeId = nodeId;
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        Metrics m = Metrics.get();
+        this.batchLatency = m.histogram("chess_archive_batch_latency_us",
+            "Time to read, write, verify and purge one archive batch");
+        m.counterFn("chess_archive_games_total", "Finished games moved from the store to the archive", archivedGames::get);
+        m.counterFn("chess_archive_batches_total", "Archive batches written", batches::get);
+        m.counterFn("chess_archive_failures_total", "Archive batches that failed and were left in the store", failures::get);
+        m.counterFn("chess_archive_block_bytes_total", "Compressed bytes appended to archive segments", blockBytes::get);
+        m.counterFn("chess_archive_store_bytes_freed_total", "Store memory released by purging archived games",
+            storeBytesFreed::get);
+        m.gauge("chess_archive_store_bytes_freed_per_million_games",
+            "Store memory released per million archived games", this::storeBytesFreedPerMillionGames);
+        m.gauge("chess_archive_games", "Games in this node's archive index", archive::getGameCount);
+        m.gauge("chess_archive_disk_bytes", "Size of this node's archive segments", archive::getDiskBytes);
+    }
+
+    public void start() {
+        exec.scheduleWithFixedDelay(this::runSafely, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        exec.shutdown();
+    }
+
+    public GameArchive getArchive() {
+        return archive;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            System.out.println("[ARCHIVE] run failed: " + e);
+        }
+    }
+
+    /** Archives up to MAX_BATCHES_PER_RUN full batches. Returns the number of games archived. */
+    public int runOnce() {
+        if (!store.tryArchiveLease(nodeId, LEASE_MS)) return 0;
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            int n = archiveBatch();
+            total += n;
+            if (n < BATCH) break;
+        }
+        return total;
+    }
+
+    private int archiveBatch() {
+        long start = System.nanoTime();
+        List<ArchivedGame> games = store.pendingArchive(BATCH);
+        if (games.isEmpty()) return 0;
+        long written;
+        try {
+            written = archive.append(games);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.out.println("[ARCHIVE] batch of " + games.size() + " not archived, left in the store: " + e.getMessage());
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(games.size());
+        for (ArchivedGame g : games) ids.add(g.gameId());
+        long freed = store.purgeArchived(ids);
+        if (freed >= 0) {
+            measuredGames.addAndGet(games.size());
+            storeBytesFreed.addAndGet(freed);
+        }
+        archivedGames.addAndGet(games.size());
+        blockBytes.addAndGet(written);
+        batches.incrementAndGet();
+        batchLatency.record((System.nanoTime() - start) / 1_000);
+        System.out.printf("[ARCHIVE] %d games -> %d bytes on disk (%d per game), store freed %s%n",
+            games.size(), written, written / games.size(),
+            freed < 0 ? "n/a" : freed + " bytes (" + freed / games.size() + " per game)");
+        return games.size();
+    }
+
+    private double storeBytesFreedPerMillionGames() {
+        long games = measuredGames.get();
+        return games == 0 ? 0 : storeBytesFreed.get() * 1_000_000.0 / games;
+    }
+}
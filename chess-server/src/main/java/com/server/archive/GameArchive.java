@@ -0,0 +1,425 @@
+package com.server.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only on-disk archive of finished games. Games are written in blocks, one block per
+ * archiver batch, each deflated and CRC-checked, into segment files (seg-000001.arc, ...) that
+ * roll over at a size limit. Every segment has a sidecar .idx of (game id, block offset) pairs,
+ * written only after the block has been forced to disk and read back, and loaded into an
+ * in-memory index at startup. A block without index entries is one whose write was never
+ * confirmed, so its games are still in the live store; it is cut off on startup. Tools can
+ * open an archive read-only next to a running server; they see what was indexed when they opened it.
+ */
+public final class GameArchive implements Closeable {
+
+    private static final int SEGMENT_MAGIC = 0x43485341; // "CHSA"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER = 8;
+    private static final int BLOCK_MAGIC_V1 = 0x43484231; // "CHB1", time control as a string
+    private static final int BLOCK_MAGIC = 0x43484232; // "CHB2"
+    private static final int BLOCK_HEADER = 24; // magic, count, rawLen, compLen, crc
+    private static final int INDEX_ENTRY = 16;
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final ArchiveIndex index = new ArchiveIndex(1 << 16);
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final boolean readOnly;
+    // Writer state, guarded by this
+    private int current;
+    private FileChannel currentIndex;
+    private long currentSize;
+
+    public GameArchive(Path dir, long segmentBytes) throws IOException {
+        this(dir, segmentBytes, false);
+    }
+
+    /** For export tools: nothing is truncated or created, and append throws. */
+    public static GameArchive openReadOnly(Path dir) throws IOException {
+        return new GameArchive(dir, Long.MAX_VALUE, true);
+    }
+
+    private GameArchive(Path dir, long segmentBytes, boolean readOnly) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            if (!Files.isDirectory(dir)) throw new IOException("no archive at " + dir);
+        } else {
+            Files.createDirectories(dir);
+        }
+        List<Integer> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                .filter(n -> n.startsWith("seg-") && n.endsWith(".arc"))
+                .forEach(n -> existing.add(Integer.parseInt(n.substring(4, n.length() - 4))));
+        }
+        existing.sort(null);
+        for (int i = 0; i < existing.size(); i++) load(existing.get(i), i == existing.size() - 1);
+        if (readOnly) {
+            // current/currentSize only bound what scan reads
+        } else if (existing.isEmpty()) {
+            openSegment(1);
+        } else {
+            current = existing.get(existing.size() - 1);
+            currentIndex = FileChannel.open(indexPath(current), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            currentSize = segments.get(current).size();
+        }
+        System.out.println("[ARCHIVE] " + dir + ": " + index.size() + " games in " + Math.max(1, existing.size())
+            + " segment(s), " + diskBytes.get() + " bytes");
+    }
+
+    private Path segmentPath(int n) {
+        return dir.resolve(String.format("seg-%06d.arc", n));
+    }
+
+    private Path indexPath(int n) {
+        return dir.resolve(String.format("seg-%06d.idx", n));
+    }
+
+    private void load(int n, boolean last) throws IOException {
+        FileChannel seg = readOnly
+            ? FileChannel.open(segmentPath(n), StandardOpenOption.READ)
+            : FileChannel.open(segmentPath(n), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(n, seg);
+        if (seg.size() < SEGMENT_HEADER) {
+            if (!last || readOnly) throw new IOException("truncated archive segment " + segmentPath(n));
+            writeSegmentHeader(seg);
+        }
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER);
+        readFully(seg, header, 0);
+        if (header.getInt(0) != SEGMENT_MAGIC) throw new IOException("not an archive segment: " + segmentPath(n));
+
+        Path idx = indexPath(n);
+        byte[] entries = Files.exists(idx) ? Files.readAllBytes(idx) : new byte[0];
+        int count = entries.length / INDEX_ENTRY;
+        ByteBuffer buf = ByteBuffer.wrap(entries);
+        long lastBlock = -1;
+        for (int i = 0; i < count; i++) {
+            long gid = buf.getLong();
+            long offset = buf.getLong();
+            index.put(gid, (long) n << OFFSET_BITS | offset);
+            lastBlock = Math.max(lastBlock, offset);
+        }
+        if (last && readOnly) {
+            current = n;
+            currentSize = indexedEnd(seg, lastBlock);
+        } else if (last) {
+            // A crash can leave half an index entry or a block that never got its entries
+            if (entries.length != count * INDEX_ENTRY) {
+                try (FileChannel ch = FileChannel.open(idx, StandardOpenOption.WRITE)) {
+                    ch.truncate((long) count * INDEX_ENTRY);
+                }
+            }
+            long end = indexedEnd(seg, lastBlock);
+            if (seg.size() > end) {
+                System.out.println("[ARCHIVE] dropping " + (seg.size() - end) + " unconfirmed bytes from " + segmentPath(n));
+                seg.truncate(end);
+            }
+        }
+        diskBytes.addAndGet(seg.size());
+    }
+
+    // Where the last block with index entries ends
+    private static long indexedEnd(FileChannel seg, long lastBlock) throws IOException {
+        return lastBlock < 0 ? SEGMENT_HEADER : lastBlock + BLOCK_HEADER + blockHeader(seg, lastBlock).getInt(12);
+    }
+
+    private void openSegment(int n) throws IOException {
+        FileChannel seg = FileChannel.open(segmentPath(n), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        writeSegmentHeader(seg);
+        segments.put(n, seg);
+        if (currentIndex != null) currentIndex.close();
+        currentIndex = FileChannel.open(indexPath(n), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        current = n;
+        currentSize = SEGMENT_HEADER;
+        diskBytes.addAndGet(SEGMENT_HEADER);
+    }
+
+    private static void writeSegmentHeader(FileChannel seg) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER).putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+        writeFully(seg, header, 0);
+        seg.force(true);
+    }
+
+    /**
+     * Writes the games as one block, forces it to disk, reads it back and checks it, and only
+     * then indexes it. Returns the bytes the block takes on disk. If this throws, none of the
+     * games are archived and the caller must leave them in the live store.
+     */
+    public synchronized long append(List<ArchivedGame> games) throws IOException {
+        if (readOnly) throw new IOException("archive " + dir + " is open read-only");
+        if (games.isEmpty()) return 0;
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(games.size() * 256);
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            for (ArchivedGame g : games) ArchiveCodec.write(out, g);
+        }
+        byte[] rawBytes = raw.toByteArray();
+        byte[] compressed = deflate(rawBytes);
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+
+        if (currentSize >= segmentBytes) {
+            segments.get(current).force(true);
+            openSegment(current + 1);
+        }
+        FileChannel seg = segments.get(current);
+        long offset = currentSize;
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER + compressed.length)
+            .putInt(BLOCK_MAGIC).putInt(games.size()).putInt(rawBytes.length).putInt(compressed.length)
+            .putLong(crc.getValue()).put(compressed).flip();
+        try {
+            writeFully(seg, block, offset);
+            seg.force(false);
+            List<ArchivedGame> back = readBlock(seg, offset);
+            if (back.size() != games.size()) throw new IOException("read back " + back.size() + " of " + games.size() + " games");
+            for (int i = 0; i < back.size(); i++) {
+                if (back.get(i).gameId() != games.get(i).gameId()) throw new IOException("read back the wrong game at " + i);
+            }
+        } catch (IOException e) {
+            seg.truncate(offset);
+            throw new IOException("archive block at " + segmentPath(current) + ":" + offset + " failed verification", e);
+        }
+
+        ByteBuffer entries = ByteBuffer.allocate(games.size() * INDEX_ENTRY);
+        for (ArchivedGame g : games) entries.putLong(g.gameId()).putLong(offset);
+        entries.flip();
+        while (entries.hasRemaining()) currentIndex.write(entries);
+        currentIndex.force(false);
+
+        long location = (long) current << OFFSET_BITS | offset;
+        for (ArchivedGame g : games) index.put(g.gameId(), location);
+        long written = block.limit();
+        currentSize = offset + written;
+        diskBytes.addAndGet(written);
+        return written;
+    }
+
+    /** The archived game, or null if it isn't in this archive. */
+    public ArchivedGame get(long gameId) throws IOException {
+        long location = index.get(gameId);
+        if (location < 0) return null;
+        FileChannel seg = segments.get((int) (location >>> OFFSET_BITS));
+        for (ArchivedGame g : readBlock(seg, location & OFFSET_MASK)) {
+            if (g.gameId() == gameId) return g;
+        }
+        return null;
+    }
+
+    /** Where a scan got to: the block of the last game it returned and that game's place in the block. */
+    public record ScanPosition(long block, int index) {
+        public static final ScanPosition START = new ScanPosition(-1, -1);
+    }
+
+    /** A scan that can say where it is, so a long job can pick it up again with scan(from, to, after). */
+    public interface Scan extends Iterator<ArchivedGame> {
+        /** After the last game next() returned; START if it hasn't returned one. */
+        ScanPosition position();
+    }
+
+    /**
+     * Every archived game that ended in [from, to], in the order it was archived, reading one
+     * block at a time. Only blocks written before the call are visited, and a game archived
+     * twice is only returned from the block the index points at.
+     */
+    public Scan scan(long from, long to) {
+        return scan(from, to, ScanPosition.START);
+    }
+
+    /** Like scan(from, to), but only the games archived after the given position. */
+    public Scan scan(long from, long to, ScanPosition after) {
+        List<Integer> order = new ArrayList<>(segments.keySet());
+        order.sort(null);
+        int lastSegment;
+        long lastEnd;
+        synchronized (this) {
+            lastSegment = current;
+            lastEnd = currentSize;
+        }
+        return new Scan() {
+            private int seg = 0;
+            private long offset = SEGMENT_HEADER;
+            private List<ArchivedGame> block = List.of();
+            private int pos = 0;
+            private long blockLocation;
+            private ArchivedGame next;
+            private ScanPosition nextPosition;
+            private ScanPosition position = after;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (pos < block.size()) {
+                        ArchivedGame g = block.get(pos++);
+                        if (g.endedAt() >= from && g.endedAt() <= to && index.get(g.gameId()) == blockLocation) {
+                            next = g;
+                            nextPosition = new ScanPosition(blockLocation, pos - 1);
+                        }
+                        continue;
+                    }
+                    if (!readNextBlock()) return false;
+                }
+                return true;
+            }
+
+            @Override
+            public ArchivedGame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ArchivedGame g = next;
+                next = null;
+                position = nextPosition;
+                return g;
+            }
+
+            @Override
+            public ScanPosition position() {
+                return position;
+            }
+
+            private boolean readNextBlock() {
+                try {
+                    while (seg < order.size()) {
+                        int n = order.get(seg);
+                        FileChannel ch = segments.get(n);
+                        long end = n == lastSegment ? lastEnd : ch.size();
+                        if (n > lastSegment || offset >= end) {
+                            seg++;
+                            offset = SEGMENT_HEADER;
+                            continue;
+                        }
+                        int compLen = blockHeader(ch, offset).getInt(12);
+                        long location = (long) n << OFFSET_BITS | offset;
+                        offset += BLOCK_HEADER + compLen;
+                        // Locations grow with segment and offset, so everything up to after.block was seen already
+                        if (location < after.block()) continue;
+                        block = readBlock(ch, location & OFFSET_MASK);
+                        pos = location == after.block() ? after.index() + 1 : 0;
+                        blockLocation = location;
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    public int getGameCount() {
+        return index.size();
+    }
+
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (currentIndex != null) currentIndex.close();
+        for (FileChannel seg : segments.values()) seg.close();
+    }
+
+    private static ByteBuffer blockHeader(FileChannel seg, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+        readFully(seg, header, offset);
+        int magic = header.getInt(0);
+        if (magic != BLOCK_MAGIC && magic != BLOCK_MAGIC_V1) throw new IOException("no archive block at offset " + offset);
+        return header;
+    }
+
+    private static List<ArchivedGame> readBlock(FileChannel seg, long offset) throws IOException {
+        ByteBuffer header = blockHeader(seg, offset);
+        int version = header.getInt(0) == BLOCK_MAGIC_V1 ? 1 : 2;
+        int count = header.getInt(4);
+        int rawLen = header.getInt(8);
+        int compLen = header.getInt(12);
+        long expectedCrc = header.getLong(16);
+        ByteBuffer body = ByteBuffer.allocate(compLen);
+        readFully(seg, body, offset + BLOCK_HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        if (crc.getValue() != expectedCrc) throw new IOException("archive block CRC mismatch at offset " + offset);
+
+        byte[] raw = inflate(body.array(), rawLen);
+        List<ArchivedGame> games = new ArrayList<>(count);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < count; i++) games.add(ArchiveCodec.read(in, version));
+        }
+        return games;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 64);
+            byte[] chunk = new byte[16 * 1024];
+            while (!deflater.finished()) out.write(chunk, 0, deflater.deflate(chunk));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLen) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLen];
+            int n = 0;
+            while (n < rawLen && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, rawLen - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += got;
+            }
+            if (n != rawLen) throw new IOException("archive block inflated to " + n + " of " + rawLen + " bytes");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) throw new EOFException("archive segment ends at " + (position + buf.position()));
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf, position + buf.position());
+    }
+}
@@ -0,0 +1,254 @@
+package com.server.clock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.server.metrics.LatencyHistogram;
+
+/**
+ * Hierarchical timing wheel (Varghese & Lauck, as in the Linux kernel timers) driven by one
+ * thread. Level 0 has 256 slots of one tick each; levels 1-3 have 64 slots, each slot
+ * covering a whole turn of the level below, so with 10 ms ticks the wheel reaches ~7.7 days.
+ * Entries in higher levels are cascaded down as their slot comes round. Scheduling and
+ * cancelling are O(1) and lock-free for callers: both go through queues that only the
+ * wheel thread drains, and only the wheel thread touches the slots. Cancelled entries are
+ * unlinked straight away, so a game that reschedules on every move doesn't leave garbage
+ * behind. Expired tasks run on the dispatcher, never on the wheel thread.
+ */
+public final class TimerWheel {
+
+    public interface Timeout {
+        /** True if this call stopped the task from running. */
+        boolean cancel();
+    }
+
+    private static final int L0_BITS = 8;
+    private static final int LN_BITS = 6;
+    private static final int L0_SIZE = 1 << L0_BITS;
+    private static final int LN_SIZE = 1 << LN_BITS;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA_TICKS = (1L << (L0_BITS + 3 * LN_BITS)) - 1;
+
+    private static final int PENDING = 0, SCHEDULED = 1, CANCELLED = 2, EXPIRED = 3;
+
+    private static final class Entry implements Timeout {
+        private static final AtomicIntegerFieldUpdater<Entry> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        final TimerWheel wheel;
+        final Runnable task;
+        final long deadlineNanos;
+        final long deadlineTick;
+        volatile int state = PENDING;
+        // Owned by the wheel thread
+        Bucket bucket;
+        Entry prev, next;
+
+        Entry(TimerWheel wheel, Runnable task, long deadlineNanos, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.deadlineTick = deadlineTick;
+        }
+
+        @Override
+        public boolean cancel() {
+            int s = state;
+            while (s == PENDING || s == SCHEDULED) {
+                if (STATE.compareAndSet(this, s, CANCELLED)) {
+                    wheel.size.decrementAndGet();
+                    if (s == SCHEDULED) wheel.cancelled.add(this);
+                    return true;
+                }
+                s = state;
+            }
+            return false;
+        }
+    }
+
+    private static final class Bucket {
+        Entry head, tail;
+
+        void add(Entry e) {
+            e.bucket = this;
+            e.prev = tail;
+            e.next = null;
+            if (tail == null) head = e; else tail.next = e;
+            tail = e;
+        }
+
+        void remove(Entry e) {
+            if (e.prev == null) head = e.next; else e.prev.next = e.next;
+            if (e.next == null) tail = e.prev; else e.next.prev = e.prev;
+            e.prev = e.next = null;
+            e.bucket = null;
+        }
+
+        Entry takeAll() {
+            Entry first = head;
+            head = tail = null;
+            return first;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Executor dispatcher;
+    private final LatencyHistogram lateness;
+    private final Bucket[][] levels = new Bucket[LEVELS][];
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong fired = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+    // Wheel thread only
+    private long currentTick = 0;
+
+    /**
+     * @param lateness optional; gets how far past its deadline each task was handed to the dispatcher, in µs
+     */
+    public TimerWheel(String name, long tick, TimeUnit unit, Executor dispatcher, LatencyHistogram lateness) {
+        this.tickNanos = unit.toNanos(tick);
+        this.dispatcher = dispatcher;
+        this.lateness = lateness;
+        levels[0] = newLevel(L0_SIZE);
+        for (int i = 1; i < LEVELS; i++) levels[i] = newLevel(LN_SIZE);
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static Bucket[] newLevel(int slots) {
+        Bucket[] level = new Bucket[slots];
+        for (int i = 0; i < slots; i++) level[i] = new Bucket();
+        return level;
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+        // Round up so a task never fires before its deadline
+        long tick = (deadline - startNanos + tickNanos - 1) / tickNanos;
+        Entry e = new Entry(this, task, deadline, tick);
+        size.incrementAndGet();
+        pending.add(e);
+        return e;
+    }
+
+    /** Timers scheduled and not yet fired or cancelled. */
+    public int size() {
+        return size.get();
+    }
+
+    public long getFiredCount() {
+        return fired.get();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long wakeAt = startNanos + (currentTick + 1) * tickNanos;
+            long wait;
+            while ((wait = wakeAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+                if (!running) return;
+            }
+            try {
+                drainCancelled();
+                currentTick++;
+                drainPending();
+                cascade();
+                expire(levels[0][(int) (currentTick & (L0_SIZE - 1))]);
+            } catch (Throwable t) {
+                System.err.println("[WHEEL] tick failed: " + t);
+            }
+        }
+    }
+
+    private void drainCancelled() {
+        Entry e;
+        while ((e = cancelled.poll()) != null) {
+            if (e.bucket != null) e.bucket.remove(e);
+        }
+    }
+
+    private void drainPending() {
+        Entry e;
+        while ((e = pending.poll()) != null) {
+            if (!Entry.STATE.compareAndSet(e, PENDING, SCHEDULED)) continue; // cancelled before we saw it
+            place(e);
+        }
+    }
+
+    private void place(Entry e) {
+        long delta = e.deadlineTick - currentTick;
+        if (delta <= 0) {
+            // Due now (or was due while queued): it goes in the slot expiring this tick
+            levels[0][(int) (currentTick & (L0_SIZE - 1))].add(e);
+            return;
+        }
+        long tick = delta > MAX_DELTA_TICKS ? currentTick + MAX_DELTA_TICKS : e.deadlineTick;
+        delta = tick - currentTick;
+        if (delta < L0_SIZE) {
+            levels[0][(int) (tick & (L0_SIZE - 1))].add(e);
+        } else if (delta < 1L << (L0_BITS + LN_BITS)) {
+            levels[1][(int) ((tick >>> L0_BITS) & (LN_SIZE - 1))].add(e);
+        } else if (delta < 1L << (L0_BITS + 2 * LN_BITS)) {
+            levels[2][(int) ((tick >>> (L0_BITS + LN_BITS)) & (LN_SIZE - 1))].add(e);
+        } else {
+            levels[3][(int) ((tick >>> (L0_BITS + 2 * LN_BITS)) & (LN_SIZE - 1))].add(e);
+        }
+    }
+
+    // When level 0 wraps, pull the next slot of level 1 down (and level 2 into 1, and so on)
+    private void cascade() {
+        if ((currentTick & (L0_SIZE - 1)) != 0) return;
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = L0_BITS + (level - 1) * LN_BITS;
+            int slot = (int) ((currentTick >>> shift) & (LN_SIZE - 1));
+            Entry e = levels[level][slot].takeAll();
+            while (e != null) {
+                Entry next = e.next;
+                e.prev = e.next = null;
+                e.bucket = null;
+                place(e);
+                e = next;
+            }
+            if (slot != 0) return;
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Entry e = bucket.takeAll();
+        long now = System.nanoTime();
+        while (e != null) {
+            Entry next = e.next;
+            e.prev = e.next = null;
+            e.bucket = null;
+            if (e.deadlineTick > currentTick) {
+                place(e); // clamped far-future entry that isn't due yet
+            } else if (Entry.STATE.compareAndSet(e, SCHEDULED, EXPIRED)) {
+                size.decrementAndGet();
+                fired.incrementAndGet();
+                if (lateness != null) lateness.record(Math.max(0, now - e.deadlineNanos) / 1_000);
+                try {
+                    dispatcher.execute(e.task);
+                } catch (Exception ex) {
+                    System.err.println("[WHEEL] dispatch failed: " + ex);
+                }
+            }
+            e = next;
+        }
+    }
+}
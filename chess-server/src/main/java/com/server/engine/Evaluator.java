@@ -0,0 +1,108 @@
+package com.server.engine;
+
+import chesspresso.Chess;
+import chesspresso.position.Position;
+
+/**
+ * Material plus piece-square tables, from the side to move's point of view. The king table
+ * switches to centralisation once the queens are off or material is low.
+ */
+final class Evaluator {
+
+    // Indexed by chesspresso piece: NO_PIECE, KNIGHT, BISHOP, ROOK, QUEEN, PAWN, KING
+    static final int[] VALUE = { 0, 320, 330, 500, 900, 100, 0 };
+    private static final int ENDGAME_MATERIAL = 1300;
+
+    // Written rank 8 first, white's view; a white piece on sqi reads [sqi ^ 56], a black one [sqi]
+    private static final int[] PAWN = {
+         0,  0,  0,  0,  0,  0,  0,  0,
+        50, 50, 50, 50, 50, 50, 50, 50,
+        10, 10, 20, 30, 30, 20, 10, 10,
+         5,  5, 10, 25, 25, 10,  5,  5,
+         0,  0,  0, 20, 20,  0,  0,  0,
+         5, -5,-10,  0,  0,-10, -5,  5,
+         5, 10, 10,-20,-20, 10, 10,  5,
+         0,  0,  0,  0,  0,  0,  0,  0 };
+    private static final int[] KNIGHT = {
+        -50,-40,-30,-30,-30,-30,-40,-50,
+        -40,-20,  0,  0,  0,  0,-20,-40,
+        -30,  0, 10, 15, 15, 10,  0,-30,
+        -30,  5, 15, 20, 20, 15,  5,-30,
+        -30,  0, 15, 20, 20, 15,  0,-30,
+        -30,  5, 10, 15, 15, 10,  5,-30,
+        -40,-20,  0,  5,  5,  0,-20,-40,
+        -50,-40,-30,-30,-30,-30,-40,-50 };
+    private static final int[] BISHOP = {
+        -20,-10,-10,-10,-10,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5, 10, 10,  5,  0,-10,
+        -10,  5,  5, 10, 10,  5,  5,-10,
+        -10,  0, 10, 10, 10, 10,  0,-10,
+        -10, 10, 10, 10, 10, 10, 10,-10,
+        -10,  5,  0,  0,  0,  0,  5,-10,
+        -20,-10,-10,-10,-10,-10,-10,-20 };
+    private static final int[] ROOK = {
+          0,  0,  0,  0,  0,  0,  0,  0,
+          5, 10, 10, 10, 10, 10, 10,  5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+         -5,  0,  0,  0,  0,  0,  0, -5,
+          0,  0,  0,  5,  5,  0,  0,  0 };
+    private static final int[] QUEEN = {
+        -20,-10,-10, -5, -5,-10,-10,-20,
+        -10,  0,  0,  0,  0,  0,  0,-10,
+        -10,  0,  5,  5,  5,  5,  0,-10,
+         -5,  0,  5,  5,  5,  5,  0, -5,
+          0,  0,  5,  5,  5,  5,  0, -5,
+        -10,  5,  5,  5,  5,  5,  0,-10,
+        -10,  0,  5,  0,  0,  0,  0,-10,
+        -20,-10,-10, -5, -5,-10,-10,-20 };
+    private static final int[] KING_MIDDLE = {
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -30,-40,-40,-50,-50,-40,-40,-30,
+        -20,-30,-30,-40,-40,-30,-30,-20,
+        -10,-20,-20,-20,-20,-20,-20,-10,
+         20, 20,  0,  0,  0,  0, 20, 20,
+         20, 30, 10,  0,  0, 10, 30, 20 };
+    private static final int[] KING_END = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50 };
+    private static final int[][] TABLES = { null, KNIGHT, BISHOP, ROOK, QUEEN, PAWN, null };
+
+    private Evaluator() {}
+
+    static int evaluate(Position position) {
+        int score = 0; // white's view
+        int nonPawnMaterial = 0;
+        boolean queens = false;
+        int whiteKing = -1, blackKing = -1;
+        for (int sqi = 0; sqi < 64; sqi++) {
+            int stone = position.getStone(sqi);
+            if (stone == Chess.NO_STONE) continue;
+            int piece = Chess.stoneToPiece(stone);
+            boolean white = Chess.stoneToColor(stone) == Chess.WHITE;
+            if (piece == Chess.KING) {
+                if (white) whiteKing = sqi; else blackKing = sqi;
+                continue;
+            }
+            if (piece != Chess.PAWN) nonPawnMaterial += VALUE[piece];
+            if (piece == Chess.QUEEN) queens = true;
+            int v = VALUE[piece] + TABLES[piece][white ? sqi ^ 56 : sqi];
+            score += white ? v : -v;
+        }
+        int[] king = !queens || nonPawnMaterial <= ENDGAME_MATERIAL ? KING_END : KING_MIDDLE;
+        if (whiteKing >= 0) score += king[whiteKing ^ 56];
+        if (blackKing >= 0) score -= king[blackKing];
+        return position.getToPlay() == Chess.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,431 @@
+package com.server.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.model.ChessGame;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import chesspresso.position.Position;
+
+/**
+ * Alpha-beta (principal variation search with quiescence, killers, history and late move
+ * reductions) under iterative deepening, on chesspresso positions. A search runs Lazy-SMP style:
+ * up to limits.threads workers search the same root independently, sharing only the
+ * transposition table, and the deepest completed iteration wins. Helpers start one ply deeper
+ * on odd ids so they fill the table ahead of the main worker instead of duplicating it.
+ *
+ * Every worker runs on this engine's own pool of low-priority daemon threads, never on a
+ * socket or store thread, so a busy engine can't hold up human moves.
+ */
+public final class SearchEngine {
+
+    public static final int MATE = 30_000;
+    public static final int MAX_PLY = 96;
+    private static final int INF = 32_000;
+    private static final int MAX_DEPTH = 64;
+    private static final int CHECK_EVERY_NODES = 1024;
+
+    /** maxDepth caps the iterations; budgetMillis <= 0 means no time limit. */
+    public record Limits(int maxDepth, long budgetMillis, int threads) {}
+
+    private final ExecutorService pool;
+    private final int poolSize;
+    private final TranspositionTable tt;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private volatile long lastNodesPerSecond;
+    private final LatencyHistogram searchLatency = Metrics.get().histogram(
+        "chess_engine_search_latency_us", "Wall time of a bot move search");
+
+    public SearchEngine(int threads, int hashMegabytes) {
+        AtomicInteger n = new AtomicInteger();
+        this.poolSize = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "engine-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        this.tt = new TranspositionTable(hashMegabytes);
+        Metrics.get().counterFn("chess_engine_nodes_total", "Positions searched by the bot engine", nodes::get);
+        Metrics.get().counterFn("chess_engine_searches_total", "Bot move searches completed", searches::get);
+        Metrics.get().gauge("chess_engine_nodes_per_second", "Nodes per second of the last search",
+            () -> lastNodesPerSecond);
+        Metrics.get().gauge("chess_engine_hash_bytes", "Transposition table size", tt::sizeBytes);
+    }
+
+    /** Searches the position on the engine pool; the future completes when the main worker stops. */
+    public CompletableFuture<SearchResult> search(String fen, Limits limits) {
+        Search s = new Search(fen, limits, true);
+        CompletableFuture<SearchResult> result = new CompletableFuture<>();
+        tt.newSearch();
+        int helpers = Math.min(Math.max(1, limits.threads()), poolSize) - 1;
+        for (int id = 1; id <= helpers; id++) {
+            int workerId = id;
+            pool.execute(() -> {
+                try {
+                    new Worker(s, workerId).run();
+                } catch (RuntimeException e) {
+                    System.out.println("[ENGINE] helper " + workerId + " failed: " + e);
+                }
+            });
+        }
+        pool.execute(() -> {
+            try {
+                new Worker(s, 0).run();
+                s.stop = true;
+                SearchResult r = s.result();
+                nodes.addAndGet(r.nodes());
+                searches.incrementAndGet();
+                lastNodesPerSecond = r.nodesPerSecond();
+                searchLatency.recordNanosAsMicros(s.submittedNanos); // what the caller waited, queueing included
+                result.complete(r);
+            } catch (RuntimeException e) {
+                s.stop = true;
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fixed-depth search on the calling thread, over every legal move, for batch analysis.
+     * Callers on many threads share the table exactly as Lazy-SMP workers do.
+     */
+    public SearchResult searchHere(String fen, int depth) {
+        Search s = new Search(fen, new Limits(depth, 0, 1), false);
+        new Worker(s, 0).run();
+        SearchResult r = s.result();
+        nodes.addAndGet(r.nodes());
+        return r;
+    }
+
+    /** Forgets every stored position; searches already running just see misses. */
+    public void clearHash() {
+        tt.clear();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** UCI for a move in this position; castles are written as king moves. Call before playing it. */
+    public static String toUci(Position position, short move) {
+        boolean white = position.getToPlay() == Chess.WHITE;
+        if (Move.isShortCastle(move)) return white ? "e1g1" : "e8g8";
+        if (Move.isLongCastle(move)) return white ? "e1c1" : "e8c8";
+        String uci = Chess.sqiToStr(Move.getFromSqi(move)) + Chess.sqiToStr(Move.getToSqi(move));
+        return Move.isPromotion(move) ? uci + Character.toLowerCase(Chess.pieceToChar(Move.getPromotionPiece(move))) : uci;
+    }
+
+    /* ---------- One search, shared by its workers ---------- */
+
+    private static final class Search {
+        final String fen;
+        final Limits limits;
+        final boolean playableOnly;
+        final long submittedNanos = System.nanoTime();
+        // Set by the first worker to run, so time spent queued behind other searches isn't charged
+        volatile long startNanos;
+        volatile long deadlineNanos = Long.MAX_VALUE;
+        final LongAdder nodes = new LongAdder();
+        volatile boolean stop;
+        // Deepest completed iteration so far; guarded by this
+        private int bestDepth;
+        private short bestMove;
+        private String bestUci;
+        private int bestScore;
+
+        Search(String fen, Limits limits, boolean playableOnly) {
+            this.fen = fen;
+            this.limits = limits;
+            this.playableOnly = playableOnly;
+        }
+
+        synchronized void startClock() {
+            if (startNanos != 0) return;
+            long now = System.nanoTime();
+            if (limits.budgetMillis() > 0) deadlineNanos = now + limits.budgetMillis() * 1_000_000;
+            startNanos = now;
+        }
+
+        synchronized void offer(int depth, short move, String uci, int score) {
+            if (depth <= bestDepth && bestMove != 0) return;
+            bestDepth = depth;
+            bestMove = move;
+            bestUci = uci;
+            bestScore = score;
+        }
+
+        synchronized SearchResult result() {
+            return new SearchResult(bestUci, bestMove, bestScore, bestDepth, nodes.sum(), System.nanoTime() - startNanos);
+        }
+    }
+
+    /* ---------- A worker: its own position, killers and history; the table is shared ---------- */
+
+    private final class Worker {
+        private final Search s;
+        private final int id;
+        private final Position position;
+        private final long[] pathHashes = new long[MAX_PLY + 2];
+        private final short[][] killers = new short[MAX_PLY + 2][2];
+        private final int[][] history = new int[64][64];
+        private long localNodes;
+
+        Worker(Search s, int id) {
+            this.s = s;
+            this.id = id;
+            this.position = new Position(s.fen);
+        }
+
+        void run() {
+            s.startClock();
+            short[] rootMoves = playableRootMoves();
+            if (rootMoves.length == 0) return;
+            if (id == 0) s.offer(0, rootMoves[0], toUci(position, rootMoves[0]), 0);
+
+            int maxDepth = Math.min(Math.max(1, s.limits.maxDepth()), MAX_DEPTH);
+            long softLimit = s.limits.budgetMillis() > 0 ? s.limits.budgetMillis() * 1_000_000 / 2 : Long.MAX_VALUE;
+            try {
+                for (int depth = 1 + (id & 1); depth <= maxDepth && !s.stop; depth++) {
+                    int score = searchRoot(rootMoves, depth);
+                    if (s.stop) break;
+                    s.offer(depth, rootMoves[0], toUci(position, rootMoves[0]), score);
+                    if (id != 0) continue;
+                    // Another iteration would likely not finish in the time left, or the mate is found
+                    if (System.nanoTime() - s.startNanos > softLimit || Math.abs(score) >= MATE - MAX_PLY) break;
+                }
+            } finally {
+                s.nodes.add(localNodes);
+            }
+        }
+
+        // Legal moves the server can store and replay: ChessGame.parseMove has to turn the UCI back into the same move
+        private short[] playableRootMoves() {
+            short[] legal = position.getAllMoves();
+            if (!s.playableOnly) return legal;
+            short[] out = new short[legal.length];
+            int n = 0;
+            for (short m : legal) {
+                if (ChessGame.parseMove(position, toUci(position, m)) == m) out[n++] = m;
+            }
+            return java.util.Arrays.copyOf(out, n);
+        }
+
+        // Keeps rootMoves ordered best first, so rootMoves[0] is the move to play after each iteration
+        private int searchRoot(short[] rootMoves, int depth) {
+            int alpha = -INF, beta = INF;
+            pathHashes[0] = position.getHashCode();
+            for (int i = 0; i < rootMoves.length; i++) {
+                short m = rootMoves[i];
+                if (!play(m)) continue;
+                pathHashes[1] = position.getHashCode();
+                int ext = position.isCheck() ? 1 : 0;
+                int score;
+                if (i == 0) {
+                    score = -search(depth - 1 + ext, -beta, -alpha, 1);
+                } else {
+                    score = -search(depth - 1 + ext, -alpha - 1, -alpha, 1);
+                    if (score > alpha && !s.stop) score = -search(depth - 1 + ext, -beta, -alpha, 1);
+                }
+                position.undoMove();
+                if (s.stop) return alpha;
+                if (score > alpha) {
+                    alpha = score;
+                    // Move to the front, keeping the rest in their previous order
+                    System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+                    rootMoves[0] = m;
+                }
+            }
+            tt.store(pathHashes[0], rootMoves[0], alpha, depth, TranspositionTable.BOUND_EXACT);
+            return alpha;
+        }
+
+        private int search(int depth, int alpha, int beta, int ply) {
+            if (depth <= 0) return quiesce(alpha, beta, ply);
+            if (tick()) return 0;
+            long hash = pathHashes[ply];
+            if (position.getHalfMoveClock() >= 100 || repeated(ply)) return 0;
+            if (ply >= MAX_PLY) return Evaluator.evaluate(position);
+
+            boolean pvNode = beta - alpha > 1;
+            short ttMove = 0;
+            long entry = tt.probe(hash);
+            if (entry != TranspositionTable.MISS) {
+                ttMove = TranspositionTable.move(entry);
+                if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.BOUND_EXACT
+                            || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                            || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            short[] moves = position.getAllMoves();
+            if (moves.length == 0) return position.isCheck() ? -MATE + ply : 0;
+            int[] order = orderMoves(moves, ttMove, ply);
+            boolean inCheck = position.isCheck();
+
+            int originalAlpha = alpha;
+            int best = -INF;
+            short bestMove = 0;
+            for (int i = 0; i < moves.length; i++) {
+                pickNext(moves, order, i);
+                short m = moves[i];
+                boolean quiet = !Move.isCapture(m) && !Move.isPromotion(m);
+                if (!play(m)) continue;
+                pathHashes[ply + 1] = position.getHashCode();
+                boolean givesCheck = position.isCheck();
+                int next = depth - 1 + (givesCheck ? 1 : 0);
+                int score;
+                if (i == 0) {
+                    score = -search(next, -beta, -alpha, ply + 1);
+                } else {
+                    // Late quiet moves get a reduced null-window look first
+                    int reduction = depth >= 3 && i >= 4 && quiet && !inCheck && !givesCheck ? 1 : 0;
+                    score = -search(next - reduction, -alpha - 1, -alpha, ply + 1);
+                    if (score > alpha && reduction > 0) score = -search(next, -alpha - 1, -alpha, ply + 1);
+                    if (score > alpha && score < beta) score = -search(next, -beta, -alpha, ply + 1);
+                }
+                position.undoMove();
+                if (s.stop) return 0;
+
+                if (score > best) {
+                    best = score;
+                    bestMove = m;
+                }
+                if (score > alpha) alpha = score;
+                if (alpha >= beta) {
+                    if (quiet) {
+                        if (killers[ply][0] != m) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = m;
+                        }
+                        history[Move.getFromSqi(m)][Move.getToSqi(m)] += depth * depth;
+                    }
+                    break;
+                }
+            }
+            int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+            tt.store(hash, bestMove, toTable(best, ply), depth, bound);
+            return best;
+        }
+
+        // Captures and promotions only, until the position is quiet; every evasion when in check
+        private int quiesce(int alpha, int beta, int ply) {
+            if (tick()) return 0;
+            short[] moves = position.getAllMoves();
+            boolean inCheck = position.isCheck();
+            if (moves.length == 0) return inCheck ? -MATE + ply : 0;
+            if (ply >= MAX_PLY) return Evaluator.evaluate(position);
+            if (!inCheck) {
+                int standPat = Evaluator.evaluate(position);
+                if (standPat >= beta) return standPat;
+                if (standPat > alpha) alpha = standPat;
+            }
+            int[] order = orderMoves(moves, (short) 0, ply);
+            for (int i = 0; i < moves.length; i++) {
+                pickNext(moves, order, i);
+                short m = moves[i];
+                if (!inCheck && !Move.isCapture(m) && !Move.isPromotion(m)) break; // ordering puts these last
+                if (!play(m)) continue;
+                int score = -quiesce(-beta, -alpha, ply + 1);
+                position.undoMove();
+                if (s.stop) return 0;
+                if (score >= beta) return score;
+                if (score > alpha) alpha = score;
+            }
+            return alpha;
+        }
+
+        // Table move, then captures by most valuable victim / least valuable attacker, killers, history
+        private int[] orderMoves(short[] moves, short ttMove, int ply) {
+            int[] order = new int[moves.length];
+            for (int i = 0; i < moves.length; i++) {
+                short m = moves[i];
+                if (m == ttMove) {
+                    order[i] = 1 << 30;
+                } else if (Move.isCapture(m) || Move.isPromotion(m)) {
+                    int victim = Move.isEPMove(m) ? Chess.PAWN : Chess.stoneToPiece(position.getStone(Move.getToSqi(m)));
+                    int attacker = Chess.stoneToPiece(position.getStone(Move.getFromSqi(m)));
+                    int promo = Move.isPromotion(m) ? Evaluator.VALUE[Move.getPromotionPiece(m)] : 0;
+                    order[i] = (1 << 29) + (Evaluator.VALUE[victim] + promo) * 16 - Evaluator.VALUE[attacker] / 10;
+                } else if (m == killers[ply][0]) {
+                    order[i] = (1 << 28) + 1;
+                } else if (m == killers[ply][1]) {
+                    order[i] = 1 << 28;
+                } else {
+                    order[i] = Math.min(history[Move.getFromSqi(m)][Move.getToSqi(m)], (1 << 28) - 1);
+                }
+            }
+            return order;
+        }
+
+        // Selection sort step: moves the best remaining move to index i
+        private void pickNext(short[] moves, int[] order, int i) {
+            int best = i;
+            for (int j = i + 1; j < moves.length; j++) {
+                if (order[j] > order[best]) best = j;
+            }
+            if (best == i) return;
+            short m = moves[i]; moves[i] = moves[best]; moves[best] = m;
+            int o = order[i]; order[i] = order[best]; order[best] = o;
+        }
+
+        private boolean play(short m) {
+            try {
+                position.doMove(m);
+                return true;
+            } catch (IllegalMoveException e) {
+                return false;
+            }
+        }
+
+        // Counts a node and polls the clock now and then; true once the search should unwind
+        private boolean tick() {
+            if ((++localNodes & (CHECK_EVERY_NODES - 1)) == 0) {
+                s.nodes.add(CHECK_EVERY_NODES);
+                localNodes -= CHECK_EVERY_NODES;
+                if (System.nanoTime() > s.deadlineNanos) s.stop = true;
+            }
+            return s.stop;
+        }
+
+        // Same position earlier on this search path, with the same side to move
+        private boolean repeated(int ply) {
+            long hash = pathHashes[ply];
+            int limit = Math.max(0, ply - position.getHalfMoveClock());
+            for (int p = ply - 2; p >= limit; p -= 2) {
+                if (pathHashes[p] == hash) return true;
+            }
+            return false;
+        }
+
+        // Mate scores are stored relative to the node so they stay right when reached by another path
+        private int toTable(int score, int ply) {
+            if (score >= MATE - MAX_PLY) return score + ply;
+            if (score <= -MATE + MAX_PLY) return score - ply;
+            return score;
+        }
+
+        private int fromTable(int score, int ply) {
+            if (score >= MATE - MAX_PLY) return score - ply;
+            if (score <= -MATE + MAX_PLY) return score + ply;
+            return score;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.server.engine;
+
+/**
+ * Outcome of one search. uci is null when the side to move has no move the server can play.
+ * score is in centipawns from the mover's side; mates are within SearchEngine.MAX_PLY of MATE.
+ */
+public record SearchResult(String uci, short move, int score, int depth, long nodes, long elapsedNanos) {
+
+    public long nodesPerSecond() {
+        return elapsedNanos <= 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+}
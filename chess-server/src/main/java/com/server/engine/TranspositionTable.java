@@ -0,0 +1,78 @@
+package com.server.engine;
+
+/**
+ * Transposition table shared by every search thread, without locks. Each slot is two longs:
+ * the packed entry and the position hash XORed with it. Threads read and write slots with
+ * plain array accesses, so a reader can see one half of a concurrent write; such a slot fails
+ * the XOR check and is treated as a miss. A lost or torn entry only costs search time.
+ *
+ * Entry layout: move (16 bits) | score (16) | depth (8) | bound (2) | generation (8).
+ */
+final class TranspositionTable {
+
+    static final int BOUND_EXACT = 0, BOUND_LOWER = 1, BOUND_UPPER = 2;
+    static final long MISS = 0L;
+
+    private final long[] slots; // [2i] = hash ^ data, [2i + 1] = data
+    private final int mask;
+    private volatile int generation;
+
+    TranspositionTable(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1, (long) megabytes << 20) / 16);
+        entries = Math.min(entries, 1 << 29);
+        this.slots = new long[(int) entries * 2];
+        this.mask = (int) entries - 1;
+    }
+
+    /** Called once per search so entries from older searches are replaced first. */
+    void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(slots, 0L);
+    }
+
+    /** The packed entry for this hash, or MISS. */
+    long probe(long hash) {
+        int i = index(hash);
+        long data = slots[i + 1];
+        long check = slots[i];
+        return (check ^ data) == hash && data != MISS ? data : MISS;
+    }
+
+    void store(long hash, short move, int score, int depth, int bound) {
+        int i = index(hash);
+        long old = slots[i + 1];
+        boolean sameKey = (slots[i] ^ old) == hash;
+        // Keep a deeper entry for the same position, or a deeper one from this search
+        if (old != MISS && sameKey && depth < depth(old) && bound != BOUND_EXACT) return;
+        if (old != MISS && !sameKey && generation(old) == generation && depth < depth(old)) return;
+        if (move == 0 && sameKey) move = move(old);
+        long data = (move & 0xFFFFL)
+            | (score & 0xFFFFL) << 16
+            | (long) (Math.min(depth, 255) & 0xFF) << 32
+            | (long) (bound & 0x3) << 40
+            | (long) (generation & 0xFF) << 42;
+        slots[i + 1] = data;
+        slots[i] = hash ^ data;
+    }
+
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & mask) << 1;
+    }
+
+    static short move(long data) { return (short) data; }
+
+    static int score(long data) { return (short) (data >>> 16); }
+
+    static int depth(long data) { return (int) (data >>> 32) & 0xFF; }
+
+    static int bound(long data) { return (int) (data >>> 40) & 0x3; }
+
+    private static int generation(long data) { return (int) (data >>> 42) & 0xFF; }
+
+    long sizeBytes() {
+        return (long) slots.length * 8;
+    }
+}
@@ -0,0 +1,392 @@
+package com.server.history;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.server.archive.ArchiveCodec;
+import com.server.model.ChessGame;
+import com.shared.util.Colour;
+import com.shared.util.GameOverReason;
+import com.shared.util.GameResult;
+
+/**
+ * History of the games that ended on this node, by player. Each player's games sit in
+ * parallel primitive arrays sorted by (end time, game id): opponents are interned to an int,
+ * result/reason/colour share a byte, and the first eight plies are packed two bytes each into
+ * two longs, so an opening prefix is a masked compare. A query binary-searches to the cursor
+ * (or the date range's end) and walks back until the page is full. Games are also appended to
+ * a journal that is replayed on startup.
+ */
+public final class GameHistoryIndex implements Closeable {
+
+    private static final GameResult[] RESULTS = GameResult.values();
+    private static final GameOverReason[] REASONS = GameOverReason.values();
+    private static final long UNKNOWN_OPENING = -1L;
+    // Column bytes per entry: four longs, the opponent int and the flags byte
+    private static final int BYTES_PER_SLOT = 8 * 4 + 4 + 1;
+
+    private static final class PlayerGames {
+        long[] gameIds = new long[8];
+        long[] endedAt = new long[8];
+        long[] openingLo = new long[8];
+        long[] openingHi = new long[8];
+        int[] opponent = new int[8];
+        byte[] flags = new byte[8];
+        int size;
+
+        void add(long gameId, long ended, long lo, long hi, int opp, byte f) {
+            if (size == gameIds.length) grow();
+            // Games end in roughly id order; shift the few that finish out of order
+            int i = size;
+            while (i > 0 && (endedAt[i - 1] > ended || (endedAt[i - 1] == ended && gameIds[i - 1] > gameId))) i--;
+            int tail = size - i;
+            if (tail > 0) {
+                System.arraycopy(gameIds, i, gameIds, i + 1, tail);
+                System.arraycopy(endedAt, i, endedAt, i + 1, tail);
+                System.arraycopy(openingLo, i, openingLo, i + 1, tail);
+                System.arraycopy(openingHi, i, openingHi, i + 1, tail);
+                System.arraycopy(opponent, i, opponent, i + 1, tail);
+                System.arraycopy(flags, i, flags, i + 1, tail);
+            }
+            gameIds[i] = gameId;
+            endedAt[i] = ended;
+            openingLo[i] = lo;
+            openingHi[i] = hi;
+            opponent[i] = opp;
+            flags[i] = f;
+            size++;
+        }
+
+        private void grow() {
+            int cap = gameIds.length * 2;
+            gameIds = Arrays.copyOf(gameIds, cap);
+            endedAt = Arrays.copyOf(endedAt, cap);
+            openingLo = Arrays.copyOf(openingLo, cap);
+            openingHi = Arrays.copyOf(openingHi, cap);
+            opponent = Arrays.copyOf(opponent, cap);
+            flags = Arrays.copyOf(flags, cap);
+        }
+
+        /** First index whose (endedAt, gameId) is not before (ended, gameId). */
+        int lowerBound(long ended, long gameId) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (endedAt[mid] < ended || (endedAt[mid] == ended && gameIds[mid] < gameId)) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private final Map<String, PlayerGames> byPlayer = new ConcurrentHashMap<>();
+    private final Map<String, Integer> playerNumbers = new ConcurrentHashMap<>();
+    private final List<String> playerIds = new ArrayList<>(); // guarded by itself
+    private final AtomicLong games = new AtomicLong();
+    private final Path journalPath;
+    // Entries are encoded outside any lock, appended to pending under this, and written by
+    // whoever holds flushLock; a record that finds its entry already written returns at once
+    private final Object flushLock = new Object();
+    private final OutputStream journal; // guarded by flushLock
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(); // guarded by this
+
+    public GameHistoryIndex(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.journalPath = dir.resolve("history.log");
+        long good = replay();
+        if (Files.exists(journalPath) && Files.size(journalPath) > good) {
+            System.out.println("[HISTORY] dropping " + (Files.size(journalPath) - good) + " bytes of a torn journal entry");
+            try (FileChannel ch = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+                ch.truncate(good);
+            }
+        }
+        this.journal = Files.newOutputStream(journalPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("[HISTORY] " + games.get() + " games for " + byPlayer.size() + " players from " + journalPath);
+    }
+
+    /** Indexes a game that just ended here and journals it. opening may be null when unknown. */
+    public void record(long gameId, long endedAt, String whiteId, String blackId, GameResult result,
+                       GameOverReason reason, List<String> opening) {
+        long lo = UNKNOWN_OPENING, hi = UNKNOWN_OPENING;
+        if (opening != null) {
+            lo = pack(opening, 0);
+            hi = pack(opening, 4);
+        }
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(entry)) {
+            out.writeLong(gameId);
+            out.writeLong(endedAt);
+            out.writeUTF(whiteId);
+            out.writeUTF(blackId);
+            out.writeByte(result.ordinal());
+            out.writeByte(reason.ordinal());
+            out.writeLong(lo);
+            out.writeLong(hi);
+        } catch (IOException e) {
+            System.out.println("[HISTORY] journal entry for game " + gameId + " not written: " + e.getMessage());
+            entry.reset();
+        }
+        byte[] bytes = entry.toByteArray();
+        synchronized (this) {
+            pending.writeBytes(bytes);
+        }
+        flushJournal();
+        index(gameId, endedAt, whiteId, blackId, result.ordinal(), reason.ordinal(), lo, hi);
+    }
+
+    // Writes every pending entry, including ones other threads appended while we waited
+    private void flushJournal() {
+        synchronized (flushLock) {
+            byte[] batch;
+            synchronized (this) {
+                if (pending.size() == 0) return;
+                batch = pending.toByteArray();
+                pending.reset();
+            }
+            try {
+                journal.write(batch);
+                journal.flush();
+            } catch (IOException e) {
+                System.out.println("[HISTORY] journal write of " + batch.length + " bytes failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void index(long gameId, long endedAt, String whiteId, String blackId, int result, int reason, long lo, long hi) {
+        int white = number(whiteId);
+        int black = number(blackId);
+        byte base = (byte) (result << 1 | reason << 3);
+        add(whiteId, gameId, endedAt, lo, hi, black, base);
+        add(blackId, gameId, endedAt, lo, hi, white, (byte) (base | 1));
+        games.incrementAndGet();
+    }
+
+    private void add(String playerId, long gameId, long endedAt, long lo, long hi, int opponent, byte flags) {
+        PlayerGames pg = byPlayer.computeIfAbsent(playerId, k -> new PlayerGames());
+        synchronized (pg) {
+            pg.add(gameId, endedAt, lo, hi, opponent, flags);
+        }
+    }
+
+    private int number(String playerId) {
+        Integer n = playerNumbers.get(playerId);
+        if (n != null) return n;
+        synchronized (playerIds) {
+            return playerNumbers.computeIfAbsent(playerId, k -> {
+                playerIds.add(k);
+                return playerIds.size() - 1;
+            });
+        }
+    }
+
+    private String playerId(int number) {
+        synchronized (playerIds) {
+            return playerIds.get(number);
+        }
+    }
+
+    public HistoryPage query(HistoryQuery q) {
+        PlayerGames pg = byPlayer.get(q.playerId());
+        if (pg == null) return new HistoryPage(List.of(), null);
+
+        long prefixLo = 0, prefixHi = 0, maskLo = 0, maskHi = 0;
+        List<String> opening = q.opening();
+        for (int i = 0; i < opening.size(); i++) {
+            long bits = (ArchiveCodec.pack(opening.get(i)) & 0xFFFFL) << ((i & 3) * 16);
+            long mask = 0xFFFFL << ((i & 3) * 16);
+            if (i < 4) { prefixLo |= bits; maskLo |= mask; } else { prefixHi |= bits; maskHi |= mask; }
+        }
+        boolean wantOpening = !opening.isEmpty();
+        int resultMask = 0;
+        for (GameResult r : q.results()) resultMask |= 1 << r.ordinal();
+        int reasonMask = 0;
+        for (GameOverReason r : q.reasons()) reasonMask |= 1 << r.ordinal();
+
+        int[] hits = new int[q.limit() + 1];
+        int found = 0;
+        List<HistoryEntry> out = new ArrayList<>(q.limit());
+        synchronized (pg) {
+            int end = q.to() == Long.MAX_VALUE ? pg.size : pg.lowerBound(q.to() + 1, Long.MIN_VALUE);
+            if (q.hasCursor()) end = Math.min(end, pg.lowerBound(q.cursorEndedAt(), q.cursorGameId()));
+            for (int i = end - 1; i >= 0 && found <= q.limit(); i--) {
+                if (pg.endedAt[i] < q.from()) break;
+                int f = pg.flags[i];
+                int result = (f >>> 1) & 0x3;
+                int reason = (f >>> 3) & 0xF;
+                if (resultMask != 0 && (resultMask & 1 << result) == 0) continue;
+                if (reasonMask != 0 && (reasonMask & 1 << reason) == 0) continue;
+                if (q.outcome() != null && outcome(RESULTS[result], (f & 1) == 1) != q.outcome()) continue;
+                if (wantOpening) {
+                    if (pg.openingLo[i] == UNKNOWN_OPENING) continue;
+                    if ((pg.openingLo[i] & maskLo) != prefixLo || (pg.openingHi[i] & maskHi) != prefixHi) continue;
+                }
+                hits[found++] = i;
+            }
+            for (int k = 0; k < Math.min(found, q.limit()); k++) {
+                int i = hits[k];
+                int f = pg.flags[i];
+                out.add(new HistoryEntry(pg.gameIds[i], pg.endedAt[i], (f & 1) == 1 ? Colour.BLACK : Colour.WHITE,
+                    playerId(pg.opponent[i]), RESULTS[(f >>> 1) & 0x3], REASONS[(f >>> 3) & 0xF],
+                    unpack(pg.openingLo[i], pg.openingHi[i])));
+            }
+        }
+        String next = found > q.limit() ? HistoryQuery.cursor(out.get(out.size() - 1)) : null;
+        return new HistoryPage(out, next);
+    }
+
+    /** Every match for the query, newest first, fetched a page at a time (the query's cursor and limit are ignored). */
+    public Iterator<HistoryEntry> iterate(HistoryQuery q) {
+        return new Iterator<>() {
+            private HistoryQuery page = withCursor(q, 0, 0);
+            private Iterator<HistoryEntry> it = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!it.hasNext()) {
+                    if (page == null) return false;
+                    HistoryPage p = query(page);
+                    it = p.games().iterator();
+                    page = p.next() == null || p.games().isEmpty() ? null : withCursor(q,
+                        p.games().get(p.games().size() - 1).endedAt(), p.games().get(p.games().size() - 1).gameId());
+                }
+                return true;
+            }
+
+            @Override
+            public HistoryEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return it.next();
+            }
+        };
+    }
+
+    private static HistoryQuery withCursor(HistoryQuery q, long endedAt, long gameId) {
+        return new HistoryQuery(q.playerId(), q.results(), q.reasons(), q.outcome(), q.from(), q.to(), q.opening(),
+            endedAt, gameId, HistoryQuery.MAX_LIMIT);
+    }
+
+    private static HistoryQuery.Outcome outcome(GameResult result, boolean black) {
+        return switch (result) {
+            case WHITE_WIN -> black ? HistoryQuery.Outcome.LOSS : HistoryQuery.Outcome.WIN;
+            case BLACK_WIN -> black ? HistoryQuery.Outcome.WIN : HistoryQuery.Outcome.LOSS;
+            default -> HistoryQuery.Outcome.DRAW;
+        };
+    }
+
+    public long getGameCount() {
+        return games.get();
+    }
+
+    /** Heap held by the index columns and the interned player ids (array capacity, not just size). */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (PlayerGames pg : byPlayer.values()) {
+            bytes += 6 * 16 + 32 + (long) pg.gameIds.length * BYTES_PER_SLOT; // six array headers, the object
+        }
+        synchronized (playerIds) {
+            for (String id : playerIds) bytes += 56 + id.length(); // String + its bytes, map entry
+        }
+        return bytes;
+    }
+
+    public double getMemoryBytesPerGame() {
+        long n = games.get();
+        return n == 0 ? 0 : (double) getMemoryBytes() / n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (flushLock) {
+            flushJournal();
+            journal.close();
+        }
+    }
+
+    /* ---------- Journal ---------- */
+
+    // Returns how many bytes of the journal were whole entries
+    private long replay() throws IOException {
+        if (!Files.exists(journalPath)) return 0;
+        long good = 0;
+        try (InputStream raw = Files.newInputStream(journalPath);
+             CountingInput counting = new CountingInput(new BufferedInputStream(raw, 64 * 1024));
+             DataInputStream in = new DataInputStream(counting)) {
+            while (true) {
+                long gameId = in.readLong();
+                long endedAt = in.readLong();
+                String whiteId = in.readUTF();
+                String blackId = in.readUTF();
+                int result = in.readByte();
+                int reason = in.readByte();
+                long lo = in.readLong();
+                long hi = in.readLong();
+                index(gameId, endedAt, whiteId, blackId, result, reason, lo, hi);
+                good = counting.count;
+            }
+        } catch (EOFException e) {
+            return good;
+        }
+    }
+
+    private static final class CountingInput extends java.io.FilterInputStream {
+        long count;
+
+        CountingInput(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    /* ---------- Opening packing ---------- */
+
+    private static long pack(List<String> opening, int from) {
+        long bits = 0;
+        for (int i = from; i < Math.min(opening.size(), from + 4); i++) {
+            bits |= (ArchiveCodec.pack(opening.get(i)) & 0xFFFFL) << ((i - from) * 16);
+        }
+        return bits;
+    }
+
+    private static List<String> unpack(long lo, long hi) {
+        if (lo == UNKNOWN_OPENING) return null;
+        List<String> moves = new ArrayList<>(ChessGame.OPENING_PLIES);
+        for (int i = 0; i < ChessGame.OPENING_PLIES; i++) {
+            short packed = (short) ((i < 4 ? lo : hi) >>> ((i & 3) * 16));
+            if (packed == 0) break; // a1a1, i.e. the game was shorter
+            moves.add(ArchiveCodec.unpack(packed));
+        }
+        return moves;
+    }
+}
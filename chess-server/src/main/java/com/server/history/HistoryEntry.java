@@ -0,0 +1,18 @@
+package com.server.history;
+
+import java.util.List;
+
+import com.shared.util.Colour;
+import com.shared.util.GameOverReason;
+import com.shared.util.GameResult;
+
+/** One finished game as seen from one player's history. opening is null when it isn't known. */
+public record HistoryEntry(
+    long gameId,
+    long endedAt,
+    Colour colour,
+    String opponentId,
+    GameResult result,
+    GameOverReason reason,
+    List<String> opening
+) {}
@@ -0,0 +1,6 @@
+package com.server.history;
+
+import java.util.List;
+
+/** Newest first. next is the cursor for the following page, null on the last one. */
+public record HistoryPage(List<HistoryEntry> games, String next) {}
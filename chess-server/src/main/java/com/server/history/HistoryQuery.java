@@ -0,0 +1,90 @@
+package com.server.history;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import com.server.archive.ArchiveCodec;
+import com.server.model.ChessGame;
+
+import com.shared.util.GameOverReason;
+import com.shared.util.GameResult;
+
+/**
+ * Filters for a player's history. Null/empty means "any". from/to are inclusive epoch millis
+ * on the game's end time. opening is a move prefix in UCI, at most ChessGame.OPENING_PLIES long.
+ * A page holds the newest limit games strictly older than the cursor (endedAt, gameId).
+ */
+public record HistoryQuery(
+    String playerId,
+    EnumSet<GameResult> results,
+    EnumSet<GameOverReason> reasons,
+    Outcome outcome,
+    long from,
+    long to,
+    List<String> opening,
+    long cursorEndedAt,
+    long cursorGameId,
+    int limit
+) {
+    public enum Outcome { WIN, LOSS, DRAW }
+
+    public static final int MAX_LIMIT = 200;
+
+    public boolean hasCursor() {
+        return cursorEndedAt > 0;
+    }
+
+    public static String cursor(HistoryEntry last) {
+        return last.endedAt() + ":" + last.gameId();
+    }
+
+    /**
+     * From admin query parameters: player (required), result and reason (comma-separated enum
+     * names), outcome (win|loss|draw), from/to (epoch millis), opening (comma-separated UCI),
+     * cursor and limit. Throws IllegalArgumentException on anything malformed.
+     */
+    public static HistoryQuery parse(Map<String, String> params) {
+        String playerId = params.get("player");
+        if (playerId == null || playerId.isEmpty()) throw new IllegalArgumentException("player is required");
+        EnumSet<GameResult> results = EnumSet.noneOf(GameResult.class);
+        for (String r : list(params.get("result"))) results.add(GameResult.valueOf(r.toUpperCase()));
+        EnumSet<GameOverReason> reasons = EnumSet.noneOf(GameOverReason.class);
+        for (String r : list(params.get("reason"))) reasons.add(GameOverReason.valueOf(r.toUpperCase()));
+        String o = params.get("outcome");
+        Outcome outcome = o == null || o.isEmpty() ? null : Outcome.valueOf(o.toUpperCase());
+        long from = params.containsKey("from") ? Long.parseLong(params.get("from")) : 0;
+        long to = params.containsKey("to") ? Long.parseLong(params.get("to")) : Long.MAX_VALUE;
+        List<String> opening = list(params.get("opening"));
+        if (opening.size() > ChessGame.OPENING_PLIES) {
+            throw new IllegalArgumentException("opening is limited to " + ChessGame.OPENING_PLIES + " plies");
+        }
+        for (String move : opening) {
+            // The index keeps openings packed; anything that doesn't pack would silently match nothing
+            if (ArchiveCodec.pack(move) == ArchiveCodec.ESCAPE) {
+                throw new IllegalArgumentException("opening move is not UCI: " + move);
+            }
+        }
+        long cursorEndedAt = 0, cursorGameId = 0;
+        String cursor = params.get("cursor");
+        if (cursor != null && !cursor.isEmpty()) {
+            int sep = cursor.indexOf(':');
+            if (sep < 0) throw new IllegalArgumentException("bad cursor");
+            cursorEndedAt = Long.parseLong(cursor.substring(0, sep));
+            cursorGameId = Long.parseLong(cursor.substring(sep + 1));
+        }
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 50;
+        if (limit < 1 || limit > MAX_LIMIT) throw new IllegalArgumentException("limit must be 1.." + MAX_LIMIT);
+        return new HistoryQuery(playerId, results, reasons, outcome, from, to, opening, cursorEndedAt, cursorGameId, limit);
+    }
+
+    private static List<String> list(String csv) {
+        List<String> out = new ArrayList<>();
+        if (csv == null) return out;
+        for (String part : csv.split(",")) {
+            if (!part.isBlank()) out.add(part.trim());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,28 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.GameCreated")
+@Label("Game Created")
+@Category({ "Chess", "Game" })
+@Description("Id allocation, Redis state init and player binding for a new game")
+@StackTrace(false)
+public class GameCreatedEvent extends Event {
+    @Label("Game Id")
+    public long gameId;
+
+    @Label("White Id")
+    public String whiteId;
+
+    @Label("Black Id")
+    public String blackId;
+
+    @Label("Outcome")
+    @Description("created, INIT_FAILED or BIND_FAILED")
+    public String outcome;
+}
@@ -0,0 +1,25 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.HeartbeatTick")
+@Label("Heartbeat Tick")
+@Category({ "Chess", "Network" })
+@StackTrace(false)
+public class HeartbeatTickEvent extends Event {
+    @Label("Connections")
+    public int connections;
+
+    @Label("Heartbeats Sent")
+    public int sent;
+
+    @Label("Timed Out")
+    public int timedOut;
+
+    @Label("Paused Games")
+    public int pausedGames;
+}
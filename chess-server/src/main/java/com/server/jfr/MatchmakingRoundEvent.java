@@ -0,0 +1,25 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.MatchmakingRound")
+@Label("Matchmaking Round")
+@Category({ "Chess", "Matchmaking" })
+@Description("One pass of tryMatchWithWaiting over the rating buckets")
+@StackTrace(false)
+public class MatchmakingRoundEvent extends Event {
+    @Label("Queued Before")
+    public int queuedBefore;
+
+    @Label("Matches")
+    public int matches;
+
+    @Label("Skipped")
+    @Description("Another thread held the match lock, so this round did nothing")
+    public boolean skipped;
+}
@@ -0,0 +1,54 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** One move through the move path; stage fields mirror MoveTracer's stages. */
+@Name("chess.Move")
+@Label("Move")
+@Category({ "Chess", "Game" })
+@Description("A move from decode to broadcast, or to the point it was rejected")
+@StackTrace(false)
+public class MoveEvent extends Event {
+    @Label("Game Id")
+    public long gameId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("UCI")
+    public String uci;
+
+    @Label("Outcome")
+    @Description("committed, illegalMove, gameMigrating or persistFailed")
+    public String outcome;
+
+    @Label("Decode")
+    @Timespan(Timespan.MICROSECONDS)
+    public long decode;
+
+    @Label("Validate")
+    @Timespan(Timespan.MICROSECONDS)
+    public long validate;
+
+    @Label("Apply")
+    @Timespan(Timespan.MICROSECONDS)
+    public long apply;
+
+    @Label("Persist")
+    @Timespan(Timespan.MICROSECONDS)
+    public long persist;
+
+    @Label("Serialize")
+    @Timespan(Timespan.MICROSECONDS)
+    public long serialize;
+
+    @Label("Send")
+    @Timespan(Timespan.MICROSECONDS)
+    public long send;
+}
@@ -0,0 +1,38 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Instant event; committed without begin()/end(). */
+@Name("chess.PauseTransition")
+@Label("Pause Transition")
+@Category({ "Chess", "Game" })
+@Description("A game paused for a reconnect, resumed, or forfeited when the grace period ran out")
+@StackTrace(false)
+public class PauseTransitionEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(PauseTransitionEvent.class);
+
+    @Label("Game Id")
+    public long gameId;
+
+    @Label("Player Id")
+    public String playerId;
+
+    @Label("Transition")
+    @Description("pause, resume or expire")
+    public String transition;
+
+    public static void emit(long gameId, String playerId, String transition) {
+        if (!TYPE.isEnabled()) return;
+        PauseTransitionEvent e = new PauseTransitionEvent();
+        e.gameId = gameId;
+        e.playerId = playerId;
+        e.transition = transition;
+        e.commit();
+    }
+}
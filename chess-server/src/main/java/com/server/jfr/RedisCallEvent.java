@@ -0,0 +1,16 @@
+package com.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.RedisCall")
+@Label("Redis Call")
+@Category({ "Chess", "Redis" })
+@StackTrace(false)
+public class RedisCallEvent extends Event {
+    @Label("Operation")
+    public String op;
+}
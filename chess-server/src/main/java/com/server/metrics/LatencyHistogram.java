@@ -0,0 +1,85 @@
+package com.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram in the spirit of HdrHistogram: each power-of-two range is split
+ * into 16 linear sub-buckets (~6% relative error). Recording is one index computation
+ * and one atomic increment, so it can stay on in hot paths.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 40;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final java.util.concurrent.atomic.LongAdder total = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder sum = new java.util.concurrent.atomic.LongAdder();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+    }
+
+    public void recordNanosAsMicros(long startNanos) {
+        record((System.nanoTime() - startNanos) / 1_000);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /** Upper bound of the bucket holding the given quantile (0..1); 0 when empty. */
+    public long percentile(double q) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upperBoundOf(i);
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /** Cumulative counts at the given upper bounds, for Prometheus-style buckets. */
+    public long[] cumulativeCounts(long[] upperBounds) {
+        long[] out = new long[upperBounds.length];
+        long seen = 0;
+        int b = 0;
+        for (int i = 0; i < BUCKETS && b < upperBounds.length; i++) {
+            while (b < upperBounds.length && upperBoundOf(i) > upperBounds[b]) out[b++] = seen;
+            seen += counts.get(i);
+        }
+        while (b < upperBounds.length) out[b++] = seen;
+        return out;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+    }
+
+    static int indexOf(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int shift = Math.min(msb - SUB_BITS, MAX_SHIFT);
+        int sub = (int) ((v >>> shift) & (SUB_COUNT - 1));
+        return (shift + 1) * SUB_COUNT + sub;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
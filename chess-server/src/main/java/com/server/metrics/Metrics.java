@@ -0,0 +1,144 @@
+package com.server.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide metrics registry rendered in the Prometheus text format.
+ * Hot paths hold on to the LatencyHistogram/LongAdder they were handed at startup,
+ * so recording never touches the registry maps.
+ */
+public class Metrics {
+    private static final Metrics INSTANCE = new Metrics();
+
+    // Bucket bounds (microseconds) used when exposing latency histograms
+    private static final long[] BUCKETS_US = {
+        50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+        100_000, 250_000, 500_000, 1_000_000, 2_500_000, 10_000_000
+    };
+
+    private final Map<String, String> typeByName = new ConcurrentSkipListMap<>();
+    private final Map<String, String> helpByName = new ConcurrentSkipListMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    /** Latency histogram in microseconds. labels are key/value pairs. */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        declare(name, "histogram", help);
+        return histograms.computeIfAbsent(series(name, labels), k -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name, String help, String... labels) {
+        declare(name, "counter", help);
+        LongAdder adder = new LongAdder();
+        LongSupplier existing = counters.putIfAbsent(series(name, labels), adder::sum);
+        if (existing != null) throw new IllegalStateException("counter already registered: " + series(name, labels));
+        return adder;
+    }
+
+    /** A counter owned elsewhere (e.g. an AtomicLong in OutboundGuard), read at scrape time. */
+    public void counterFn(String name, String help, LongSupplier source, String... labels) {
+        declare(name, "counter", help);
+        counters.put(series(name, labels), source);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier source, String... labels) {
+        declare(name, "gauge", help);
+        gauges.put(series(name, labels), source);
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Map.Entry<String, String> e : typeByName.entrySet()) {
+            String name = e.getKey();
+            sb.append("# HELP ").append(name).append(' ').append(helpByName.get(name)).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(e.getValue()).append('\n');
+            switch (e.getValue()) {
+                case "histogram" -> renderHistograms(sb, name);
+                case "counter" -> renderValues(sb, name, counters);
+                default -> renderGauges(sb, name);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void renderHistograms(StringBuilder sb, String name) {
+        for (Map.Entry<String, LatencyHistogram> h : histograms.entrySet()) {
+            if (!nameOf(h.getKey()).equals(name)) continue;
+            String labels = labelsOf(h.getKey());
+            LatencyHistogram hist = h.getValue();
+            long[] cumulative = hist.cumulativeCounts(BUCKETS_US);
+            for (int i = 0; i < BUCKETS_US.length; i++) {
+                sb.append(name).append("_bucket{").append(labels).append(labels.isEmpty() ? "" : ",")
+                  .append("le=\"").append(BUCKETS_US[i]).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            long count = hist.count();
+            sb.append(name).append("_bucket{").append(labels).append(labels.isEmpty() ? "" : ",")
+              .append("le=\"+Inf\"} ").append(count).append('\n');
+            sb.append(name).append("_sum").append(braced(labels)).append(' ').append(hist.sum()).append('\n');
+            sb.append(name).append("_count").append(braced(labels)).append(' ').append(count).append('\n');
+        }
+    }
+
+    private void renderValues(StringBuilder sb, String name, Map<String, LongSupplier> values) {
+        for (Map.Entry<String, LongSupplier> v : values.entrySet()) {
+            if (!nameOf(v.getKey()).equals(name)) continue;
+            sb.append(v.getKey()).append(' ').append(v.getValue().getAsLong()).append('\n');
+        }
+    }
+
+    private void renderGauges(StringBuilder sb, String name) {
+        for (Map.Entry<String, DoubleSupplier> g : gauges.entrySet()) {
+            if (!nameOf(g.getKey()).equals(name)) continue;
+            double v;
+            try {
+                v = g.getValue().getAsDouble();
+            } catch (Exception ex) {
+                continue;
+            }
+            sb.append(g.getKey()).append(' ').append(v).append('\n');
+        }
+    }
+
+    private void declare(String name, String type, String help) {
+        String prev = typeByName.putIfAbsent(name, type);
+        if (prev != null && !prev.equals(type)) {
+            throw new IllegalStateException(name + " already registered as " + prev);
+        }
+        helpByName.putIfAbsent(name, help);
+    }
+
+    private static String series(String name, String... labels) {
+        if (labels.length == 0) return name;
+        StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String nameOf(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? series : series.substring(0, brace);
+    }
+
+    private static String labelsOf(String series) {
+        int brace = series.indexOf('{');
+        return brace < 0 ? "" : series.substring(brace + 1, series.length() - 1);
+    }
+
+    private static String braced(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+}
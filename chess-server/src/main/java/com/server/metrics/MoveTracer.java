@@ -0,0 +1,146 @@
+package com.server.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.server.jfr.MoveEvent;
+import jdk.jfr.EventType;
+
+/**
+ * Stage timing for the move path. Each stage's duration goes into its own histogram;
+ * moves slower than the threshold are logged with the full breakdown (1 in sampleEvery
+ * of them, so a latency storm doesn't turn into a logging storm). Everything here can
+ * be changed at runtime through /trace on the health port. While a JFR recording has
+ * chess.Move enabled, stages are also timed into a MoveEvent even if tracing is off.
+ */
+public class MoveTracer {
+
+    public enum Stage { DECODE, VALIDATE, APPLY, PERSIST, SERIALIZE, SEND }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final int RECENT_SLOW_MAX = 32;
+    private static final EventType MOVE_EVENT = EventType.getEventType(MoveEvent.class);
+
+    private final LatencyHistogram[] stageLatency = new LatencyHistogram[STAGES.length];
+    private final AtomicLong slowMoves = new AtomicLong();
+    private final Deque<String> recentSlow = new ArrayDeque<>();
+
+    private volatile boolean enabled = !Boolean.getBoolean("chess.disableMoveTracing");
+    private volatile long slowThresholdMicros = Long.getLong("chess.slowMoveMicros", 50_000L);
+    private volatile int sampleEvery = Integer.getInteger("chess.slowMoveSampleEvery", 1);
+
+    private final Trace disabled = new Trace(0, false, null);
+
+    public MoveTracer() {
+        for (Stage stage : STAGES) {
+            stageLatency[stage.ordinal()] = Metrics.get().histogram(
+                "chess_move_stage_us", "Time spent in each stage of the move path",
+                "stage", stage.name().toLowerCase());
+        }
+        Metrics.get().counterFn("chess_slow_moves_total", "Moves over the slow-move threshold", slowMoves::get);
+    }
+
+    /** Starts timing a move received at receivedNanos; returns a shared no-op trace when neither tracing nor JFR wants it. */
+    public Trace begin(long receivedNanos) {
+        boolean timing = enabled;
+        MoveEvent event = MOVE_EVENT.isEnabled() ? new MoveEvent() : null;
+        if (!timing && event == null) return disabled;
+        if (event != null) event.begin();
+        return new Trace(receivedNanos, timing, event);
+    }
+
+    public final class Trace {
+        private final boolean active;
+        private final boolean timing;
+        private final MoveEvent event;
+        private final long startNanos;
+        private final long[] stageNanos = new long[STAGES.length];
+        private long lastNanos;
+
+        private Trace(long startNanos, boolean timing, MoveEvent event) {
+            this.active = timing || event != null;
+            this.timing = timing;
+            this.event = event;
+            this.startNanos = startNanos;
+            this.lastNanos = startNanos;
+        }
+
+        /** Closes the stage that ran since the previous mark. */
+        public void mark(Stage stage) {
+            if (!active) return;
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - lastNanos;
+            lastNanos = now;
+        }
+
+        /** The move was turned away after it parsed; only the JFR event cares. */
+        public void reject(long gameId, int ply, String uci, String outcome) {
+            commitEvent(gameId, ply, uci, outcome);
+        }
+
+        public void finish(long gameId, int ply, String uci) {
+            commitEvent(gameId, ply, uci, "committed");
+            if (!timing) return;
+            for (int i = 0; i < STAGES.length; i++) {
+                if (stageNanos[i] > 0) stageLatency[i].record(stageNanos[i] / 1_000);
+            }
+            long totalMicros = (lastNanos - startNanos) / 1_000;
+            if (totalMicros < slowThresholdMicros) return;
+            long n = slowMoves.incrementAndGet();
+            if (n % Math.max(1, sampleEvery) != 0) return;
+
+            StringBuilder sb = new StringBuilder(160);
+            sb.append("game=").append(gameId).append(" ply=").append(ply).append(" uci=").append(uci)
+              .append(" total=").append(totalMicros).append("us");
+            for (int i = 0; i < STAGES.length; i++) {
+                sb.append(' ').append(STAGES[i].name().toLowerCase()).append('=').append(stageNanos[i] / 1_000).append("us");
+            }
+            String line = sb.toString();
+            System.out.println("[SLOW-MOVE] " + line);
+            synchronized (recentSlow) {
+                if (recentSlow.size() == RECENT_SLOW_MAX) recentSlow.removeFirst();
+                recentSlow.addLast(line);
+            }
+        }
+
+        private void commitEvent(long gameId, int ply, String uci, String outcome) {
+            if (event == null) return;
+            event.end();
+            if (!event.shouldCommit()) return;
+            event.gameId = gameId;
+            event.ply = ply;
+            event.uci = uci;
+            event.outcome = outcome;
+            event.decode = stageNanos[Stage.DECODE.ordinal()] / 1_000;
+            event.validate = stageNanos[Stage.VALIDATE.ordinal()] / 1_000;
+            event.apply = stageNanos[Stage.APPLY.ordinal()] / 1_000;
+            event.persist = stageNanos[Stage.PERSIST.ordinal()] / 1_000;
+            event.serialize = stageNanos[Stage.SERIALIZE.ordinal()] / 1_000;
+            event.send = stageNanos[Stage.SEND.ordinal()] / 1_000;
+            event.commit();
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getSlowThresholdMicros() { return slowThresholdMicros; }
+
+    public void setSlowThresholdMicros(long micros) { this.slowThresholdMicros = Math.max(0, micros); }
+
+    public int getSampleEvery() { return sampleEvery; }
+
+    public void setSampleEvery(int sampleEvery) { this.sampleEvery = Math.max(1, sampleEvery); }
+
+    public long getSlowMoveCount() { return slowMoves.get(); }
+
+    public List<String> recentSlowMoves() {
+        synchronized (recentSlow) {
+            return new ArrayList<>(recentSlow);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.server.metrics;
+
+import jdk.jfr.Event;
+
+/**
+ * Times a block with try-with-resources:
+ * <pre>try (OpTimer ignored = OpTimer.start(hist); Jedis j = pool.getResource()) { ... }</pre>
+ * Declared first so it closes last and the pool return is included in the sample.
+ * An optional JFR event is begun and committed around the same block.
+ */
+public final class OpTimer implements AutoCloseable {
+    private final LatencyHistogram histogram;
+    private final Event event;
+    private final long startNanos;
+
+    private OpTimer(LatencyHistogram histogram, Event event) {
+        this.histogram = histogram;
+        this.event = event;
+        if (event != null) event.begin();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static OpTimer start(LatencyHistogram histogram) {
+        return new OpTimer(histogram, null);
+    }
+
+    /** event may be null when no recording wants it. */
+    public static OpTimer start(LatencyHistogram histogram, Event event) {
+        return new OpTimer(histogram, event);
+    }
+
+    @Override
+    public void close() {
+        histogram.recordNanosAsMicros(startNanos);
+        if (event != null) event.commit();
+    }
+}
@@ -1,6 +1,12 @@
 package com.server.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.shared.util.Colour;
 import com.shared.util.GameResult;
+import com.shared.util.PositionChecksum;
+import com.shared.util.TimeControl;
 
 import chesspresso.Chess;
 import chesspresso.move.IllegalMoveException;
@@ -8,6 +14,8 @@ import chesspresso.move.Move;
 import chesspresso.position.Position;
 
 public class ChessGame {
+    private static final PositionCache POSITIONS = PositionCache.shared();
+
     public enum STATUS {
         ONGOING,
         FINISHED
@@ -18,7 +26,28 @@ public class ChessGame {
     private GameResult gameResult;
     private Position position;
     private Player currentPlayer;
+    private int ply;
     private final java.util.concurrent.atomic.AtomicBoolean ended = new java.util.concurrent.atomic.AtomicBoolean(false);
+    // First committed plies in UCI, for the history index; null when adopted part-way through
+    public static final int OPENING_PLIES = 8;
+    private List<String> opening = new ArrayList<>(OPENING_PLIES);
+    // Last RECENT_PLIES committed plies in UCI, a ring indexed by ply, so a reconnecting client
+    // that is only a few moves behind gets those instead of the whole position
+    public static final int RECENT_PLIES = Integer.getInteger("chess.resumeMaxGap", 40);
+    private final String[] recent = new String[RECENT_PLIES];
+    // Plies up to here were played on another node and aren't in recent
+    private int recentFrom;
+
+    // Clocks; null timeControl means untimed. Wall-clock millis so another node can carry on from them.
+    private TimeControl timeControl;
+    private long whiteMillis;
+    private long blackMillis;
+    private long turnStartedAt;
+    private boolean clockRunning;
+    // State before the last chargeMove, for undoLastMove
+    private long prevWhiteMillis;
+    private long prevBlackMillis;
+    private long prevTurnStartedAt;
 
     public ChessGame(Player[] players, long gameId){
         this.players = players;
@@ -28,6 +57,36 @@ public class ChessGame {
         this.currentPlayer = players[0];
     }
 
+    public ChessGame(Player[] players, long gameId, TimeControl timeControl){
+        this(players, gameId);
+        this.timeControl = timeControl;
+        if (timeControl != null) {
+            this.whiteMillis = timeControl.baseMillis();
+            this.blackMillis = timeControl.baseMillis();
+        }
+    }
+
+    // Restores a game taken over from another node
+    public ChessGame(Player[] players, long gameId, String fen, int ply){
+        this.players = players;
+        this.gameId = gameId;
+        this.status = STATUS.ONGOING;
+        this.position = new Position(fen);
+        this.currentPlayer = players[position.getToPlay()];
+        this.ply = ply;
+        this.recentFrom = ply;
+        if (ply > 0) this.opening = null;
+    }
+
+    // As above, with the clocks as they stood on the old node; they stay stopped until startClock
+    public ChessGame(Player[] players, long gameId, String fen, int ply,
+                     TimeControl timeControl, long whiteMillis, long blackMillis){
+        this(players, gameId, fen, ply);
+        this.timeControl = timeControl;
+        this.whiteMillis = whiteMillis;
+        this.blackMillis = blackMillis;
+    }
+
     public long getGameId(){
         return gameId;
     }
@@ -48,10 +107,35 @@ public class ChessGame {
         return position;
     }
 
+    // Answered from the node-wide PositionCache where other games have been here before
+    public String getFen(){
+        return POSITIONS.lookup(position).fen(position);
+    }
+
+    public boolean isCheck(){
+        return POSITIONS.lookup(position).isCheck();
+    }
+
+    public boolean isMate(){
+        return POSITIONS.lookup(position).isMate();
+    }
+
+    public boolean isStaleMate(){
+        return POSITIONS.lookup(position).isStaleMate();
+    }
+
     public Player getCurrentPlayer(){
         return currentPlayer;
     }
 
+    public int getPly(){
+        return ply;
+    }
+
+    public Colour getToPlayColour(){
+        return position.getToPlay() == Chess.WHITE ? Colour.WHITE : Colour.BLACK;
+    }
+
     public void setStatus(STATUS status){
         this.status = status;
     }
@@ -66,11 +150,16 @@ public class ChessGame {
     }
 
     public short parseMove(String moveStr) {
+        return parseMove(this.position, moveStr);
+    }
+
+    // UCI to a chesspresso move in the given position (replay uses this without a live game)
+    public static short parseMove(Position position, String moveStr) {
         
         int fromSqi = Chess.strToSqi(moveStr.substring(0, 2));
         int toSqi = Chess.strToSqi(moveStr.substring(2, 4));
-        int startSquareStone = this.position.getStone(fromSqi);
-        int endSquareStone = this.position.getStone(toSqi);
+        int startSquareStone = position.getStone(fromSqi);
+        int endSquareStone = position.getStone(toSqi);
 
         // Is there a piece at the target, and is it NOT the same color as the mover?
         boolean isCapture = (endSquareStone != Chess.NO_STONE) &&
@@ -85,20 +174,12 @@ public class ChessGame {
     }
 
     public boolean makeMove(short move){
-        short[] legalMoves = this.position.getAllMoves();
-        boolean legal = false;
-        for (short m : legalMoves) {
-            if (m == move) {
-                legal = true;
-                break;
-            }
-        }
-
-        if (legal) {
+        if (POSITIONS.lookup(this.position).isLegal(move)) {
             try {
                 this.position.doMove(move);
                 System.out.println("Made move successfuly");
                 currentPlayer = players[position.getToPlay()];
+                ply++;
                 return true;
             } catch (IllegalMoveException e) {
                 System.out.println("Illegal Move!");
@@ -110,6 +191,120 @@ public class ChessGame {
         }
     }
     
+    // Rolls back the last makeMove, e.g. when persisting it failed
+    public void undoLastMove() {
+        if (this.position.undoMove()) {
+            currentPlayer = players[position.getToPlay()];
+            ply--;
+            if (timeControl != null) {
+                whiteMillis = prevWhiteMillis;
+                blackMillis = prevBlackMillis;
+                turnStartedAt = prevTurnStartedAt;
+            }
+        }
+    }
+
+    // Called once a move is committed, so undoLastMove never has to take one back
+    public void noteCommittedMove(String uci) {
+        if (opening != null && opening.size() < OPENING_PLIES) opening.add(uci);
+        if (RECENT_PLIES > 0) recent[(ply - 1) % RECENT_PLIES] = uci;
+    }
+
+    /**
+     * The committed moves after fromPly, oldest first, or null if fromPly isn't a ply of this game
+     * or some of those moves are no longer held. Callers hold the game's monitor.
+     */
+    public List<String> movesSince(int fromPly) {
+        if (fromPly < Math.max(recentFrom, ply - RECENT_PLIES) || fromPly > ply) return null;
+        List<String> moves = new ArrayList<>(ply - fromPly);
+        for (int p = fromPly + 1; p <= ply; p++) moves.add(recent[(p - 1) % RECENT_PLIES]);
+        return moves;
+    }
+
+    public List<String> getOpening() {
+        return opening == null ? null : List.copyOf(opening);
+    }
+
+    /* ---------- Clock (callers hold the game's monitor) ---------- */
+
+    public boolean isTimed() { return timeControl != null; }
+
+    public TimeControl getTimeControl() { return timeControl; }
+
+    public boolean isClockRunning() { return clockRunning; }
+
+    /** Stored remaining time, as of the last move or stop; what gets persisted. */
+    public long getWhiteMillis() { return whiteMillis; }
+
+    public long getBlackMillis() { return blackMillis; }
+
+    /** Starts the side to move's clock, at game start and when a paused game resumes. */
+    public void startClock(long nowMillis) {
+        if (timeControl == null || clockRunning) return;
+        turnStartedAt = nowMillis;
+        clockRunning = true;
+    }
+
+    /** Charges the side to move for the time so far and stops, e.g. while a player reconnects. */
+    public void stopClock(long nowMillis) {
+        if (timeControl == null || !clockRunning) return;
+        long used = Math.max(0, nowMillis - turnStartedAt);
+        if (getToPlayColour() == Colour.WHITE) whiteMillis = Math.max(0, whiteMillis - used);
+        else blackMillis = Math.max(0, blackMillis - used);
+        clockRunning = false;
+    }
+
+    /** Time the given side has left right now. */
+    public long remainingMillis(Colour side, long nowMillis) {
+        long stored = side == Colour.WHITE ? whiteMillis : blackMillis;
+        if (!clockRunning || side != getToPlayColour()) return stored;
+        return stored - Math.max(0, nowMillis - turnStartedAt);
+    }
+
+    /**
+     * How long until the side to move flags. lagMillis is the network time we forgive them:
+     * their move may already be on its way.
+     */
+    public long millisUntilFlag(long nowMillis, long lagMillis) {
+        return remainingMillis(getToPlayColour(), nowMillis) + lagMillis;
+    }
+
+    /**
+     * Call right after makeMove: charges the side that just moved for its think time, minus
+     * up to lagMillis of network time, adds the increment and starts the opponent's clock.
+     */
+    public void chargeMove(long nowMillis, long lagMillis) {
+        if (timeControl == null) return;
+        prevWhiteMillis = whiteMillis;
+        prevBlackMillis = blackMillis;
+        prevTurnStartedAt = turnStartedAt;
+        if (clockRunning) {
+            long elapsed = Math.max(0, nowMillis - turnStartedAt);
+            long used = elapsed - Math.min(elapsed, lagMillis);
+            long inc = timeControl.incrementMillis();
+            // The mover is the side that is no longer to play
+            if (getToPlayColour() == Colour.BLACK) whiteMillis = Math.max(0, whiteMillis - used) + inc;
+            else blackMillis = Math.max(0, blackMillis - used) + inc;
+        }
+        turnStartedAt = nowMillis;
+        clockRunning = true;
+    }
+
+    // Cheaper than getFEN(): just the board and side to move, see PositionChecksum
+    public String positionChecksum() {
+        char[] squares = new char[64];
+        for (int sqi = 0; sqi < 64; sqi++) {
+            int stone = this.position.getStone(sqi);
+            if (stone == Chess.NO_STONE) {
+                squares[sqi] = '.';
+                continue;
+            }
+            char c = Chess.pieceToChar(Chess.stoneToPiece(stone));
+            squares[sqi] = Chess.stoneToColor(stone) == Chess.WHITE ? c : Character.toLowerCase(c);
+        }
+        return PositionChecksum.of(squares, getToPlayColour());
+    }
+
     public boolean markEnded() { return ended.compareAndSet(false, true); }
 
     public boolean isEnded() { return ended.get(); }
@@ -1,6 +1,9 @@
 package com.server.model;
 
 public class Player {
+    // Engine opponents; the prefix is reserved so a bot seat is recognisable on any node
+    public static final String BOT_ID_PREFIX = "bot-";
+
     private String id;
     private int rating;
     private long joinTime;
@@ -29,6 +32,10 @@ public class Player {
         return joinTime;
     }
 
+    public boolean isBot(){
+        return id.startsWith(BOT_ID_PREFIX);
+    }
+
     @Override
     public String toString(){
         return "Player{ id=" + id + ", rating=" + rating + " }"; 
@@ -0,0 +1,181 @@
+package com.server.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.server.metrics.Metrics;
+
+import chesspresso.position.Position;
+
+/**
+ * What the server asks about a position, shared by every game on the node: legal moves,
+ * check/mate/stalemate and FEN. Thousands of games walk through the same openings, so those
+ * lookups skip chesspresso's move generator. Keyed by the position's 64-bit Zobrist hash; each
+ * entry also keeps the packed board, side to move, castling rights and en passant square, and a
+ * hit whose board differs (a hash collision) is answered by the move generator instead.
+ *
+ * Split into stripes, each an access-ordered LinkedHashMap (LRU) under its own lock. A position is
+ * only admitted the second time it misses (a one-slot-per-bucket doorkeeper), so the long tail
+ * of positions seen in a single game doesn't push the openings out.
+ */
+public final class PositionCache {
+
+    private static final int STRIPES = 16;
+    private static final PositionCache SHARED = new PositionCache(Integer.getInteger("chess.positionCacheEntries", 65_536));
+
+    static {
+        Metrics m = Metrics.get();
+        m.counterFn("chess_position_cache_hits_total", "Position lookups answered from the cache", SHARED.hits::sum);
+        m.counterFn("chess_position_cache_misses_total", "Position lookups that ran the move generator", SHARED.misses::sum);
+        m.counterFn("chess_position_cache_evictions_total", "Positions evicted from the cache", SHARED.evictions::sum);
+        m.counterFn("chess_position_cache_collisions_total", "Cached hashes whose stored board didn't match", SHARED.collisions::sum);
+        m.gauge("chess_position_cache_entries", "Positions in the cache", SHARED::size);
+        m.gauge("chess_position_cache_hit_ratio", "Share of position lookups answered from the cache", SHARED::hitRatio);
+    }
+
+    /** The node-wide cache ChessGame uses; sized by chess.positionCacheEntries. */
+    public static PositionCache shared() {
+        return SHARED;
+    }
+
+    /** Immutable apart from the lazily filled FEN. */
+    public static final class Entry {
+        private final long[] board; // see pack
+        private final short[] moves; // sorted, for binarySearch
+        private final boolean check;
+        // FEN without the halfmove clock and move number, which the hash doesn't cover
+        private volatile String fenPrefix;
+
+        private Entry(long[] board, short[] moves, boolean check) {
+            this.board = board;
+            this.moves = moves;
+            this.check = check;
+        }
+
+        public boolean isLegal(short move) { return Arrays.binarySearch(moves, move) >= 0; }
+
+        public int moveCount() { return moves.length; }
+
+        public boolean isCheck() { return check; }
+
+        public boolean isMate() { return check && moves.length == 0; }
+
+        public boolean isStaleMate() { return !check && moves.length == 0; }
+
+        /** position must be the one this entry was looked up for. */
+        public String fen(Position position) {
+            String prefix = fenPrefix;
+            String counters = " " + position.getHalfMoveClock() + " " + (position.getPlyNumber() / 2 + 1);
+            if (prefix != null) return prefix + counters;
+            String fen = position.getFEN();
+            // Only reuse the prefix if rebuilding from it gives exactly what chesspresso writes
+            if (fen.endsWith(counters)) fenPrefix = fen.substring(0, fen.length() - counters.length());
+            return fen;
+        }
+    }
+
+    private static final class Stripe {
+        private final LinkedHashMap<Long, Entry> map;
+        private final long[] doorkeeper;
+
+        Stripe(int capacity, LongAdder evictions) {
+            this.map = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    if (size() <= capacity) return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+            this.doorkeeper = new long[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+        }
+
+        // True on the second miss for hash since its slot was last taken by another position
+        boolean admit(long hash) {
+            int slot = (int) (hash ^ (hash >>> 32)) & (doorkeeper.length - 1);
+            if (doorkeeper[slot] == hash) {
+                doorkeeper[slot] = 0;
+                return true;
+            }
+            doorkeeper[slot] = hash;
+            return false;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public PositionCache(int maxEntries) {
+        int perStripe = Math.max(1, maxEntries / STRIPES);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(perStripe, evictions);
+    }
+
+    public Entry lookup(Position position) {
+        long hash = position.getHashCode();
+        Stripe stripe = stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+        Entry e;
+        synchronized (stripe) {
+            e = stripe.map.get(hash);
+        }
+        long[] board = pack(position);
+        if (e != null) {
+            if (Arrays.equals(e.board, board)) {
+                hits.increment();
+                return e;
+            }
+            // Same hash, different position: answer this one fresh and leave the cached one be
+            collisions.increment();
+            return generate(position, board);
+        }
+        misses.increment();
+        e = generate(position, board);
+        synchronized (stripe) {
+            if (stripe.admit(hash)) stripe.map.put(hash, e);
+        }
+        return e;
+    }
+
+    private static Entry generate(Position position, long[] board) {
+        short[] moves = position.getAllMoves().clone();
+        Arrays.sort(moves);
+        return new Entry(board, moves, position.isCheck());
+    }
+
+    // Four bits per square (stone + 6) in four longs, then side to move, castling and en passant square
+    private static long[] pack(Position position) {
+        long[] board = new long[5];
+        for (int sqi = 0; sqi < 64; sqi++) {
+            board[sqi >>> 4] |= (long) (position.getStone(sqi) + 6) << ((sqi & 15) << 2);
+        }
+        board[4] = position.getToPlay() | position.getCastles() << 1 | (long) (position.getSqiEP() + 1) << 5;
+        return board;
+    }
+
+    public long hits() { return hits.sum(); }
+
+    public long misses() { return misses.sum(); }
+
+    public long evictions() { return evictions.sum(); }
+
+    public long collisions() { return collisions.sum(); }
+
+    public double hitRatio() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.map.size();
+            }
+        }
+        return n;
+    }
+}
@@ -7,7 +7,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
 import org.java_websocket.server.WebSocketServer;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -19,11 +22,31 @@ import com.shared.util.GameResult;
 
 import chesspresso.position.Position;
 
+import com.server.clock.TimerWheel;
+import com.server.engine.SearchEngine;
+import com.server.engine.SearchResult;
+import com.server.jfr.HeartbeatTickEvent;
+import com.server.jfr.PauseTransitionEvent;
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.history.GameHistoryIndex;
+import com.server.metrics.MoveTracer;
+import com.server.metrics.MoveTracer.Stage;
 import com.server.model.ChessGame;
 import com.server.model.Player;
-import com.server.redis.RedisManager;
+import com.server.store.GameStore;
+import com.server.store.GameStores;
+import com.server.rating.RatingService;
+import com.server.service.BotService;
+import com.server.service.CreateGameResult;
 import com.server.service.MatchmakingService;
+import com.server.service.PlacementPolicy;
+import com.server.service.ReplayService;
+import com.server.tournament.Arena;
+import com.server.tournament.ArenaService;
 import com.server.util.Match;
+import com.server.util.GameSnapshot;
+import com.server.util.NodeLoad;
 import com.server.util.Pair;
 import com.server.util.PauseInfo;
 
@@ -34,6 +57,24 @@ public class ChessWebSocketServer extends WebSocketServer{
     private static final long HEARTBEAT_INITIAL_DELAY_MS = 2_000L;
     private static final long HEARTBEAT_TIMEOUT_MS = 30_000L;
     private static final long RECONNECT_GRACE_MS = 60_000L;
+    private static final long OUTBOUND_SWEEP_INTERVAL_MS = 250L;
+    public static final String ROUTE_HEADER = "X-Chess-Route";
+    // Proxy misrouted players to their game's node over a node link instead of redirecting them
+    private static final boolean FORWARDING_ENABLED = !Boolean.getBoolean("chess.disableForwarding");
+    public static final int LINK_PORT_OFFSET = 2000;
+    private static final String PEER_HOST = System.getProperty("chess.peerHost", "127.0.0.1");
+    private static final long LINK_CONNECT_TIMEOUT_MS = 1_000L;
+    private static final long LINK_PING_INTERVAL_MS = 5_000L;
+    private static final int MIGRATION_THREADS = Integer.getInteger("chess.migrationThreads", 32);
+    private static final long MIGRATION_TIMEOUT_MS = 30_000L;
+    private static final boolean PLACEMENT_ENABLED = !Boolean.getBoolean("chess.disablePlacement");
+    private static final double PLACEMENT_MARGIN = Double.parseDouble(System.getProperty("chess.placementMargin", "10"));
+    private static final int LOAD_WINDOW_REPORTS = 10;
+    // Full FEN rides along with a move broadcast every N plies; in between clients apply deltas
+    private static final int FULL_FEN_EVERY_PLIES = Integer.getInteger("chess.fullFenEveryPlies", 20);
+    // Network time forgiven per move is the mover's heartbeat RTT, capped so a slow link can't buy time
+    private static final long MAX_LAG_COMP_MS = Long.getLong("chess.maxLagCompMs", 500L);
+    private static final long CLOCK_TICK_MS = Long.getLong("chess.clockTickMs", 10L);
 
     private Map<WebSocket, Player> socketToPlayer;
     private Map<String, WebSocket> playerIdToSocket;
@@ -42,9 +83,75 @@ public class ChessWebSocketServer extends WebSocketServer{
     private Map<WebSocket, Long> lastSentTsByConn;
     private Map<WebSocket, Long> lastAckTsByConn;
     private final java.util.Map<Long, PauseInfo> pausedGames;
+    // Routing resolved during the HTTP upgrade, consumed in onOpen
+    private final Map<WebSocket, HandshakeRoute> handshakeRoutes = new ConcurrentHashMap<>();
+
+    // lastGameId/lastVersion: what the client says it already has (?g=&v=), -1 if it didn't say
+    private record HandshakeRoute(String playerId, long gameId, String hostNode, long lastGameId, int lastVersion) {}
+
+    // Proxying side: client connections whose game lives on a peer
+    private record ProxySession(NodeLink link, String session) {}
+    private final Map<String, NodeLink> peerLinks = new ConcurrentHashMap<>();
+    private final Map<WebSocket, ProxySession> proxiedConns = new ConcurrentHashMap<>();
+    private final Map<String, WebSocket> proxiedBySession = new ConcurrentHashMap<>();
+    // Hosting side: stand-ins for clients connected to a peer
+    private final Map<String, ForwardedSocket> forwardedBySession = new ConcurrentHashMap<>();
+
+    // Drain: no new matches, live games handed to other nodes
+    private volatile boolean draining = false;
+    private final java.util.Set<Long> migratingGames = ConcurrentHashMap.newKeySet();
+
+    // Load reporting & placement
+    private final LatencyHistogram moveLatency = Metrics.get().histogram(
+        "chess_move_latency_us", "Move receipt to broadcast, end to end");
+    private final MoveTracer moveTracer = new MoveTracer();
+    private final GameHistoryIndex historyIndex;
+    private final ReplayService replayService = new ReplayService(GameStores.get());
+    // Engine opponents search on their own low-priority pool; see SearchEngine
+    private final BotService bots = new BotService(new SearchEngine(
+        Integer.getInteger("chess.engineThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 4)),
+        Integer.getInteger("chess.engineHashMb", 64)));
+    private final java.util.Set<Long> botThinking = ConcurrentHashMap.newKeySet();
+    // Engine failures in a row per game; each retry waits twice as long, and past the cap the bot resigns
+    private static final int BOT_MAX_FAILURES = 5;
+    private static final long BOT_RETRY_BASE_MS = 250;
+    private final Map<Long, Integer> botFailures = new ConcurrentHashMap<>();
+    private final RatingService ratings = new RatingService(GameStores.get());
+    private final ArenaService arenas;
+    private static final long ARENA_PAIRING_MS = Long.getLong("chess.arenaPairingMs", 2_000L);
+    private final LatencyHistogram heartbeatRtt = Metrics.get().histogram(
+        "chess_heartbeat_rtt_us", "Client heartbeat round trip");
+    private final LatencyHistogram recentMoveLatency = new LatencyHistogram();
+    private final PlacementPolicy placement = new PlacementPolicy(PLACEMENT_MARGIN);
+    private volatile List<NodeLoad> clusterLoads = List.of();
+    private int loadReports = 0;
+    private final java.util.concurrent.ExecutorService migrationExec =
+        java.util.concurrent.Executors.newFixedThreadPool(MIGRATION_THREADS, r -> {
+            Thread t = new Thread(r, "game-migration");
+            t.setDaemon(true);
+            return t;
+        });
+
+    // Clocks: one wheel holds every game's flag timer; flag handling runs off the wheel thread
+    private final java.util.concurrent.ExecutorService clockExec =
+        java.util.concurrent.Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "clock-flag");
+            t.setDaemon(true);
+            return t;
+        });
+    private final TimerWheel clockWheel = new TimerWheel("clock-wheel", CLOCK_TICK_MS,
+        java.util.concurrent.TimeUnit.MILLISECONDS, clockExec, Metrics.get().histogram(
+            "chess_clock_timer_lateness_us", "How far past its deadline a flag timer fired"));
+    private final Map<Long, TimerWheel.Timeout> flagTimers = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Long> rttMsByConn = new ConcurrentHashMap<>();
+    private final java.util.concurrent.atomic.AtomicLong flagFalls = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong resumeDeltas = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong resumeSnapshots = new java.util.concurrent.atomic.AtomicLong();
 
     private ObjectMapper objectMapper; 
     private MatchmakingService matchmakingService;
+    private final OutboundGuard outbound = new OutboundGuard();
+    private final InboundAdmission admission = new InboundAdmission();
 
     private final java.util.concurrent.ScheduledExecutorService hbExec = 
         java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
@@ -52,19 +159,64 @@ public class ChessWebSocketServer extends WebSocketServer{
             t.setDaemon(true);
             return t;
         });
+    // Arena rounds pair and create games in bulk; kept off the heartbeat thread
+    private final java.util.concurrent.ScheduledExecutorService arenaExec =
+        java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arena-pairing");
+            t.setDaemon(true);
+            return t;
+        });
     
     
     public ChessWebSocketServer(InetSocketAddress address){
         super(address);
+        // Keeps a per-socket count of unwritten bytes for OutboundGuard
+        setWebSocketFactory(new CountingSocketFactory());
         this.socketToPlayer = new ConcurrentHashMap<>();
         this.playerIdToSocket = new ConcurrentHashMap<>();
         this.socketToGame = new ConcurrentHashMap<>();
         this.gameIdToSockets = new ConcurrentHashMap<>();
         this.objectMapper = new ObjectMapper();
         this.matchmakingService = new MatchmakingService(Integer.toString(getPort()));
+        this.arenas = new ArenaService(Integer.toString(getPort()), matchmakingService, GameStores.get());
         this.lastAckTsByConn = new ConcurrentHashMap<>();
         this.lastSentTsByConn = new ConcurrentHashMap<>();
         this.pausedGames = new ConcurrentHashMap<>();
+        try {
+            this.historyIndex = new GameHistoryIndex(
+                java.nio.file.Path.of(System.getProperty("chess.historyDir", "history/node-" + getPort())));
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException("can't open the game history index", e);
+        }
+        GameStores.get().setMigrationListener(this::onGameMigrated);
+        registerMetrics();
+    }
+
+    /**
+     * Looks up ?pid= while the upgrade is still being negotiated. A player whose game is on
+     * another node gets an X-Chess-Route response header (and a redirect on open); a player
+     * whose game is here gets seated in onOpen without waiting for a join.
+     */
+    @Override
+    public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft, ClientHandshake request) throws InvalidDataException {
+        ServerHandshakeBuilder builder = super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+        String pid = queryParam(request.getResourceDescriptor(), "pid");
+        if (pid == null) return builder;
+        try {
+            Pair<Long, String> route = resolveRoute(pid);
+            Long gid = route.first;
+            String hostNode = route.second;
+            if (gid == null || hostNode == null) return builder;
+            handshakeRoutes.put(conn, new HandshakeRoute(pid, gid, hostNode,
+                longParam(request.getResourceDescriptor(), "g"), (int) longParam(request.getResourceDescriptor(), "v")));
+            if (!FORWARDING_ENABLED && !Integer.toString(getPort()).equals(hostNode)) {
+                builder.put(ROUTE_HEADER, hostNode);
+            }
+        } catch (Exception e) {
+            // Fall back to routing on join
+            System.out.println("[ROUTE] handshake lookup failed for " + pid + ": " + e.getMessage());
+        }
+        return builder;
     }
 
     @Override
@@ -74,12 +226,42 @@ public class ChessWebSocketServer extends WebSocketServer{
         long now = System.currentTimeMillis();
         lastAckTsByConn.put(conn, now);
         System.out.printf("[HB] seed alive %s at %d%n", socketLabel(conn), now);
+
+        HandshakeRoute route = handshakeRoutes.remove(conn);
+        if (route == null) return;
+        try {
+            ChessGame game = Integer.toString(getPort()).equals(route.hostNode())
+                ? matchmakingService.getActiveChessgame(route.gameId()) : null;
+            if (game == null) {
+                String join = objectMapper.writeValueAsString(
+                    new Envelope<>("join", new JoinMessageDTO(route.playerId(), null, 0, route.lastGameId(), route.lastVersion())));
+                if (!Integer.toString(getPort()).equals(route.hostNode()) && tryForward(conn, route.hostNode(), join)) return;
+                String json = objectMapper.writeValueAsString(
+                    new Envelope<>("redirect", new RedirectDTO(route.hostNode())));
+                safeSend(conn, json, socketLabel(conn));
+                return;
+            }
+            System.out.printf("[ROUTE] handshake resume %s game=%d%n", route.playerId(), route.gameId());
+            seatReturningPlayer(conn, game, route.playerId(), route.lastGameId(), route.lastVersion());
+        } catch (Exception e) {
+            System.err.println("[ROUTE] handshake resume failed: " + e.getMessage());
+        }
     }
 
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote){
         System.out.println("Closed " + conn.getRemoteSocketAddress());
         lastAckTsByConn.remove(conn);
+        rttMsByConn.remove(conn);
+        outbound.forget(conn);
+        admission.forget(conn);
+
+        ProxySession proxy = proxiedConns.remove(conn);
+        if (proxy != null) {
+            proxiedBySession.remove(proxy.session());
+            proxy.link().send(new LinkFrame("close", proxy.session(), reason, code, 0));
+            return;
+        }
 
         Player player = socketToPlayer.get(conn);
         socketToPlayer.remove(conn);
@@ -120,6 +302,8 @@ public class ChessWebSocketServer extends WebSocketServer{
                 new PauseInfo(game.getGameId(), player.getId(), now, deadline)
             );
             System.out.printf("[PAUSE] game=%d by=%s until=%d%n", game.getGameId(), player.getId(), deadline);
+            PauseTransitionEvent.emit(game.getGameId(), player.getId(), "pause");
+            pauseClock(game);
 
             // Notify the opponent (if still connected)
             if (oppSock != null && oppSock.isOpen()) {
@@ -138,7 +322,42 @@ public class ChessWebSocketServer extends WebSocketServer{
     }
 
     @Override
-    public void onMessage(WebSocket conn, String message) { 
+    public void onMessage(WebSocket conn, String message) {
+        long receivedNanos = System.nanoTime();
+        // Admission runs before any parsing so floods cost us a substring, not a JSON tree
+        String preType = admission.precheckType(message);
+        InboundAdmission.Verdict verdict = admission.admit(conn, preType);
+        if (verdict != InboundAdmission.Verdict.ADMIT) {
+            if (admission.shouldReportThrottle(conn)) {
+                if (verdict == InboundAdmission.Verdict.MALFORMED) {
+                    sendError(conn, "badRequest", "Message too large or not a valid envelope");
+                } else {
+                    sendError(conn, "rateLimited", "Too many '" + preType + "' messages; slow down");
+                }
+            }
+            return;
+        }
+
+        // Proxied client: the hosting node owns the game, we only keep the socket alive
+        ProxySession proxy = proxiedConns.get(conn);
+        if (proxy != null && !"heartbeat_ack".equals(preType)) {
+            proxy.link().send(new LinkFrame("msg", proxy.session(), message, 0, 0));
+            return;
+        }
+
+        boolean permit = admission.needsRedisPermit(preType);
+        if (permit && !admission.tryAcquireRedisPermit()) {
+            sendError(conn, "serverBusy", "Server busy; retry '" + preType + "' shortly");
+            return;
+        }
+        try {
+            handleMessage(conn, message, receivedNanos);
+        } finally {
+            if (permit) admission.releaseRedisPermit();
+        }
+    }
+
+    private void handleMessage(WebSocket conn, String message, long receivedNanos) {
         System.out.println("Received message from " + conn.getRemoteSocketAddress() + ": " + message);
         try {
             JsonNode root = objectMapper.readTree(message);
@@ -147,15 +366,26 @@ public class ChessWebSocketServer extends WebSocketServer{
             if ("join".equals(messageType)) {
                 JoinMessageDTO joinMsg = objectMapper.treeToValue(root.get("payload"), JoinMessageDTO.class);
                 String pid = joinMsg.playerId();
+                if (pid == null || pid.startsWith(Player.BOT_ID_PREFIX)) {
+                    sendError(conn, "badPlayerId", "Player ids starting with '" + Player.BOT_ID_PREFIX + "' are reserved");
+                    return;
+                }
+
+                // Already seated by handshake routing; the client's join is redundant
+                Player seated = socketToPlayer.get(conn);
+                if (seated != null && seated.getId().equals(pid) && socketToGame.containsKey(conn)) {
+                    return;
+                }
 
                 // ---------- ROUTE FIRST via Redis ----------
-                RedisManager rm = RedisManager.getInstance();
-                Long gid = rm.getPlayerGame(pid);
+                Pair<Long, String> route = resolveRoute(pid);
+                Long gid = route.first;
                 if (gid != null) {
-                    String hostNode = rm.getGameNode(gid);          
+                    String hostNode = route.second;
                     String myNode   = Integer.toString(getPort());  
 
                     if (!myNode.equals(hostNode)) {
+                        if (tryForward(conn, hostNode, message)) return;
                         String json = objectMapper.writeValueAsString(
                             new Envelope<>("redirect", new RedirectDTO(hostNode)));
                         safeSend(conn, json, socketLabel(conn));
@@ -172,58 +402,30 @@ public class ChessWebSocketServer extends WebSocketServer{
                         return;
                     }
 
-                    boolean isWhite = pid.equals(game.getPlayers()[0].getId());
-                    Player returningPlayer = isWhite ? game.getPlayers()[0] : game.getPlayers()[1];
-
-                    // Replace old seat if needed
-                    Pair<WebSocket, WebSocket> pair = gameIdToSockets.get(gid);
-                    WebSocket oldSeat = (pair == null) ? null : (isWhite ? pair.first : pair.second);
-                    if (oldSeat != null && oldSeat != conn && oldSeat.isOpen()) {
-                        try { oldSeat.close(4001, "replaced by resume"); } catch (Exception ignore) {}
-                    }
-
-                    // Seat player + maps
-                    socketToPlayer.put(conn, returningPlayer);
-                    playerIdToSocket.put(pid, conn);
-                    socketToGame.put(conn, game);
-
-                    if (pair == null) {
-                        gameIdToSockets.put(gid, isWhite ? new Pair<>(conn, null) : new Pair<>(null, conn));
-                    } else {
-                        gameIdToSockets.put(gid, isWhite ? new Pair<>(conn, pair.second) : new Pair<>(pair.first, conn));
-                    }
-
-                    // If both are here, clear paused state (if any)
-                    Pair<WebSocket, WebSocket> after = gameIdToSockets.get(gid);
-                    boolean bothPresent = after != null
-                            && after.first  != null && after.first.isOpen()
-                            && after.second != null && after.second.isOpen();
-                    if (bothPresent) pausedGames.remove(gid);
-
-                    // Send resumeOk
-                    String fen = game.getPosition().getFEN();
-                    Colour toPlay = game.getCurrentPlayer().equals(game.getPlayers()[0]) ? Colour.WHITE : Colour.BLACK;
-                    Player oppPlayer = isWhite ? game.getPlayers()[1] : game.getPlayers()[0];
-                    OpponentDTO opp = new OpponentDTO(oppPlayer.getId(), oppPlayer.getName(), oppPlayer.getRating());
-                    Colour myColour = isWhite ? Colour.WHITE : Colour.BLACK;
-
-                    String jsonOk = objectMapper.writeValueAsString(
-                        new Envelope<>("resumeOk", new ResumeOkDTO(gid, fen, toPlay, myColour, opp)));
-                    safeSend(conn, jsonOk, socketLabel(conn));
-
-                    WebSocket oppSock = (after == null) ? null : (isWhite ? after.second : after.first);
-                    if (oppSock != null && oppSock.isOpen()) {
-                        String jsonOr = objectMapper.writeValueAsString(
-                            new Envelope<>("opponentReconnected", new OpponentReconnectedDTO(gid, pid)));
-                        safeSend(oppSock, jsonOr, socketLabel(oppSock));
-                    }
+                    seatReturningPlayer(conn, game, pid, joinMsg.lastGameId(), joinMsg.lastVersion());
                     return; 
                 }
 
                 // ---------- NO EXISTING GAME -> normal matchmaking ----------
-                Player player = new Player(pid, joinMsg.name(), joinMsg.rating());
+                if (draining) {
+                    String target = pickTargetNode(liveOtherNodes());
+                    if (target == null) {
+                        sendError(conn, "draining", "Server is shutting down; try again shortly");
+                    } else {
+                        safeSend(conn, objectMapper.writeValueAsString(
+                            new Envelope<>("redirect", new RedirectDTO(target))), socketLabel(conn));
+                    }
+                    return;
+                }
+                // The stored rating, not the client's claim
+                Player player = new Player(pid, joinMsg.name(), ratings.ratingOf(pid));
                 socketToPlayer.put(conn, player);
                 playerIdToSocket.put(pid, conn);
+                // Arena rounds pair them, so they stay out of the regular queue until they leave the arena
+                if (arenas.isEntered(pid)) {
+                    sendError(conn, "inArena", "You are entered in an arena; leave it to join the queue");
+                    return;
+                }
                 matchmakingService.addPlayer(player);
                 // System.out.print(System.currentTimeMillis() + Thread.currentThread().getName());
 
@@ -235,35 +437,29 @@ public class ChessWebSocketServer extends WebSocketServer{
                     while (itMatches.hasNext()) {
                         Match match = itMatches.next();
                         ChessGame game = match.game;
-                        Player playerWhite = match.white;
-                        Player playerBlack = match.black;
-
-                        WebSocket wSock = playerIdToSocket.get(playerWhite.getId());
-                        WebSocket bSock = playerIdToSocket.get(playerBlack.getId());
-                        socketToGame.put(wSock, game);
-                        socketToGame.put(bSock, game);
-                        gameIdToSockets.put(game.getGameId(), new Pair<>(wSock, bSock));
-
-                        String initialFen = chesspresso.position.Position.createInitialPosition().getFEN();
-
-                        MatchedMessageDTO whiteMsg = new MatchedMessageDTO(
-                            game.getGameId(), playerWhite.getId(), Colour.WHITE,
-                            new OpponentDTO(playerBlack.getId(), playerBlack.getName(), playerBlack.getRating()),
-                            initialFen
-                        );
-                        MatchedMessageDTO blackMsg = new MatchedMessageDTO(
-                            game.getGameId(), playerBlack.getId(), Colour.BLACK,
-                            new OpponentDTO(playerWhite.getId(), playerWhite.getName(), playerWhite.getRating()),
-                            initialFen
-                        );
-
-                        wSock.send(objectMapper.writeValueAsString(new Envelope<>("matchFound", whiteMsg)));
-                        bSock.send(objectMapper.writeValueAsString(new Envelope<>("matchFound", blackMsg)));
+                        announceMatch(match);
+
+                        // Matched here, but another node may be a better home; hand it over before the first move
+                        if (PLACEMENT_ENABLED) {
+                            String myNode = Integer.toString(getPort());
+                            String target;
+                            // Charge the pick so the rest of a burst doesn't pile onto the same node before the next report
+                            synchronized (placement) {
+                                target = placement.choose(myNode, clusterLoads);
+                                clusterLoads = PlacementPolicy.charge(clusterLoads, target);
+                            }
+                            if (!myNode.equals(target)) {
+                                System.out.printf("[PLACE] game=%d -> node %s%n", game.getGameId(), target);
+                                migrateGame(game, target);
+                            }
+                        }
                     }
                 }
             }
             if ("move".equals(messageType)) {
+                MoveTracer.Trace trace = moveTracer.begin(receivedNanos);
                 MoveMessageDTO moveMsg = objectMapper.treeToValue(root.get("payload"), MoveMessageDTO.class);
+                trace.mark(Stage.DECODE);
                 ChessGame game = socketToGame.get(conn);
 
 
@@ -302,55 +498,51 @@ public class ChessWebSocketServer extends WebSocketServer{
 
                 short move = game.parseMove(moveMsg.uci());
                 if (move == 0) {
+                    trace.reject(game.getGameId(), game.getPly(), moveMsg.uci(), "illegalMove");
                     sendError(conn, "illegalMove", "Unrecognized or illegal move: " + moveMsg.uci());
                     return;
                 }
 
-                String oldFen = game.getPosition().getFEN();
-                boolean makeMove = game.makeMove(move);
+                // Serialized per game so a drain can't snapshot between apply and commit
+                synchronized (game) {
+                    if (migratingGames.contains(game.getGameId())
+                            || matchmakingService.getActiveChessgame(game.getGameId()) != game) {
+                        trace.reject(game.getGameId(), game.getPly(), moveMsg.uci(), "gameMigrating");
+                        sendError(conn, "gameMigrating", "Game is moving to another server; you will be redirected");
+                        return;
+                    }
+                    trace.mark(Stage.VALIDATE);
 
-                if (!makeMove) {
-                    sendError(conn, "illegalMove", "Move not legal in the current position: " + moveMsg.uci());
-                    return;
-                }
-                
-                String newFen = game.getPosition().getFEN();
-                Player currentPlayer = game.getCurrentPlayer();
-                // TODO: ADD COLOUR TO PLAYER MODEL!!!!!!!!!!!!!!!
-                Colour toPlay = currentPlayer.equals(game.getPlayers()[0]) ? Colour.WHITE : Colour.BLACK; 
-                String toPlayString = toPlay == Colour.WHITE ? "w" : "b";
-                String whiteId = game.getPlayers()[0].getId();
-                String blackId = game.getPlayers()[1].getId();
-                String nodeId = Integer.toString(getPort());
-
-                boolean moveCommitted = RedisManager.getInstance().commitMove(game.getGameId(), nodeId, newFen, moveMsg.uci(), whiteId, blackId, toPlayString, "IN_PROGRESS");
-
-                if (moveCommitted) {
-                    MoveBroadcastDTO broadcastMsg = new MoveBroadcastDTO(game.getGameId(), moveMsg.uci(), newFen, toPlay);
-                    Envelope<MoveBroadcastDTO> moveEnvelope = new Envelope<>("move", broadcastMsg);
-                    String json = objectMapper.writeValueAsString(moveEnvelope);
-
-                    Pair<WebSocket, WebSocket> sockets = gameIdToSockets.get(game.getGameId());
-                    sockets.first.send(json);
-                    sockets.second.send(json);
-                } else {
-                    game.getPosition().undoMove();
-                    sendError(conn, "persistFailed", "We couldn't save your move. The board is unchanged; please try again.");
-                    return;
+                    long nowMs = System.currentTimeMillis();
+                    long lagMs = lagCompensationMillis(conn);
+                    if (game.isTimed() && game.millisUntilFlag(nowMs, lagMs) <= 0) {
+                        trace.reject(game.getGameId(), game.getPly(), moveMsg.uci(), "flagged");
+                        flag(game);
+                        return;
+                    }
+
+                    boolean makeMove = game.makeMove(move);
+
+                    if (!makeMove) {
+                        trace.reject(game.getGameId(), game.getPly(), moveMsg.uci(), "illegalMove");
+                        sendError(conn, "illegalMove", "Move not legal in the current position: " + moveMsg.uci());
+                        return;
+                    }
+                    game.chargeMove(nowMs, lagMs);
+
+                    if (!commitAndBroadcast(game, moveMsg.uci(), trace)) {
+                        trace.reject(game.getGameId(), game.getPly(), moveMsg.uci(), "persistFailed");
+                        game.undoLastMove();
+                        sendError(conn, "persistFailed", "We couldn't save your move. The board is unchanged; please try again.");
+                        return;
+                    }
                 }
+                moveLatency.recordNanosAsMicros(receivedNanos);
+                recentMoveLatency.recordNanosAsMicros(receivedNanos);
                 
 
-                if (game.getPosition().isMate()) {
-                    String winnerId = playerToMove.getId();
-                    GameResult result = playerToMove.equals(game.getPlayers()[0]) ? GameResult.WHITE_WIN : GameResult.BLACK_WIN;
-                    System.out.printf("[END] CHECKMATE game=%d by=%s lastUci=%s%n",
-                        game.getGameId(), socketLabel(conn), moveMsg.uci());
-                    finishGameSafely(game.getGameId(), result, GameOverReason.CHECKMATE, winnerId);
-                    return;
-                } else if (game.getPosition().isStaleMate()) {
-                    finishGameSafely(game.getGameId(), GameResult.DRAW, GameOverReason.STALEMATE, null);
-                    return;
-                }
+                if (endIfOver(game, playerToMove, moveMsg.uci())) return;
+                maybeBotMove(game);
             }
             if("heartbeat_ack".equals(messageType)){
                 System.out.printf("[LOG] Heartbeat ACK from %s%n", socketLabel(conn));
@@ -359,9 +551,88 @@ public class ChessWebSocketServer extends WebSocketServer{
                 lastAckTsByConn.put(conn, now);
                 if (lastSentTsByConn.get(conn) != null) {
                     long rtt = now - ts;
+                    heartbeatRtt.record(rtt * 1_000);
+                    rttMsByConn.merge(conn, rtt, (old, fresh) -> (old * 3 + fresh) / 4);
                     System.out.printf("[HB] ACK <- %s ts=%d rtt=%dms%n", socketLabel(conn), ts, rtt);
                 }
             }
+            if ("resync".equals(messageType)) {
+                ResyncRequestDTO req = objectMapper.treeToValue(root.get("payload"), ResyncRequestDTO.class);
+                ChessGame game = socketToGame.get(conn);
+                if (game == null || game.getGameId() != req.gameId()) {
+                    sendError(conn, "notInGame", "You are not currently in this game");
+                    return;
+                }
+                System.out.printf("[RESYNC] %s game=%d clientPly=%d serverPly=%d%n",
+                    socketLabel(conn), game.getGameId(), req.lastPly(), game.getPly());
+                safeSend(conn, syncJson(game), socketLabel(conn));
+            }
+            if ("replay".equals(messageType)) {
+                ReplayRequestDTO req = objectMapper.treeToValue(root.get("payload"), ReplayRequestDTO.class);
+                Player viewer = socketToPlayer.get(conn);
+                ReplayDTO replay;
+                try {
+                    replay = replayService.replay(req.gameId(), req.ply(), req.count(), viewer == null ? null : viewer.getId());
+                } catch (IllegalArgumentException e) {
+                    sendError(conn, "badPly", e.getMessage());
+                    return;
+                } catch (IllegalStateException e) {
+                    System.out.println("[REPLAY] " + e.getMessage());
+                    sendError(conn, "replayUnavailable", "Game " + req.gameId() + " can't be replayed");
+                    return;
+                }
+                if (replay == null) {
+                    sendError(conn, "noSuchGame", "Game " + req.gameId() + " isn't available for replay");
+                    return;
+                }
+                safeSend(conn, objectMapper.writeValueAsString(new Envelope<>("replay", replay)), socketLabel(conn));
+            }
+            if ("playBot".equals(messageType)) {
+                Player player = socketToPlayer.get(conn);
+                if (player == null || socketToGame.containsKey(conn)) {
+                    sendError(conn, "notWaiting", "You are not waiting for an opponent");
+                    return;
+                }
+                Player bot = bots.newBot(player.getRating());
+                CreateGameResult created = matchmakingService.createBotGame(player, bot);
+                if (!created.ok()) {
+                    sendError(conn, "botUnavailable", "Couldn't start a bot game: " + created.reason());
+                    return;
+                }
+                ChessGame game = created.game();
+                boolean humanWhite = game.getPlayers()[0] == player;
+                socketToGame.put(conn, game);
+                gameIdToSockets.put(game.getGameId(), humanWhite ? new Pair<>(conn, null) : new Pair<>(null, conn));
+                MatchedMessageDTO msg = new MatchedMessageDTO(
+                    game.getGameId(), player.getId(), humanWhite ? Colour.WHITE : Colour.BLACK,
+                    new OpponentDTO(bot.getId(), bot.getName(), bot.getRating()),
+                    game.getFen(), game.getTimeControl());
+                safeSend(conn, objectMapper.writeValueAsString(new Envelope<>("matchFound", msg)), socketLabel(conn));
+                resumeClock(game);
+                maybeBotMove(game);
+            }
+            if ("arenaJoin".equals(messageType)) {
+                ArenaJoinDTO payload = objectMapper.treeToValue(root.get("payload"), ArenaJoinDTO.class);
+                Player player = socketToPlayer.get(conn);
+                if (player == null) {
+                    sendError(conn, "notJoined", "Send join before entering an arena");
+                    return;
+                }
+                String refused = arenas.join(payload.arenaId(), player);
+                if (refused != null) {
+                    sendError(conn, "arenaUnavailable", "Can't enter arena " + payload.arenaId() + ": " + refused);
+                    return;
+                }
+                // Arena rounds pair them from now on, not the regular queue
+                matchmakingService.removePlayerFromQueue(player);
+                Arena arena = arenas.get(payload.arenaId());
+                safeSend(conn, objectMapper.writeValueAsString(new Envelope<>("arenaJoined",
+                    new ArenaJoinedDTO(arena.getId(), arena.getName(), arena.getEndsAt()))), socketLabel(conn));
+            }
+            if ("arenaLeave".equals(messageType)) {
+                Player player = socketToPlayer.get(conn);
+                if (player != null) arenas.withdraw(player.getId());
+            }
             if ("resume".equals(messageType)) {
                 ResumeRequestDTO payload = objectMapper.treeToValue(root.get("payload"), ResumeRequestDTO.class);
                 System.out.printf("[RESUME] request from %s for game %d%n", payload.playerId(), payload.gameId());
@@ -417,23 +688,15 @@ public class ChessWebSocketServer extends WebSocketServer{
                 }
 
                 Pair<WebSocket, WebSocket> after = gameIdToSockets.get(gameId);
-                boolean bothPresent = after != null
-                        && after.first  != null && after.first.isOpen()
-                        && after.second != null && after.second.isOpen();
+                boolean bothPresent = after != null && seated(game, after, 0) && seated(game, after, 1);
 
-                if (bothPresent) {
-                    pausedGames.remove(gameId);
+                if (bothPresent && pausedGames.remove(gameId) != null) {
+                    PauseTransitionEvent.emit(gameId, playerId, "resume");
+                    resumeClock(game);
+                    maybeBotMove(game);
                 }
 
-                String fen = game.getPosition().getFEN();
-                Colour toPlay = game.getCurrentPlayer().equals(game.getPlayers()[0]) ? Colour.WHITE : Colour.BLACK;
-                Player opponentPlayer  = isWhite ? game.getPlayers()[1] : game.getPlayers()[0];
-                OpponentDTO opp = new OpponentDTO(opponentPlayer.getId(), opponentPlayer.getName(), opponentPlayer.getRating());
-                Colour myColour = isWhite ? Colour.WHITE : Colour.BLACK;
-
-                ResumeOkDTO ok = new ResumeOkDTO(gameId, fen, toPlay, myColour, opp);
-                String jsonOk = objectMapper.writeValueAsString(new Envelope<>("resumeOk", ok));
-                safeSend(conn, jsonOk, socketLabel(conn));
+                safeSend(conn, resumeOkJson(game, isWhite, gameId, payload.version()), socketLabel(conn));
 
                 WebSocket oppSock = isWhite ? after.second : after.first;
                 OpponentReconnectedDTO or = new OpponentReconnectedDTO(gameId, playerId);
@@ -446,6 +709,76 @@ public class ChessWebSocketServer extends WebSocketServer{
 
     }
 
+    // Seats a player whose game lives on this node and tells both sides; used by join and handshake routing
+    // lastGameId/lastVersion are what the client says it has, so it may only need the moves since
+    private void seatReturningPlayer(WebSocket conn, ChessGame game, String pid, long lastGameId, int lastVersion) throws Exception {
+        long gameId = game.getGameId();
+        boolean isWhite = pid.equals(game.getPlayers()[0].getId());
+        Player returningPlayer = isWhite ? game.getPlayers()[0] : game.getPlayers()[1];
+
+        // Replace old seat if needed
+        Pair<WebSocket, WebSocket> pair = gameIdToSockets.get(gameId);
+        WebSocket oldSeat = (pair == null) ? null : (isWhite ? pair.first : pair.second);
+        if (oldSeat != null && oldSeat != conn && oldSeat.isOpen()) {
+            try { oldSeat.close(4001, "replaced by resume"); } catch (Exception ignore) {}
+        }
+
+        // Seat player + maps
+        socketToPlayer.put(conn, returningPlayer);
+        playerIdToSocket.put(pid, conn);
+        socketToGame.put(conn, game);
+
+        if (pair == null) {
+            gameIdToSockets.put(gameId, isWhite ? new Pair<>(conn, null) : new Pair<>(null, conn));
+        } else {
+            gameIdToSockets.put(gameId, isWhite ? new Pair<>(conn, pair.second) : new Pair<>(pair.first, conn));
+        }
+
+        // If both are here, clear paused state (if any)
+        Pair<WebSocket, WebSocket> after = gameIdToSockets.get(gameId);
+        boolean bothPresent = after != null && seated(game, after, 0) && seated(game, after, 1);
+        if (bothPresent && pausedGames.remove(gameId) != null) {
+            PauseTransitionEvent.emit(gameId, pid, "resume");
+            resumeClock(game);
+            maybeBotMove(game);
+        }
+
+        safeSend(conn, resumeOkJson(game, isWhite, lastGameId, lastVersion), socketLabel(conn));
+
+        WebSocket oppSock = (after == null) ? null : (isWhite ? after.second : after.first);
+        if (oppSock != null && oppSock.isOpen()) {
+            String jsonOr = objectMapper.writeValueAsString(
+                new Envelope<>("opponentReconnected", new OpponentReconnectedDTO(gameId, pid)));
+            safeSend(oppSock, jsonOr, socketLabel(oppSock));
+        }
+    }
+
+    /**
+     * resumeOk for a returning player. If the client still has this game up to lastVersion and we
+     * hold every move since, it gets just those moves; otherwise (another game, too far behind,
+     * game adopted from another node since) the full position.
+     */
+    private String resumeOkJson(ChessGame game, boolean isWhite, long lastGameId, int lastVersion) throws Exception {
+        Player oppPlayer = isWhite ? game.getPlayers()[1] : game.getPlayers()[0];
+        OpponentDTO opp = new OpponentDTO(oppPlayer.getId(), oppPlayer.getName(), oppPlayer.getRating());
+        Colour myColour = isWhite ? Colour.WHITE : Colour.BLACK;
+        ResumeOkDTO ok;
+        synchronized (game) {
+            List<String> missing = lastGameId == game.getGameId() ? game.movesSince(lastVersion) : null;
+            if (missing != null) {
+                ok = new ResumeOkDTO(game.getGameId(), null, game.getToPlayColour(), myColour, opp, game.getPly(),
+                    clockOf(game), lastVersion, missing, game.positionChecksum());
+            } else {
+                ok = new ResumeOkDTO(game.getGameId(), game.getFen(), game.getToPlayColour(), myColour, opp, game.getPly(),
+                    clockOf(game), -1, null, null);
+            }
+        }
+        (ok.moves() != null ? resumeDeltas : resumeSnapshots).incrementAndGet();
+        System.out.printf("[RESUME] game=%d clientVersion=%d serverPly=%d -> %s%n", game.getGameId(), lastVersion,
+            ok.ply(), ok.moves() != null ? ok.moves().size() + " moves" : "snapshot");
+        return objectMapper.writeValueAsString(new Envelope<>("resumeOk", ok));
+    }
+
     @Override
     public void onError(WebSocket conn, Exception ex){
         System.err.println("An error occured on connection " + conn.getRemoteSocketAddress() + ": " + ex);
@@ -455,6 +788,9 @@ public class ChessWebSocketServer extends WebSocketServer{
     public void onStart(){
         System.out.println("Server started successfully on port " + this.getPort());
         setConnectionLostTimeout(CONNECTION_LOST_TIMEOUT_SECONDS);
+        ratings.start();
+        arenaExec.scheduleWithFixedDelay(this::pairArenas, ARENA_PAIRING_MS, ARENA_PAIRING_MS,
+            java.util.concurrent.TimeUnit.MILLISECONDS);
         System.out.println("[HB] starting scheduler");
         hbExec.scheduleAtFixedRate(
             this::tickHeartbeats,
@@ -463,11 +799,43 @@ public class ChessWebSocketServer extends WebSocketServer{
             java.util.concurrent.TimeUnit.MILLISECONDS
         );
 
+        hbExec.scheduleAtFixedRate(
+            () -> peerLinks.values().forEach(NodeLink::ping),
+            LINK_PING_INTERVAL_MS,
+            LINK_PING_INTERVAL_MS,
+            java.util.concurrent.TimeUnit.MILLISECONDS
+        );
+
         hbExec.scheduleAtFixedRate(
             () -> {
                 try {
-                    String nodeId = Integer.toString(getPort());
-                    RedisManager.getInstance().touchNodeHeartBeat(nodeId, System.currentTimeMillis());
+                    outbound.sweep();
+                } catch (Exception e) {
+                    System.err.println("[OUT] sweep error: " + e.getMessage());
+                }
+            },
+            OUTBOUND_SWEEP_INTERVAL_MS,
+            OUTBOUND_SWEEP_INTERVAL_MS,
+            java.util.concurrent.TimeUnit.MILLISECONDS
+        );
+
+        hbExec.scheduleAtFixedRate(
+            () -> {
+                try {
+                    offerBots();
+                } catch (Exception e) {
+                    System.err.println("[BOT] offer error: " + e.getMessage());
+                }
+            },
+            1_000L,
+            1_000L,
+            java.util.concurrent.TimeUnit.MILLISECONDS
+        );
+
+        hbExec.scheduleAtFixedRate(
+            () -> {
+                try {
+                    publishLoad();
                 } catch (Exception e) {
                     System.out.println("[HB-NODE] fail: " + e.getMessage());
                 }
@@ -480,26 +848,30 @@ public class ChessWebSocketServer extends WebSocketServer{
 
     private void finishGameSafely(long gameId, GameResult result, GameOverReason reason, String winnerId) {
         pausedGames.remove(gameId);
+        botFailures.remove(gameId);
+        cancelFlag(gameId);
         ChessGame game = matchmakingService.getActiveChessgame(gameId);
         if (game == null) return;
 
         WebSocket whiteSock = null;
         WebSocket blackSock = null;
         String json = null;
+        java.util.List<String> opening;
 
         synchronized (game) {
             if (!game.markEnded()) return;
+            opening = game.getOpening();
 
             matchmakingService.endGame(gameId, result);
 
             String gameResultString = result.toString();
             String gameOverReasonString = reason.toString();
 
-            boolean persisted = RedisManager.getInstance().endGamePersist(gameId, Integer.toString(getPort()), gameResultString, gameOverReasonString, winnerId);
+            boolean persisted = GameStores.get().endGamePersist(gameId, Integer.toString(getPort()), gameResultString, gameOverReasonString, winnerId);
             if (!persisted) {
                 System.out.println("[END_PERSIST_FAIL] gid=" + gameId);
             }
-            RedisManager.getInstance().endGameCleanup(gameId, Integer.toString(getPort()));
+            GameStores.get().endGameCleanup(gameId, Integer.toString(getPort()));
 
             Pair<WebSocket, WebSocket> pair = gameIdToSockets.get(gameId);
             if (pair != null) {
@@ -523,6 +895,11 @@ public class ChessWebSocketServer extends WebSocketServer{
             }
         } 
 
+        historyIndex.record(gameId, System.currentTimeMillis(), game.getPlayers()[0].getId(),
+            game.getPlayers()[1].getId(), result, reason, opening);
+        ratings.gameEnded(gameId, game.getPlayers()[0], game.getPlayers()[1], result, reason, game.getPly());
+        arenas.gameEnded(gameId, game.getPlayers()[0].getId(), game.getPlayers()[1].getId(), result);
+
         if (json != null) {
             try { if (whiteSock != null) safeSend(whiteSock, json, socketLabel(whiteSock)); } catch (Exception e) {
                 System.err.println("Send to white failed: " + e.getMessage());
@@ -536,6 +913,630 @@ public class ChessWebSocketServer extends WebSocketServer{
                 gameId, reason, result, winnerId);
     }
 
+    // Caller holds the game's monitor and has just made and charged the move. Persists it and
+    // sends it to both seats; false, with nothing sent, if the store didn't take it. A throw after
+    // the store took it still leaves the move in the resume history with the opponent's flag armed.
+    private boolean commitAndBroadcast(ChessGame game, String uci, MoveTracer.Trace trace) throws Exception {
+        int ply = game.getPly();
+        String newFen = (ply % FULL_FEN_EVERY_PLIES == 0) ? game.getFen() : null;
+        Colour toPlay = game.getToPlayColour();
+        String toPlayString = toPlay == Colour.WHITE ? "w" : "b";
+        String whiteId = game.getPlayers()[0].getId();
+        String blackId = game.getPlayers()[1].getId();
+        String nodeId = Integer.toString(getPort());
+        trace.mark(Stage.APPLY);
+
+        long whiteMs = game.isTimed() ? game.getWhiteMillis() : -1;
+        long blackMs = game.isTimed() ? game.getBlackMillis() : -1;
+        boolean moveCommitted = GameStores.get().commitMove(game.getGameId(), nodeId, newFen, ply, uci, whiteId, blackId, toPlayString, "IN_PROGRESS", whiteMs, blackMs);
+        trace.mark(Stage.PERSIST);
+        if (!moveCommitted) return false;
+        // The move is in the store now; record it and arm the opponent's flag before anything can throw
+        game.noteCommittedMove(uci);
+        scheduleFlag(game);
+
+        MoveBroadcastDTO broadcastMsg = new MoveBroadcastDTO(
+            game.getGameId(), uci, newFen, toPlay, ply, game.positionChecksum(), clockOf(game));
+        String json = objectMapper.writeValueAsString(new Envelope<>("move", broadcastMsg));
+        trace.mark(Stage.SERIALIZE);
+
+        Pair<WebSocket, WebSocket> sockets = gameIdToSockets.get(game.getGameId());
+        sendPosition(sockets.first, json, game);
+        sendPosition(sockets.second, json, game);
+        trace.mark(Stage.SEND);
+        trace.finish(game.getGameId(), ply, uci);
+        return true;
+    }
+
+    // Checkmate or stalemate after mover's move ends the game; true if it did
+    private boolean endIfOver(ChessGame game, Player mover, String uci) {
+        if (game.isMate()) {
+            GameResult result = mover.equals(game.getPlayers()[0]) ? GameResult.WHITE_WIN : GameResult.BLACK_WIN;
+            System.out.printf("[END] CHECKMATE game=%d by=%s lastUci=%s%n", game.getGameId(), mover.getId(), uci);
+            finishGameSafely(game.getGameId(), result, GameOverReason.CHECKMATE, mover.getId());
+            return true;
+        } else if (game.isStaleMate()) {
+            finishGameSafely(game.getGameId(), GameResult.DRAW, GameOverReason.STALEMATE, null);
+            return true;
+        }
+        return false;
+    }
+
+    // A seat counts as taken if its socket is open; a bot's seat has no socket and is always taken
+    private static boolean seated(ChessGame game, Pair<WebSocket, WebSocket> pair, int side) {
+        if (game.getPlayers()[side].isBot()) return true;
+        WebSocket s = side == 0 ? pair.first : pair.second;
+        return s != null && s.isOpen();
+    }
+
+    // Seats both players of a new game and sends each of them matchFound
+    private void announceMatch(Match match) throws Exception {
+        ChessGame game = match.game;
+        Player playerWhite = match.white;
+        Player playerBlack = match.black;
+
+        WebSocket wSock = playerIdToSocket.get(playerWhite.getId());
+        WebSocket bSock = playerIdToSocket.get(playerBlack.getId());
+        // An arena player can drop between pairing and here; their seat starts empty
+        if (wSock != null) socketToGame.put(wSock, game);
+        if (bSock != null) socketToGame.put(bSock, game);
+        gameIdToSockets.put(game.getGameId(), new Pair<>(wSock, bSock));
+
+        String initialFen = chesspresso.position.Position.createInitialPosition().getFEN();
+
+        MatchedMessageDTO whiteMsg = new MatchedMessageDTO(
+            game.getGameId(), playerWhite.getId(), Colour.WHITE,
+            new OpponentDTO(playerBlack.getId(), playerBlack.getName(), playerBlack.getRating()),
+            initialFen, game.getTimeControl()
+        );
+        MatchedMessageDTO blackMsg = new MatchedMessageDTO(
+            game.getGameId(), playerBlack.getId(), Colour.BLACK,
+            new OpponentDTO(playerWhite.getId(), playerWhite.getName(), playerWhite.getRating()),
+            initialFen, game.getTimeControl()
+        );
+
+        if (wSock != null) safeSend(wSock, objectMapper.writeValueAsString(new Envelope<>("matchFound", whiteMsg)), socketLabel(wSock));
+        if (bSock != null) safeSend(bSock, objectMapper.writeValueAsString(new Envelope<>("matchFound", blackMsg)), socketLabel(bSock));
+        resumeClock(game);
+    }
+
+    /* ---------- Arenas ---------- */
+
+    // Arena games stay on this node (no placement), since the arena scores them from finishGameSafely
+    private void pairArenas() {
+        if (draining) return;
+        List<Match> matches;
+        try {
+            matches = arenas.pairRound(this::availableForArena);
+        } catch (Exception e) {
+            System.err.println("[ARENA] round failed: " + e);
+            return;
+        }
+        for (Match match : matches) {
+            try {
+                announceMatch(match);
+            } catch (Exception e) {
+                System.err.println("[ARENA] announcing game " + match.game.getGameId() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Connected here, with an open socket, and not seated in a game
+    private boolean availableForArena(String playerId) {
+        WebSocket s = playerIdToSocket.get(playerId);
+        return s != null && s.isOpen() && !socketToGame.containsKey(s);
+    }
+
+    /* ---------- Bots ---------- */
+
+    private void offerBots() {
+        for (Player p : matchmakingService.dueBotOffers()) {
+            WebSocket s = playerIdToSocket.get(p.getId());
+            if (s == null) continue;
+            try {
+                String json = objectMapper.writeValueAsString(new Envelope<>("botOffer",
+                    new BotOfferDTO(System.currentTimeMillis() - p.getJoinTime(), p.getRating())));
+                safeSend(s, json, socketLabel(s));
+            } catch (Exception e) {
+                System.err.println("[BOT] offer to " + p.getId() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Starts a search if a bot is to move in a live, unpaused game here and isn't already thinking
+    private void maybeBotMove(ChessGame game) {
+        long gid = game.getGameId();
+        String fen;
+        int ply, rating;
+        long remaining, increment;
+        synchronized (game) {
+            Player mover = game.getCurrentPlayer();
+            if (!mover.isBot() || game.isEnded() || isPaused(gid) || migratingGames.contains(gid)
+                    || matchmakingService.getActiveChessgame(gid) != game) {
+                return;
+            }
+            if (!botThinking.add(gid)) return;
+            fen = game.getFen();
+            ply = game.getPly();
+            rating = mover.getRating();
+            remaining = game.isTimed() ? Math.max(0, game.remainingMillis(game.getToPlayColour(), System.currentTimeMillis())) : -1;
+            increment = game.isTimed() ? game.getTimeControl().incrementMillis() : 0;
+        }
+        bots.chooseMove(fen, rating, remaining, increment).whenComplete((result, error) -> {
+            botThinking.remove(gid);
+            if (error != null) {
+                botFailed(game, "search failed: " + error);
+                return;
+            }
+            playBotMove(game, ply, result);
+        });
+    }
+
+    // Runs on an engine thread once the search is done; drops the move if the game moved on meanwhile
+    private void playBotMove(ChessGame game, int searchedAtPly, SearchResult result) {
+        if (result.uci() == null) return; // no legal move: the previous move already ended the game
+        Player bot;
+        String failure = null;
+        synchronized (game) {
+            long gid = game.getGameId();
+            bot = game.getCurrentPlayer();
+            if (game.isEnded() || game.getPly() != searchedAtPly || !bot.isBot() || isPaused(gid)
+                    || migratingGames.contains(gid) || matchmakingService.getActiveChessgame(gid) != game) {
+                return;
+            }
+            long nowMs = System.currentTimeMillis();
+            if (game.isTimed() && game.millisUntilFlag(nowMs, 0) <= 0) {
+                flag(game);
+                return;
+            }
+            if (!game.makeMove(result.move())) {
+                failure = "engine move " + result.uci() + " rejected";
+            } else {
+                game.chargeMove(nowMs, 0);
+                System.out.printf("[BOT] game=%d ply=%d %s depth=%d score=%d nodes=%d%n",
+                    gid, game.getPly(), result.uci(), result.depth(), result.score(), result.nodes());
+                try {
+                    if (!commitAndBroadcast(game, result.uci(), moveTracer.begin(System.nanoTime()))) {
+                        game.undoLastMove();
+                        failure = "store refused " + result.uci();
+                    }
+                } catch (Exception e) {
+                    // The move stands; a full position gets it to the human instead of the lost broadcast
+                    System.err.println("[BOT] game=" + gid + " broadcast failed: " + e.getMessage() + "; syncing both seats");
+                    try {
+                        String sync = syncJson(game);
+                        Pair<WebSocket, WebSocket> sockets = gameIdToSockets.get(gid);
+                        if (sockets != null) {
+                            safeSend(sockets.first, sync, socketLabel(sockets.first));
+                            safeSend(sockets.second, sync, socketLabel(sockets.second));
+                        }
+                    } catch (RuntimeException syncError) {
+                        failure = "broadcast of " + result.uci() + " failed: " + e.getMessage();
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            botFailed(game, failure);
+            return;
+        }
+        botFailures.remove(game.getGameId());
+        endIfOver(game, bot, result.uci());
+    }
+
+    // Thinks again after a backoff rather than leave the human waiting on a bot that never moves;
+    // once it has failed BOT_MAX_FAILURES times in a row the bot resigns
+    private void botFailed(ChessGame game, String why) {
+        long gid = game.getGameId();
+        int failures = botFailures.merge(gid, 1, Integer::sum);
+        if (failures > BOT_MAX_FAILURES) {
+            botFailures.remove(gid);
+            boolean botWhite = game.getPlayers()[0].isBot();
+            Player human = game.getPlayers()[botWhite ? 1 : 0];
+            System.err.printf("[BOT] game=%d %s; resigning after %d failures%n", gid, why, BOT_MAX_FAILURES);
+            finishGameSafely(gid, botWhite ? GameResult.BLACK_WIN : GameResult.WHITE_WIN, GameOverReason.RESIGN, human.getId());
+            return;
+        }
+        long delay = BOT_RETRY_BASE_MS << (failures - 1);
+        System.err.printf("[BOT] game=%d %s; retrying in %d ms (%d/%d)%n", gid, why, delay, failures, BOT_MAX_FAILURES);
+        clockWheel.schedule(() -> maybeBotMove(game), delay, java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+
+    /* ---------- Load report ---------- */
+
+    private void publishLoad() {
+        String nodeId = Integer.toString(getPort());
+        double cpu = 0;
+        if (java.lang.management.ManagementFactory.getOperatingSystemMXBean()
+                instanceof com.sun.management.OperatingSystemMXBean os) {
+            cpu = Math.max(0, os.getProcessCpuLoad());
+        }
+        NodeLoad load = new NodeLoad(
+            nodeId,
+            matchmakingService.getActiveGames().size(),
+            getConnections().size() + forwardedBySession.size(),
+            recentMoveLatency.percentile(0.99),
+            cpu,
+            draining,
+            System.currentTimeMillis());
+        if (++loadReports % LOAD_WINDOW_REPORTS == 0) recentMoveLatency.reset();
+
+        GameStore store = GameStores.get();
+        store.touchNodeHeartBeat(nodeId, load.reportedAtMillis(), load);
+        List<NodeLoad> fresh = store.getNodeLoads();
+        synchronized (placement) {
+            clusterLoads = fresh;
+        }
+    }
+
+    private void registerMetrics() {
+        Metrics m = Metrics.get();
+        m.gauge("chess_active_games", "Games hosted on this node", () -> matchmakingService.getActiveGames().size());
+        m.gauge("chess_paused_games", "Games waiting for a player to reconnect", () -> pausedGames.size());
+        m.gauge("chess_connections", "Open client connections, including ones forwarded from peers",
+            () -> getConnections().size() + forwardedBySession.size());
+        m.gauge("chess_proxied_connections", "Client connections proxied to a peer node", () -> proxiedConns.size());
+        m.gauge("chess_draining", "1 while the node is draining", () -> draining ? 1 : 0);
+
+        m.gauge("chess_outbound_buffered_bytes", "Bytes queued for clients but not yet written", () -> {
+            long total = 0;
+            for (WebSocket conn : getConnections()) total += OutboundGuard.bufferedBytes(conn);
+            return total;
+        });
+        m.gauge("chess_outbound_lagging_connections", "Connections over the outbound high-water mark",
+            outbound::getLaggingConnections);
+        m.counterFn("chess_outbound_throttled_total", "Messages held back or sent over the high-water mark",
+            outbound::getThrottledCount);
+        m.counterFn("chess_outbound_dropped_total", "Heartbeats and superseded positions dropped",
+            outbound::getDroppedCount);
+        m.counterFn("chess_outbound_slow_disconnects_total", "Connections closed as slow consumers",
+            outbound::getSlowDisconnectCount);
+
+        m.counterFn("chess_inbound_rejected_total", "Inbound messages refused by admission",
+            admission::getMalformedCount, "reason", "malformed");
+        m.counterFn("chess_inbound_rejected_total", "Inbound messages refused by admission",
+            admission::getRateLimitedCount, "reason", "rateLimited");
+        m.counterFn("chess_inbound_rejected_total", "Inbound messages refused by admission",
+            admission::getBusyCount, "reason", "busy");
+
+        GameStore store = GameStores.get();
+        m.counterFn("chess_route_cache_hits_total", "Routing near-cache hits", store::getRoutingCacheHits);
+        m.counterFn("chess_route_cache_misses_total", "Routing near-cache misses", store::getRoutingCacheMisses);
+        m.counterFn("chess_route_cache_invalidations_total", "Routing near-cache invalidations",
+            store::getRoutingCacheInvalidations);
+        m.gauge("chess_route_cache_entries", "Routing near-cache size", store::getRoutingCacheSize);
+
+        m.gauge("chess_clock_timers", "Flag timers armed in the clock wheel", clockWheel::size);
+        m.counterFn("chess_flag_falls_total", "Games lost on time", flagFalls::get);
+        m.counterFn("chess_resumes_total", "Players seated again mid-game, by whether they got only the moves they missed",
+            resumeDeltas::get, "kind", "delta");
+        m.counterFn("chess_resumes_total", "Players seated again mid-game, by whether they got only the moves they missed",
+            resumeSnapshots::get, "kind", "snapshot");
+
+        m.gauge("chess_history_games", "Finished games in this node's history index", historyIndex::getGameCount);
+        m.gauge("chess_history_index_bytes", "Heap held by the history index", historyIndex::getMemoryBytes);
+        m.gauge("chess_history_index_bytes_per_game", "History index heap per indexed game",
+            historyIndex::getMemoryBytesPerGame);
+    }
+
+    public MoveTracer getMoveTracer() {
+        return moveTracer;
+    }
+
+    public ArenaService getArenaService() {
+        return arenas;
+    }
+
+    public GameHistoryIndex getHistoryIndex() {
+        return historyIndex;
+    }
+
+    public LatencyHistogram getMoveLatency() {
+        return moveLatency;
+    }
+
+    /* ---------- Drain & live migration ---------- */
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * Stops matchmaking and hands every live game to other nodes, least-loaded first.
+     * Each game is snapshotted to Redis, its node key rewritten, and both players redirected.
+     * Blocks until all migrations finish or MIGRATION_TIMEOUT_MS passes.
+     */
+    public void drain() {
+        synchronized (migratingGames) {
+            if (draining) return;
+            draining = true;
+        }
+        String myNode = Integer.toString(getPort());
+        Map<String, Long> loads = liveOtherNodes();
+        System.out.printf("[DRAIN] node=%s games=%d targets=%s%n", myNode, matchmakingService.getActiveGames().size(), loads);
+        if (loads.isEmpty()) {
+            System.out.println("[DRAIN] no other live nodes; games stay until they finish");
+            return;
+        }
+
+        for (Player waiting : matchmakingService.drainQueues()) {
+            WebSocket s = playerIdToSocket.get(waiting.getId());
+            String target = pickTargetNode(loads);
+            try {
+                safeSend(s, objectMapper.writeValueAsString(
+                    new Envelope<>("redirect", new RedirectDTO(target))), socketLabel(s));
+            } catch (Exception e) {
+                System.err.println("[DRAIN] redirect of queued " + waiting.getId() + " failed: " + e.getMessage());
+            }
+        }
+
+        long started = System.nanoTime();
+        java.util.concurrent.atomic.AtomicInteger moved = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicInteger failed = new java.util.concurrent.atomic.AtomicInteger();
+        List<java.util.concurrent.Future<?>> pending = new java.util.ArrayList<>();
+        for (ChessGame game : new java.util.ArrayList<>(matchmakingService.getActiveGames())) {
+            String target = pickTargetNode(loads);
+            pending.add(migrationExec.submit(() -> {
+                if (migrateGame(game, target)) moved.incrementAndGet();
+                else failed.incrementAndGet();
+            }));
+        }
+        long deadline = System.currentTimeMillis() + MIGRATION_TIMEOUT_MS;
+        for (java.util.concurrent.Future<?> f : pending) {
+            try {
+                f.get(Math.max(0, deadline - System.currentTimeMillis()), java.util.concurrent.TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+            }
+        }
+        System.out.printf("[DRAIN] migrated=%d failed=%d in %dms%n",
+            moved.get(), failed.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private boolean migrateGame(ChessGame game, String target) {
+        long gid = game.getGameId();
+        String myNode = Integer.toString(getPort());
+        Pair<WebSocket, WebSocket> pair;
+        try {
+            synchronized (game) {
+                if (game.isEnded()) return false;
+                migratingGames.add(gid);
+                // The new node starts the game paused; the clock resumes there once both players are back
+                pauseClock(game);
+                Player w = game.getPlayers()[0];
+                Player b = game.getPlayers()[1];
+                PauseInfo pause = pausedGames.get(gid);
+                GameSnapshot snap = new GameSnapshot(
+                    gid, game.getFen(), game.getPly(),
+                    w.getId(), w.getName(), w.getRating(),
+                    b.getId(), b.getName(), b.getRating(),
+                    pause == null ? null : pause.disconnectedPlayerId(),
+                    myNode, game.getTimeControl(), game.getWhiteMillis(), game.getBlackMillis());
+                if (!GameStores.get().migrateGame(gid, myNode, target, objectMapper.writeValueAsString(snap))) {
+                    if (pause == null) resumeClock(game);
+                    return false;
+                }
+                matchmakingService.releaseGame(gid);
+                pausedGames.remove(gid);
+                pair = gameIdToSockets.remove(gid);
+                if (pair != null) {
+                    if (pair.first != null) socketToGame.remove(pair.first);
+                    if (pair.second != null) socketToGame.remove(pair.second);
+                }
+            }
+            String json = objectMapper.writeValueAsString(new Envelope<>("redirect", new RedirectDTO(target)));
+            if (pair != null) {
+                safeSend(pair.first, json, socketLabel(pair.first));
+                safeSend(pair.second, json, socketLabel(pair.second));
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("[DRAIN] game " + gid + " failed: " + e.getMessage());
+            return false;
+        } finally {
+            migratingGames.remove(gid);
+        }
+    }
+
+    private void onGameMigrated(long gid, String toNode) {
+        if (!Integer.toString(getPort()).equals(toNode)) return;
+        migrationExec.execute(() -> adoptMigratedGame(gid));
+    }
+
+    /** Rebuilds a game another node handed us; it starts paused until both players reconnect. */
+    private ChessGame adoptMigratedGame(long gid) {
+        ChessGame existing = matchmakingService.getActiveChessgame(gid);
+        if (existing != null) return existing;
+        try {
+            GameStore store = GameStores.get();
+            String json = store.getGameSnapshot(gid);
+            if (json == null) return null;
+            GameSnapshot snap = objectMapper.readValue(json, GameSnapshot.class);
+            Player[] players = {
+                new Player(snap.whiteId(), snap.whiteName(), snap.whiteRating()),
+                new Player(snap.blackId(), snap.blackName(), snap.blackRating())
+            };
+            ChessGame game = new ChessGame(players, gid, snap.fen(), snap.ply(),
+                snap.timeControl(), snap.whiteMillis(), snap.blackMillis());
+            if (!matchmakingService.adoptGame(game)) return matchmakingService.getActiveChessgame(gid);
+
+            long now = System.currentTimeMillis();
+            pausedGames.put(gid, new PauseInfo(gid, snap.pausedPlayerId(), now, now + RECONNECT_GRACE_MS));
+            PauseTransitionEvent.emit(gid, snap.pausedPlayerId(), "pause");
+            store.deleteGameSnapshot(gid);
+            System.out.printf("[ADOPT] game=%d from=%s ply=%d%n", gid, snap.fromNode(), snap.ply());
+            return game;
+        } catch (Exception e) {
+            System.err.println("[ADOPT] game " + gid + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Long> liveOtherNodes() {
+        Map<String, Long> loads = GameStores.get().getLiveNodeGameCounts();
+        loads.remove(Integer.toString(getPort()));
+        return loads;
+    }
+
+    // Least-loaded node; counts the pick so a batch of placements spreads out
+    private static String pickTargetNode(Map<String, Long> loads) {
+        synchronized (loads) {
+            String best = null;
+            for (Map.Entry<String, Long> e : loads.entrySet()) {
+                if (best == null || e.getValue() < loads.get(best)) best = e.getKey();
+            }
+            if (best != null) loads.merge(best, 1L, Long::sum);
+            return best;
+        }
+    }
+
+    /* ---------- Node-to-node forwarding ---------- */
+
+    /** Starts proxying conn to hostNode, replaying firstMessage there. False means fall back to redirect. */
+    private boolean tryForward(WebSocket conn, String hostNode, String firstMessage) {
+        if (!FORWARDING_ENABLED || hostNode == null) return false;
+        NodeLink link = linkTo(hostNode);
+        if (link == null) return false;
+        String session = java.util.UUID.randomUUID().toString();
+        proxiedConns.put(conn, new ProxySession(link, session));
+        proxiedBySession.put(session, conn);
+        link.send(new LinkFrame("open", session, firstMessage, 0, 0));
+        System.out.printf("[LINK] proxying %s -> node %s session=%s%n", socketLabel(conn), hostNode, session);
+        return true;
+    }
+
+    private NodeLink linkTo(String nodeId) {
+        NodeLink existing = peerLinks.get(nodeId);
+        if (existing != null && existing.isOpen()) return existing;
+        synchronized (peerLinks) {
+            existing = peerLinks.get(nodeId);
+            if (existing != null && existing.isOpen()) return existing;
+            // Without a secret the peer would refuse us anyway
+            if (NodeLink.CLUSTER_SECRET == null || NodeLink.CLUSTER_SECRET.isEmpty()) return null;
+            try {
+                int linkPort = Integer.parseInt(nodeId) + LINK_PORT_OFFSET;
+                NodeLinkClient client = new NodeLinkClient(
+                    new java.net.URI("ws://" + PEER_HOST + ":" + linkPort), nodeId, this, objectMapper);
+                if (!client.connectBlocking(LINK_CONNECT_TIMEOUT_MS, java.util.concurrent.TimeUnit.MILLISECONDS)) {
+                    System.out.println("[LINK] could not reach node " + nodeId);
+                    return null;
+                }
+                peerLinks.put(nodeId, client.getLink());
+                Metrics.get().gauge("chess_node_link_rtt_us", "Last ping round trip on the link to a peer node",
+                    () -> { NodeLink l = peerLinks.get(nodeId); return l == null ? -1 : l.getLastRttMicros(); },
+                    "peer", nodeId);
+                return client.getLink();
+            } catch (Exception e) {
+                System.out.println("[LINK] connect to node " + nodeId + " failed: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /** Called by NodeLinkServer/NodeLinkClient for every non-ping frame. */
+    void onLinkFrame(NodeLink link, LinkFrame f) {
+        switch (f.kind()) {
+            case "open" -> {
+                ForwardedSocket fs = new ForwardedSocket(this, link, f.session(),
+                    (s, code, reason) -> {
+                        forwardedBySession.remove(s.getSession());
+                        hbExec.execute(() -> onClose(s, code, reason, false));
+                    });
+                forwardedBySession.put(f.session(), fs);
+                onMessage(fs, f.body());
+            }
+            case "msg" -> {
+                ForwardedSocket fs = forwardedBySession.get(f.session());
+                if (fs == null) {
+                    link.send(new LinkFrame("closed", f.session(), "unknown session", 4004, 0));
+                    return;
+                }
+                onMessage(fs, f.body());
+            }
+            case "close" -> {
+                ForwardedSocket fs = forwardedBySession.remove(f.session());
+                if (fs != null) {
+                    fs.markClosed();
+                    onClose(fs, f.code(), "proxied client closed", true);
+                }
+            }
+            case "out" -> {
+                WebSocket conn = proxiedBySession.get(f.session());
+                if (conn != null) safeSend(conn, f.body(), socketLabel(conn));
+            }
+            case "closed" -> {
+                WebSocket conn = proxiedBySession.remove(f.session());
+                if (conn != null) {
+                    proxiedConns.remove(conn);
+                    try { conn.close(f.code(), f.body()); } catch (Exception ignore) {}
+                }
+            }
+            default -> System.out.println("[LINK] unknown frame kind " + f.kind());
+        }
+    }
+
+    /** A link went down: proxied clients are dropped so they reconnect, stand-ins are treated as disconnects. */
+    void onLinkClosed(NodeLink link) {
+        peerLinks.values().remove(link);
+        for (var entry : new java.util.ArrayList<>(proxiedConns.entrySet())) {
+            if (entry.getValue().link() != link) continue;
+            proxiedConns.remove(entry.getKey());
+            proxiedBySession.remove(entry.getValue().session());
+            try { entry.getKey().close(4005, "node link lost"); } catch (Exception ignore) {}
+        }
+        for (var entry : new java.util.ArrayList<>(forwardedBySession.entrySet())) {
+            ForwardedSocket fs = entry.getValue();
+            if (fs.getLink() != link) continue;
+            forwardedBySession.remove(entry.getKey());
+            fs.markClosed();
+            onClose(fs, 1001, "node link lost", true);
+        }
+    }
+
+    /**
+     * player -> (game, host node), served from the store's near-cache. A cached answer that
+     * would send the client away, or points here at a game we don't have, is re-read fresh
+     * first so a stale entry can never bounce a client between nodes.
+     */
+    private Pair<Long, String> resolveRoute(String pid) {
+        GameStore store = GameStores.get();
+        String myNode = Integer.toString(getPort());
+        Long gid = store.getPlayerGame(pid);
+        String hostNode = (gid == null) ? null : store.getGameNode(gid);
+        if (gid != null && (!myNode.equals(hostNode) || matchmakingService.getActiveChessgame(gid) == null)) {
+            gid = store.getPlayerGameFresh(pid);
+            hostNode = (gid == null) ? null : store.getGameNodeFresh(gid);
+            // Handed to us by a draining node but the announcement hasn't been processed yet
+            if (gid != null && myNode.equals(hostNode) && matchmakingService.getActiveChessgame(gid) == null) {
+                adoptMigratedGame(gid);
+            }
+        }
+        return new Pair<>(gid, hostNode);
+    }
+
+    private static String queryParam(String resourceDescriptor, String name) {
+        if (resourceDescriptor == null) return null;
+        int q = resourceDescriptor.indexOf('?');
+        if (q < 0) return null;
+        for (String kv : resourceDescriptor.substring(q + 1).split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0 && kv.substring(0, eq).equals(name)) {
+                String v = java.net.URLDecoder.decode(kv.substring(eq + 1), java.nio.charset.StandardCharsets.UTF_8);
+                return v.isEmpty() ? null : v;
+            }
+        }
+        return null;
+    }
+
+    private static long longParam(String resourceDescriptor, String name) {
+        String v = queryParam(resourceDescriptor, name);
+        try {
+            return v == null ? -1 : Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     private String socketLabel(WebSocket s) {
         if (s == null) return "null";
         try {
@@ -573,16 +1574,40 @@ public class ChessWebSocketServer extends WebSocketServer{
     }
 
     private void safeSend(WebSocket s, String json, String who) {
-        if (s == null) return;
+        safeSend(s, json, who, OutboundGuard.Kind.CRITICAL, null);
+    }
+
+    private boolean safeSend(WebSocket s, String json, String who, OutboundGuard.Kind kind, java.util.function.Supplier<String> latest) {
+        if (s == null) return false;
         try {
             if (s.isOpen()) {
-                s.send(json);
+                return outbound.send(s, json, kind, latest);
             } else {
                 System.out.println("Skip send to " + who + " (socket closed)");
             }
         } catch (Exception e) {
             System.out.println("Send to " + who + " failed: " + e.getMessage());
         }
+        return false;
+    }
+
+    // Move broadcasts to a lagging socket collapse into a single full-position sync
+    private void sendPosition(WebSocket s, String json, ChessGame game) {
+        safeSend(s, json, socketLabel(s), OutboundGuard.Kind.POSITION, () -> syncJson(game));
+    }
+
+    // Also called from the heartbeat sweep and resync handler, so it takes the game's monitor
+    // itself rather than read a position and clock that a move is halfway through changing
+    private String syncJson(ChessGame game) {
+        synchronized (game) {
+            PositionSyncDTO sync = new PositionSyncDTO(
+                game.getGameId(), game.getPly(), game.getFen(), game.getToPlayColour(), clockOf(game));
+            try {
+                return objectMapper.writeValueAsString(new Envelope<>("sync", sync));
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to serialize sync", e);
+            }
+        }
     }
 
     private void sendError(WebSocket conn, String code, String message){
@@ -597,8 +1622,24 @@ public class ChessWebSocketServer extends WebSocketServer{
     }
 
     private void tickHeartbeats() {
+        HeartbeatTickEvent tick = new HeartbeatTickEvent();
+        tick.begin();
         try {
             System.out.println("[HB] tick");
+            System.out.printf("[OUT] lagging=%d throttled=%d dropped=%d slowDisconnects=%d%n",
+                outbound.getLaggingConnections(), outbound.getThrottledCount(),
+                outbound.getDroppedCount(), outbound.getSlowDisconnectCount());
+            System.out.printf("[IN] malformed=%d rateLimited=%d busy=%d%n",
+                admission.getMalformedCount(), admission.getRateLimitedCount(), admission.getBusyCount());
+            for (NodeLink link : peerLinks.values()) {
+                System.out.printf("[LINK] peer=%s rtt=%dus avgRtt=%dus frames=%d batches=%d%n",
+                    link.getPeer(), link.getLastRttMicros(), link.getAvgRttMicros(),
+                    link.getFramesSent(), link.getBatchesSent());
+            }
+            GameStore store = GameStores.get();
+            System.out.printf("[ROUTE-CACHE] size=%d hits=%d misses=%d invalidations=%d%n",
+                store.getRoutingCacheSize(), store.getRoutingCacheHits(), store.getRoutingCacheMisses(),
+                store.getRoutingCacheInvalidations());
             long now = System.currentTimeMillis();
             Iterator<WebSocket> connIterator = getConnections().iterator();
             while(connIterator.hasNext()){
@@ -608,7 +1649,8 @@ public class ChessWebSocketServer extends WebSocketServer{
 
                     Envelope<HeartbeatDTO> heartBeatEnvelope = new Envelope<>("heartbeat", new HeartbeatDTO(ts));
                     String json = objectMapper.writeValueAsString(heartBeatEnvelope);
-                    safeSend(conn, json, socketLabel(conn));
+                    if (!safeSend(conn, json, socketLabel(conn), OutboundGuard.Kind.HEARTBEAT, null)) continue;
+                    tick.sent++;
                     lastSentTsByConn.put(conn, ts);
                     lastAckTsByConn.putIfAbsent(conn, now);
                     System.out.printf("[HB] -> %s ts=%d%n", socketLabel(conn), ts);
@@ -624,6 +1666,7 @@ public class ChessWebSocketServer extends WebSocketServer{
                         if (silentFor > HEARTBEAT_TIMEOUT_MS) {
                             System.out.printf("[HB] timeout -> %s silent=%dms (closing)%n",
                                     socketLabel(conn), silentFor);
+                            tick.timedOut++;
                             try { conn.close(4000, "heartbeat timeout"); } catch (Exception ignore) {}
                         }
                     }
@@ -648,6 +1691,7 @@ public class ChessWebSocketServer extends WebSocketServer{
 
             // Prevent reprocessing if anything below throws or takes time
             pausedGames.remove(gameId);
+            PauseTransitionEvent.emit(gameId, info.disconnectedPlayerId(), "expire");
 
             // Get authoritative game + sockets snapshot *before* finishing
             ChessGame game = matchmakingService.getActiveChessgame(gameId);
@@ -666,8 +1710,8 @@ public class ChessWebSocketServer extends WebSocketServer{
                 continue;
             }
 
-            boolean whitePresent = (pair.first != null && pair.first.isOpen());
-            boolean blackPresent = (pair.second != null && pair.second.isOpen());
+            boolean whitePresent = seated(game, pair, 0);
+            boolean blackPresent = seated(game, pair, 1);
 
             GameResult result;
             String winnerId;
@@ -692,12 +1736,102 @@ public class ChessWebSocketServer extends WebSocketServer{
                     gameId, result, winnerId);
             finishGameSafely(gameId, result, GameOverReason.ABANDON, winnerId);
         }
+
+        tick.end();
+        if (tick.shouldCommit()) {
+            tick.connections = getConnections().size();
+            tick.pausedGames = pausedGames.size();
+            tick.commit();
+        }
+    }
+
+    public OutboundGuard getOutboundGuard() {
+        return outbound;
     }
 
     public void stopHeartbeats() {
         hbExec.shutdownNow();
     }
 
+    /* ---------- Clocks ---------- */
+
+    // Starts (or restarts after a pause) the side to move's clock and arms its flag timer
+    private void resumeClock(ChessGame game) {
+        if (!game.isTimed()) return;
+        synchronized (game) {
+            if (game.isEnded()) return;
+            game.startClock(System.currentTimeMillis());
+            scheduleFlag(game);
+        }
+    }
+
+    private void pauseClock(ChessGame game) {
+        if (!game.isTimed()) return;
+        synchronized (game) {
+            game.stopClock(System.currentTimeMillis());
+            cancelFlag(game.getGameId());
+        }
+    }
+
+    // Caller holds the game's monitor. Rearms the flag timer for whoever is to move now.
+    private void scheduleFlag(ChessGame game) {
+        if (!game.isTimed()) return;
+        long gid = game.getGameId();
+        cancelFlag(gid);
+        if (!game.isClockRunning() || game.isEnded()) return;
+        long delay = game.millisUntilFlag(System.currentTimeMillis(), lagCompensationMillis(socketToMove(game)));
+        flagTimers.put(gid, clockWheel.schedule(() -> onFlagTimer(gid), Math.max(0, delay),
+            java.util.concurrent.TimeUnit.MILLISECONDS));
+    }
+
+    private void cancelFlag(long gameId) {
+        TimerWheel.Timeout t = flagTimers.remove(gameId);
+        if (t != null) t.cancel();
+    }
+
+    private void onFlagTimer(long gameId) {
+        ChessGame game = matchmakingService.getActiveChessgame(gameId);
+        if (game == null) return;
+        synchronized (game) {
+            if (game.isEnded() || !game.isClockRunning()) return;
+            // The mover's RTT may have grown since the timer was armed; only flag once it's really gone
+            if (game.millisUntilFlag(System.currentTimeMillis(), lagCompensationMillis(socketToMove(game))) > 0) {
+                scheduleFlag(game);
+                return;
+            }
+            flag(game);
+        }
+    }
+
+    // The side to move ran out of time
+    private void flag(ChessGame game) {
+        boolean whiteFlagged = game.getToPlayColour() == Colour.WHITE;
+        Player winner = game.getPlayers()[whiteFlagged ? 1 : 0];
+        flagFalls.incrementAndGet();
+        System.out.printf("[FLAG] game=%d %s out of time%n", game.getGameId(), whiteFlagged ? "white" : "black");
+        finishGameSafely(game.getGameId(), whiteFlagged ? GameResult.BLACK_WIN : GameResult.WHITE_WIN,
+            GameOverReason.TIMEOUT, winner.getId());
+    }
+
+    private WebSocket socketToMove(ChessGame game) {
+        Pair<WebSocket, WebSocket> pair = gameIdToSockets.get(game.getGameId());
+        if (pair == null) return null;
+        return game.getToPlayColour() == Colour.WHITE ? pair.first : pair.second;
+    }
+
+    private long lagCompensationMillis(WebSocket conn) {
+        Long rtt = conn == null ? null : rttMsByConn.get(conn);
+        return rtt == null ? 0 : Math.min(rtt, MAX_LAG_COMP_MS);
+    }
+
+    private ClockDTO clockOf(ChessGame game) {
+        if (!game.isTimed()) return null;
+        long now = System.currentTimeMillis();
+        return new ClockDTO(
+            Math.max(0, game.remainingMillis(Colour.WHITE, now)),
+            Math.max(0, game.remainingMillis(Colour.BLACK, now)));
+    }
+
     private boolean isPaused(long gameId) { return pausedGames.containsKey(gameId); }
     
     private PauseInfo getPause(long gameId) { return pausedGames.get(gameId); }
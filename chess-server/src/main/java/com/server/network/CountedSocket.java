@@ -0,0 +1,57 @@
+package com.server.network;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WebSocketListener;
+import org.java_websocket.drafts.Draft;
+
+/**
+ * A client connection that keeps a running count of the bytes queued for it but not yet
+ * written, so OutboundGuard can check for a backlog without walking outQueue. Text frames are
+ * counted when sent and the socket's channel (see CountingSocketFactory) subtracts what reaches
+ * the wire. Frames the library writes on its own (handshake, ping/pong, close) aren't counted;
+ * the count never goes below zero, so they only make it lag by a few bytes.
+ */
+public class CountedSocket extends WebSocketImpl {
+
+    private final AtomicLong unwritten = new AtomicLong();
+
+    public CountedSocket(WebSocketListener listener, Draft draft) {
+        super(listener, draft);
+    }
+
+    public CountedSocket(WebSocketListener listener, List<Draft> drafts) {
+        super(listener, drafts);
+    }
+
+    @Override
+    public void send(String text) {
+        // Counted first so the writer can't subtract bytes we haven't added yet
+        unwritten.addAndGet(frameBytes(text));
+        super.send(text);
+    }
+
+    /** Called from the selector thread with what a write put on the wire. */
+    void written(long bytes) {
+        if (bytes > 0) unwritten.accumulateAndGet(bytes, (left, out) -> Math.max(0, left - out));
+    }
+
+    public long unwrittenBytes() {
+        return unwritten.get();
+    }
+
+    // UTF-8 payload plus the header of an unmasked server frame
+    static long frameBytes(String text) {
+        long n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) n++;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < text.length()) { n += 4; i++; }
+            else n += 3;
+        }
+        return n + (n <= 125 ? 2 : n <= 0xFFFF ? 4 : 10);
+    }
+}
@@ -0,0 +1,62 @@
+package com.server.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketServerFactory;
+import org.java_websocket.drafts.Draft;
+
+/**
+ * Hands the server CountedSockets and wraps each socket's channel so every write the selector
+ * thread makes is taken off that socket's unwritten count.
+ */
+public class CountingSocketFactory implements WebSocketServerFactory {
+
+    @Override
+    public CountedSocket createWebSocket(WebSocketAdapter listener, Draft draft) {
+        return new CountedSocket(listener, draft);
+    }
+
+    @Override
+    public CountedSocket createWebSocket(WebSocketAdapter listener, List<Draft> drafts) {
+        return new CountedSocket(listener, drafts);
+    }
+
+    @Override
+    public ByteChannel wrapChannel(SocketChannel channel, SelectionKey key) {
+        // The server registers the key with the socket it just created as the attachment
+        if (!(key.attachment() instanceof CountedSocket socket)) return channel;
+        return new ByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int n = channel.write(src);
+                socket.written(n);
+                return n;
+            }
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                return channel.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,75 @@
+package com.server.network;
+
+import java.net.InetSocketAddress;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.WebSocketListener;
+import org.java_websocket.drafts.Draft_6455;
+
+/**
+ * Stand-in for a client that is physically connected to another node. The host node
+ * treats it like any other connection; sends travel back over the node link as "out"
+ * frames and closing it tells the proxying node to drop the client.
+ */
+public class ForwardedSocket extends WebSocketImpl {
+
+    public interface CloseHandler {
+        void closed(ForwardedSocket socket, int code, String reason);
+    }
+
+    private final NodeLink link;
+    private final String session;
+    private final CloseHandler closeHandler;
+    private volatile boolean open = true;
+
+    public ForwardedSocket(WebSocketListener listener, NodeLink link, String session, CloseHandler closeHandler) {
+        super(listener, new Draft_6455());
+        this.link = link;
+        this.session = session;
+        this.closeHandler = closeHandler;
+    }
+
+    @Override
+    public void send(String text) {
+        if (open) link.send(new LinkFrame("out", session, text, 0, 0));
+    }
+
+    @Override
+    public void close(int code, String message) {
+        if (!open) return;
+        open = false;
+        link.send(new LinkFrame("closed", session, message, code, 0));
+        closeHandler.closed(this, code, message);
+    }
+
+    @Override
+    public void close(int code) {
+        close(code, "");
+    }
+
+    @Override
+    public void close() {
+        close(1000, "");
+    }
+
+    /** The proxying side already went away; nothing to send back. */
+    public void markClosed() {
+        open = false;
+    }
+
+    @Override
+    public boolean isOpen() { return open; }
+
+    @Override
+    public boolean isClosed() { return !open; }
+
+    @Override
+    public boolean hasBufferedData() { return false; }
+
+    @Override
+    public InetSocketAddress getRemoteSocketAddress() { return link.getRemoteAddress(); }
+
+    public NodeLink getLink() { return link; }
+
+    public String getSession() { return session; }
+}
@@ -0,0 +1,129 @@
+package com.server.network;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.WebSocket;
+
+import com.server.util.TokenBucket;
+
+/**
+ * Cheap gate in front of onMessage: shape check before Jackson sees the text,
+ * token buckets per connection and per message type, and a node-wide cap on
+ * how many Redis-touching messages are in flight at once.
+ */
+public class InboundAdmission {
+
+    public enum Verdict { ADMIT, MALFORMED, RATE_LIMITED }
+
+    private static final int MAX_MESSAGE_CHARS = Integer.getInteger("chess.maxMessageChars", 2048);
+    private static final int REDIS_CONCURRENCY = Integer.getInteger("chess.redisConcurrency", 64);
+    private static final long THROTTLE_ERROR_INTERVAL_MS = 1_000L;
+
+    // capacity (burst), refill per second
+    private static final double CONN_BURST = 40, CONN_RATE = 20;
+    private static final Map<String, double[]> TYPE_LIMITS = Map.of(
+        "join",          new double[] { 3, 0.5 },
+        "move",          new double[] { 10, 5 },
+        "resume",        new double[] { 3, 0.5 },
+        "resync",        new double[] { 3, 1 },
+        "replay",        new double[] { 10, 5 },
+        "playBot",       new double[] { 3, 0.5 },
+        "arenaJoin",     new double[] { 3, 0.5 },
+        "arenaLeave",    new double[] { 3, 0.5 },
+        "heartbeat_ack", new double[] { 4, 1 }
+    );
+    private static final java.util.Set<String> REDIS_TYPES = java.util.Set.of("join", "move", "resume", "replay", "playBot");
+
+    private static final class ConnLimits {
+        final TokenBucket overall = new TokenBucket(CONN_BURST, CONN_RATE);
+        final Map<String, TokenBucket> byType = new ConcurrentHashMap<>();
+        volatile long lastThrottleErrorAt;
+    }
+
+    private final Map<WebSocket, ConnLimits> limitsByConn = new ConcurrentHashMap<>();
+    private final Semaphore redisPermits = new Semaphore(REDIS_CONCURRENCY);
+
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+
+    /**
+     * Pulls the message type out without building a tree. Returns null if the text
+     * is too long or doesn't look like one of our envelopes.
+     */
+    public String precheckType(String message) {
+        if (message == null || message.length() > MAX_MESSAGE_CHARS) return null;
+        int start = 0, end = message.length() - 1;
+        while (start <= end && Character.isWhitespace(message.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(message.charAt(end))) end--;
+        if (start >= end || message.charAt(start) != '{' || message.charAt(end) != '}') return null;
+
+        int key = message.indexOf("\"type\"", start);
+        if (key < 0) return null;
+        int colon = message.indexOf(':', key + 6);
+        if (colon < 0) return null;
+        int open = message.indexOf('"', colon + 1);
+        if (open < 0) return null;
+        int close = message.indexOf('"', open + 1);
+        if (close < 0 || close - open > 32) return null;
+        return message.substring(open + 1, close);
+    }
+
+    public Verdict admit(WebSocket conn, String type) {
+        if (type == null) {
+            malformed.incrementAndGet();
+            return Verdict.MALFORMED;
+        }
+        ConnLimits limits = limitsByConn.computeIfAbsent(conn, c -> new ConnLimits());
+        if (!limits.overall.tryConsume()) {
+            rateLimited.incrementAndGet();
+            return Verdict.RATE_LIMITED;
+        }
+        double[] typeLimit = TYPE_LIMITS.get(type);
+        if (typeLimit != null) {
+            TokenBucket bucket = limits.byType.computeIfAbsent(type, t -> new TokenBucket(typeLimit[0], typeLimit[1]));
+            if (!bucket.tryConsume()) {
+                rateLimited.incrementAndGet();
+                return Verdict.RATE_LIMITED;
+            }
+        }
+        return Verdict.ADMIT;
+    }
+
+    /** Whether to answer a throttled message with an error, so throttling can't amplify output. */
+    public boolean shouldReportThrottle(WebSocket conn) {
+        ConnLimits limits = limitsByConn.get(conn);
+        if (limits == null) return true;
+        long now = System.currentTimeMillis();
+        if (now - limits.lastThrottleErrorAt < THROTTLE_ERROR_INTERVAL_MS) return false;
+        limits.lastThrottleErrorAt = now;
+        return true;
+    }
+
+    public boolean needsRedisPermit(String type) {
+        return REDIS_TYPES.contains(type);
+    }
+
+    public boolean tryAcquireRedisPermit() {
+        if (redisPermits.tryAcquire()) return true;
+        busy.incrementAndGet();
+        return false;
+    }
+
+    public void releaseRedisPermit() {
+        redisPermits.release();
+    }
+
+    public void forget(WebSocket conn) {
+        limitsByConn.remove(conn);
+    }
+
+    public long getMalformedCount() { return malformed.get(); }
+
+    public long getRateLimitedCount() { return rateLimited.get(); }
+
+    public long getBusyCount() { return busy.get(); }
+}
@@ -0,0 +1,9 @@
+package com.server.network;
+
+/**
+ * One unit of traffic on a node link. session identifies a proxied client connection;
+ * body is the client's raw envelope JSON (open/msg) or what the host sent back (out).
+ *
+ * kinds: open, msg, close (proxy -> host), out, closed (host -> proxy), ping, pong
+ */
+public record LinkFrame(String kind, String session, String body, int code, long ts) {}
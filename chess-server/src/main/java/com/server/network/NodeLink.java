@@ -0,0 +1,141 @@
+package com.server.network;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.java_websocket.WebSocket;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A persistent, multiplexed connection to a peer node. Frames for every proxied game
+ * share one socket; a sender thread drains whatever is queued into a single JSON array,
+ * so an idle link adds no batching delay and a busy link sends few large writes.
+ */
+public class NodeLink {
+    /** Handshake header carrying the shared cluster secret; links without it are refused. */
+    static final String SECRET_HEADER = "X-Chess-Cluster-Secret";
+    // -Dchess.clusterSecret or CHESS_CLUSTER_SECRET; with neither set no link is accepted or opened
+    static final String CLUSTER_SECRET = System.getProperty("chess.clusterSecret", System.getenv("CHESS_CLUSTER_SECRET"));
+
+    private static final int MAX_BATCH = 256;
+    private static final TypeReference<List<LinkFrame>> BATCH_TYPE = new TypeReference<>() {};
+
+    private final String peer;
+    private final WebSocket transport;
+    private final ObjectMapper objectMapper;
+    private final LinkedBlockingQueue<LinkFrame> queue = new LinkedBlockingQueue<>();
+    private final Thread sender;
+    private volatile boolean closed = false;
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong rttNanosTotal = new AtomicLong();
+    private final AtomicLong rttSamples = new AtomicLong();
+    private volatile long lastRttNanos = -1;
+
+    /** Constant-time check of a presented secret against ours. */
+    static boolean secretMatches(String presented) {
+        if (CLUSTER_SECRET == null || CLUSTER_SECRET.isEmpty() || presented == null) return false;
+        return java.security.MessageDigest.isEqual(
+            CLUSTER_SECRET.getBytes(java.nio.charset.StandardCharsets.UTF_8),
+            presented.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    public NodeLink(String peer, WebSocket transport, ObjectMapper objectMapper) {
+        this.peer = peer;
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+        this.sender = new Thread(this::sendLoop, "node-link-" + peer);
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    public void send(LinkFrame frame) {
+        if (!closed) queue.add(frame);
+    }
+
+    public void ping() {
+        send(new LinkFrame("ping", null, null, 0, System.nanoTime()));
+    }
+
+    /** Parses a batch from the peer; answers pings itself and hands everything else on. */
+    public void receive(String text, Consumer<LinkFrame> handler) {
+        List<LinkFrame> batch;
+        try {
+            batch = objectMapper.readValue(text, BATCH_TYPE);
+        } catch (Exception e) {
+            System.err.println("[LINK] bad batch from " + peer + ": " + e.getMessage());
+            return;
+        }
+        for (LinkFrame f : batch) {
+            switch (f.kind()) {
+                case "ping" -> send(new LinkFrame("pong", null, null, 0, f.ts()));
+                case "pong" -> {
+                    long rtt = System.nanoTime() - f.ts();
+                    lastRttNanos = rtt;
+                    rttNanosTotal.addAndGet(rtt);
+                    rttSamples.incrementAndGet();
+                }
+                default -> {
+                    try {
+                        handler.accept(f);
+                    } catch (Exception e) {
+                        System.err.println("[LINK] frame " + f.kind() + " from " + peer + " failed: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private void sendLoop() {
+        List<LinkFrame> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                if (transport.isOpen()) {
+                    transport.send(objectMapper.writeValueAsString(batch));
+                    framesSent.addAndGet(batch.size());
+                    batchesSent.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[LINK] send to " + peer + " failed: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        sender.interrupt();
+        queue.clear();
+    }
+
+    public boolean isOpen() {
+        return !closed && transport.isOpen();
+    }
+
+    public String getPeer() { return peer; }
+
+    public InetSocketAddress getRemoteAddress() { return transport.getRemoteSocketAddress(); }
+
+    public long getFramesSent() { return framesSent.get(); }
+
+    public long getBatchesSent() { return batchesSent.get(); }
+
+    public long getLastRttMicros() { return lastRttNanos < 0 ? -1 : lastRttNanos / 1_000; }
+
+    public long getAvgRttMicros() {
+        long n = rttSamples.get();
+        return n == 0 ? -1 : rttNanosTotal.get() / n / 1_000;
+    }
+}
@@ -0,0 +1,48 @@
+package com.server.network;
+
+import java.net.URI;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Outgoing side of a node link, opened the first time we need to proxy to a peer. */
+public class NodeLinkClient extends WebSocketClient {
+    private final ChessWebSocketServer chessServer;
+    private final NodeLink link;
+
+    public NodeLinkClient(URI peerUri, String peerNodeId, ChessWebSocketServer chessServer, ObjectMapper objectMapper) {
+        super(peerUri);
+        this.chessServer = chessServer;
+        this.link = new NodeLink(peerNodeId, this, objectMapper);
+        setTcpNoDelay(true);
+        addHeader(NodeLink.SECRET_HEADER, NodeLink.CLUSTER_SECRET);
+    }
+
+    public NodeLink getLink() {
+        return link;
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        System.out.println("[LINK] connected to " + link.getPeer());
+    }
+
+    @Override
+    public void onMessage(String message) {
+        link.receive(message, f -> chessServer.onLinkFrame(link, f));
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        link.close();
+        System.out.println("[LINK] lost " + link.getPeer() + " (" + code + "): " + reason);
+        chessServer.onLinkClosed(link);
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        System.err.println("[LINK] error to " + link.getPeer() + ": " + ex.getMessage());
+    }
+}
@@ -0,0 +1,76 @@
+package com.server.network;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.server.WebSocketServer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Accepts node links from peers that want to proxy clients to games hosted here. A link can act
+ * as any player, so it listens on chess.linkBindAddress (an internal interface) and refuses any
+ * peer that doesn't present the cluster secret in its handshake.
+ */
+public class NodeLinkServer extends WebSocketServer {
+    private final ChessWebSocketServer chessServer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<WebSocket, NodeLink> links = new ConcurrentHashMap<>();
+
+    public NodeLinkServer(InetSocketAddress address, ChessWebSocketServer chessServer) {
+        super(address);
+        this.chessServer = chessServer;
+        setTcpNoDelay(true);
+    }
+
+    @Override
+    public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft, ClientHandshake request) throws InvalidDataException {
+        if (!NodeLink.secretMatches(request.getFieldValue(NodeLink.SECRET_HEADER))) {
+            System.out.println("[LINK] refused peer without the cluster secret: " + conn.getRemoteSocketAddress());
+            throw new InvalidDataException(CloseFrame.POLICY_VALIDATION, "cluster secret required");
+        }
+        return super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        String peer = String.valueOf(conn.getRemoteSocketAddress());
+        links.put(conn, new NodeLink(peer, conn, objectMapper));
+        System.out.println("[LINK] peer connected " + peer);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        NodeLink link = links.get(conn);
+        if (link != null) link.receive(message, f -> chessServer.onLinkFrame(link, f));
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        NodeLink link = links.remove(conn);
+        if (link == null) return;
+        link.close();
+        System.out.println("[LINK] peer disconnected " + link.getPeer());
+        chessServer.onLinkClosed(link);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        System.err.println("[LINK] error: " + ex);
+    }
+
+    @Override
+    public void onStart() {
+        System.out.println("[LINK] node link server on " + getAddress());
+        if (NodeLink.CLUSTER_SECRET == null || NodeLink.CLUSTER_SECRET.isEmpty()) {
+            System.out.println("[LINK] chess.clusterSecret not set; refusing all peers (clients get redirected instead)");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.server.network;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.java_websocket.WebSocket;
+
+/**
+ * Per-connection outbound accounting. Once a socket's unsent output crosses the
+ * high-water mark we stop queueing more behind it: heartbeats are dropped, position
+ * updates are coalesced into one pending "latest position" message, and a connection
+ * that stays over the mark too long is closed so the normal pause/resume flow kicks in.
+ */
+public class OutboundGuard {
+
+    public enum Kind {
+        CRITICAL,   // always sent (matchFound, gameOver, pause, errors...)
+        POSITION,   // superseded by the next position for the same socket
+        HEARTBEAT   // dropped while the socket is backed up
+    }
+
+    public static final int SLOW_CONSUMER_CLOSE_CODE = 4002;
+
+    private static final long HIGH_WATER_BYTES = Long.getLong("chess.outboundHighWaterBytes", 256 * 1024L);
+    private static final long SLOW_CONSUMER_MAX_MS = Long.getLong("chess.slowConsumerMaxMs", 15_000L);
+
+    private final Map<WebSocket, Long> overSinceByConn = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Supplier<String>> pendingPositionByConn = new ConcurrentHashMap<>();
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+
+    /**
+     * Sends or holds back a message. For POSITION messages, latest builds the freshest
+     * full-position message and is used instead of json whenever the socket is lagging.
+     * Returns true if something was written to the socket.
+     */
+    public boolean send(WebSocket s, String json, Kind kind, Supplier<String> latest) {
+        long buffered = bufferedBytes(s);
+        if (buffered < HIGH_WATER_BYTES) {
+            overSinceByConn.remove(s);
+            Supplier<String> pending = (kind == Kind.POSITION) ? pendingPositionByConn.remove(s) : null;
+            if (pending != null) {
+                // The catch-up message already reflects this position, the delta would be redundant
+                dropped.incrementAndGet();
+                s.send(pending.get());
+                return true;
+            }
+            s.send(json);
+            return true;
+        }
+
+        overSinceByConn.putIfAbsent(s, System.currentTimeMillis());
+        switch (kind) {
+            case HEARTBEAT -> {
+                dropped.incrementAndGet();
+                return false;
+            }
+            case POSITION -> {
+                throttled.incrementAndGet();
+                if (pendingPositionByConn.put(s, latest) != null) dropped.incrementAndGet();
+                return false;
+            }
+            default -> {
+                throttled.incrementAndGet();
+                s.send(json);
+                return true;
+            }
+        }
+    }
+
+    /** Flushes coalesced positions for sockets that drained and closes ones stuck over the mark. */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        for (WebSocket s : pendingPositionByConn.keySet()) {
+            if (!s.isOpen()) { forget(s); continue; }
+            if (bufferedBytes(s) < HIGH_WATER_BYTES) {
+                Supplier<String> pending = pendingPositionByConn.remove(s);
+                overSinceByConn.remove(s);
+                if (pending != null) s.send(pending.get());
+            }
+        }
+        for (Map.Entry<WebSocket, Long> e : overSinceByConn.entrySet()) {
+            WebSocket s = e.getKey();
+            if (!s.isOpen()) { forget(s); continue; }
+            if (bufferedBytes(s) < HIGH_WATER_BYTES) {
+                overSinceByConn.remove(s);
+                continue;
+            }
+            long overFor = now - e.getValue();
+            if (overFor > SLOW_CONSUMER_MAX_MS) {
+                System.out.printf("[OUT] slow consumer %s buffered=%d over=%dms (closing)%n",
+                    s.getRemoteSocketAddress(), bufferedBytes(s), overFor);
+                slowDisconnects.incrementAndGet();
+                forget(s);
+                try { s.close(SLOW_CONSUMER_CLOSE_CODE, "slow consumer"); } catch (Exception ignore) {}
+            }
+        }
+    }
+
+    public void forget(WebSocket s) {
+        overSinceByConn.remove(s);
+        pendingPositionByConn.remove(s);
+    }
+
+    /** Bytes queued for this socket but not yet written to the wire; constant time. */
+    public static long bufferedBytes(WebSocket s) {
+        if (!s.hasBufferedData()) return 0;
+        return (s instanceof CountedSocket counted) ? counted.unwrittenBytes() : 0;
+    }
+
+    public long getThrottledCount() { return throttled.get(); }
+
+    public long getDroppedCount() { return dropped.get(); }
+
+    public long getSlowDisconnectCount() { return slowDisconnects.get(); }
+
+    public int getLaggingConnections() { return overSinceByConn.size(); }
+}
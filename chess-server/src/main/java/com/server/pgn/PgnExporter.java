@@ -0,0 +1,106 @@
+package com.server.pgn;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.server.archive.ArchivedGame;
+import com.server.metrics.Metrics;
+
+/**
+ * Streams games as PGN in source order. The source is cut into chunks that are loaded and
+ * converted to SAN on a pool; at most threads * IN_FLIGHT_PER_THREAD chunks exist at once and
+ * they are written in submission order, so memory stays flat however many games go out and the
+ * output order matches the source.
+ */
+public class PgnExporter {
+
+    static final int CHUNK = 64;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    private record Chunk(String pgn, int games) {}
+
+    private final ExecutorService pool;
+    private final int maxInFlight;
+    private final AtomicLong exported = new AtomicLong();
+
+    public PgnExporter(int threads) {
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "pgn-export-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+        Metrics.get().counterFn("chess_pgn_export_games_total", "Games written as PGN", exported::get);
+    }
+
+    /**
+     * Writes every game the loader finds for the source's keys, skipping keys it returns null for.
+     * The loader runs on the pool, so it may do I/O. Returns the number of games written.
+     */
+    public <T> long export(Iterator<T> source, Function<T, ArchivedGame> loader, Writer out) throws IOException {
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long written = 0;
+        try {
+            List<T> keys = new ArrayList<>(CHUNK);
+            while (source.hasNext()) {
+                keys.add(source.next());
+                if (keys.size() < CHUNK) continue;
+                inFlight.add(submit(keys, loader));
+                keys = new ArrayList<>(CHUNK);
+                while (inFlight.size() >= maxInFlight) written += drainOne(inFlight, out);
+            }
+            if (!keys.isEmpty()) inFlight.add(submit(keys, loader));
+            while (!inFlight.isEmpty()) written += drainOne(inFlight, out);
+            out.flush();
+            return written;
+        } finally {
+            for (Future<Chunk> f : inFlight) f.cancel(true);
+        }
+    }
+
+    private <T> Future<Chunk> submit(List<T> keys, Function<T, ArchivedGame> loader) {
+        return pool.submit(() -> {
+            StringBuilder sb = new StringBuilder(keys.size() * 1024);
+            int games = 0;
+            for (T key : keys) {
+                ArchivedGame g = loader.apply(key);
+                if (g == null) continue;
+                PgnWriter.write(g, sb);
+                games++;
+            }
+            return new Chunk(sb.toString(), games);
+        });
+    }
+
+    private long drainOne(ArrayDeque<Future<Chunk>> inFlight, Writer out) throws IOException {
+        Chunk c;
+        try {
+            c = inFlight.peek().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("export failed", e.getCause());
+        }
+        inFlight.poll();
+        out.write(c.pgn());
+        exported.addAndGet(c.games());
+        return c.games();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.server.pgn;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import com.server.archive.ArchivedGame;
+
+import com.shared.util.TimeControl;
+
+import chesspresso.Chess;
+import chesspresso.move.IllegalMoveException;
+import chesspresso.move.Move;
+import chesspresso.position.Position;
+
+/**
+ * One finished game as PGN: the seven tag roster plus GameId, TimeControl, Termination and
+ * PlyCount, then SAN move text wrapped at 80 columns. The stored UCI moves are replayed from the
+ * standard start position; a move that doesn't replay ends the move text with a comment rather
+ * than failing the whole export.
+ */
+public final class PgnWriter {
+
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+    private static final int LINE_WIDTH = 80;
+
+    private PgnWriter() {}
+
+    public static void write(ArchivedGame g, StringBuilder out) {
+        String result = result(g);
+        tag(out, "Event", "Online game");
+        tag(out, "Site", "chess-server");
+        tag(out, "Date", g.startedAt() > 0 ? DATE.format(Instant.ofEpochMilli(g.startedAt())) : "????.??.??");
+        tag(out, "Round", "-");
+        tag(out, "White", g.whiteId());
+        tag(out, "Black", g.blackId());
+        tag(out, "Result", result);
+        tag(out, "GameId", Long.toString(g.gameId()));
+        tag(out, "TimeControl", timeControl(g.timeControl()));
+        tag(out, "Termination", termination(g.reason()));
+        tag(out, "PlyCount", Integer.toString(g.moves().size()));
+        out.append('\n');
+
+        int lineStart = out.length();
+        Position position = new Position(START_FEN);
+        List<String> moves = g.moves();
+        for (int ply = 0; ply < moves.size(); ply++) {
+            String san = san(position, moves.get(ply));
+            if (san == null) {
+                lineStart = token(out, lineStart, "{unreadable move " + moves.get(ply) + " at ply " + (ply + 1) + "}");
+                break;
+            }
+            if ((ply & 1) == 0) lineStart = token(out, lineStart, (ply / 2 + 1) + ".");
+            lineStart = token(out, lineStart, san);
+        }
+        token(out, lineStart, result);
+        out.append("\n\n");
+    }
+
+    // SAN of the legal move matching the UCI string, played on the position; null if there isn't one
+    static String san(Position position, String uci) {
+        if (uci.length() != 4 && uci.length() != 5) return null;
+        int from = Chess.strToSqi(uci.substring(0, 2));
+        int to = Chess.strToSqi(uci.substring(2, 4));
+        int promo = uci.length() == 5 ? Chess.charToPiece(Character.toUpperCase(uci.charAt(4))) : Chess.NO_PIECE;
+        for (short m : position.getAllMoves()) {
+            if (Move.getFromSqi(m) != from || Move.getToSqi(m) != to) continue;
+            if (Move.isPromotion(m) ? Move.getPromotionPiece(m) != promo : promo != Chess.NO_PIECE) continue;
+            try {
+                position.doMove(m);
+            } catch (IllegalMoveException e) {
+                return null;
+            }
+            return position.getLastMove().getSAN();
+        }
+        return null;
+    }
+
+    // Appends a space-separated token, breaking the line before it would pass LINE_WIDTH
+    private static int token(StringBuilder out, int lineStart, String s) {
+        if (out.length() > lineStart) {
+            if (out.length() - lineStart + 1 + s.length() > LINE_WIDTH) {
+                out.append('\n');
+                lineStart = out.length();
+            } else {
+                out.append(' ');
+            }
+        }
+        out.append(s);
+        return lineStart;
+    }
+
+    private static void tag(StringBuilder out, String name, String value) {
+        out.append('[').append(name).append(" \"");
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') out.append('\\');
+                out.append(c);
+            }
+        }
+        out.append("\"]\n");
+    }
+
+    private static String result(ArchivedGame g) {
+        if (g.result() == null) return "*";
+        return switch (g.result()) {
+            case "WHITE_WIN" -> "1-0";
+            case "BLACK_WIN" -> "0-1";
+            case "DRAW" -> "1/2-1/2";
+            default -> g.winnerId() == null || g.winnerId().isEmpty() ? "*"
+                : g.winnerId().equals(g.whiteId()) ? "1-0"
+                : g.winnerId().equals(g.blackId()) ? "0-1" : "*";
+        };
+    }
+
+    // PGN wants base+increment in seconds; sub-second parts are kept as decimals rather than dropped
+    private static String timeControl(TimeControl tc) {
+        if (tc == null) return "-";
+        return seconds(tc.baseMillis()) + "+" + seconds(tc.incrementMillis());
+    }
+
+    private static String seconds(long millis) {
+        return millis % 1000 == 0 ? Long.toString(millis / 1000) : BigDecimal.valueOf(millis, 3).stripTrailingZeros().toPlainString();
+    }
+
+    private static String termination(String reason) {
+        if (reason == null) return "unterminated";
+        return switch (reason) {
+            case "TIMEOUT" -> "time forfeit";
+            case "ABANDON" -> "abandoned";
+            default -> "normal";
+        };
+    }
+}
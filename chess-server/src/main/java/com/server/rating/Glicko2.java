@@ -0,0 +1,83 @@
+package com.server.rating;
+
+/**
+ * Glicko-2 (Glickman, 2012) with every game as its own rating period, so a rating moves as soon
+ * as a game is rated. The deviation of a player who hasn't played grows with the days since
+ * their last game, as it would over that many empty periods.
+ */
+final class Glicko2 {
+
+    private static final double SCALE = 173.7178;
+    private static final double TAU = 0.5;
+    private static final double EPSILON = 1e-6;
+    private static final double MIN_DEVIATION = 45;
+    private static final double MAX_DEVIATION = 350;
+    private static final long PERIOD_MS = 24 * 60 * 60 * 1000L;
+
+    private Glicko2() {}
+
+    /** player's rating after scoring score (1 win, 0.5 draw, 0 loss) against opponent at nowMillis. */
+    static Rating update(Rating player, Rating opponent, double score, long nowMillis) {
+        double mu = (player.rating() - 1500) / SCALE;
+        double phi = idleDeviation(player, nowMillis) / SCALE;
+        double sigma = player.volatility();
+        double muJ = (opponent.rating() - 1500) / SCALE;
+        double phiJ = idleDeviation(opponent, nowMillis) / SCALE;
+
+        double g = 1 / Math.sqrt(1 + 3 * phiJ * phiJ / (Math.PI * Math.PI));
+        double e = 1 / (1 + Math.exp(-g * (mu - muJ)));
+        double v = 1 / (g * g * e * (1 - e));
+        double delta = v * g * (score - e);
+
+        double sigmaNew = volatility(phi, sigma, v, delta);
+        double phiStar = Math.sqrt(phi * phi + sigmaNew * sigmaNew);
+        double phiNew = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / v);
+        double muNew = mu + phiNew * phiNew * g * (score - e);
+
+        double deviation = Math.max(MIN_DEVIATION, Math.min(MAX_DEVIATION, phiNew * SCALE));
+        return new Rating(muNew * SCALE + 1500, deviation, sigmaNew, player.games() + 1, nowMillis);
+    }
+
+    // Step 5 of the paper: the new volatility by the Illinois variant of regula falsi
+    private static double volatility(double phi, double sigma, double v, double delta) {
+        double a = Math.log(sigma * sigma);
+        double A = a;
+        double B;
+        if (delta * delta > phi * phi + v) {
+            B = Math.log(delta * delta - phi * phi - v);
+        } else {
+            int k = 1;
+            while (f(a - k * TAU, a, phi, v, delta) < 0) k++;
+            B = a - k * TAU;
+        }
+        double fA = f(A, a, phi, v, delta);
+        double fB = f(B, a, phi, v, delta);
+        while (Math.abs(B - A) > EPSILON) {
+            double C = A + (A - B) * fA / (fB - fA);
+            double fC = f(C, a, phi, v, delta);
+            if (fC * fB <= 0) {
+                A = B;
+                fA = fB;
+            } else {
+                fA /= 2;
+            }
+            B = C;
+            fB = fC;
+        }
+        return Math.exp(A / 2);
+    }
+
+    private static double f(double x, double a, double phi, double v, double delta) {
+        double ex = Math.exp(x);
+        double d = phi * phi + v + ex;
+        return ex * (delta * delta - phi * phi - v - ex) / (2 * d * d) - (x - a) / (TAU * TAU);
+    }
+
+    private static double idleDeviation(Rating r, long nowMillis) {
+        if (r.updatedAt() <= 0 || nowMillis <= r.updatedAt()) return r.deviation();
+        double periods = (double) (nowMillis - r.updatedAt()) / PERIOD_MS;
+        double phi = r.deviation() / SCALE;
+        double grown = Math.sqrt(phi * phi + periods * r.volatility() * r.volatility()) * SCALE;
+        return Math.min(MAX_DEVIATION, grown);
+    }
+}
@@ -0,0 +1,101 @@
+package com.server.rating;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.server.metrics.Metrics;
+import com.server.store.GameStore;
+
+/**
+ * Leaderboard reads without a store round trip each. The top chess.leaderboardCacheSize players
+ * are fetched every chess.leaderboardRefreshMs into an immutable snapshot, which serves pages
+ * within it and the ranks of the players on it. Anyone else's standing is read from the store
+ * once and then served from a per-player entry for one refresh interval. Everything shown is
+ * at most one interval old.
+ */
+public final class Leaderboard {
+
+    private static final int TOP_N = Integer.getInteger("chess.leaderboardCacheSize", 1_000);
+    private static final long REFRESH_MS = Long.getLong("chess.leaderboardRefreshMs", 1_000L);
+    private static final int MAX_STANDINGS = Integer.getInteger("chess.leaderboardStandingsMax", 100_000);
+
+    private record Snapshot(List<LeaderboardEntry> top, Map<String, Long> ranks, long total) {}
+
+    private record CachedStanding(PlayerStanding standing, long expiresAt) {}
+
+    private final GameStore store;
+    private final ScheduledExecutorService exec;
+    private final Map<String, CachedStanding> standings = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), 0);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public Leaderboard(GameStore store) {
+        this.store = store;
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "leaderboard");
+            t.setDaemon(true);
+            return t;
+        });
+        Metrics m = Metrics.get();
+        m.counterFn("chess_leaderboard_cache_hits_total", "Leaderboard reads served from memory", hits::sum);
+        m.counterFn("chess_leaderboard_cache_misses_total", "Leaderboard reads that went to the store", misses::sum);
+        m.gauge("chess_leaderboard_cached_standings", "Per-player standings held in memory", standings::size);
+    }
+
+    public void start() {
+        exec.scheduleWithFixedDelay(this::refreshSafely, 0, REFRESH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        exec.shutdown();
+    }
+
+    public LeaderboardPage page(long offset, int limit) {
+        Snapshot s = snapshot;
+        if (offset + limit <= TOP_N) {
+            hits.increment();
+            int from = (int) Math.min(offset, s.top().size());
+            int to = (int) Math.min(offset + limit, s.top().size());
+            return new LeaderboardPage(s.top().subList(from, to), s.total());
+        }
+        misses.increment();
+        return new LeaderboardPage(store.leaderboard(offset, limit), s.total());
+    }
+
+    public PlayerStanding standing(String playerId) {
+        long now = System.currentTimeMillis();
+        CachedStanding cached = standings.get(playerId);
+        if (cached != null && cached.expiresAt() > now) {
+            hits.increment();
+            return cached.standing();
+        }
+        misses.increment();
+        Rating r = store.getRatings(List.of(playerId)).getOrDefault(playerId, Rating.INITIAL);
+        Long top = snapshot.ranks().get(playerId);
+        long rank = r.provisional() ? 0 : top != null ? top : store.leaderboardRank(playerId);
+        PlayerStanding standing = new PlayerStanding(playerId, r.rounded(), (int) Math.round(r.deviation()),
+            r.games(), r.provisional(), rank);
+        // A crude bound: dropping everything at once is cheaper than tracking recency per read
+        if (standings.size() >= MAX_STANDINGS) standings.clear();
+        standings.put(playerId, new CachedStanding(standing, now + REFRESH_MS));
+        return standing;
+    }
+
+    private void refreshSafely() {
+        try {
+            List<LeaderboardEntry> top = store.leaderboard(0, TOP_N);
+            Map<String, Long> ranks = new HashMap<>(top.size() * 2);
+            for (LeaderboardEntry e : top) ranks.put(e.playerId(), e.rank());
+            snapshot = new Snapshot(List.copyOf(top), ranks, store.leaderboardSize());
+        } catch (Exception e) {
+            System.out.println("[LEADERBOARD] refresh failed: " + e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.server.rating;
+
+/** One row of the leaderboard; rank starts at 1. */
+public record LeaderboardEntry(long rank, String playerId, int rating) {}
@@ -0,0 +1,6 @@
+package com.server.rating;
+
+import java.util.List;
+
+/** A slice of the leaderboard and how many players are ranked in all. */
+public record LeaderboardPage(List<LeaderboardEntry> entries, long total) {}
@@ -0,0 +1,4 @@
+package com.server.rating;
+
+/** A player's rating as /leaderboard?player= reports it; rank is 0 while they're provisional. */
+public record PlayerStanding(String playerId, int rating, int deviation, int games, boolean provisional, long rank) {}
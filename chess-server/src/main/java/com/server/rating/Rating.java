@@ -0,0 +1,20 @@
+package com.server.rating;
+
+/**
+ * A player's Glicko-2 rating on the usual 1500 scale: rating, deviation (RD), volatility, rated
+ * games played and when it last changed (epoch millis, 0 if never). Players stay provisional,
+ * and off the leaderboard, for their first chess.provisionalGames rated games.
+ */
+public record Rating(double rating, double deviation, double volatility, int games, long updatedAt) {
+
+    public static final int PROVISIONAL_GAMES = Integer.getInteger("chess.provisionalGames", 10);
+    public static final Rating INITIAL = new Rating(1500, 350, 0.06, 0, 0);
+
+    public boolean provisional() {
+        return games < PROVISIONAL_GAMES;
+    }
+
+    public int rounded() {
+        return (int) Math.round(rating);
+    }
+}
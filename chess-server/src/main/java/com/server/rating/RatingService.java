@@ -0,0 +1,143 @@
+package com.server.rating;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.model.Player;
+import com.server.store.GameStore;
+import com.shared.util.GameOverReason;
+import com.shared.util.GameResult;
+
+/**
+ * Rates finished games off the game-end path. gameEnded only queues the result; a writer thread
+ * takes up to chess.ratingBatch games every chess.ratingFlushMs, runs Glicko-2 over them in end
+ * order and writes every changed rating, and the leaderboard, in one store update. A batch the
+ * store refused is retried on the next run. Games against bots, games where a side never moved
+ * and games both players walked away from are unrated.
+ */
+public final class RatingService {
+
+    private static final int BATCH = Integer.getInteger("chess.ratingBatch", 256);
+    private static final long FLUSH_MS = Long.getLong("chess.ratingFlushMs", 200L);
+    private static final int MAX_PENDING = Integer.getInteger("chess.ratingMaxPending", 100_000);
+
+    private record RatedGame(long gameId, String whiteId, String blackId, double whiteScore, long endedAt) {}
+
+    private final GameStore store;
+    private final LinkedBlockingQueue<RatedGame> pending = new LinkedBlockingQueue<>(MAX_PENDING);
+    private final List<RatedGame> retry = new ArrayList<>(); // writer thread only
+    private final ScheduledExecutorService exec;
+    private final LatencyHistogram batchLatency;
+    private final AtomicLong rated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public RatingService(GameStore store) {
+        this.store = store;
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratings");
+            t.setDaemon(true);
+            return t;
+        });
+        Metrics m = Metrics.get();
+        this.batchLatency = m.histogram("chess_rating_batch_latency_us", "Time to rate and write one batch of games");
+        m.counterFn("chess_rating_games_total", "Games rated", rated::get);
+        m.counterFn("chess_rating_dropped_total", "Games left unrated because the queue was full", dropped::get);
+        m.counterFn("chess_rating_failures_total", "Rating batches the store refused", failures::get);
+        m.gauge("chess_rating_pending", "Games waiting to be rated", () -> pending.size() + retry.size());
+    }
+
+    public void start() {
+        exec.scheduleWithFixedDelay(this::runSafely, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        exec.shutdown();
+    }
+
+    /** Queues a finished game for rating; never blocks. */
+    public void gameEnded(long gameId, Player white, Player black, GameResult result, GameOverReason reason, int plies) {
+        if (white.isBot() || black.isBot() || plies < 2) return;
+        if (reason == GameOverReason.ABANDON && result == GameResult.DRAW) return;
+        double whiteScore = switch (result) {
+            case WHITE_WIN -> 1.0;
+            case BLACK_WIN -> 0.0;
+            case DRAW -> 0.5;
+            case ABANDONED -> -1;
+        };
+        if (whiteScore < 0) return;
+        if (!pending.offer(new RatedGame(gameId, white.getId(), black.getId(), whiteScore, System.currentTimeMillis()))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** The rating a player is seated with: their stored one, or the starting rating if they have none. */
+    public int ratingOf(String playerId) {
+        Rating r = store.getRatings(List.of(playerId)).get(playerId);
+        return (r == null ? Rating.INITIAL : r).rounded();
+    }
+
+    private void runSafely() {
+        try {
+            while (flushBatch()) {
+                // keep going while full batches are waiting
+            }
+        } catch (Exception e) {
+            System.out.println("[RATING] run failed: " + e);
+        }
+    }
+
+    // True if it wrote a full batch and more may be waiting
+    private boolean flushBatch() {
+        List<RatedGame> batch = new ArrayList<>(BATCH);
+        batch.addAll(retry);
+        retry.clear();
+        pending.drainTo(batch, Math.max(0, BATCH - batch.size()));
+        if (batch.isEmpty()) return false;
+
+        Set<String> players = new LinkedHashSet<>();
+        for (RatedGame g : batch) {
+            players.add(g.whiteId());
+            players.add(g.blackId());
+        }
+        long start = System.nanoTime();
+        Map<String, Rating> written;
+        try {
+            written = store.updateRatings(players, current -> apply(batch, current));
+        } catch (RuntimeException e) {
+            System.out.println("[RATING] write failed: " + e.getMessage());
+            written = null;
+        }
+        batchLatency.recordNanosAsMicros(start);
+        if (written == null) {
+            failures.incrementAndGet();
+            retry.addAll(batch);
+            return false;
+        }
+        rated.addAndGet(batch.size());
+        return batch.size() == BATCH;
+    }
+
+    // Games in end order, each against both players' ratings as the previous games left them
+    private static Map<String, Rating> apply(List<RatedGame> batch, Map<String, Rating> current) {
+        Map<String, Rating> next = new HashMap<>(current);
+        for (RatedGame g : batch) {
+            Rating white = next.getOrDefault(g.whiteId(), Rating.INITIAL);
+            Rating black = next.getOrDefault(g.blackId(), Rating.INITIAL);
+            next.put(g.whiteId(), Glicko2.update(white, black, g.whiteScore(), g.endedAt()));
+            next.put(g.blackId(), Glicko2.update(black, white, 1 - g.whiteScore(), g.endedAt()));
+        }
+        return next;
+    }
+}
@@ -0,0 +1,101 @@
+package com.server.redis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded LRU with a per-entry TTL. Invalidation is pushed in from the
+ * pub/sub channel; the TTL only bounds how stale an entry can get if a message is lost.
+ * Each invalidation also bumps a stamp for the key's slot, so a fill that started before it
+ * (see stamp and putIfNotInvalidatedSince) can tell it lost the race. A node writing a key
+ * itself calls fence first, which fails any of its own reads of the old value still in flight.
+ */
+class NearCache<K, V> {
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private static final int STAMP_SLOTS = 1024;
+
+    private final long ttlMs;
+    private final Map<K, Entry<V>> map;
+    // Clock value of the latest invalidation per slot of key hashes; guarded by this
+    private final long[] invalidatedAt = new long[STAMP_SLOTS];
+    private long clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    NearCache(int maxEntries, long ttlMs) {
+        this.ttlMs = ttlMs;
+        this.map = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null || e.expiresAt() < System.currentTimeMillis()) {
+            if (e != null) map.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.value();
+    }
+
+    synchronized void put(K key, V value) {
+        if (value == null) {
+            map.remove(key);
+            return;
+        }
+        map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+    }
+
+    /** Take before the Redis call whose answer will be cached. */
+    synchronized long stamp() {
+        return clock;
+    }
+
+    /** Drops key and fails fills of it already under way; returns the stamp for the writer's own fill. */
+    synchronized long fence(K key) {
+        invalidatedAt[slot(key)] = ++clock;
+        map.remove(key);
+        return clock;
+    }
+
+    /** put, unless key (or a key sharing its slot) was invalidated after stamp was taken. */
+    synchronized boolean putIfNotInvalidatedSince(K key, V value, long stamp) {
+        if (invalidatedAt[slot(key)] > stamp) return false;
+        put(key, value);
+        return true;
+    }
+
+    synchronized void invalidate(K key) {
+        invalidatedAt[slot(key)] = ++clock;
+        if (map.remove(key) != null) invalidations.incrementAndGet();
+    }
+
+    synchronized void clear() {
+        java.util.Arrays.fill(invalidatedAt, ++clock);
+        map.clear();
+    }
+
+    private static int slot(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STAMP_SLOTS - 1);
+    }
+
+    synchronized int size() {
+        return map.size();
+    }
+
+    long hits() { return hits.get(); }
+
+    long misses() { return misses.get(); }
+
+    long invalidations() { return invalidations.get(); }
+}
@@ -1,21 +1,113 @@
 package com.server.redis;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.Tuple;
+
+import com.server.archive.ArchivedGame;
+import com.server.jfr.RedisCallEvent;
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.metrics.OpTimer;
+import com.server.rating.LeaderboardEntry;
+import com.server.rating.Rating;
+import com.server.store.GameStore;
+import com.server.util.NewGame;
+import com.server.util.NodeLoad;
+import com.server.util.ReplaySlice;
+import com.shared.util.TimeControl;
+import jdk.jfr.EventType;
 import redis.clients.jedis.Transaction;
 
-public class RedisManager {
+public class RedisManager implements GameStore {
     
     private static RedisManager instance;
     private JedisPool pool;
 
+    private static final String REDIS_HOST = System.getProperty("chess.redisHost", "127.0.0.1");
+    private static final int REDIS_PORT = Integer.getInteger("chess.redisPort", 6380);
+
+    /* ---------- Routing near-cache ---------- */
+    private static final String INVALIDATE_CHANNEL = "chess:routing:invalidate";
+    private static final String MIGRATE_CHANNEL = "chess:migrate";
+    private static final int ROUTING_CACHE_MAX = Integer.getInteger("chess.routingCacheMax", 100_000);
+    private static final long ROUTING_CACHE_TTL_MS = Long.getLong("chess.routingCacheTtlMs", 30_000L);
+    private final RoutingCache routing = new RoutingCache(ROUTING_CACHE_MAX, ROUTING_CACHE_TTL_MS);
+    private volatile java.util.function.BiConsumer<Long, String> migrationListener;
+
+    /* ---------- Per-operation latency (includes pool checkout/return) ---------- */
+    private final Op commitMoveOp = op("commitMove");
+    private final Op setGameNodeOp = op("setGameNode");
+    private final Op lookupOp = op("routingLookup");
+    private final Op bindPlayerOp = op("bindPlayerToGame");
+    private final Op cleanupOp = op("endGameCleanup");
+    private final Op initGameOp = op("initGameState");
+    private final Op initGamesOp = op("initGames");
+    private final Op creationCleanupOp = op("cleanUpGameCreation");
+    private final Op endGameOp = op("endGamePersist");
+    private final Op heartbeatOp = op("touchNodeHeartBeat");
+    private final Op nodeLoadsOp = op("getNodeLoads");
+    private final Op nextGameIdOp = op("nextGameId");
+    private final Op migrateOp = op("migrateGame");
+    private final Op snapshotOp = op("gameSnapshot");
+    private final Op pendingArchiveOp = op("pendingArchive");
+    private final Op purgeArchivedOp = op("purgeArchived");
+    private final Op replayOp = op("loadReplay");
+    private final Op ratingsOp = op("getRatings");
+    private final Op updateRatingsOp = op("updateRatings");
+    private final Op leaderboardOp = op("leaderboard");
+
+    private record Op(String name, LatencyHistogram latency) {}
+
+    private static final EventType REDIS_CALL_EVENT = EventType.getEventType(RedisCallEvent.class);
+
+    private static Op op(String name) {
+        return new Op(name, Metrics.get().histogram(
+            "chess_redis_op_latency_us", "Redis call latency by operation", "op", name));
+    }
+
+    private static OpTimer time(Op op) {
+        RedisCallEvent event = null;
+        if (REDIS_CALL_EVENT.isEnabled()) {
+            event = new RedisCallEvent();
+            event.op = op.name();
+        }
+        return OpTimer.start(op.latency(), event);
+    }
+
     private RedisManager() {
-        this.pool = new JedisPool("127.0.0.1", 6380);
+        this.pool = new JedisPool(REDIS_HOST, REDIS_PORT);
+        startInvalidationListener();
+        migrateLegacyArchiveList();
+    }
+
+    // Moves ids a pre-zset node left in the old list; they sort before anything scored by time
+    private void migrateLegacyArchiveList() {
+        try (Jedis j = pool.getResource()) {
+            if (!"list".equals(j.type(K_ARCHIVE_PENDING_LEGACY))) return;
+            List<String> ids = j.lrange(K_ARCHIVE_PENDING_LEGACY, 0, -1);
+            Map<String, Double> members = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) members.putIfAbsent(ids.get(i), (double) i);
+            Transaction t = j.multi();
+            if (!members.isEmpty()) t.zadd(K_ARCHIVE_PENDING, members);
+            t.del(K_ARCHIVE_PENDING_LEGACY);
+            t.exec();
+            System.out.println("[ARCHIVE] moved " + members.size() + " pending ids from the old list");
+        } catch (Exception e) {
+            System.out.println("[ARCHIVE] couldn't migrate the old pending list: " + e.getMessage());
+        }
     }
 
     public static RedisManager getInstance() {
@@ -32,27 +124,51 @@ public class RedisManager {
     private String kNodeGames(String nodeId) { return "node:" + nodeId + ":games"; }
     private String kGameState(long gid) { return "game:" + gid + ":state"; }
     private String kGameMoves(long gid) { return "game:" + gid + ":moves"; }
+    private String kGameCheckpoints(long gid) { return "game:" + gid + ":checkpoints"; } // zset, score = ply, member = "ply|fen"
     private String kNodeHeartBeat(String nodeId) { return "node:" + nodeId + ":hb"; }
+    private String kGameSnapshot(long gid) { return "game:" + gid + ":snapshot"; }
+    private String kNodeLoad(String nodeId) { return "node:" + nodeId + ":load"; }
+    private String kPlayerRating(String pid) { return "player:" + pid + ":rating"; }
+    private static final String K_NODES = "nodes";
+    private static final String K_NEXT_GAME_ID = "game:nextId";
+    // zset, score = end time, member = gameId: oldest first, and ZREM is O(log N) per id
+    private static final String K_ARCHIVE_PENDING = "games:archivePending";
+    private static final String K_ARCHIVE_PENDING_LEGACY = "games:ended"; // list, before the zset
+    private static final String K_ARCHIVE_LEASE = "archive:lease";
+    private static final String K_LEADERBOARD = "leaderboard"; // zset, score = rating, member = playerId
+    private static final int RATING_WRITE_ATTEMPTS = 5;
 
-    /* Commit a Move */
+    /* Commit a Move. newFen may be null on delta plies; the moves list stays authoritative. */
+    @Override
     public boolean commitMove (
-        long gid, String nodeId, String newFen,
+        long gid, String nodeId, String newFen, int ply,
         String moveUci, String whiteId, String blackId,
-        String turn, String status
+        String turn, String status,
+        long whiteMillis, long blackMillis
     ) {
         long now = System.currentTimeMillis();
-        try (Jedis j = pool.getResource()) {
+        try (OpTimer ignored = time(commitMoveOp); Jedis j = pool.getResource()) {
             Transaction t = j.multi();
             Map<String,String> stateFieldsMap = new HashMap<>();
-            stateFieldsMap.put("fen", newFen);
+            if (newFen != null) {
+                stateFieldsMap.put("fen", newFen);
+                stateFieldsMap.put("fenPly", Integer.toString(ply));
+            }
+            stateFieldsMap.put("ply", Integer.toString(ply));
             stateFieldsMap.put("turn", turn);
             stateFieldsMap.put("status", status);
             stateFieldsMap.put("whiteId", whiteId);
             stateFieldsMap.put("blackId", blackId);
             stateFieldsMap.put("lastUpdated", Long.toString(now));
+            if (whiteMillis >= 0) {
+                stateFieldsMap.put("whiteMs", Long.toString(whiteMillis));
+                stateFieldsMap.put("blackMs", Long.toString(blackMillis));
+                stateFieldsMap.put("clockAt", Long.toString(now));
+            }
             t.hmset(kGameState(gid), stateFieldsMap);
             t.hincrBy(kGameState(gid), "version", 1);
             t.rpush(kGameMoves(gid), moveUci);
+            if (newFen != null) t.zadd(kGameCheckpoints(gid), ply, ply + "|" + newFen);
             t.set(kGameNode(gid), nodeId);
             t.sadd(kNodeGames(nodeId), String.valueOf(gid));
             List<Object> res = t.exec();
@@ -63,30 +179,76 @@ public class RedisManager {
         }
     } 
 
+    /**
+     * One pipeline (checkpoint at or before ply, move count, status and players), then one LRANGE
+     * for at most the moves after that checkpoint; the LRANGE needs the checkpoint's ply, so it
+     * can't join the pipeline. Three commands in two round trips whatever the game's length.
+     */
+    @Override
+    public ReplaySlice loadReplay(long gid, int ply, int toPly) {
+        try (OpTimer ignored = time(replayOp); Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            Response<List<String>> cp = p.zrevrangeByScore(kGameCheckpoints(gid), ply, 0, 0, 1);
+            Response<Long> total = p.llen(kGameMoves(gid));
+            Response<List<String>> who = p.hmget(kGameState(gid), "status", "whiteId", "blackId");
+            p.sync();
+            List<String> found = cp.get();
+            if (found == null || found.isEmpty()) return null;
+            String member = found.get(0);
+            int sep = member.indexOf('|');
+            int cpPly = Integer.parseInt(member.substring(0, sep));
+            int end = (int) Math.min(toPly, total.get());
+            List<String> moves = end > cpPly ? j.lrange(kGameMoves(gid), cpPly, end - 1) : List.of();
+            List<String> st = who.get();
+            return new ReplaySlice(cpPly, member.substring(sep + 1), moves, total.get().intValue(),
+                "ENDED".equals(st.get(0)), st.get(1), st.get(2));
+        }
+    }
+
     /* ---------- Game ↔ Node ---------- */
+    @Override
     public void setGameNode(long gameId, String nodeId) {
-        try (Jedis j = pool.getResource()) {
+        long stamp = routing.gameNode.fence(gameId);
+        try (OpTimer ignored = time(setGameNodeOp); Jedis j = pool.getResource()) {
             j.set(kGameNode(gameId), nodeId);
             j.sadd(kNodeGames(nodeId), String.valueOf(gameId));
+            j.publish(INVALIDATE_CHANNEL, routing.gameMessage(gameId));
         }
+        routing.gameNode.putIfNotInvalidatedSince(gameId, nodeId, stamp);
     }
 
+    @Override
     public String getGameNode(long gameId) {
-        try (Jedis j = pool.getResource()) {
-        return j.get(kGameNode(gameId));
+        String cached = routing.gameNode.get(gameId);
+        if (cached != null) return cached;
+        return getGameNodeFresh(gameId);
+    }
+
+    /** Bypasses the near-cache; use before acting on a mapping that would send a client elsewhere. */
+    @Override
+    public String getGameNodeFresh(long gameId) {
+        long stamp = routing.gameNode.stamp();
+        try (OpTimer ignored = time(lookupOp); Jedis j = pool.getResource()) {
+            String node = j.get(kGameNode(gameId));
+            routing.gameNode.putIfNotInvalidatedSince(gameId, node, stamp);
+            return node;
         }
     }
 
     /* ---------- Player ↔ Game (safe) ---------- */
     /** Returns true if bound or already bound to same game; false if bound elsewhere. */
+    @Override
     public boolean bindPlayerToGame(String playerId, long gameId) {
-        try (Jedis j = pool.getResource()) {
+        long stamp = routing.playerGame.fence(playerId);
+        try (OpTimer ignored = time(bindPlayerOp); Jedis j = pool.getResource()) {
         String pKey = kPlayerGame(playerId);
         String gStr = String.valueOf(gameId);
 
         Long created = j.setnx(pKey, gStr);       // 1 if set, 0 if exists
         if (created == 1L) {
             j.sadd(kGamePlayers(gameId), playerId); // first bind
+            j.publish(INVALIDATE_CHANNEL, routing.playerMessage(playerId));
+            routing.playerGame.putIfNotInvalidatedSince(playerId, gameId, stamp);
             return true;
         }
         String existing = j.get(pKey);
@@ -98,31 +260,51 @@ public class RedisManager {
         }
     }
 
+    @Override
     public Long getPlayerGame(String playerId) {
-        try (Jedis j = pool.getResource()) {
-        String v = j.get(kPlayerGame(playerId));
-        return v == null ? null : Long.parseLong(v);
+        Long cached = routing.playerGame.get(playerId);
+        if (cached != null) return cached;
+        return getPlayerGameFresh(playerId);
+    }
+
+    @Override
+    public Long getPlayerGameFresh(String playerId) {
+        long stamp = routing.playerGame.stamp();
+        try (OpTimer ignored = time(lookupOp); Jedis j = pool.getResource()) {
+            String v = j.get(kPlayerGame(playerId));
+            Long gid = v == null ? null : Long.parseLong(v);
+            routing.playerGame.putIfNotInvalidatedSince(playerId, gid, stamp);
+            return gid;
         }
     }
 
+    @Override
     public void endGameCleanup(long gameId, String nodeId) {
-        try (Jedis j = pool.getResource()) {
+        try (OpTimer ignored = time(cleanupOp); Jedis j = pool.getResource()) {
             Set<String> players = j.smembers(kGamePlayers(gameId));
             Transaction t = j.multi();
             t.srem(kNodeGames(nodeId), String.valueOf(gameId));
             t.del(kGameNode(gameId));
             for (String pid : players) t.del(kPlayerGame(pid));
             t.del(kGamePlayers(gameId));
+            t.publish(INVALIDATE_CHANNEL, routing.gameMessage(gameId));
+            for (String pid : players) t.publish(INVALIDATE_CHANNEL, routing.playerMessage(pid));
             t.exec();
+            for (String pid : players) routing.playerGame.invalidate(pid);
         }
+        routing.gameNode.invalidate(gameId);
     }
 
+    @Override
     public void close() {
         pool.close();
     }
 
-    public boolean initGameState(long gid, String nodeId, String initialFen, String whiteId, String blackId) {
-        try (Jedis j = pool.getResource()) {
+    @Override
+    public boolean initGameState(long gid, String nodeId, String initialFen, String whiteId, String blackId,
+                                 TimeControl timeControl) {
+        long stamp = routing.gameNode.fence(gid);
+        try (OpTimer ignored = time(initGameOp); Jedis j = pool.getResource()) {
             Map<String,String> initStateMap = new HashMap<>();
 
             if(j.exists(kGameState(gid))) {
@@ -135,14 +317,26 @@ public class RedisManager {
             
 
             t.del(kGameMoves(gid));
+            t.del(kGameCheckpoints(gid));
+            t.zadd(kGameCheckpoints(gid), 0, "0|" + initialFen);
 
             initStateMap.put("fen", initialFen);
+            initStateMap.put("fenPly", "0");
+            initStateMap.put("ply", "0");
             initStateMap.put("turn", "w");
             initStateMap.put("status", "IN_PROGRESS");
             initStateMap.put("whiteId", whiteId);
             initStateMap.put("blackId", blackId);
             initStateMap.put("version", "0");
+            initStateMap.put("createdAt", now);
             initStateMap.put("lastUpdated", now);
+            if (timeControl != null) {
+                initStateMap.put("tcBaseMs", Long.toString(timeControl.baseMillis()));
+                initStateMap.put("tcIncMs", Long.toString(timeControl.incrementMillis()));
+                initStateMap.put("whiteMs", Long.toString(timeControl.baseMillis()));
+                initStateMap.put("blackMs", Long.toString(timeControl.baseMillis()));
+                initStateMap.put("clockAt", now);
+            }
 
             t.hmset(kGameState(gid), initStateMap);
 
@@ -151,6 +345,7 @@ public class RedisManager {
             t.sadd(kNodeGames(nodeId), Long.toString(gid));
 
             List<Object> res = t.exec();
+            if (res != null) routing.gameNode.putIfNotInvalidatedSince(gid, nodeId, stamp);
             return res != null;
         } catch (Exception e) {
             System.out.println("[INIT_FAIL] gid=" + gid + " node=" + nodeId + " class=" + e.getClass().getName()
@@ -160,39 +355,498 @@ public class RedisManager {
         }
     }
 
-    public void cleanUpGameCreation(long gid, String nodeId, String whiteId, String blackId) {
+    /**
+     * One pipeline writes every game and SETNXes both player bindings; a second one, only if
+     * needed, undoes the games whose bindings didn't all take, releasing just the bindings they made.
+     * If either pipeline fails partway, every game of the batch is undone on a fresh connection.
+     */
+    @Override
+    public boolean[] initGames(List<NewGame> games, String nodeId, String initialFen, TimeControl timeControl) {
+        boolean[] live = new boolean[games.size()];
+        if (games.isEmpty()) return live;
+        String now = Long.toString(System.currentTimeMillis());
+        for (NewGame g : games) {
+            routing.gameNode.fence(g.gameId());
+            routing.playerGame.fence(g.whiteId());
+            routing.playerGame.fence(g.blackId());
+        }
+        long gameStamp = routing.gameNode.stamp();
+        long playerStamp = routing.playerGame.stamp();
+        try (OpTimer ignored = time(initGamesOp); Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            List<Response<Long>> binds = new ArrayList<>(games.size() * 2);
+            for (NewGame g : games) {
+                long gid = g.gameId();
+                Map<String, String> state = new HashMap<>();
+                state.put("fen", initialFen);
+                state.put("fenPly", "0");
+                state.put("ply", "0");
+                state.put("turn", "w");
+                state.put("status", "IN_PROGRESS");
+                state.put("whiteId", g.whiteId());
+                state.put("blackId", g.blackId());
+                state.put("version", "0");
+                state.put("createdAt", now);
+                state.put("lastUpdated", now);
+                if (timeControl != null) {
+                    state.put("tcBaseMs", Long.toString(timeControl.baseMillis()));
+                    state.put("tcIncMs", Long.toString(timeControl.incrementMillis()));
+                    state.put("whiteMs", Long.toString(timeControl.baseMillis()));
+                    state.put("blackMs", Long.toString(timeControl.baseMillis()));
+                    state.put("clockAt", now);
+                }
+                p.zadd(kGameCheckpoints(gid), 0, "0|" + initialFen);
+                p.hmset(kGameState(gid), state);
+                p.set(kGameNode(gid), nodeId);
+                p.sadd(kNodeGames(nodeId), Long.toString(gid));
+                binds.add(p.setnx(kPlayerGame(g.whiteId()), Long.toString(gid)));
+                binds.add(p.setnx(kPlayerGame(g.blackId()), Long.toString(gid)));
+                p.sadd(kGamePlayers(gid), g.whiteId(), g.blackId());
+                p.publish(INVALIDATE_CHANNEL, routing.playerMessage(g.whiteId()));
+                p.publish(INVALIDATE_CHANNEL, routing.playerMessage(g.blackId()));
+            }
+            p.sync();
+
+            Pipeline undo = null;
+            for (int i = 0; i < live.length; i++) {
+                NewGame g = games.get(i);
+                boolean white = binds.get(2 * i).get() == 1L;
+                boolean black = binds.get(2 * i + 1).get() == 1L;
+                live[i] = white && black;
+                if (live[i]) {
+                    routing.gameNode.putIfNotInvalidatedSince(g.gameId(), nodeId, gameStamp);
+                    routing.playerGame.putIfNotInvalidatedSince(g.whiteId(), g.gameId(), playerStamp);
+                    routing.playerGame.putIfNotInvalidatedSince(g.blackId(), g.gameId(), playerStamp);
+                    continue;
+                }
+                if (undo == null) undo = j.pipelined();
+                long gid = g.gameId();
+                undo.del(kGameState(gid), kGameCheckpoints(gid), kGameNode(gid), kGamePlayers(gid));
+                undo.srem(kNodeGames(nodeId), Long.toString(gid));
+                if (white) undo.del(kPlayerGame(g.whiteId()));
+                if (black) undo.del(kPlayerGame(g.blackId()));
+                undo.publish(INVALIDATE_CHANNEL, routing.gameMessage(gid));
+            }
+            if (undo != null) undo.sync();
+            return live;
+        } catch (Exception e) {
+            System.out.println("[INIT_FAIL] " + games.size() + " games node=" + nodeId + " msg=" + e.getMessage());
+            undoInitGames(games, nodeId);
+            return new boolean[games.size()];
+        }
+    }
+
+    // Releases a binding only if it still points at the game, since the SETNX may not have been ours
+    private static final String DEL_IF_EQUALS =
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0";
+
+    // Best effort: we don't know which writes landed, so remove them all; the ids were freshly reserved
+    private void undoInitGames(List<NewGame> games, String nodeId) {
         try (Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            for (NewGame g : games) {
+                long gid = g.gameId();
+                String id = Long.toString(gid);
+                p.del(kGameState(gid), kGameCheckpoints(gid), kGameNode(gid), kGamePlayers(gid));
+                p.srem(kNodeGames(nodeId), id);
+                p.eval(DEL_IF_EQUALS, List.of(kPlayerGame(g.whiteId())), List.of(id));
+                p.eval(DEL_IF_EQUALS, List.of(kPlayerGame(g.blackId())), List.of(id));
+                p.publish(INVALIDATE_CHANNEL, routing.gameMessage(gid));
+                p.publish(INVALIDATE_CHANNEL, routing.playerMessage(g.whiteId()));
+                p.publish(INVALIDATE_CHANNEL, routing.playerMessage(g.blackId()));
+            }
+            p.sync();
+        } catch (Exception e) {
+            System.out.println("[INIT_FAIL] undo of " + games.size() + " games node=" + nodeId + " failed too: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void cleanUpGameCreation(long gid, String nodeId, String whiteId, String blackId) {
+        try (OpTimer ignored = time(creationCleanupOp); Jedis j = pool.getResource()) {
             j.del(kGameState(gid));
             j.del(kGameMoves(gid));
+            j.del(kGameCheckpoints(gid));
             j.del(kGameNode(gid));
             j.srem(kNodeGames(nodeId), Long.toString(gid));
             j.del(kPlayerGame(blackId));
             j.del(kPlayerGame(whiteId));
+            j.publish(INVALIDATE_CHANNEL, routing.gameMessage(gid));
+            j.publish(INVALIDATE_CHANNEL, routing.playerMessage(whiteId));
+            j.publish(INVALIDATE_CHANNEL, routing.playerMessage(blackId));
         }
+        routing.gameNode.invalidate(gid);
+        routing.playerGame.invalidate(whiteId);
+        routing.playerGame.invalidate(blackId);
     }
 
+    @Override
     public boolean endGamePersist(long gid, String nodeId, String resultString, String reasonString, String winnerIdOrNull) {
-        try (Jedis j = pool.getResource()) {
+        try (OpTimer ignored = time(endGameOp); Jedis j = pool.getResource()) {
             Map<String,String> endGameState = new HashMap<>();
             endGameState.put("status", "ENDED");
             endGameState.put("result", resultString);
             endGameState.put("reason", reasonString);
             endGameState.put("winnerId", winnerIdOrNull == null ? "" : winnerIdOrNull);
-            endGameState.put("lastUpdated", Long.toString(System.currentTimeMillis()));
+            long now = System.currentTimeMillis();
+            endGameState.put("lastUpdated", Long.toString(now));
             Transaction t = j.multi();
             t.hmset(kGameState(gid), endGameState);
             t.del(kGameNode(gid));
             t.srem(kNodeGames(nodeId), Long.toString(gid));
+            t.publish(INVALIDATE_CHANNEL, routing.gameMessage(gid));
+            t.zadd(K_ARCHIVE_PENDING, now, Long.toString(gid));
 
             List<Object> res = t.exec();
+            routing.gameNode.invalidate(gid);
             return res != null;
 
         }
     }
 
-    public void touchNodeHeartBeat(String nodeId, long nowMs) {
+    /* ---------- Near-cache invalidation ---------- */
+    private void startInvalidationListener() {
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try (Jedis j = pool.getResource()) {
+                    j.subscribe(new JedisPubSub() {
+                        @Override
+                        public void onMessage(String channel, String message) {
+                            if (MIGRATE_CHANNEL.equals(channel)) applyMigration(message);
+                            else routing.onMessage(message);
+                        }
+                    }, INVALIDATE_CHANNEL, MIGRATE_CHANNEL);
+                } catch (Exception e) {
+                    // Messages were missed while disconnected; start cold rather than trust them
+                    System.out.println("[REDIS] invalidation listener dropped: " + e.getMessage());
+                    routing.clear();
+                }
+                try { Thread.sleep(1_000L); } catch (InterruptedException ie) { return; }
+            }
+        }, "redis-invalidation");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // message is "<gid>:<toNode>"; the g: invalidation published just before it has already evicted the cached node
+    private void applyMigration(String message) {
+        int sep = message.indexOf(':');
+        var listener = migrationListener;
+        if (sep < 0 || listener == null) return;
+        try {
+            long gid = Long.parseLong(message.substring(0, sep));
+            listener.accept(gid, message.substring(sep + 1));
+        } catch (NumberFormatException ignore) {}
+    }
+
+    @Override
+    public long getRoutingCacheHits() { return routing.hits(); }
+
+    @Override
+    public long getRoutingCacheMisses() { return routing.misses(); }
+
+    @Override
+    public long getRoutingCacheInvalidations() { return routing.invalidations(); }
+
+    @Override
+    public int getRoutingCacheSize() { return routing.size(); }
+
+    @Override
+    public void touchNodeHeartBeat(String nodeId, long nowMs, NodeLoad load) {
+        try (OpTimer ignored = time(heartbeatOp); Jedis j = pool.getResource()) {
+            Map<String,String> fields = new HashMap<>();
+            fields.put("games", Integer.toString(load.activeGames()));
+            fields.put("connections", Integer.toString(load.connections()));
+            fields.put("moveP99Us", Long.toString(load.moveP99Micros()));
+            fields.put("cpu", Double.toString(load.cpuLoad()));
+            fields.put("draining", load.draining() ? "1" : "0");
+            fields.put("ts", Long.toString(nowMs));
+            Pipeline p = j.pipelined();
+            p.setex(kNodeHeartBeat(nodeId), 3, Long.toString(nowMs));
+            p.hset(kNodeLoad(nodeId), fields);
+            p.expire(kNodeLoad(nodeId), 3);
+            p.sadd(K_NODES, nodeId);
+            p.sync();
+        }
+    }
+
+    /** Latest load report of every node whose heartbeat hasn't expired. */
+    @Override
+    public List<NodeLoad> getNodeLoads() {
+        List<NodeLoad> loads = new java.util.ArrayList<>();
+        try (OpTimer ignored = time(nodeLoadsOp); Jedis j = pool.getResource()) {
+            List<String> nodes = new java.util.ArrayList<>(j.smembers(K_NODES));
+            Pipeline p = j.pipelined();
+            List<Response<Map<String, String>>> replies = new java.util.ArrayList<>();
+            for (String nodeId : nodes) replies.add(p.hgetAll(kNodeLoad(nodeId)));
+            p.sync();
+            for (int i = 0; i < nodes.size(); i++) {
+                Map<String, String> f = replies.get(i).get();
+                if (f == null || f.isEmpty()) continue;
+                loads.add(new NodeLoad(
+                    nodes.get(i),
+                    Integer.parseInt(f.getOrDefault("games", "0")),
+                    Integer.parseInt(f.getOrDefault("connections", "0")),
+                    Long.parseLong(f.getOrDefault("moveP99Us", "0")),
+                    Double.parseDouble(f.getOrDefault("cpu", "0")),
+                    "1".equals(f.get("draining")),
+                    Long.parseLong(f.getOrDefault("ts", "0"))));
+            }
+        }
+        return loads;
+    }
+
+    @Override
+    public long reserveGameIds(int count) {
+        try (OpTimer ignored = time(nextGameIdOp); Jedis j = pool.getResource()) {
+            return j.incrBy(K_NEXT_GAME_ID, count) - count + 1;
+        }
+    }
+
+    @Override
+    public long nextGameId() {
+        try (OpTimer ignored = time(nextGameIdOp); Jedis j = pool.getResource()) {
+            return j.incr(K_NEXT_GAME_ID);
+        }
+    }
+
+    /** Nodes with a fresh heartbeat and how many games each currently hosts. */
+    @Override
+    public Map<String, Long> getLiveNodeGameCounts() {
+        Map<String, Long> counts = new HashMap<>();
         try (Jedis j = pool.getResource()) {
-            j.setex(kNodeHeartBeat(nodeId), 3, Long.toString(nowMs));
+            for (String nodeId : j.smembers(K_NODES)) {
+                if (!j.exists(kNodeHeartBeat(nodeId))) continue;
+                counts.put(nodeId, j.scard(kNodeGames(nodeId)));
+            }
+        }
+        return counts;
+    }
+
+    /* ---------- Live migration ---------- */
+
+    /** Called with (gameId, toNode) whenever any node hands a game over. */
+    @Override
+    public void setMigrationListener(java.util.function.BiConsumer<Long, String> listener) {
+        this.migrationListener = listener;
+    }
+
+    /** Writes the snapshot and moves ownership to toNode in one transaction, then announces it. */
+    @Override
+    public boolean migrateGame(long gid, String fromNode, String toNode, String snapshotJson) {
+        long stamp = routing.gameNode.fence(gid);
+        try (OpTimer ignored = time(migrateOp); Jedis j = pool.getResource()) {
+            Transaction t = j.multi();
+            t.set(kGameSnapshot(gid), snapshotJson);
+            t.set(kGameNode(gid), toNode);
+            t.srem(kNodeGames(fromNode), Long.toString(gid));
+            t.sadd(kNodeGames(toNode), Long.toString(gid));
+            t.publish(INVALIDATE_CHANNEL, routing.gameMessage(gid));
+            t.publish(MIGRATE_CHANNEL, gid + ":" + toNode);
+            List<Object> res = t.exec();
+            if (res != null) routing.gameNode.putIfNotInvalidatedSince(gid, toNode, stamp);
+            return res != null;
+        } catch (Exception e) {
+            System.out.println("[MIGRATE_FAIL] gid=" + gid + " to=" + toNode + " msg=" + e.getMessage());
+            return false;
         }
     }
+
+    @Override
+    public String getGameSnapshot(long gid) {
+        try (OpTimer ignored = time(snapshotOp); Jedis j = pool.getResource()) {
+            return j.get(kGameSnapshot(gid));
+        }
+    }
+
+    @Override
+    public void deleteGameSnapshot(long gid) {
+        try (OpTimer ignored = time(snapshotOp); Jedis j = pool.getResource()) {
+            j.del(kGameSnapshot(gid));
+        }
+    }
+
+    /* ---------- Archival ---------- */
+
+    @Override
+    public List<ArchivedGame> pendingArchive(int max) {
+        try (OpTimer ignored = time(pendingArchiveOp); Jedis j = pool.getResource()) {
+            List<String> ids = j.zrange(K_ARCHIVE_PENDING, 0, max - 1);
+            if (ids.isEmpty()) return List.of();
+            Pipeline p = j.pipelined();
+            List<Response<Map<String, String>>> states = new ArrayList<>(ids.size());
+            List<Response<List<String>>> moves = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                long gid = Long.parseLong(id);
+                states.add(p.hgetAll(kGameState(gid)));
+                moves.add(p.lrange(kGameMoves(gid), 0, -1));
+            }
+            p.sync();
+
+            List<ArchivedGame> out = new ArrayList<>(ids.size());
+            List<String> gone = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Map<String, String> st = states.get(i).get();
+                if (st == null || st.isEmpty()) {
+                    gone.add(ids.get(i)); // already purged or never written
+                    continue;
+                }
+                out.add(toArchived(Long.parseLong(ids.get(i)), st, moves.get(i).get()));
+            }
+            if (!gone.isEmpty()) j.zrem(K_ARCHIVE_PENDING, gone.toArray(new String[0]));
+            return out;
+        }
+    }
+
+    @Override
+    public ArchivedGame getEndedGame(long gid) {
+        try (OpTimer ignored = time(pendingArchiveOp); Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            Response<Map<String, String>> state = p.hgetAll(kGameState(gid));
+            Response<List<String>> moves = p.lrange(kGameMoves(gid), 0, -1);
+            p.sync();
+            Map<String, String> st = state.get();
+            if (st == null || !"ENDED".equals(st.get("status"))) return null;
+            return toArchived(gid, st, moves.get());
+        }
+    }
+
+    private static ArchivedGame toArchived(long gid, Map<String, String> st, List<String> moves) {
+        return new ArchivedGame(gid, st.get("whiteId"), st.get("blackId"), st.get("result"), st.get("reason"),
+            st.get("winnerId"), timeControl(st), parseLong(st.get("createdAt")), parseLong(st.get("lastUpdated")),
+            moves);
+    }
+
+    /** MEMORY USAGE of the state, move list and checkpoints is read in the same pipeline, just before they're deleted. */
+    @Override
+    public long purgeArchived(List<Long> gameIds) {
+        if (gameIds.isEmpty()) return 0;
+        try (OpTimer ignored = time(purgeArchivedOp); Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            List<Response<Long>> sizes = new ArrayList<>(gameIds.size() * 3);
+            String[] ids = new String[gameIds.size()];
+            int n = 0;
+            for (long gid : gameIds) {
+                sizes.add(p.memoryUsage(kGameState(gid)));
+                sizes.add(p.memoryUsage(kGameMoves(gid)));
+                sizes.add(p.memoryUsage(kGameCheckpoints(gid)));
+                p.del(kGameState(gid), kGameMoves(gid), kGameCheckpoints(gid));
+                ids[n++] = Long.toString(gid);
+            }
+            p.zrem(K_ARCHIVE_PENDING, ids);
+            p.sync();
+            long freed = 0;
+            for (Response<Long> size : sizes) {
+                Long bytes = size.get();
+                if (bytes != null) freed += bytes;
+            }
+            return freed;
+        }
+    }
+
+    @Override
+    public boolean tryArchiveLease(String nodeId, long ttlMillis) {
+        try (Jedis j = pool.getResource()) {
+            if ("OK".equals(j.set(K_ARCHIVE_LEASE, nodeId, SetParams.setParams().nx().px(ttlMillis)))) return true;
+            // Renewal can race the lease expiring; two archivers then only write a duplicate record
+            if (!nodeId.equals(j.get(K_ARCHIVE_LEASE))) return false;
+            j.pexpire(K_ARCHIVE_LEASE, ttlMillis);
+            return true;
+        }
+    }
+
+    /* ---------- Ratings and leaderboard ---------- */
+
+    @Override
+    public Map<String, Rating> getRatings(Collection<String> playerIds) {
+        try (OpTimer ignored = time(ratingsOp); Jedis j = pool.getResource()) {
+            return readRatings(j, playerIds);
+        }
+    }
+
+    /** WATCH on every rating key, then one MULTI for all of them and the leaderboard. */
+    @Override
+    public Map<String, Rating> updateRatings(Collection<String> playerIds, UnaryOperator<Map<String, Rating>> update) {
+        String[] keys = playerIds.stream().map(this::kPlayerRating).toArray(String[]::new);
+        try (OpTimer ignored = time(updateRatingsOp); Jedis j = pool.getResource()) {
+            for (int attempt = 0; attempt < RATING_WRITE_ATTEMPTS; attempt++) {
+                j.watch(keys);
+                Map<String, Rating> next = update.apply(readRatings(j, playerIds));
+                Transaction t = j.multi();
+                for (Map.Entry<String, Rating> e : next.entrySet()) {
+                    Rating r = e.getValue();
+                    Map<String, String> fields = new HashMap<>();
+                    fields.put("rating", Double.toString(r.rating()));
+                    fields.put("rd", Double.toString(r.deviation()));
+                    fields.put("vol", Double.toString(r.volatility()));
+                    fields.put("games", Integer.toString(r.games()));
+                    fields.put("updatedAt", Long.toString(r.updatedAt()));
+                    t.hset(kPlayerRating(e.getKey()), fields);
+                    if (r.provisional()) t.zrem(K_LEADERBOARD, e.getKey());
+                    else t.zadd(K_LEADERBOARD, r.rating(), e.getKey());
+                }
+                if (t.exec() != null) return next;
+            }
+            return null;
+        }
+    }
+
+    private Map<String, Rating> readRatings(Jedis j, Collection<String> playerIds) {
+        Pipeline p = j.pipelined();
+        Map<String, Response<Map<String, String>>> responses = new HashMap<>();
+        for (String pid : playerIds) responses.put(pid, p.hgetAll(kPlayerRating(pid)));
+        p.sync();
+        Map<String, Rating> out = new HashMap<>();
+        for (Map.Entry<String, Response<Map<String, String>>> e : responses.entrySet()) {
+            Map<String, String> h = e.getValue().get();
+            if (h == null || h.isEmpty()) continue;
+            out.put(e.getKey(), new Rating(Double.parseDouble(h.get("rating")), Double.parseDouble(h.get("rd")),
+                Double.parseDouble(h.get("vol")), Integer.parseInt(h.get("games")), parseLong(h.get("updatedAt"))));
+        }
+        return out;
+    }
+
+    @Override
+    public List<LeaderboardEntry> leaderboard(long offset, int count) {
+        if (count <= 0) return List.of();
+        try (OpTimer ignored = time(leaderboardOp); Jedis j = pool.getResource()) {
+            List<Tuple> rows = j.zrevrangeWithScores(K_LEADERBOARD, offset, offset + count - 1);
+            List<LeaderboardEntry> out = new ArrayList<>(rows.size());
+            long rank = offset;
+            for (Tuple row : rows) out.add(new LeaderboardEntry(++rank, row.getElement(), (int) Math.round(row.getScore())));
+            return out;
+        }
+    }
+
+    @Override
+    public long leaderboardRank(String playerId) {
+        try (OpTimer ignored = time(leaderboardOp); Jedis j = pool.getResource()) {
+            Long rank = j.zrevrank(K_LEADERBOARD, playerId);
+            return rank == null ? 0 : rank + 1;
+        }
+    }
+
+    @Override
+    public long leaderboardSize() {
+        try (OpTimer ignored = time(leaderboardOp); Jedis j = pool.getResource()) {
+            return j.zcard(K_LEADERBOARD);
+        }
+    }
+
+    // Games started before tcBaseMs/tcIncMs only have the display string, which truncates sub-second increments
+    private static TimeControl timeControl(Map<String, String> st) {
+        long base = parseLong(st.get("tcBaseMs"));
+        if (base > 0) return new TimeControl(base, parseLong(st.get("tcIncMs")));
+        String legacy = st.get("timeControl");
+        if (legacy == null || legacy.isEmpty()) return null;
+        try {
+            return TimeControl.parse(legacy);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long parseLong(String v) {
+        return v == null || v.isEmpty() ? 0 : Long.parseLong(v);
+    }
 }
@@ -0,0 +1,75 @@
+package com.server.redis;
+
+import java.util.UUID;
+
+/**
+ * The player→game and game→node near-caches plus the invalidation messages that keep them in
+ * step across nodes. Messages are "origin|p:playerId" or "origin|g:gameId". A node skips its own,
+ * since it already updated its cache for that write; untagged messages are always applied.
+ *
+ * A fill (after a Redis read or a write) takes a stamp before going to Redis and is dropped if
+ * the key was invalidated in the meantime, so an invalidation that overtakes the fill can't leave
+ * the older value behind.
+ */
+final class RoutingCache {
+
+    private final String origin;
+    final NearCache<String, Long> playerGame;
+    final NearCache<Long, String> gameNode;
+
+    RoutingCache(int maxEntries, long ttlMs) {
+        this(UUID.randomUUID().toString(), maxEntries, ttlMs);
+    }
+
+    RoutingCache(String origin, int maxEntries, long ttlMs) {
+        if (origin.indexOf('|') >= 0) throw new IllegalArgumentException("origin can't contain '|': " + origin);
+        this.origin = origin;
+        this.playerGame = new NearCache<>(maxEntries, ttlMs);
+        this.gameNode = new NearCache<>(maxEntries, ttlMs);
+    }
+
+    /** The message that tells other nodes playerId's game changed. */
+    String playerMessage(String playerId) {
+        return origin + "|p:" + playerId;
+    }
+
+    /** The message that tells other nodes gameId's node changed. */
+    String gameMessage(long gameId) {
+        return origin + "|g:" + gameId;
+    }
+
+    /** Applies a message from the invalidation channel. False if it was ours or unreadable. */
+    boolean onMessage(String message) {
+        int sep = message.indexOf('|');
+        if (sep >= 0) {
+            if (sep == origin.length() && message.startsWith(origin)) return false;
+            message = message.substring(sep + 1);
+        }
+        if (message.startsWith("p:")) {
+            playerGame.invalidate(message.substring(2));
+            return true;
+        }
+        if (message.startsWith("g:")) {
+            try {
+                gameNode.invalidate(Long.parseLong(message.substring(2)));
+                return true;
+            } catch (NumberFormatException ignore) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        playerGame.clear();
+        gameNode.clear();
+    }
+
+    long hits() { return playerGame.hits() + gameNode.hits(); }
+
+    long misses() { return playerGame.misses() + gameNode.misses(); }
+
+    long invalidations() { return playerGame.invalidations() + gameNode.invalidations(); }
+
+    int size() { return playerGame.size() + gameNode.size(); }
+}
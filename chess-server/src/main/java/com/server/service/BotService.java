@@ -0,0 +1,46 @@
+package com.server.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.server.engine.SearchEngine;
+import com.server.engine.SearchResult;
+import com.server.model.Player;
+
+/**
+ * How a bot of a given rating plays: it searches for chess.botMoveMs scaled by rating/1500
+ * (clamped to 0.1x..2x), at most 1 + rating/300 plies deep, and in timed games never spends
+ * more than its remaining time / 30 plus most of the increment.
+ */
+public class BotService {
+
+    private static final long BOT_MOVE_MS = Long.getLong("chess.botMoveMs", 1_000L);
+    private static final int SEARCH_THREADS = Integer.getInteger("chess.botSearchThreads", 2);
+    private static final int REFERENCE_RATING = 1500;
+
+    private final SearchEngine engine;
+
+    public BotService(SearchEngine engine) {
+        this.engine = engine;
+    }
+
+    public Player newBot(int rating) {
+        String id = Player.BOT_ID_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+        return new Player(id, "Bot " + rating, rating);
+    }
+
+    /** remainingMillis < 0 for an untimed game. */
+    public CompletableFuture<SearchResult> chooseMove(String fen, int rating, long remainingMillis, long incrementMillis) {
+        return engine.search(fen, limitsFor(rating, remainingMillis, incrementMillis));
+    }
+
+    static SearchEngine.Limits limitsFor(int rating, long remainingMillis, long incrementMillis) {
+        double scale = Math.max(0.1, Math.min(2.0, (double) rating / REFERENCE_RATING));
+        long budget = Math.max(20, Math.round(BOT_MOVE_MS * scale));
+        if (remainingMillis >= 0) {
+            budget = Math.min(budget, Math.max(10, remainingMillis / 30 + incrementMillis * 3 / 4));
+        }
+        int maxDepth = Math.max(1, 1 + rating / 300);
+        return new SearchEngine.Limits(maxDepth, budget, SEARCH_THREADS);
+    }
+}
@@ -2,23 +2,41 @@ package com.server.service;
 
 import java.util.*;
 
+import com.server.jfr.GameCreatedEvent;
+import com.server.jfr.MatchmakingRoundEvent;
+import jdk.jfr.EventType;
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
 import com.server.model.ChessGame;
 import com.server.model.Player;
 import com.server.model.ChessGame.STATUS;
-import com.server.redis.RedisManager;
+import com.server.store.GameStore;
+import com.server.store.GameStores;
 import com.server.util.Match;
 import com.shared.dto.Envelope;
 import com.shared.dto.ErrorDTO;
 import com.shared.util.GameResult;
+import com.shared.util.TimeControl;
 
 public class MatchmakingService {
     private final Map<String, Queue<Player>> buckets = new HashMap<>();
     private final List<String> bucketOrder = Arrays.asList("low", "medium", "high");
-    private final Map<Long, ChessGame> activeGames = new HashMap<>();
+    // Queue sizes for the metrics scrape, which mustn't touch the LinkedLists or wait on matchLock
+    private final Map<String, java.util.concurrent.atomic.AtomicInteger> depth = new HashMap<>();
+    private final Map<Long, ChessGame> activeGames = new java.util.concurrent.ConcurrentHashMap<>();
     private final static long WAIT_THRESHOLD_MS = 5_000;
-    private long gameIdCounter = 1;
+    // Players still unmatched after this long are offered a bot game; 0 turns offers off
+    private static final long BOT_OFFER_AFTER_MS = Long.getLong("chess.botOfferAfterMs", 30_000L);
+    private final Set<String> botOffered = new HashSet<>(); // guarded by matchLock
+    // Every game on this node uses the same clock; "none" for untimed
+    private static final TimeControl TIME_CONTROL = parseTimeControl(System.getProperty("chess.timeControl", "5+3"));
+    // Checked before allocating an event, so a node without a recording allocates none
+    private static final EventType ROUND_EVENT = EventType.getEventType(MatchmakingRoundEvent.class);
+    private static final EventType GAME_CREATED_EVENT = EventType.getEventType(GameCreatedEvent.class);
     private final String nodeId;
     private final java.util.concurrent.locks.ReentrantLock matchLock = new java.util.concurrent.locks.ReentrantLock();
+    private final LatencyHistogram timeToMatch = Metrics.get().histogram(
+        "chess_matchmaking_time_to_match_us", "Time from joining the queue to being matched");
 
 
     public MatchmakingService(String nodeId) {
@@ -26,6 +44,12 @@ public class MatchmakingService {
         buckets.put("medium", new LinkedList<>()); //1000-1999
         buckets.put("high", new LinkedList<>()); // > 2000
         this.nodeId = nodeId;
+        for (String bucket : bucketOrder) {
+            java.util.concurrent.atomic.AtomicInteger size = new java.util.concurrent.atomic.AtomicInteger();
+            depth.put(bucket, size);
+            Metrics.get().gauge("chess_matchmaking_queue_depth", "Players waiting per rating bucket",
+                size::get, "bucket", bucket);
+        }
     }
 
     // Determine which bucket a player belongs in
@@ -39,20 +63,33 @@ public class MatchmakingService {
     public void addPlayer(Player player){
         String bucket = getBucket(player.getRating());
         buckets.get(bucket).add(player);
+        depth.get(bucket).incrementAndGet();
         System.out.println(player + " added to bucket " + bucket);
     }
 
     public List<Match> tryMatchWithWaiting(){
+        MatchmakingRoundEvent round = null;
+        if (ROUND_EVENT.isEnabled()) {
+            round = new MatchmakingRoundEvent();
+            round.begin();
+        }
         if (!matchLock.tryLock()) {
             System.out.println("[MATCH] busy; skip by " + Thread.currentThread().getName());
+            if (round != null) {
+                round.skipped = true;
+                round.commit();
+            }
             return java.util.Collections.emptyList();
         }
 
+        List<Match> matches = new ArrayList<Match>();
         try {
+            if (round != null) {
+                for (Queue<Player> q : buckets.values()) round.queuedBefore += q.size();
+            }
             System.out.print(System.currentTimeMillis() + Thread.currentThread().getName());
             long currentTime;
             Set<String> matchedPlayers = new HashSet<>();
-            List<Match> matches = new ArrayList<Match>();
 
             for(int i = 0; i < bucketOrder.size(); i++){
                 String bucketKey = bucketOrder.get(i);
@@ -78,6 +115,7 @@ public class MatchmakingService {
                         CreateGameResult gameResult = createChessGame(player1, player2);
                         if (gameResult.ok()) {
                             matches.add(new Match(player1, player2, gameResult.game()));
+                            recordMatched(player1, player2);
                             matchedPlayers.add(player1.getId());
                             matchedPlayers.add(player2.getId());
                             System.out.println("Matched " + player1 + " vs " + player2);
@@ -103,6 +141,7 @@ public class MatchmakingService {
                                 CreateGameResult gameResult = createChessGame(player, match);
                                 if (gameResult.ok()) {
                                     matches.add(new Match(player, match, gameResult.game()));
+                                    recordMatched(player, match);
                                     matchedPlayers.add(match.getId());
                                     matchedPlayers.add(player.getId());
                                     System.out.println("[Extended] Matched " + match + " vs " + player);
@@ -129,6 +168,7 @@ public class MatchmakingService {
                                 CreateGameResult gameResult = createChessGame(player, match);
                                 if (gameResult.ok()) {
                                     matches.add(new Match(player, match, gameResult.game()));
+                                    recordMatched(player, match);
                                     matchedPlayers.add(match.getId());
                                     matchedPlayers.add(player.getId());
                                     System.out.println("[Extended] Matched " + match + " vs " + player);
@@ -150,29 +190,103 @@ public class MatchmakingService {
             return matches;
         } finally {
             matchLock.unlock();
+            if (round != null) {
+                round.matches = matches.size();
+                round.commit();
+            }
         }
         
     }
 
+    /** Queued players who have waited past chess.botOfferAfterMs and haven't been offered a bot yet. */
+    public List<Player> dueBotOffers() {
+        List<Player> due = new ArrayList<>();
+        if (BOT_OFFER_AFTER_MS <= 0 || !matchLock.tryLock()) return due;
+        try {
+            long now = System.currentTimeMillis();
+            for (String bucket : bucketOrder) {
+                for (Player p : buckets.get(bucket)) {
+                    if (now - p.getJoinTime() >= BOT_OFFER_AFTER_MS && botOffered.add(p.getId())) due.add(p);
+                }
+            }
+        } finally {
+            matchLock.unlock();
+        }
+        return due;
+    }
+
+    /**
+     * Takes a player who accepted a bot offer out of the queue and starts their game against bot,
+     * on a coin toss for colour. Fails with UNKNOWN if they were matched or left meanwhile.
+     */
+    public CreateGameResult createBotGame(Player player, Player bot) {
+        matchLock.lock();
+        try {
+            if (!buckets.get(getBucket(player.getRating())).remove(player)) {
+                return new CreateGameResult(false, null, CreateGameError.UNKNOWN, "not waiting");
+            }
+            depth.get(getBucket(player.getRating())).decrementAndGet();
+            botOffered.remove(player.getId());
+            boolean humanWhite = java.util.concurrent.ThreadLocalRandom.current().nextBoolean();
+            CreateGameResult result = humanWhite ? createChessGame(player, bot) : createChessGame(bot, player);
+            if (result.ok()) {
+                timeToMatch.record((System.currentTimeMillis() - player.getJoinTime()) * 1_000);
+                System.out.println("[BOT] Matched " + player + " vs " + bot);
+            } else {
+                addPlayer(player);
+            }
+            return result;
+        } finally {
+            matchLock.unlock();
+        }
+    }
+
+    // Caller holds matchLock; a and b have been polled from their queues
+    private void recordMatched(Player a, Player b) {
+        depth.get(getBucket(a.getRating())).decrementAndGet();
+        depth.get(getBucket(b.getRating())).decrementAndGet();
+        botOffered.remove(a.getId());
+        botOffered.remove(b.getId());
+        long now = System.currentTimeMillis();
+        timeToMatch.record((now - a.getJoinTime()) * 1_000);
+        timeToMatch.record((now - b.getJoinTime()) * 1_000);
+    }
+
     public CreateGameResult createChessGame(Player player1, Player player2){
-        System.out.println("[CREATE] gid=" + gameIdCounter + " nodeId=" + nodeId
-            + " p1=" + player1.getId() + " p2=" + player2.getId());
         java.util.Objects.requireNonNull(nodeId, "[CREATE] nodeId is null");
+        if (!GAME_CREATED_EVENT.isEnabled()) return doCreateChessGame(player1, player2);
+        GameCreatedEvent event = new GameCreatedEvent();
+        event.begin();
+        CreateGameResult result = doCreateChessGame(player1, player2);
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = result.ok() ? result.game().getGameId() : -1;
+            event.whiteId = player1.getId();
+            event.blackId = player2.getId();
+            event.outcome = result.ok() ? "created" : String.valueOf(result.error());
+            event.commit();
+        }
+        return result;
+    }
+
+    private CreateGameResult doCreateChessGame(Player player1, Player player2){
+        GameStore store = GameStores.get();
 
+        // Ids come from the shared store so they stay unique when games move between nodes
+        Long gid = store.nextGameId();
+        System.out.println("[CREATE] gid=" + gid + " nodeId=" + nodeId
+            + " p1=" + player1.getId() + " p2=" + player2.getId());
 
         Player[] players = {player1, player2};
-        Long gid = gameIdCounter;
-        ChessGame game = new ChessGame(players, gid);
+        ChessGame game = new ChessGame(players, gid, TIME_CONTROL);
         
-
-        RedisManager rm = RedisManager.getInstance();
-        boolean stateSet = rm.initGameState(game.getGameId(), this.nodeId, game.getPosition().getFEN(), player1.getId(), player2.getId());
+        boolean stateSet = store.initGameState(game.getGameId(), this.nodeId, game.getFen(), player1.getId(), player2.getId(), TIME_CONTROL);
         if (!stateSet) {
             return new CreateGameResult(false, null, CreateGameError.INIT_FAILED, "init failed");
         }
 
-        boolean ok1 = rm.bindPlayerToGame(player1.getId(), game.getGameId());
-        boolean ok2 = rm.bindPlayerToGame(player2.getId(), game.getGameId());
+        boolean ok1 = store.bindPlayerToGame(player1.getId(), game.getGameId());
+        boolean ok2 = store.bindPlayerToGame(player2.getId(), game.getGameId());
 
         if (!ok1 || !ok2) {
             System.out.printf("[Redis] bind failed p1=%s ok1=%s p2=%s ok2=%s%n",
@@ -182,7 +296,6 @@ public class MatchmakingService {
 
         System.out.println("[Redis] Writing game " + game.getGameId() + " -> " + nodeId);
         activeGames.put(gid, game);
-        gameIdCounter++;
         System.out.println("Game Created " + game.toString());
         return new CreateGameResult(true, game, null, null);
     }
@@ -214,10 +327,51 @@ public class MatchmakingService {
         String bucket = getBucket(player.getRating());
 
         Queue<Player> queue = buckets.get(bucket);
-        queue.remove(player);
+        if (queue.remove(player)) depth.get(bucket).decrementAndGet();
+        matchLock.lock();
+        try {
+            botOffered.remove(player.getId());
+        } finally {
+            matchLock.unlock();
+        }
     }
 
     public ChessGame getActiveChessgame(long gameId){
         return activeGames.get(gameId);
     }
+
+    public java.util.Collection<ChessGame> getActiveGames(){
+        return activeGames.values();
+    }
+
+    /* ---------- Migration ---------- */
+    public boolean adoptGame(ChessGame game){
+        return activeGames.putIfAbsent(game.getGameId(), game) == null;
+    }
+
+    // Handed to another node: forget it without ending it
+    public void releaseGame(long gameId){
+        activeGames.remove(gameId);
+    }
+
+    // Empties every bucket; used when the node drains so waiting players can go elsewhere
+    public List<Player> drainQueues(){
+        List<Player> waiting = new ArrayList<>();
+        matchLock.lock();
+        try {
+            for (String bucket : bucketOrder) {
+                Queue<Player> queue = buckets.get(bucket);
+                waiting.addAll(queue);
+                depth.get(bucket).addAndGet(-queue.size());
+                queue.clear();
+            }
+        } finally {
+            matchLock.unlock();
+        }
+        return waiting;
+    }
+
+    private static TimeControl parseTimeControl(String spec) {
+        return "none".equalsIgnoreCase(spec) ? null : TimeControl.parse(spec);
+    }
 }
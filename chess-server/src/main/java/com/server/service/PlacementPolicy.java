@@ -0,0 +1,43 @@
+package com.server.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.server.util.NodeLoad;
+
+/**
+ * Picks the node a freshly matched game should live on. A game only leaves the node
+ * that matched it when another node is lighter by more than the margin, so two
+ * similar nodes don't keep bouncing players at each other. Load reports arrive about once a
+ * second, so a caller placing several games between them charges each pick with charge();
+ * otherwise a burst would herd onto whichever node last looked lightest.
+ */
+public class PlacementPolicy {
+    private final double margin;
+
+    public PlacementPolicy(double margin) {
+        this.margin = margin;
+    }
+
+    /** Returns localNodeId unless a live, non-draining node is clearly less loaded. */
+    public String choose(String localNodeId, Collection<NodeLoad> loads) {
+        NodeLoad local = null;
+        NodeLoad best = null;
+        for (NodeLoad l : loads) {
+            if (l.nodeId().equals(localNodeId)) local = l;
+            if (l.draining()) continue;
+            if (best == null || l.score() < best.score()) best = l;
+        }
+        if (best == null || best.nodeId().equals(localNodeId)) return localNodeId;
+        if (local != null && !local.draining() && best.score() + margin >= local.score()) return localNodeId;
+        return best.nodeId();
+    }
+
+    /** loads with one more game counted against nodeId; unchanged if nodeId hasn't reported. */
+    public static List<NodeLoad> charge(List<NodeLoad> loads, String nodeId) {
+        List<NodeLoad> out = new ArrayList<>(loads.size());
+        for (NodeLoad l : loads) out.add(l.nodeId().equals(nodeId) ? l.withOneMoreGame() : l);
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package com.server.service;
+
+import java.util.List;
+
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.model.ChessGame;
+import com.server.store.GameStore;
+import com.server.util.ReplaySlice;
+import com.shared.dto.ReplayDTO;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+
+/**
+ * Position at any ply of a game in the store. Full FENs are checkpointed every
+ * chess.fullFenEveryPlies plies, so a replay loads the nearest checkpoint at or before the ply
+ * and applies at most that many moves, however long the game is.
+ */
+public class ReplayService {
+
+    public static final int MAX_SLICE = 200;
+
+    private final GameStore store;
+    private final LatencyHistogram latency = Metrics.get().histogram(
+        "chess_replay_latency_us", "Time to rebuild a position at a ply, store reads included");
+
+    public ReplayService(GameStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Null if the game isn't in the store (never existed or already archived), or is still being
+     * played and viewerId isn't one of its players. Throws IllegalArgumentException if ply is past
+     * the end of the game, and IllegalStateException if the stored game doesn't replay.
+     */
+    public ReplayDTO replay(long gameId, int ply, int count, String viewerId) {
+        long start = System.nanoTime();
+        if (ply < 0) throw new IllegalArgumentException("ply must be >= 0");
+        int slice = Math.max(0, Math.min(count, MAX_SLICE));
+        ReplaySlice s = store.loadReplay(gameId, ply, ply + slice);
+        if (s == null || !s.visibleTo(viewerId)) return null;
+        if (ply > s.totalPlies()) {
+            throw new IllegalArgumentException("game " + gameId + " has " + s.totalPlies() + " plies");
+        }
+
+        Position position;
+        List<String> moves = s.moves();
+        int toApply = ply - s.checkpointPly();
+        try {
+            position = new Position(s.checkpointFen());
+            for (int i = 0; i < toApply; i++) position.doMove(ChessGame.parseMove(position, moves.get(i)));
+        } catch (IllegalMoveException | RuntimeException e) {
+            // A bad checkpoint FEN or a move that isn't UCI is as corrupt as an illegal one
+            throw new IllegalStateException("stored move list of game " + gameId + " doesn't replay at ply "
+                + (s.checkpointPly() + 1) + "+", e);
+        }
+        ReplayDTO dto = new ReplayDTO(gameId, ply, position.getFEN(), List.copyOf(moves.subList(toApply, moves.size())),
+            s.totalPlies());
+        latency.recordNanosAsMicros(start);
+        return dto;
+    }
+}
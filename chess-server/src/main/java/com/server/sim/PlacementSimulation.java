@@ -0,0 +1,112 @@
+package com.server.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.server.service.PlacementPolicy;
+import com.server.util.NodeLoad;
+
+/**
+ * Offline model of game placement. Players land on nodes with a skewed distribution
+ * (what an LB hash ring with uneven arcs or sticky cookies produces), get matched on
+ * the node they landed on, and play for a random number of ticks. Runs the same
+ * arrival stream with and without PlacementPolicy and prints how evenly games spread.
+ * Like the server, the policy sees load reports that are refreshed every refreshTicks,
+ * with and without charging each pick to the snapshot in between.
+ *
+ * Usage: PlacementSimulation [ticks] [arrivalsPerTick] [seed] [refreshTicks]
+ */
+public class PlacementSimulation {
+
+    private static final double[] LB_WEIGHTS = { 0.40, 0.30, 0.20, 0.10 };
+    private static final int MIN_GAME_TICKS = 300;
+    private static final int MAX_GAME_TICKS = 1_800;
+    private static final int WARMUP_TICKS = 2_000;
+
+    private record Ending(long atTick, int node) {}
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int arrivalsPerTick = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int refreshTicks = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.printf("nodes=%d lbWeights=%s ticks=%d arrivals/tick=%d seed=%d refreshTicks=%d%n",
+            LB_WEIGHTS.length, java.util.Arrays.toString(LB_WEIGHTS), ticks, arrivalsPerTick, seed, refreshTicks);
+        report("matching node        ", run(null, false, ticks, arrivalsPerTick, seed, refreshTicks));
+        report("least-loaded, stale  ", run(new PlacementPolicy(10), false, ticks, arrivalsPerTick, seed, refreshTicks));
+        report("least-loaded, charged", run(new PlacementPolicy(10), true, ticks, arrivalsPerTick, seed, refreshTicks));
+    }
+
+    /** Returns {mean variance, mean max, mean min, mean total} of active games per node after warmup. */
+    static double[] run(PlacementPolicy policy, boolean charge, int ticks, int arrivalsPerTick, long seed, int refreshTicks) {
+        Random rnd = new Random(seed);
+        int n = LB_WEIGHTS.length;
+        int[] games = new int[n];
+        int[] waiting = new int[n];
+        PriorityQueue<Ending> endings = new PriorityQueue<>((a, b) -> Long.compare(a.atTick(), b.atTick()));
+        List<NodeLoad> snapshot = loads(games);
+
+        double varSum = 0, maxSum = 0, minSum = 0, totalSum = 0;
+        int samples = 0;
+
+        for (long t = 0; t < ticks; t++) {
+            while (!endings.isEmpty() && endings.peek().atTick() <= t) games[endings.poll().node()]--;
+
+            for (int a = 0; a < arrivalsPerTick; a++) waiting[pickNode(rnd)]++;
+            if (t % refreshTicks == 0) snapshot = loads(games);
+
+            for (int node = 0; node < n; node++) {
+                while (waiting[node] >= 2) {
+                    waiting[node] -= 2;
+                    int host = node;
+                    if (policy != null) {
+                        String target = policy.choose(Integer.toString(node), snapshot);
+                        if (charge) snapshot = PlacementPolicy.charge(snapshot, target);
+                        host = Integer.parseInt(target);
+                    }
+                    games[host]++;
+                    endings.add(new Ending(t + MIN_GAME_TICKS + rnd.nextInt(MAX_GAME_TICKS - MIN_GAME_TICKS), host));
+                }
+            }
+
+            if (t < WARMUP_TICKS) continue;
+            double mean = 0;
+            int max = Integer.MIN_VALUE, min = Integer.MAX_VALUE;
+            for (int g : games) { mean += g; max = Math.max(max, g); min = Math.min(min, g); }
+            mean /= n;
+            double var = 0;
+            for (int g : games) var += (g - mean) * (g - mean);
+            varSum += var / n;
+            maxSum += max;
+            minSum += min;
+            totalSum += mean * n;
+            samples++;
+        }
+        return new double[] { varSum / samples, maxSum / samples, minSum / samples, totalSum / samples };
+    }
+
+    private static List<NodeLoad> loads(int[] games) {
+        List<NodeLoad> loads = new ArrayList<>(games.length);
+        for (int i = 0; i < games.length; i++) {
+            loads.add(new NodeLoad(Integer.toString(i), games[i], games[i] * 2, 0, 0, false, 0));
+        }
+        return loads;
+    }
+
+    private static int pickNode(Random rnd) {
+        double r = rnd.nextDouble();
+        for (int i = 0; i < LB_WEIGHTS.length; i++) {
+            r -= LB_WEIGHTS[i];
+            if (r < 0) return i;
+        }
+        return LB_WEIGHTS.length - 1;
+    }
+
+    private static void report(String label, double[] r) {
+        System.out.printf("%s: games/node variance=%.1f stddev=%.1f busiest=%.1f idlest=%.1f total=%.1f%n",
+            label, r[0], Math.sqrt(r[0]), r[1], r[2], r[3]);
+    }
+}
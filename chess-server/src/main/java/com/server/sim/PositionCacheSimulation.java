@@ -0,0 +1,85 @@
+package com.server.sim;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import com.server.archive.ArchivedGame;
+import com.server.archive.GameArchive;
+import com.server.model.ChessGame;
+import com.server.model.PositionCache;
+
+import chesspresso.move.IllegalMoveException;
+import chesspresso.position.Position;
+
+/**
+ * Replays archived games through a PositionCache the way a node uses it: each move is validated
+ * against the position before it, then the position after it is checked for mate and stalemate.
+ * Prints what share of validations the cache answered, overall and by ply, for a given cache size.
+ *
+ * Usage: PositionCacheSimulation archiveDir [entries] [maxGames]
+ */
+public class PositionCacheSimulation {
+
+    private static final int[] PLY_BUCKETS = { 10, 20, 40, 80, Integer.MAX_VALUE };
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Path.of(args[0]);
+        int entries = args.length > 1 ? Integer.parseInt(args[1]) : 65_536;
+        long maxGames = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+
+        PositionCache cache = new PositionCache(entries);
+        long[] validations = new long[PLY_BUCKETS.length];
+        long[] saved = new long[PLY_BUCKETS.length];
+        long games = 0;
+        long start = System.nanoTime();
+        try (GameArchive archive = GameArchive.openReadOnly(dir)) {
+            Iterator<ArchivedGame> it = archive.scan(0, Long.MAX_VALUE);
+            while (it.hasNext() && games < maxGames) {
+                Position position = Position.createInitialPosition();
+                int ply = 0;
+                for (String uci : it.next().moves()) {
+                    short move = ChessGame.parseMove(position, uci);
+                    long hitsBefore = cache.hits();
+                    boolean legal = cache.lookup(position).isLegal(move);
+                    int bucket = bucket(ply);
+                    validations[bucket]++;
+                    if (cache.hits() > hitsBefore) saved[bucket]++;
+                    if (!legal) break;
+                    try {
+                        position.doMove(move);
+                    } catch (IllegalMoveException e) {
+                        break;
+                    }
+                    ply++;
+                    cache.lookup(position);
+                }
+                games++;
+            }
+        }
+
+        long allValidations = 0, allSaved = 0;
+        System.out.printf("games=%d entries=%d time=%.1fs%n", games, entries, (System.nanoTime() - start) / 1e9);
+        System.out.printf("%-12s %12s %12s %8s%n", "plies", "validations", "from cache", "saved");
+        int lo = 1;
+        for (int b = 0; b < PLY_BUCKETS.length; b++) {
+            String range = PLY_BUCKETS[b] == Integer.MAX_VALUE ? lo + "+" : lo + "-" + PLY_BUCKETS[b];
+            System.out.printf("%-12s %12d %12d %7.1f%%%n", range, validations[b], saved[b], pct(saved[b], validations[b]));
+            allValidations += validations[b];
+            allSaved += saved[b];
+            lo = PLY_BUCKETS[b] + 1;
+        }
+        System.out.printf("%-12s %12d %12d %7.1f%%%n", "all", allValidations, allSaved, pct(allSaved, allValidations));
+        System.out.printf("all lookups (validation + end check): hit ratio %.1f%%, %d cached, %d evicted%n",
+            cache.hitRatio() * 100, cache.size(), cache.evictions());
+    }
+
+    private static int bucket(int ply) {
+        int b = 0;
+        while (ply + 1 > PLY_BUCKETS[b]) b++;
+        return b;
+    }
+
+    private static double pct(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
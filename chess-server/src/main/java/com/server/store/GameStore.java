@@ -0,0 +1,160 @@
+package com.server.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import com.server.archive.ArchivedGame;
+import com.server.rating.LeaderboardEntry;
+import com.server.rating.Rating;
+import com.server.util.NewGame;
+import com.server.util.NodeLoad;
+import com.server.util.ReplaySlice;
+import com.shared.util.TimeControl;
+
+/**
+ * Everything the server persists outside its own heap: game state and move list, which node
+ * hosts a game, which game a player is in, node heartbeats/load and migration snapshots.
+ * RedisManager is the clustered implementation; InMemoryGameStore serves a single node.
+ * Pick one at startup with -Dchess.store=redis|memory (see GameStores).
+ */
+public interface GameStore {
+
+    /* ---------- Game lifecycle ---------- */
+
+    long nextGameId();
+
+    /**
+     * Writes the starting state and hosts the game on nodeId. True if it was written or already existed.
+     * timeControl is null for untimed games.
+     */
+    boolean initGameState(long gid, String nodeId, String initialFen, String whiteId, String blackId,
+                          TimeControl timeControl);
+
+    /** Reserves count consecutive game ids and returns the first. */
+    long reserveGameIds(int count);
+
+    /**
+     * initGameState plus both bindPlayerToGame calls for many games in one round trip, all
+     * hosted on nodeId. A game one of whose players is already bound elsewhere is undone; the
+     * result says, per game, whether it is live.
+     */
+    boolean[] initGames(List<NewGame> games, String nodeId, String initialFen, TimeControl timeControl);
+
+    /** Undoes a half-created game (state, moves, host and both player bindings). */
+    void cleanUpGameCreation(long gid, String nodeId, String whiteId, String blackId);
+
+    /**
+     * Commits one ply atomically. newFen may be null on delta plies; the move list stays authoritative.
+     * whiteMillis/blackMillis are the clocks after the move (-1 when untimed); the side to move's
+     * clock started at the commit time, so a node taking over can work out what is left.
+     */
+    boolean commitMove(long gid, String nodeId, String newFen, int ply,
+                       String moveUci, String whiteId, String blackId, String turn, String status,
+                       long whiteMillis, long blackMillis);
+
+    /**
+     * The checkpoint at or before ply (every full FEN commitMove was given is one, as is the
+     * starting position) and the moves after it up to toPly. Null if the game isn't in the store.
+     */
+    ReplaySlice loadReplay(long gid, int ply, int toPly);
+
+    boolean endGamePersist(long gid, String nodeId, String resultString, String reasonString, String winnerIdOrNull);
+
+    /** Drops the host mapping and every player binding for a finished game. */
+    void endGameCleanup(long gameId, String nodeId);
+
+    /* ---------- Game ↔ Node ---------- */
+
+    void setGameNode(long gameId, String nodeId);
+
+    /** May be served from a cache. */
+    String getGameNode(long gameId);
+
+    /** Bypasses any cache; use before acting on a mapping that would send a client elsewhere. */
+    String getGameNodeFresh(long gameId);
+
+    /* ---------- Player ↔ Game ---------- */
+
+    /** Returns true if bound or already bound to same game; false if bound elsewhere. */
+    boolean bindPlayerToGame(String playerId, long gameId);
+
+    /** May be served from a cache. */
+    Long getPlayerGame(String playerId);
+
+    Long getPlayerGameFresh(String playerId);
+
+    /* ---------- Nodes ---------- */
+
+    void touchNodeHeartBeat(String nodeId, long nowMs, NodeLoad load);
+
+    /** Latest load report of every node whose heartbeat hasn't expired. */
+    List<NodeLoad> getNodeLoads();
+
+    /** Nodes with a fresh heartbeat and how many games each currently hosts. */
+    Map<String, Long> getLiveNodeGameCounts();
+
+    /* ---------- Live migration ---------- */
+
+    /** Called with (gameId, toNode) whenever any node hands a game over. */
+    void setMigrationListener(BiConsumer<Long, String> listener);
+
+    /** Stores the snapshot and moves ownership to toNode in one step, then announces it. */
+    boolean migrateGame(long gid, String fromNode, String toNode, String snapshotJson);
+
+    String getGameSnapshot(long gid);
+
+    void deleteGameSnapshot(long gid);
+
+    /* ---------- Archival ---------- */
+
+    /** Up to max games that went through endGamePersist and aren't archived yet, oldest first, with their moves. */
+    List<ArchivedGame> pendingArchive(int max);
+
+    /** A game that ended but hasn't been purged by the archiver yet; null otherwise. */
+    ArchivedGame getEndedGame(long gid);
+
+    /**
+     * Deletes the state and move list of games the archive has confirmed and takes them off the
+     * pending list. Returns the store memory this released in bytes, or -1 if the store can't tell.
+     */
+    long purgeArchived(List<Long> gameIds);
+
+    /** Cluster-wide lease so one node archives at a time. True if nodeId holds it (renewed) now. */
+    boolean tryArchiveLease(String nodeId, long ttlMillis);
+
+    /* ---------- Ratings and leaderboard ---------- */
+
+    /** Stored ratings of the given players; unrated players are left out. */
+    Map<String, Rating> getRatings(Collection<String> playerIds);
+
+    /**
+     * Reads the ratings of playerIds (unrated ones absent), hands them to update and writes back
+     * everything it returns in one step, keeping the leaderboard in line: non-provisional ratings
+     * are ranked, provisional ones aren't. If another node changes one of them in between, update
+     * runs again on the fresh values. Returns what was written, or null if it kept losing that race.
+     */
+    Map<String, Rating> updateRatings(Collection<String> playerIds, UnaryOperator<Map<String, Rating>> update);
+
+    /** count ranked players starting after the first offset, best first. */
+    List<LeaderboardEntry> leaderboard(long offset, int count);
+
+    /** playerId's rank (1 = best), or 0 if they aren't ranked. */
+    long leaderboardRank(String playerId);
+
+    long leaderboardSize();
+
+    /* ---------- Routing near-cache (stores without one report zeros) ---------- */
+
+    default long getRoutingCacheHits() { return 0; }
+
+    default long getRoutingCacheMisses() { return 0; }
+
+    default long getRoutingCacheInvalidations() { return 0; }
+
+    default int getRoutingCacheSize() { return 0; }
+
+    void close();
+}
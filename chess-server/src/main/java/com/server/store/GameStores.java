@@ -0,0 +1,35 @@
+package com.server.store;
+
+import com.server.redis.RedisManager;
+
+/**
+ * Process-wide GameStore, chosen once from -Dchess.store: "redis" (default) for clustered
+ * deployments, "memory" for a single node that should run without Redis.
+ */
+public final class GameStores {
+
+    private static volatile GameStore instance;
+
+    private GameStores() {}
+
+    public static GameStore get() {
+        GameStore store = instance;
+        if (store != null) return store;
+        synchronized (GameStores.class) {
+            if (instance == null) instance = create(System.getProperty("chess.store", "redis"));
+            return instance;
+        }
+    }
+
+    private static GameStore create(String kind) {
+        GameStore store = switch (kind) {
+            // Ended games are only kept for an archiver to collect
+            case "memory" -> new InMemoryGameStore(Boolean.parseBoolean(System.getProperty("chess.archive", "true")),
+                Integer.getInteger("chess.memoryMaxEndedGames", 100_000));
+            case "redis" -> RedisManager.getInstance();
+            default -> throw new IllegalArgumentException("unknown chess.store: " + kind + " (redis|memory)");
+        };
+        System.out.println("[STORE] using " + kind + " game store");
+        return store;
+    }
+}
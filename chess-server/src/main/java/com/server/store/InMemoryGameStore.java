@@ -0,0 +1,496 @@
+package com.server.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import com.server.archive.ArchivedGame;
+import com.server.rating.LeaderboardEntry;
+import com.server.rating.Rating;
+import com.server.util.NewGame;
+import com.server.util.NodeLoad;
+import com.server.util.ReplaySlice;
+import com.shared.util.TimeControl;
+
+/**
+ * GameStore for a single node (and for benchmarks) with no Redis behind it. The lookup maps
+ * are ConcurrentHashMaps so routing reads never block; anything that changes a game's state
+ * together with its host takes the game's stripe lock, so writers of different games don't
+ * contend and writers of the same game see the same all-or-nothing steps as a MULTI/EXEC.
+ */
+public class InMemoryGameStore implements GameStore {
+
+    private static final int STRIPES = 64;
+    private static final long HEARTBEAT_TTL_MS = 3_000L;
+
+    private static final class GameRecord {
+        String fen;
+        int fenPly;
+        int ply;
+        String turn;
+        String status;
+        String whiteId;
+        String blackId;
+        long version;
+        long createdAt;
+        long lastUpdated;
+        String result;
+        String reason;
+        String winnerId;
+        TimeControl timeControl;
+        long whiteMillis = -1;
+        long blackMillis = -1;
+        long clockAt;
+        final List<String> moves = new ArrayList<>();
+        final TreeMap<Integer, String> checkpoints = new TreeMap<>();
+    }
+
+    private record Heartbeat(NodeLoad load, long expiresAt) {}
+
+    private record Ranked(String playerId, double rating) {}
+
+    private static final Comparator<Ranked> BEST_FIRST =
+        Comparator.comparingDouble(Ranked::rating).reversed().thenComparing(Ranked::playerId);
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<Long, GameRecord> games = new ConcurrentHashMap<>();
+    private final Map<Long, String> gameNode = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> nodeGames = new ConcurrentHashMap<>();
+    private final Map<String, Long> playerGame = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> gamePlayers = new ConcurrentHashMap<>();
+    private final Map<Long, String> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Heartbeat> heartbeats = new ConcurrentHashMap<>();
+    // Ended games waiting for the archiver, in end order; guarded by itself
+    private final Set<Long> pendingArchive = new LinkedHashSet<>();
+    // Without an archiver ended games are dropped at cleanup; with one, at most maxEnded wait for it
+    private final boolean archiving;
+    private final int maxEnded;
+    private final AtomicLong nextGameId = new AtomicLong();
+    // Ratings and the leaderboard change together; both guarded by ratings
+    private final Map<String, Rating> ratings = new HashMap<>();
+    private final TreeSet<Ranked> leaderboard = new TreeSet<>(BEST_FIRST);
+    private volatile BiConsumer<Long, String> migrationListener;
+
+    public InMemoryGameStore() {
+        this(true, Integer.MAX_VALUE);
+    }
+
+    public InMemoryGameStore(boolean archiving, int maxEnded) {
+        this.archiving = archiving;
+        this.maxEnded = maxEnded;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+    }
+
+    private Object lockFor(long gid) {
+        // Game ids are sequential; spread neighbours over different stripes
+        long h = gid * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 58) & (STRIPES - 1)];
+    }
+
+    private Set<Long> gamesOn(String nodeId) {
+        return nodeGames.computeIfAbsent(nodeId, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    private void hostOn(long gid, String nodeId) {
+        String prev = gameNode.put(gid, nodeId);
+        if (prev != null && !prev.equals(nodeId)) gamesOn(prev).remove(gid);
+        gamesOn(nodeId).add(gid);
+    }
+
+    private void unhost(long gid, String nodeId) {
+        gameNode.remove(gid);
+        gamesOn(nodeId).remove(gid);
+    }
+
+    /* ---------- Game lifecycle ---------- */
+
+    @Override
+    public long nextGameId() {
+        return nextGameId.incrementAndGet();
+    }
+
+    @Override
+    public boolean initGameState(long gid, String nodeId, String initialFen, String whiteId, String blackId,
+                                 TimeControl timeControl) {
+        synchronized (lockFor(gid)) {
+            if (games.containsKey(gid)) return true;
+            GameRecord g = new GameRecord();
+            g.fen = initialFen;
+            g.fenPly = 0;
+            g.checkpoints.put(0, initialFen);
+            g.ply = 0;
+            g.turn = "w";
+            g.status = "IN_PROGRESS";
+            g.whiteId = whiteId;
+            g.blackId = blackId;
+            g.version = 0;
+            g.createdAt = g.lastUpdated = System.currentTimeMillis();
+            if (timeControl != null) {
+                g.timeControl = timeControl;
+                g.whiteMillis = timeControl.baseMillis();
+                g.blackMillis = timeControl.baseMillis();
+                g.clockAt = g.lastUpdated;
+            }
+            games.put(gid, g);
+            hostOn(gid, nodeId);
+            return true;
+        }
+    }
+
+    @Override
+    public long reserveGameIds(int count) {
+        return nextGameId.addAndGet(count) - count + 1;
+    }
+
+    @Override
+    public boolean[] initGames(List<NewGame> newGames, String nodeId, String initialFen, TimeControl timeControl) {
+        boolean[] live = new boolean[newGames.size()];
+        for (int i = 0; i < live.length; i++) {
+            NewGame g = newGames.get(i);
+            initGameState(g.gameId(), nodeId, initialFen, g.whiteId(), g.blackId(), timeControl);
+            boolean white = bindPlayerToGame(g.whiteId(), g.gameId());
+            boolean black = bindPlayerToGame(g.blackId(), g.gameId());
+            live[i] = white && black;
+            if (!live[i]) cleanUpGameCreation(g.gameId(), nodeId, g.whiteId(), g.blackId());
+        }
+        return live;
+    }
+
+    @Override
+    public void cleanUpGameCreation(long gid, String nodeId, String whiteId, String blackId) {
+        synchronized (lockFor(gid)) {
+            games.remove(gid);
+            unhost(gid, nodeId);
+            gamePlayers.remove(gid);
+            playerGame.remove(whiteId, gid);
+            playerGame.remove(blackId, gid);
+        }
+    }
+
+    @Override
+    public boolean commitMove(long gid, String nodeId, String newFen, int ply,
+                              String moveUci, String whiteId, String blackId, String turn, String status,
+                              long whiteMillis, long blackMillis) {
+        synchronized (lockFor(gid)) {
+            GameRecord g = games.computeIfAbsent(gid, k -> new GameRecord());
+            if (newFen != null) {
+                g.fen = newFen;
+                g.fenPly = ply;
+                g.checkpoints.put(ply, newFen);
+            }
+            g.ply = ply;
+            g.turn = turn;
+            g.status = status;
+            g.whiteId = whiteId;
+            g.blackId = blackId;
+            g.lastUpdated = System.currentTimeMillis();
+            if (whiteMillis >= 0) {
+                g.whiteMillis = whiteMillis;
+                g.blackMillis = blackMillis;
+                g.clockAt = g.lastUpdated;
+            }
+            g.version++;
+            g.moves.add(moveUci);
+            hostOn(gid, nodeId);
+            return true;
+        }
+    }
+
+    @Override
+    public ReplaySlice loadReplay(long gid, int ply, int toPly) {
+        synchronized (lockFor(gid)) {
+            GameRecord g = games.get(gid);
+            if (g == null) return null;
+            Map.Entry<Integer, String> cp = g.checkpoints.floorEntry(ply);
+            if (cp == null) return null;
+            int end = Math.min(toPly, g.moves.size());
+            List<String> moves = end > cp.getKey() ? List.copyOf(g.moves.subList(cp.getKey(), end)) : List.of();
+            return new ReplaySlice(cp.getKey(), cp.getValue(), moves, g.moves.size(), "ENDED".equals(g.status), g.whiteId, g.blackId);
+        }
+    }
+
+    @Override
+    public boolean endGamePersist(long gid, String nodeId, String resultString, String reasonString, String winnerIdOrNull) {
+        synchronized (lockFor(gid)) {
+            GameRecord g = games.computeIfAbsent(gid, k -> new GameRecord());
+            g.status = "ENDED";
+            g.result = resultString;
+            g.reason = reasonString;
+            g.winnerId = winnerIdOrNull == null ? "" : winnerIdOrNull;
+            g.lastUpdated = System.currentTimeMillis();
+            unhost(gid, nodeId);
+        }
+        if (!archiving) return true;
+        Long evicted = null;
+        synchronized (pendingArchive) {
+            pendingArchive.add(gid);
+            if (pendingArchive.size() > maxEnded) {
+                Iterator<Long> oldest = pendingArchive.iterator();
+                evicted = oldest.next();
+                oldest.remove();
+            }
+        }
+        if (evicted != null) {
+            // The archiver has fallen this far behind; the oldest game is lost rather than the heap
+            System.out.println("[STORE] dropping unarchived game " + evicted + " (over " + maxEnded + " pending)");
+            synchronized (lockFor(evicted)) {
+                games.remove(evicted);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void endGameCleanup(long gameId, String nodeId) {
+        synchronized (lockFor(gameId)) {
+            unhost(gameId, nodeId);
+            Set<String> players = gamePlayers.remove(gameId);
+            if (players != null) {
+                for (String pid : players) playerGame.remove(pid, gameId);
+            }
+            // Ended games stay until the archiver has them; anything else has nowhere to go
+            GameRecord g = games.get(gameId);
+            if (g != null && (!archiving || !"ENDED".equals(g.status))) games.remove(gameId);
+        }
+    }
+
+    /* ---------- Game ↔ Node ---------- */
+
+    @Override
+    public void setGameNode(long gameId, String nodeId) {
+        synchronized (lockFor(gameId)) {
+            hostOn(gameId, nodeId);
+        }
+    }
+
+    @Override
+    public String getGameNode(long gameId) {
+        return gameNode.get(gameId);
+    }
+
+    @Override
+    public String getGameNodeFresh(long gameId) {
+        return gameNode.get(gameId);
+    }
+
+    /* ---------- Player ↔ Game ---------- */
+
+    @Override
+    public boolean bindPlayerToGame(String playerId, long gameId) {
+        synchronized (lockFor(gameId)) {
+            Long existing = playerGame.putIfAbsent(playerId, gameId);
+            if (existing != null && existing != gameId) return false; // already in a different game
+            gamePlayers.computeIfAbsent(gameId, k -> ConcurrentHashMap.newKeySet()).add(playerId);
+            return true;
+        }
+    }
+
+    @Override
+    public Long getPlayerGame(String playerId) {
+        return playerGame.get(playerId);
+    }
+
+    @Override
+    public Long getPlayerGameFresh(String playerId) {
+        return playerGame.get(playerId);
+    }
+
+    /* ---------- Nodes ---------- */
+
+    @Override
+    public void touchNodeHeartBeat(String nodeId, long nowMs, NodeLoad load) {
+        heartbeats.put(nodeId, new Heartbeat(load, nowMs + HEARTBEAT_TTL_MS));
+    }
+
+    @Override
+    public List<NodeLoad> getNodeLoads() {
+        long now = System.currentTimeMillis();
+        List<NodeLoad> loads = new ArrayList<>();
+        for (Heartbeat hb : heartbeats.values()) {
+            if (hb.expiresAt() > now) loads.add(hb.load());
+        }
+        return loads;
+    }
+
+    @Override
+    public Map<String, Long> getLiveNodeGameCounts() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, Heartbeat> e : heartbeats.entrySet()) {
+            if (e.getValue().expiresAt() <= now) continue;
+            counts.put(e.getKey(), (long) gamesOn(e.getKey()).size());
+        }
+        return counts;
+    }
+
+    /* ---------- Live migration ---------- */
+
+    @Override
+    public void setMigrationListener(BiConsumer<Long, String> listener) {
+        this.migrationListener = listener;
+    }
+
+    @Override
+    public boolean migrateGame(long gid, String fromNode, String toNode, String snapshotJson) {
+        synchronized (lockFor(gid)) {
+            snapshots.put(gid, snapshotJson);
+            gamesOn(fromNode).remove(gid);
+            hostOn(gid, toNode);
+        }
+        // Same order as Redis pub/sub: the announcement only goes out once the handover is visible
+        var listener = migrationListener;
+        if (listener != null) listener.accept(gid, toNode);
+        return true;
+    }
+
+    @Override
+    public String getGameSnapshot(long gid) {
+        return snapshots.get(gid);
+    }
+
+    @Override
+    public void deleteGameSnapshot(long gid) {
+        snapshots.remove(gid);
+    }
+
+    /* ---------- Archival ---------- */
+
+    @Override
+    public List<ArchivedGame> pendingArchive(int max) {
+        List<Long> ids = new ArrayList<>(Math.min(max, 1024));
+        synchronized (pendingArchive) {
+            Iterator<Long> it = pendingArchive.iterator();
+            while (it.hasNext() && ids.size() < max) ids.add(it.next());
+        }
+        List<ArchivedGame> out = new ArrayList<>(ids.size());
+        List<Long> gone = new ArrayList<>();
+        for (long gid : ids) {
+            synchronized (lockFor(gid)) {
+                GameRecord g = games.get(gid);
+                if (g == null) {
+                    gone.add(gid);
+                    continue;
+                }
+                out.add(toArchived(gid, g));
+            }
+        }
+        if (!gone.isEmpty()) {
+            synchronized (pendingArchive) {
+                pendingArchive.removeAll(gone);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public ArchivedGame getEndedGame(long gid) {
+        synchronized (lockFor(gid)) {
+            GameRecord g = games.get(gid);
+            return g == null || !"ENDED".equals(g.status) ? null : toArchived(gid, g);
+        }
+    }
+
+    // Caller holds the game's stripe lock
+    private static ArchivedGame toArchived(long gid, GameRecord g) {
+        return new ArchivedGame(gid, g.whiteId, g.blackId, g.result, g.reason, g.winnerId,
+            g.timeControl, g.createdAt, g.lastUpdated,
+            List.copyOf(g.moves));
+    }
+
+    @Override
+    public long purgeArchived(List<Long> gameIds) {
+        for (long gid : gameIds) {
+            synchronized (lockFor(gid)) {
+                games.remove(gid);
+            }
+        }
+        synchronized (pendingArchive) {
+            pendingArchive.removeAll(gameIds);
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean tryArchiveLease(String nodeId, long ttlMillis) {
+        return true; // one node, one archiver
+    }
+
+    /* ---------- Ratings and leaderboard ---------- */
+
+    @Override
+    public Map<String, Rating> getRatings(Collection<String> playerIds) {
+        Map<String, Rating> out = new HashMap<>();
+        synchronized (ratings) {
+            for (String pid : playerIds) {
+                Rating r = ratings.get(pid);
+                if (r != null) out.put(pid, r);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public Map<String, Rating> updateRatings(Collection<String> playerIds, UnaryOperator<Map<String, Rating>> update) {
+        synchronized (ratings) {
+            Map<String, Rating> next = update.apply(getRatings(playerIds));
+            for (Map.Entry<String, Rating> e : next.entrySet()) {
+                Rating old = ratings.put(e.getKey(), e.getValue());
+                if (old != null) leaderboard.remove(new Ranked(e.getKey(), old.rating()));
+                if (!e.getValue().provisional()) leaderboard.add(new Ranked(e.getKey(), e.getValue().rating()));
+            }
+            return next;
+        }
+    }
+
+    // Walks the tree: fine for one node's players, and the leaderboard cache keeps it off hot paths
+    @Override
+    public List<LeaderboardEntry> leaderboard(long offset, int count) {
+        List<LeaderboardEntry> out = new ArrayList<>();
+        synchronized (ratings) {
+            long rank = 0;
+            for (Ranked r : leaderboard) {
+                if (++rank <= offset) continue;
+                if (out.size() == count) break;
+                out.add(new LeaderboardEntry(rank, r.playerId(), (int) Math.round(r.rating())));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public long leaderboardRank(String playerId) {
+        synchronized (ratings) {
+            Rating r = ratings.get(playerId);
+            if (r == null || r.provisional()) return 0;
+            return leaderboard.headSet(new Ranked(playerId, r.rating())).size() + 1;
+        }
+    }
+
+    @Override
+    public long leaderboardSize() {
+        synchronized (ratings) {
+            return leaderboard.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    public int getGameCount() {
+        return games.size();
+    }
+}
@@ -0,0 +1,152 @@
+package com.server.tournament;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import com.server.model.Player;
+import com.shared.util.GameResult;
+import com.shared.util.TimeControl;
+
+/**
+ * One arena event: players join and leave at will until it ends, and whoever is free gets
+ * paired again every round. A win scores 2, a draw 1; from the third win in a row each result
+ * counts double until the streak breaks. Standings are a tree ordered by score, kept up to date
+ * one result at a time, so reading a page never sorts the field. All state is guarded by this.
+ */
+public final class Arena {
+
+    private static final Comparator<ArenaPlayer> STANDINGS = Comparator
+        .comparingInt((ArenaPlayer p) -> p.score).reversed()
+        .thenComparing(Comparator.comparingInt(ArenaPlayer::rating).reversed())
+        .thenComparing(ArenaPlayer::id);
+
+    private final long id;
+    private final String name;
+    private final TimeControl timeControl;
+    private final long startsAt;
+    private final long endsAt;
+    private final Map<String, ArenaPlayer> players = new HashMap<>();
+    private final TreeSet<ArenaPlayer> standings = new TreeSet<>(STANDINGS);
+    private int playing;
+    private boolean finished;
+
+    Arena(long id, String name, TimeControl timeControl, long startsAt, long endsAt) {
+        this.id = id;
+        this.name = name;
+        this.timeControl = timeControl;
+        this.startsAt = startsAt;
+        this.endsAt = endsAt;
+    }
+
+    public long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public TimeControl getTimeControl() { return timeControl; }
+
+    public long getEndsAt() { return endsAt; }
+
+    /** False once the arena has ended. A player who left earlier comes back with their score. */
+    synchronized boolean join(Player player) {
+        if (finished) return false;
+        ArenaPlayer p = players.get(player.getId());
+        if (p == null) {
+            p = new ArenaPlayer(player);
+            players.put(player.getId(), p);
+            standings.add(p);
+        }
+        p.withdrawn = false;
+        return true;
+    }
+
+    /** Stops pairing the player; a game in progress still counts. */
+    synchronized void withdraw(String playerId) {
+        ArenaPlayer p = players.get(playerId);
+        if (p != null) p.withdrawn = true;
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    // Ends the arena once its time is up; true the one time it does
+    synchronized boolean finishIfDue(long nowMillis) {
+        if (finished || nowMillis < endsAt) return false;
+        finished = true;
+        return true;
+    }
+
+    /** Pairs every entrant who is free and available; marks them as playing. */
+    synchronized List<ArenaPlayer[]> pairRound(long nowMillis, Predicate<String> available) {
+        if (finished || nowMillis < startsAt) return List.of();
+        List<ArenaPlayer> waiting = new ArrayList<>();
+        for (ArenaPlayer p : players.values()) {
+            if (!p.playing && !p.withdrawn && available.test(p.id())) waiting.add(p);
+        }
+        if (waiting.size() < 2) return List.of();
+        List<ArenaPlayer[]> pairs = ArenaPairing.pair(waiting);
+        for (ArenaPlayer[] pair : pairs) {
+            pair[0].paired(pair[1].id(), true);
+            pair[1].paired(pair[0].id(), false);
+            playing += 2;
+        }
+        return pairs;
+    }
+
+    // A game that couldn't be created: both go back to waiting without it counting
+    synchronized void unpair(ArenaPlayer white, ArenaPlayer black) {
+        white.playing = false;
+        black.playing = false;
+        white.colourBalance--;
+        black.colourBalance++;
+        playing -= 2;
+    }
+
+    /** Scores a finished arena game; games that ended after the arena did still count. */
+    synchronized void result(String whiteId, String blackId, GameResult result) {
+        ArenaPlayer white = players.get(whiteId);
+        ArenaPlayer black = players.get(blackId);
+        if (white == null || black == null) return;
+        standings.remove(white);
+        standings.remove(black);
+        switch (result) {
+            case WHITE_WIN -> { score(white, 2); score(black, 0); }
+            case BLACK_WIN -> { score(white, 0); score(black, 2); }
+            case DRAW -> { score(white, 1); score(black, 1); }
+            case ABANDONED -> { }
+        }
+        white.playing = false;
+        black.playing = false;
+        playing -= 2;
+        standings.add(white);
+        standings.add(black);
+    }
+
+    private static void score(ArenaPlayer p, int points) {
+        p.games++;
+        if (points == 2) p.wins++;
+        else if (points == 1) p.draws++;
+        else p.losses++;
+        p.score += p.onStreak() ? points * 2 : points;
+        p.winStreak = points == 2 ? p.winStreak + 1 : 0;
+    }
+
+    /** Standings from rank offset+1, limit rows (0 for none). */
+    public synchronized ArenaSummary summary(long offset, int limit) {
+        List<StandingsEntry> rows = new ArrayList<>(Math.min(limit, standings.size()));
+        long rank = 0;
+        for (ArenaPlayer p : standings) {
+            if (rows.size() == limit) break;
+            if (++rank <= offset) continue;
+            rows.add(new StandingsEntry(rank, p.id(), p.player.getName(), p.rating(), p.score, p.games,
+                p.wins, p.draws, p.losses, p.onStreak(), p.withdrawn));
+        }
+        return new ArenaSummary(id, name, timeControl == null ? "none" : timeControl.toString(), startsAt, endsAt,
+            finished, players.size(), playing, rows);
+    }
+}
@@ -0,0 +1,83 @@
+package com.server.tournament;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Pairs everyone waiting in an arena at once. Players are sorted by rating and each takes the
+ * nearest-rated unpaired player within WINDOW places who isn't a recent opponent. Large fields
+ * are cut into rating-contiguous chunks paired in parallel, and whoever a chunk leaves over is
+ * paired in one more pass. Anyone still unpaired waits for the next round.
+ */
+final class ArenaPairing {
+
+    private static final int WINDOW = 8;
+    private static final int CHUNK = 1024;
+
+    private ArenaPairing() {}
+
+    /** Pairs as {white, black}; the caller holds the arena's monitor. */
+    static List<ArenaPlayer[]> pair(List<ArenaPlayer> waiting) {
+        ArenaPlayer[] sorted = waiting.toArray(new ArenaPlayer[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(ArenaPlayer::rating).reversed());
+        if (sorted.length <= CHUNK) {
+            List<ArenaPlayer[]> pairs = new ArrayList<>(sorted.length / 2);
+            pairRange(sorted, pairs, new ArrayList<>());
+            return pairs;
+        }
+
+        int chunks = (sorted.length + CHUNK - 1) / CHUNK;
+        List<List<ArenaPlayer[]>> pairsByChunk = new ArrayList<>(chunks);
+        List<List<ArenaPlayer>> leftByChunk = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            pairsByChunk.add(new ArrayList<>(CHUNK / 2));
+            leftByChunk.add(new ArrayList<>());
+        }
+        IntStream.range(0, chunks).parallel().forEach(c -> pairRange(
+            Arrays.copyOfRange(sorted, c * CHUNK, Math.min(sorted.length, (c + 1) * CHUNK)),
+            pairsByChunk.get(c), leftByChunk.get(c)));
+
+        List<ArenaPlayer[]> pairs = new ArrayList<>(sorted.length / 2);
+        List<ArenaPlayer> left = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            pairs.addAll(pairsByChunk.get(c));
+            left.addAll(leftByChunk.get(c)); // still in rating order
+        }
+        pairRange(left.toArray(new ArenaPlayer[0]), pairs, new ArrayList<>());
+        return pairs;
+    }
+
+    // Only reads the players; colours and recent opponents are recorded by the arena afterwards
+    private static void pairRange(ArenaPlayer[] players, List<ArenaPlayer[]> pairs, List<ArenaPlayer> left) {
+        boolean[] used = new boolean[players.length];
+        for (int i = 0; i < players.length; i++) {
+            if (used[i]) continue;
+            ArenaPlayer a = players[i];
+            int match = -1;
+            for (int k = i + 1; k < players.length && k <= i + WINDOW; k++) {
+                if (!used[k] && !a.recentlyPlayed(players[k].id()) && !players[k].recentlyPlayed(a.id())) {
+                    match = k;
+                    break;
+                }
+            }
+            if (match < 0) {
+                left.add(a);
+                continue;
+            }
+            used[i] = used[match] = true;
+            pairs.add(colours(a, players[match]));
+        }
+    }
+
+    // White to whoever has had black more often; a coin toss when they're even
+    private static ArenaPlayer[] colours(ArenaPlayer a, ArenaPlayer b) {
+        boolean aWhite = a.colourBalance != b.colourBalance
+            ? a.colourBalance < b.colourBalance
+            : ThreadLocalRandom.current().nextBoolean();
+        return aWhite ? new ArenaPlayer[] { a, b } : new ArenaPlayer[] { b, a };
+    }
+}
@@ -0,0 +1,52 @@
+package com.server.tournament;
+
+import com.server.model.Player;
+
+/** One entrant's state in an Arena. Guarded by the arena's monitor. */
+final class ArenaPlayer {
+
+    // How many recent opponents a player isn't paired with again
+    static final int RECENT_OPPONENTS = 2;
+
+    final Player player;
+    int score;
+    int games;
+    int wins;
+    int draws;
+    int losses;
+    int winStreak;
+    // Games as white minus games as black; pairing evens it out
+    int colourBalance;
+    boolean playing;
+    boolean withdrawn;
+    private final String[] recent = new String[RECENT_OPPONENTS];
+    private int recentNext;
+
+    ArenaPlayer(Player player) {
+        this.player = player;
+    }
+
+    String id() {
+        return player.getId();
+    }
+
+    int rating() {
+        return player.getRating();
+    }
+
+    boolean onStreak() {
+        return winStreak >= 2;
+    }
+
+    boolean recentlyPlayed(String opponentId) {
+        for (String r : recent) if (opponentId.equals(r)) return true;
+        return false;
+    }
+
+    void paired(String opponentId, boolean white) {
+        recent[recentNext] = opponentId;
+        recentNext = (recentNext + 1) % recent.length;
+        colourBalance += white ? 1 : -1;
+        playing = true;
+    }
+}
@@ -0,0 +1,172 @@
+package com.server.tournament;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.server.metrics.LatencyHistogram;
+import com.server.metrics.Metrics;
+import com.server.model.ChessGame;
+import com.server.model.Player;
+import com.server.service.MatchmakingService;
+import com.server.store.GameStore;
+import com.server.util.Match;
+import com.server.util.NewGame;
+import com.shared.util.GameResult;
+import com.shared.util.TimeControl;
+
+/**
+ * Arenas hosted on this node. Every round each running arena pairs all of its free entrants at
+ * once; the games of a round get their ids in one reservation and are written with one
+ * pipelined initGames, then adopted by MatchmakingService like any other game here. Results
+ * come back through gameEnded. A player is in at most one arena at a time. A finished arena's
+ * standings stay readable for chess.arenaRetentionMs after it ends, then it is dropped.
+ */
+public final class ArenaService {
+
+    private static final long RETENTION_MS = Long.getLong("chess.arenaRetentionMs", 3_600_000L);
+
+    private final String nodeId;
+    private final MatchmakingService matchmaking;
+    private final GameStore store;
+    private final AtomicLong nextArenaId = new AtomicLong();
+    private final Map<Long, Arena> arenas = new ConcurrentHashMap<>();
+    private final Map<Long, Arena> gameArena = new ConcurrentHashMap<>();
+    private final Map<String, Arena> playerArena = new ConcurrentHashMap<>();
+    private final LatencyHistogram pairingLatency;
+    private final LatencyHistogram creationLatency;
+    private final AtomicLong gamesCreated = new AtomicLong();
+    private final AtomicLong creationFailures = new AtomicLong();
+
+    public ArenaService(String nodeId, MatchmakingService matchmaking, GameStore store) {
+        this.nodeId = nodeId;
+        this.matchmaking = matchmaking;
+        this.store = store;
+        Metrics m = Metrics.get();
+        this.pairingLatency = m.histogram("chess_arena_pairing_latency_us", "Time to pair one arena round");
+        this.creationLatency = m.histogram("chess_arena_game_creation_latency_us",
+            "Time to create all the games of one arena round");
+        m.counterFn("chess_arena_games_total", "Arena games created", gamesCreated::get);
+        m.counterFn("chess_arena_game_failures_total", "Arena pairings whose game couldn't be created",
+            creationFailures::get);
+        m.gauge("chess_arena_players", "Players entered in running arenas", playerArena::size);
+    }
+
+    public Arena create(String name, TimeControl timeControl, long startsAt, long durationMillis) {
+        long id = nextArenaId.incrementAndGet();
+        Arena arena = new Arena(id, name, timeControl, startsAt, startsAt + durationMillis);
+        arenas.put(id, arena);
+        System.out.printf("[ARENA] created %d '%s' tc=%s %d min%n", id, name, timeControl, durationMillis / 60_000);
+        return arena;
+    }
+
+    public Arena get(long arenaId) {
+        return arenas.get(arenaId);
+    }
+
+    public Collection<Arena> all() {
+        return arenas.values();
+    }
+
+    /** Null if the player is in; otherwise why not. Leaves any other arena they were in. */
+    public String join(long arenaId, Player player) {
+        Arena arena = arenas.get(arenaId);
+        if (arena == null) return "no such arena";
+        Arena previous = playerArena.put(player.getId(), arena);
+        if (previous != null && previous != arena) previous.withdraw(player.getId());
+        if (!arena.join(player)) {
+            playerArena.remove(player.getId(), arena);
+            return "arena has finished";
+        }
+        return null;
+    }
+
+    public void withdraw(String playerId) {
+        Arena arena = playerArena.remove(playerId);
+        if (arena != null) arena.withdraw(playerId);
+    }
+
+    public boolean isEntered(String playerId) {
+        return playerArena.containsKey(playerId);
+    }
+
+    /**
+     * One round for every running arena: pairs entrants for whom available is true and creates
+     * their games. Returns the games to announce.
+     */
+    public List<Match> pairRound(Predicate<String> available) {
+        long now = System.currentTimeMillis();
+        List<Match> matches = new ArrayList<>();
+        for (Iterator<Arena> it = arenas.values().iterator(); it.hasNext(); ) {
+            Arena arena = it.next();
+            if (arena.finishIfDue(now)) finish(arena);
+            if (arena.isFinished()) {
+                if (now - arena.getEndsAt() >= RETENTION_MS) {
+                    it.remove();
+                    System.out.printf("[ARENA] %d '%s' dropped %d min after it ended%n",
+                        arena.getId(), arena.getName(), (now - arena.getEndsAt()) / 60_000);
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            List<ArenaPlayer[]> pairs = arena.pairRound(now, available);
+            if (pairs.isEmpty()) continue;
+            pairingLatency.recordNanosAsMicros(start);
+            createGames(arena, pairs, matches);
+        }
+        return matches;
+    }
+
+    private void createGames(Arena arena, List<ArenaPlayer[]> pairs, List<Match> matches) {
+        long start = System.nanoTime();
+        List<NewGame> specs = new ArrayList<>(pairs.size());
+        ChessGame[] games = new ChessGame[pairs.size()];
+        boolean[] live;
+        try {
+            long firstId = store.reserveGameIds(pairs.size());
+            for (int i = 0; i < games.length; i++) {
+                Player white = pairs.get(i)[0].player;
+                Player black = pairs.get(i)[1].player;
+                games[i] = new ChessGame(new Player[] { white, black }, firstId + i, arena.getTimeControl());
+                specs.add(new NewGame(firstId + i, white.getId(), black.getId()));
+            }
+            live = store.initGames(specs, nodeId, games[0].getFen(), arena.getTimeControl());
+        } catch (RuntimeException e) {
+            System.out.println("[ARENA] creating " + pairs.size() + " games failed: " + e.getMessage());
+            live = new boolean[pairs.size()];
+        }
+        int created = 0;
+        for (int i = 0; i < games.length; i++) {
+            ArenaPlayer[] pair = pairs.get(i);
+            if (!live[i] || !matchmaking.adoptGame(games[i])) {
+                arena.unpair(pair[0], pair[1]);
+                creationFailures.incrementAndGet();
+                continue;
+            }
+            gameArena.put(games[i].getGameId(), arena);
+            matches.add(new Match(pair[0].player, pair[1].player, games[i]));
+            created++;
+        }
+        gamesCreated.addAndGet(created);
+        creationLatency.recordNanosAsMicros(start);
+        System.out.printf("[ARENA] %d round: %d games created, %d failed%n", arena.getId(), created, pairs.size() - created);
+    }
+
+    /** Scores the game if it was an arena game. */
+    public void gameEnded(long gameId, String whiteId, String blackId, GameResult result) {
+        Arena arena = gameArena.remove(gameId);
+        if (arena != null) arena.result(whiteId, blackId, result);
+    }
+
+    private void finish(Arena arena) {
+        playerArena.values().removeIf(a -> a == arena);
+        ArenaSummary top = arena.summary(0, 3);
+        System.out.printf("[ARENA] %d '%s' finished with %d players; podium %s%n",
+            arena.getId(), arena.getName(), top.players(), top.standings());
+    }
+}
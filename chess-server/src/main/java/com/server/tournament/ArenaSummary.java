@@ -0,0 +1,7 @@
+package com.server.tournament;
+
+import java.util.List;
+
+/** An arena as /arena reports it: its settings and, when asked for, a page of standings. */
+public record ArenaSummary(long arenaId, String name, String timeControl, long startsAt, long endsAt,
+                           boolean finished, int players, int playing, List<StandingsEntry> standings) {}
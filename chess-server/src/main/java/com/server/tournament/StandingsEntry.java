@@ -0,0 +1,5 @@
+package com.server.tournament;
+
+/** One row of an arena's standings; rank starts at 1. */
+public record StandingsEntry(long rank, String playerId, String name, int rating, int score, int games,
+                             int wins, int draws, int losses, boolean onStreak, boolean withdrawn) {}
@@ -0,0 +1,17 @@
+package com.server.util;
+
+import com.shared.util.TimeControl;
+
+/** Everything another node needs to take over a live game; the move list stays in game:{gid}:moves. */
+public record GameSnapshot(
+    long gameId,
+    String fen,
+    int ply,
+    String whiteId, String whiteName, int whiteRating,
+    String blackId, String blackName, int blackRating,
+    String pausedPlayerId,
+    String fromNode,
+    TimeControl timeControl,
+    long whiteMillis,
+    long blackMillis
+) {}
@@ -0,0 +1,4 @@
+package com.server.util;
+
+/** One game for GameStore.initGames: its reserved id and who plays which colour. */
+public record NewGame(long gameId, String whiteId, String blackId) {}
@@ -0,0 +1,22 @@
+package com.server.util;
+
+/** What each node publishes alongside its heartbeat. */
+public record NodeLoad(
+    String nodeId,
+    int activeGames,
+    int connections,
+    long moveP99Micros,
+    double cpuLoad,
+    boolean draining,
+    long reportedAtMillis
+) {
+    // Rough "cost" of placing one more game here; games dominate, CPU and latency break ties
+    public double score() {
+        return activeGames + connections / 2.0 + cpuLoad * 50.0 + moveP99Micros / 10_000.0;
+    }
+
+    /** This report with one more game and its two players counted. */
+    public NodeLoad withOneMoreGame() {
+        return new NodeLoad(nodeId, activeGames + 1, connections + 2, moveP99Micros, cpuLoad, draining, reportedAtMillis);
+    }
+}
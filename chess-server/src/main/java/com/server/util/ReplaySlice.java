@@ -0,0 +1,16 @@
+package com.server.util;
+
+import java.util.List;
+
+/**
+ * What a replay needs from the store: the nearest checkpoint at or before the requested ply,
+ * the moves from there up to the end of the requested slice, and how many plies the game has.
+ * ended and the player ids decide who may see it: a live game only replays for its players.
+ */
+public record ReplaySlice(int checkpointPly, String checkpointFen, List<String> moves, int totalPlies,
+                          boolean ended, String whiteId, String blackId) {
+
+    public boolean visibleTo(String playerId) {
+        return ended || playerId != null && (playerId.equals(whiteId) || playerId.equals(blackId));
+    }
+}
@@ -0,0 +1,187 @@
+package com.server.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The routing near-cache against an in-memory stand-in for Redis and the invalidation channel.
+ * Writes, fills and route lookups follow what RedisManager and ChessWebSocketServer.resolveRoute
+ * do; messages are delivered late and in arbitrary amounts to shake out races.
+ */
+class RoutingCacheTest {
+
+    private static final int MAX = 1_000;
+    private static final long TTL_MS = 60_000;
+
+    /** One node: its cache and the channel messages it hasn't processed yet. */
+    private static final class Node {
+        final String id;
+        final RoutingCache cache;
+        final ArrayDeque<String> inbox = new ArrayDeque<>();
+
+        Node(String id) {
+            this.id = id;
+            this.cache = new RoutingCache(id, MAX, TTL_MS);
+        }
+
+        void deliver(int n) {
+            for (int i = 0; i < n && !inbox.isEmpty(); i++) cache.onMessage(inbox.poll());
+        }
+    }
+
+    /** A fresh read that has been to Redis but not yet written its answer into the cache. */
+    private record Fill(Node node, long gameId, String value, long stamp) {
+        void complete() {
+            node.cache.gameNode.putIfNotInvalidatedSince(gameId, value, stamp);
+        }
+    }
+
+    private final Map<Long, String> redis = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+
+    private Node node(String id) {
+        Node n = new Node(id);
+        nodes.add(n);
+        return n;
+    }
+
+    // setGameNode / migrateGame: fence, write, publish to everyone, fill
+    private void write(Node writer, long gameId, String host) {
+        long stamp = writer.cache.gameNode.fence(gameId);
+        redis.put(gameId, host);
+        String message = writer.cache.gameMessage(gameId);
+        for (Node n : nodes) n.inbox.add(message);
+        writer.cache.gameNode.putIfNotInvalidatedSince(gameId, host, stamp);
+    }
+
+    // getGameNodeFresh, split where a slow Redis round trip would let other work in
+    private Fill startFill(Node node, long gameId) {
+        long stamp = node.cache.gameNode.stamp();
+        return new Fill(node, gameId, redis.get(gameId), stamp);
+    }
+
+    private String fresh(Node node, long gameId) {
+        Fill f = startFill(node, gameId);
+        f.complete();
+        return f.value();
+    }
+
+    // resolveRoute: a cached answer that would send the client away is re-read first
+    private String route(Node node, long gameId) {
+        String host = node.cache.gameNode.get(gameId);
+        if (host == null) host = fresh(node, gameId);
+        if (!node.id.equals(host)) host = fresh(node, gameId);
+        return host;
+    }
+
+    private Node byId(String id) {
+        for (Node n : nodes) if (n.id.equals(id)) return n;
+        throw new AssertionError("no node " + id);
+    }
+
+    @Test
+    void writerKeepsItsOwnEntry() {
+        Node a = node("a");
+        write(a, 1, "a");
+        a.deliver(Integer.MAX_VALUE);
+        assertEquals("a", a.cache.gameNode.get(1L));
+        assertEquals(0L, a.cache.invalidations());
+    }
+
+    @Test
+    void otherNodesDropTheirEntry() {
+        Node a = node("a");
+        Node b = node("b");
+        fresh(b, 1);
+        write(a, 1, "a");
+        b.deliver(Integer.MAX_VALUE);
+        assertNull(b.cache.gameNode.get(1L));
+        assertEquals("a", route(b, 1));
+    }
+
+    @Test
+    void untaggedMessagesStillApply() {
+        Node a = node("a");
+        a.cache.playerGame.put("p1", 7L);
+        assertTrue(a.cache.onMessage("p:p1"));
+        assertNull(a.cache.playerGame.get("p1"));
+    }
+
+    @Test
+    void fillOvertakenByAnInvalidationIsDropped() {
+        Node a = node("a");
+        Node b = node("b");
+        redis.put(1L, "a");
+        Fill slow = startFill(b, 1);
+        write(a, 1, "c");
+        b.deliver(Integer.MAX_VALUE);
+        slow.complete();
+        assertNull(b.cache.gameNode.get(1L), "b cached the value from before the write");
+    }
+
+    @Test
+    void writerFencesItsOwnFillsInFlight() {
+        Node a = node("a");
+        redis.put(1L, "b");
+        Fill slow = startFill(a, 1);
+        write(a, 1, "a");
+        slow.complete();
+        assertEquals("a", a.cache.gameNode.get(1L));
+    }
+
+    /**
+     * Random writes, late deliveries and slow fills on three nodes. Whenever a node has caught up
+     * on the channel, everything it has cached matches Redis. A client that follows redirects
+     * settles on the game's node after at most one hop.
+     */
+    @Test
+    void noStaleReadsOrRedirectLoops() {
+        String[] ids = { "a", "b", "c" };
+        for (String id : ids) node(id);
+        long games = 5;
+        for (long g = 1; g <= games; g++) write(nodes.get(0), g, "a");
+        Random rnd = new Random(42);
+        List<Fill> inFlight = new ArrayList<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            Node n = nodes.get(rnd.nextInt(nodes.size()));
+            long gameId = 1 + rnd.nextInt((int) games);
+            switch (rnd.nextInt(5)) {
+                case 0 -> write(n, gameId, ids[rnd.nextInt(ids.length)]);
+                case 1 -> n.deliver(1 + rnd.nextInt(8));
+                case 2 -> inFlight.add(startFill(n, gameId));
+                case 3 -> {
+                    if (!inFlight.isEmpty()) inFlight.remove(rnd.nextInt(inFlight.size())).complete();
+                }
+                default -> {
+                    Node at = n;
+                    int hops = 0;
+                    String host;
+                    while (!(host = route(at, gameId)).equals(at.id)) {
+                        assertEquals(redis.get(gameId), host, "redirected to a node that doesn't host the game");
+                        at = byId(host);
+                        assertTrue(++hops <= 1, "client bounced between nodes for game " + gameId);
+                    }
+                }
+            }
+            for (Node each : nodes) {
+                if (!each.inbox.isEmpty()) continue;
+                for (long g = 1; g <= games; g++) {
+                    String cached = each.cache.gameNode.get(g);
+                    assertTrue(cached == null || cached.equals(redis.get(g)),
+                        "node " + each.id + " caught up but still maps game " + g + " to " + cached);
+                }
+            }
+        }
+    }
+}